@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.trasco.api;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * The type of byte array arguments. The array is copied on construction
+ * and on access, and so instances are immutable.
+ *
+ * @param name  The name
+ * @param value The value
+ */
+
+public record TrArgumentBytes(
+  String name,
+  byte[] value)
+  implements TrArgumentType
+{
+  /**
+   * The type of byte array arguments.
+   *
+   * @param name  The name
+   * @param value The value
+   */
+
+  public TrArgumentBytes
+  {
+    Objects.requireNonNull(name, "name");
+    value = Objects.requireNonNull(value, "value").clone();
+  }
+
+  /**
+   * @return A copy of the value
+   */
+
+  @Override
+  public byte[] value()
+  {
+    return this.value.clone();
+  }
+
+  @Override
+  public TrParameterKind type()
+  {
+    return TrParameterKind.BYTES;
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    return other instanceof final TrArgumentBytes o
+      && this.name.equals(o.name)
+      && Arrays.equals(this.value, o.value);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return 31 * this.name.hashCode() + Arrays.hashCode(this.value);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "TrArgumentBytes[name=%s, value=%s]"
+      .formatted(this.name, HexFormat.of().formatHex(this.value));
+  }
+}
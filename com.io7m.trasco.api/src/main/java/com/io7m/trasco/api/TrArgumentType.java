@@ -22,8 +22,13 @@ package com.io7m.trasco.api;
  */
 
 public sealed interface TrArgumentType
-  permits TrArgumentNumeric,
-  TrArgumentString
+  permits TrArgumentBigInt,
+  TrArgumentBoolean,
+  TrArgumentBytes,
+  TrArgumentNumeric,
+  TrArgumentString,
+  TrArgumentTimestamp,
+  TrArgumentUUID
 {
   /**
    * @return The argument name
@@ -57,5 +57,50 @@ public enum TrErrorCode
    * One or more argument errors were encountered.
    */
 
-  ARGUMENT_ERRORS
+  ARGUMENT_ERRORS,
+
+  /**
+   * The operation was cancelled.
+   */
+
+  CANCELLED,
+
+  /**
+   * The upgrade lock could not be acquired within the configured timeout.
+   */
+
+  LOCK_TIMEOUT,
+
+  /**
+   * The schema revision set could not be loaded.
+   */
+
+  REVISIONS_UNAVAILABLE,
+
+  /**
+   * The schema revision set does not match the manifest that describes it.
+   */
+
+  MANIFEST_MISMATCH,
+
+  /**
+   * The executor does not support the requested operation.
+   */
+
+  OPERATION_UNSUPPORTED,
+
+  /**
+   * The connection has auto-commit disabled, and so may hold uncommitted
+   * work that the operation would otherwise commit or discard.
+   */
+
+  CONNECTION_IN_TRANSACTION,
+
+  /**
+   * A revision contains a statement that is not transactional, but the
+   * transaction strategy requires that all revisions execute in a single
+   * transaction.
+   */
+
+  NON_TRANSACTIONAL_DISALLOWED
 }
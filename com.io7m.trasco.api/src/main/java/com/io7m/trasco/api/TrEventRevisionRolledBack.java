@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * A revision failed, and the work performed by the revision was rolled back
+ * to the savepoint taken before the revision started.
+ *
+ * @param lastGoodVersion The most recent version that was successfully applied
+ * @param failedVersion   The version that failed
+ * @param attempt         The attempt number (starting at 1)
+ */
+
+public record TrEventRevisionRolledBack(
+  BigInteger lastGoodVersion,
+  BigInteger failedVersion,
+  int attempt)
+  implements TrEventType
+{
+  /**
+   * A revision failed, and the work performed by the revision was rolled back
+   * to the savepoint taken before the revision started.
+   *
+   * @param lastGoodVersion The most recent version that was successfully
+   *                        applied
+   * @param failedVersion   The version that failed
+   * @param attempt         The attempt number (starting at 1)
+   */
+
+  public TrEventRevisionRolledBack
+  {
+    Objects.requireNonNull(lastGoodVersion, "lastGoodVersion");
+    Objects.requireNonNull(failedVersion, "failedVersion");
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.util.Objects;
+
+/**
+ * A batch of rows was inserted into a table. One event is published for
+ * each batch, rather than for each row.
+ *
+ * @param table    The table
+ * @param inserted The number of rows inserted so far
+ * @param total    The total number of rows to insert
+ */
+
+public record TrEventRowsInserted(
+  String table,
+  int inserted,
+  int total)
+  implements TrEventType
+{
+  /**
+   * A batch of rows was inserted into a table.
+   *
+   * @param table    The table
+   * @param inserted The number of rows inserted so far
+   * @param total    The total number of rows to insert
+   */
+
+  public TrEventRowsInserted
+  {
+    Objects.requireNonNull(table, "table");
+    if (inserted < 0 || inserted > total) {
+      throw new IllegalArgumentException(
+        "Inserted rows %d must be in the range [0, %d]"
+          .formatted(Integer.valueOf(inserted), Integer.valueOf(total))
+      );
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+/**
+ * Statistics for the prepared statement cache used during an execution.
+ *
+ * @param hits   The number of statements that were served from the cache
+ * @param misses The number of statements that had to be prepared
+ */
+
+public record TrEventStatementCacheStatistics(
+  long hits,
+  long misses)
+  implements TrEventType
+{
+  /**
+   * Statistics for the prepared statement cache used during an execution.
+   *
+   * @param hits   The number of statements that were served from the cache
+   * @param misses The number of statements that had to be prepared
+   */
+
+  public TrEventStatementCacheStatistics
+  {
+    if (hits < 0L) {
+      throw new IllegalArgumentException("Hits must be non-negative");
+    }
+    if (misses < 0L) {
+      throw new IllegalArgumentException("Misses must be non-negative");
+    }
+  }
+}
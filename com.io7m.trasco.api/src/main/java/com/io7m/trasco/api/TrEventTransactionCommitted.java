@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The executor committed a transaction.
+ *
+ * @param revision   The revision that was being applied when the commit
+ *                   occurred
+ * @param statements The number of statements executed in the transaction
+ * @param elapsed    The time elapsed between the start of the transaction and
+ *                   the completion of the commit
+ */
+
+public record TrEventTransactionCommitted(
+  BigInteger revision,
+  long statements,
+  Duration elapsed)
+  implements TrEventType
+{
+  /**
+   * The executor committed a transaction.
+   *
+   * @param revision   The revision that was being applied when the commit
+   *                   occurred
+   * @param statements The number of statements executed in the transaction
+   * @param elapsed    The time elapsed between the start of the transaction
+   *                   and the completion of the commit
+   */
+
+  public TrEventTransactionCommitted
+  {
+    Objects.requireNonNull(revision, "revision");
+    Objects.requireNonNull(elapsed, "elapsed");
+  }
+}
@@ -21,7 +21,13 @@ package com.io7m.trasco.api;
  */
 
 public sealed interface TrEventType
-  permits TrEventExecutingSQL, TrEventUpgrading
+  permits TrEventExecutingSQL,
+  TrEventRevisionRolledBack,
+  TrEventRowsInserted,
+  TrEventStatementCacheStatistics,
+  TrEventTransactionCommitted,
+  TrEventUpgradeLockWaiting,
+  TrEventUpgrading
 {
 
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The upgrade lock is held by another process, and the executor is waiting
+ * before polling the schema version again.
+ *
+ * @param version The schema version observed, if any
+ * @param delay   The time that the executor will wait
+ */
+
+public record TrEventUpgradeLockWaiting(
+  Optional<BigInteger> version,
+  Duration delay)
+  implements TrEventType
+{
+  /**
+   * The upgrade lock is held by another process, and the executor is waiting
+   * before polling the schema version again.
+   *
+   * @param version The schema version observed, if any
+   * @param delay   The time that the executor will wait
+   */
+
+  public TrEventUpgradeLockWaiting
+  {
+    Objects.requireNonNull(version, "version");
+    Objects.requireNonNull(delay, "delay");
+  }
+}
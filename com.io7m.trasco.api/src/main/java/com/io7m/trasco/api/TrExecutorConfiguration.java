@@ -18,6 +18,7 @@ package com.io7m.trasco.api;
 
 import java.sql.Connection;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
@@ -32,6 +33,12 @@ import java.util.function.Consumer;
  *                   version number
  * @param versionSet A function that will be executed to set the schema version
  *                   number
+ * @param options    The optional executor behaviours
+ *
+ * <p>The seven-argument constructor produces a configuration in which all
+ * optional behaviours are disabled; individual options are then enabled
+ * with the {@code with} methods, each of which returns a copy of the
+ * configuration.</p>
  */
 
 public record TrExecutorConfiguration(
@@ -41,7 +48,8 @@ public record TrExecutorConfiguration(
   TrSchemaRevisionSet revisions,
   TrExecutorUpgrade upgrade,
   TrArguments arguments,
-  Connection connection)
+  Connection connection,
+  Options options)
 {
   /**
    * The configuration information required for an executor.
@@ -55,6 +63,7 @@ public record TrExecutorConfiguration(
    *                   version number
    * @param versionSet A function that will be executed to set the schema
    *                   version number
+   * @param options    The optional executor behaviours
    */
 
   public TrExecutorConfiguration
@@ -66,5 +75,606 @@ public record TrExecutorConfiguration(
     Objects.requireNonNull(upgrade, "upgrade");
     Objects.requireNonNull(connection, "connection");
     Objects.requireNonNull(arguments, "arguments");
+    Objects.requireNonNull(options, "options");
+  }
+
+  /**
+   * The configuration information required for an executor. All optional
+   * behaviours such as statement batching and caching are disabled.
+   *
+   * @param inConnection An open database connection
+   * @param inEvents     A function that will receive progress events
+   * @param inRevisions  The set of known database schema revisions
+   * @param inUpgrade    The desired upgrade behaviour
+   * @param inArguments  The arguments provided to any required parameters
+   * @param inVersionGet A function that will be executed to retrieve a schema
+   *                     version number
+   * @param inVersionSet A function that will be executed to set the schema
+   *                     version number
+   */
+
+  public TrExecutorConfiguration(
+    final TrExecutorVersionRetrieverType inVersionGet,
+    final TrExecutorVersionUpdaterType inVersionSet,
+    final Consumer<TrEventType> inEvents,
+    final TrSchemaRevisionSet inRevisions,
+    final TrExecutorUpgrade inUpgrade,
+    final TrArguments inArguments,
+    final Connection inConnection)
+  {
+    this(
+      inVersionGet,
+      inVersionSet,
+      inEvents,
+      inRevisions,
+      inUpgrade,
+      inArguments,
+      inConnection,
+      Options.defaults()
+    );
+  }
+
+  /**
+   * The optional behaviours of an executor. New options are added to this
+   * record rather than to the configuration, and so options should be
+   * obtained with {@link #defaults()} and then adjusted with the
+   * {@code with} methods rather than constructed directly.
+   *
+   * @param statementBatchSize The maximum number of consecutive
+   *                           unparameterized statements that will be
+   *                           submitted to the database as a single JDBC
+   *                           batch (values less than 2 disable batching)
+   * @param statementCacheSize The maximum number of prepared statements
+   *                           that will be cached and reused for the
+   *                           duration of a single execution (a value of
+   *                           {@code 0} disables caching)
+   * @param revisionSavepoints {@code true} if each revision should be executed
+   *                           within its own savepoint, allowing a failed
+   *                           execution to be resumed
+   * @param retryPolicy The policy used to retry failed revisions when
+   *                    resuming an execution
+   * @param transactionStrategy The strategy used to decide when
+   *                            transactions are committed
+   * @param parallelConnections The connections used to execute parallel
+   *                            groups (if not specified, the statements
+   *                            of parallel groups are executed
+   *                            sequentially on the main connection)
+   * @param deferredIndexes {@code true} if index builds declared with
+   *                        {@link TrStatementIndex} should be deferred
+   *                        until after the final revision (requires
+   *                        {@link TrTransactionStrategySingle#SINGLE_TRANSACTION},
+   *                        so that no version is ever committed before its
+   *                        deferred index builds). Without parallel
+   *                        connections, the builds are executed
+   *                        sequentially in the executor's transaction,
+   *                        unless both parallel connections and an index
+   *                        build store are specified
+   * @param locking The cross-process lock used to ensure that
+   *                only one process performs an upgrade (if
+   *                specified, the executor commits the upgrade
+   *                before releasing the lock)
+   * @param indexBuildStore The store in which pending deferred index
+   *                        builds are recorded (if specified together
+   *                        with parallel connections, the work of the
+   *                        revisions and the final version are committed
+   *                        with the pending builds recorded in the store,
+   *                        and the builds are then executed in parallel
+   *                        over the parallel connections)
+   */
+
+  public record Options(
+    int statementBatchSize,
+    int statementCacheSize,
+    boolean revisionSavepoints,
+    TrExecutorRetryPolicy retryPolicy,
+    TrTransactionStrategyType transactionStrategy,
+    Optional<TrExecutorParallelConnections> parallelConnections,
+    boolean deferredIndexes,
+    Optional<TrExecutorLocking> locking,
+    Optional<TrExecutorIndexBuildStoreType> indexBuildStore)
+  {
+    private static final Options DEFAULTS =
+      new Options(
+        0,
+        0,
+        false,
+        TrExecutorRetryPolicy.noRetries(),
+        TrTransactionStrategySingle.SINGLE_TRANSACTION,
+        Optional.empty(),
+        false,
+        Optional.empty(),
+        Optional.empty()
+      );
+
+    /**
+     * The optional behaviours of an executor.
+     *
+     * @param statementBatchSize  The maximum JDBC batch size
+     * @param statementCacheSize  The maximum prepared statement cache size
+     * @param revisionSavepoints  {@code true} if each revision should be
+     *                            executed within its own savepoint
+     * @param retryPolicy         The retry policy
+     * @param transactionStrategy The transaction strategy
+     * @param parallelConnections The connections used for parallel groups
+     * @param deferredIndexes     {@code true} if index builds are deferred
+     * @param locking             The cross-process lock
+     * @param indexBuildStore     The store of pending index builds
+     */
+
+    public Options
+    {
+      Objects.requireNonNull(retryPolicy, "retryPolicy");
+      Objects.requireNonNull(transactionStrategy, "transactionStrategy");
+      Objects.requireNonNull(parallelConnections, "parallelConnections");
+      Objects.requireNonNull(locking, "locking");
+      Objects.requireNonNull(indexBuildStore, "indexBuildStore");
+
+      if (statementBatchSize < 0) {
+        throw new IllegalArgumentException(
+          "Statement batch size %d must be non-negative"
+            .formatted(Integer.valueOf(statementBatchSize))
+        );
+      }
+
+      if (statementCacheSize < 0) {
+        throw new IllegalArgumentException(
+          "Statement cache size %d must be non-negative"
+            .formatted(Integer.valueOf(statementCacheSize))
+        );
+      }
+
+      if (revisionSavepoints
+          && transactionStrategy instanceof TrTransactionStrategyEveryNStatements) {
+        throw new IllegalArgumentException(
+          "Per-revision savepoints cannot be combined with commits inside revisions."
+        );
+      }
+
+      if (deferredIndexes
+          && transactionStrategy != TrTransactionStrategySingle.SINGLE_TRANSACTION) {
+        throw new IllegalArgumentException(
+          "Deferred indexes require a single transaction."
+        );
+      }
+    }
+
+    /**
+     * @return The options in which all optional behaviours are disabled
+     */
+
+    public static Options defaults()
+    {
+      return DEFAULTS;
+    }
+
+    /**
+     * @param newSize The maximum number of consecutive unparameterized
+     *                statements submitted as a single JDBC batch (values
+     *                less than 2 disable batching)
+     *
+     * @return These options with {@code statementBatchSize} set to the given value
+     */
+
+    public Options withStatementBatchSize(
+      final int newSize)
+    {
+      return new Options(
+        newSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param newSize The maximum number of prepared statements cached for
+     *                the duration of a single execution (a value of
+     *                {@code 0} disables caching)
+     *
+     * @return These options with {@code statementCacheSize} set to the given value
+     */
+
+    public Options withStatementCacheSize(
+      final int newSize)
+    {
+      return new Options(
+        this.statementBatchSize,
+        newSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param enabled {@code true} if each revision should be executed
+     *                within its own savepoint
+     *
+     * @return These options with {@code revisionSavepoints} set to the given value
+     */
+
+    public Options withRevisionSavepoints(
+      final boolean enabled)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        enabled,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param policy The policy used to retry failed revisions when
+     *               resuming an execution
+     *
+     * @return These options with {@code retryPolicy} set to the given value
+     */
+
+    public Options withRetryPolicy(
+      final TrExecutorRetryPolicy policy)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        policy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param strategy The strategy used to decide when transactions
+     *                 are committed
+     *
+     * @return These options with {@code transactionStrategy} set to the given value
+     */
+
+    public Options withTransactionStrategy(
+      final TrTransactionStrategyType strategy)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        strategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param connections The connections used to execute parallel
+     *                    groups
+     *
+     * @return These options with {@code parallelConnections} set to the given value
+     */
+
+    public Options withParallelConnections(
+      final TrExecutorParallelConnections connections)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        Optional.of(connections),
+        this.deferredIndexes,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param enabled {@code true} if index builds should be deferred
+     *                until after the final revision
+     *
+     * @return These options with {@code deferredIndexes} set to the given value
+     */
+
+    public Options withDeferredIndexes(
+      final boolean enabled)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        enabled,
+        this.locking,
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param newLocking The cross-process lock used to ensure that only
+     *                   one process performs an upgrade
+     *
+     * @return These options with {@code locking} set to the given value
+     */
+
+    public Options withLocking(
+      final TrExecutorLocking newLocking)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        Optional.of(newLocking),
+        this.indexBuildStore
+      );
+    }
+
+    /**
+     * @param store The store in which pending deferred index builds are
+     *              recorded
+     *
+     * @return These options with {@code indexBuildStore} set to the given value
+     */
+
+    public Options withIndexBuildStore(
+      final TrExecutorIndexBuildStoreType store)
+    {
+      return new Options(
+        this.statementBatchSize,
+        this.statementCacheSize,
+        this.revisionSavepoints,
+        this.retryPolicy,
+        this.transactionStrategy,
+        this.parallelConnections,
+        this.deferredIndexes,
+        this.locking,
+        Optional.of(store)
+      );
+    }
+  }
+
+  /**
+   * @return The value of {@link Options#statementBatchSize()}
+   */
+
+  public int statementBatchSize()
+  {
+    return this.options.statementBatchSize();
+  }
+
+  /**
+   * @return The value of {@link Options#statementCacheSize()}
+   */
+
+  public int statementCacheSize()
+  {
+    return this.options.statementCacheSize();
+  }
+
+  /**
+   * @return The value of {@link Options#revisionSavepoints()}
+   */
+
+  public boolean revisionSavepoints()
+  {
+    return this.options.revisionSavepoints();
+  }
+
+  /**
+   * @return The value of {@link Options#retryPolicy()}
+   */
+
+  public TrExecutorRetryPolicy retryPolicy()
+  {
+    return this.options.retryPolicy();
+  }
+
+  /**
+   * @return The value of {@link Options#transactionStrategy()}
+   */
+
+  public TrTransactionStrategyType transactionStrategy()
+  {
+    return this.options.transactionStrategy();
+  }
+
+  /**
+   * @return The value of {@link Options#parallelConnections()}
+   */
+
+  public Optional<TrExecutorParallelConnections> parallelConnections()
+  {
+    return this.options.parallelConnections();
+  }
+
+  /**
+   * @return The value of {@link Options#deferredIndexes()}
+   */
+
+  public boolean deferredIndexes()
+  {
+    return this.options.deferredIndexes();
+  }
+
+  /**
+   * @return The value of {@link Options#locking()}
+   */
+
+  public Optional<TrExecutorLocking> locking()
+  {
+    return this.options.locking();
+  }
+
+  /**
+   * @return The value of {@link Options#indexBuildStore()}
+   */
+
+  public Optional<TrExecutorIndexBuildStoreType> indexBuildStore()
+  {
+    return this.options.indexBuildStore();
+  }
+
+  /**
+   * @param newOptions The optional executor behaviours
+   *
+   * @return This configuration with {@code options} set to the given value
+   */
+
+  public TrExecutorConfiguration withOptions(
+    final Options newOptions)
+  {
+    return new TrExecutorConfiguration(
+      this.versionGet,
+      this.versionSet,
+      this.events,
+      this.revisions,
+      this.upgrade,
+      this.arguments,
+      this.connection,
+      newOptions
+    );
+  }
+
+  /**
+   * @param newSize The maximum number of consecutive unparameterized
+   *                statements submitted as a single JDBC batch (values
+   *                less than 2 disable batching)
+   *
+   * @return This configuration with {@code statementBatchSize} set to the given value
+   */
+
+  public TrExecutorConfiguration withStatementBatchSize(
+    final int newSize)
+  {
+    return this.withOptions(this.options.withStatementBatchSize(newSize));
+  }
+
+  /**
+   * @param newSize The maximum number of prepared statements cached for
+   *                the duration of a single execution (a value of
+   *                {@code 0} disables caching)
+   *
+   * @return This configuration with {@code statementCacheSize} set to the given value
+   */
+
+  public TrExecutorConfiguration withStatementCacheSize(
+    final int newSize)
+  {
+    return this.withOptions(this.options.withStatementCacheSize(newSize));
+  }
+
+  /**
+   * @param enabled {@code true} if each revision should be executed
+   *                within its own savepoint
+   *
+   * @return This configuration with {@code revisionSavepoints} set to the given value
+   */
+
+  public TrExecutorConfiguration withRevisionSavepoints(
+    final boolean enabled)
+  {
+    return this.withOptions(this.options.withRevisionSavepoints(enabled));
+  }
+
+  /**
+   * @param policy The policy used to retry failed revisions when
+   *               resuming an execution
+   *
+   * @return This configuration with {@code retryPolicy} set to the given value
+   */
+
+  public TrExecutorConfiguration withRetryPolicy(
+    final TrExecutorRetryPolicy policy)
+  {
+    return this.withOptions(this.options.withRetryPolicy(policy));
+  }
+
+  /**
+   * @param strategy The strategy used to decide when transactions
+   *                 are committed
+   *
+   * @return This configuration with {@code transactionStrategy} set to the given value
+   */
+
+  public TrExecutorConfiguration withTransactionStrategy(
+    final TrTransactionStrategyType strategy)
+  {
+    return this.withOptions(this.options.withTransactionStrategy(strategy));
+  }
+
+  /**
+   * @param connections The connections used to execute parallel
+   *                    groups
+   *
+   * @return This configuration with {@code parallelConnections} set to the given value
+   */
+
+  public TrExecutorConfiguration withParallelConnections(
+    final TrExecutorParallelConnections connections)
+  {
+    return this.withOptions(this.options.withParallelConnections(connections));
+  }
+
+  /**
+   * @param enabled {@code true} if index builds should be deferred
+   *                until after the final revision
+   *
+   * @return This configuration with {@code deferredIndexes} set to the given value
+   */
+
+  public TrExecutorConfiguration withDeferredIndexes(
+    final boolean enabled)
+  {
+    return this.withOptions(this.options.withDeferredIndexes(enabled));
+  }
+
+  /**
+   * @param newLocking The cross-process lock used to ensure that only
+   *                   one process performs an upgrade
+   *
+   * @return This configuration with {@code locking} set to the given value
+   */
+
+  public TrExecutorConfiguration withLocking(
+    final TrExecutorLocking newLocking)
+  {
+    return this.withOptions(this.options.withLocking(newLocking));
+  }
+
+  /**
+   * @param store The store in which pending deferred index builds are
+   *              recorded
+   *
+   * @return This configuration with {@code indexBuildStore} set to the given value
+   */
+
+  public TrExecutorConfiguration withIndexBuildStore(
+    final TrExecutorIndexBuildStoreType store)
+  {
+    return this.withOptions(this.options.withIndexBuildStore(store));
   }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The future returned by an asynchronous execution. Cancelling the future
+ * cancels it immediately, as with any other future, and requests that the
+ * execution stop. The execution may continue to use the database
+ * connection for a short time after cancellation; the stage returned by
+ * {@link #idle()} completes once the execution has stopped using the
+ * connection, and so the connection can be used (to roll back, for
+ * example) as soon as that stage is complete.
+ *
+ * Futures are created and completed only by executors; the means by which
+ * an executor completes the future and its {@link #idle()} stage is not
+ * part of this API.
+ */
+
+public abstract class TrExecutorFuture
+  extends CompletableFuture<TrExecutorResult>
+{
+  /**
+   * The future returned by an asynchronous execution.
+   */
+
+  protected TrExecutorFuture()
+  {
+
+  }
+
+  /**
+   * @return A stage that completes when the execution has stopped using
+   * the database connection, whether it succeeded, failed, or was cancelled
+   */
+
+  public abstract CompletionStage<Void> idle();
+
+  @Override
+  public final <U> CompletableFuture<U> newIncompleteFuture()
+  {
+    return new CompletableFuture<>();
+  }
+}
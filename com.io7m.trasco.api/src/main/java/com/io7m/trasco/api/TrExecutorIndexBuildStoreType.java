@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A store that records the deferred index builds that an executor has yet
+ * to execute. When index builds are executed over parallel connections, the
+ * executor commits the work of the revisions and the version of the final
+ * revision together with the set of pending builds, and removes each build
+ * from the store as it succeeds. Any executor that later observes pending
+ * builds executes them before applying any further revisions, and so the
+ * builds survive process crashes and upgrades continued by other processes.
+ *
+ * It is expected that users will maintain a table in the database being
+ * upgraded. For example:
+ *
+ * <pre>
+ * create table schema_index_builds (
+ *   index_name varchar not null,
+ *   index_text text    not null,
+ *   constraint schema_index_builds_primary primary key (index_name)
+ * )
+ * </pre>
+ *
+ * @see TrExecutorConfiguration.Options#indexBuildStore()
+ */
+
+public interface TrExecutorIndexBuildStoreType
+{
+  /**
+   * Record the given builds as pending. This method is called in the
+   * executor's transaction, which is committed afterwards.
+   *
+   * @param connection The executor's connection
+   * @param builds     The builds
+   *
+   * @throws SQLException On errors
+   */
+
+  void addPending(
+    Connection connection,
+    List<TrStatementIndex> builds)
+    throws SQLException;
+
+  /**
+   * Retrieve the pending builds, in the order in which they were recorded.
+   *
+   * @param connection A database connection
+   *
+   * @return The pending builds
+   *
+   * @throws SQLException On errors
+   */
+
+  List<TrStatementIndex> pending(
+    Connection connection)
+    throws SQLException;
+
+  /**
+   * Remove a build that has succeeded. This method is called in the same
+   * transaction as the build itself.
+   *
+   * @param connection The connection that executed the build
+   * @param index      The name of the index
+   *
+   * @throws SQLException On errors
+   */
+
+  void removePending(
+    Connection connection,
+    String index)
+    throws SQLException;
+}
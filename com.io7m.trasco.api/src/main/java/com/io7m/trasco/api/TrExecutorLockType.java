@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.sql.SQLException;
+
+/**
+ * A lock that ensures that at most one process upgrades a given database at
+ * any one time. Implementations are expected to use connections of their own,
+ * rather than the connection used by the executor, so that the lock is
+ * visible to other processes as soon as it is acquired.
+ *
+ * @see TrExecutorLocking
+ */
+
+public interface TrExecutorLockType
+{
+  /**
+   * Try to acquire the lock. This method must not block for any significant
+   * length of time if the lock is held by another process.
+   *
+   * @return {@code true} if the lock was acquired
+   *
+   * @throws SQLException On errors
+   */
+
+  boolean tryAcquire()
+    throws SQLException;
+
+  /**
+   * Release the lock, if it is held by this process.
+   *
+   * @throws SQLException On errors
+   */
+
+  void release()
+    throws SQLException;
+
+  /**
+   * Renew the lock, so that a lock that expires is not considered to be
+   * abandoned whilst it is still held. The executor calls this method each
+   * time that it commits a transaction during an upgrade, and never whilst
+   * a transaction is open, so that locks held in the database being
+   * upgraded can be renewed on databases that allow only a single writer.
+   * The default implementation does nothing, which is suitable for locks
+   * that never expire.
+   *
+   * @throws SQLException On errors, or if the lock is no longer held
+   */
+
+  default void renew()
+    throws SQLException
+  {
+
+  }
+}
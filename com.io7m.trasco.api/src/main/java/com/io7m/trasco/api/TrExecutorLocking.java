@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The configuration of a cross-process upgrade lock. An executor configured
+ * with a lock polls the schema version, and returns as soon as the schema
+ * version is the highest known version. Otherwise, the executor tries to
+ * acquire the lock and perform the upgrade. If another process holds the
+ * lock, the executor waits (doubling the delay after each attempt, up to the
+ * maximum delay) and then polls the schema version again.
+ *
+ * The schema version is polled outside of any transaction, so that each
+ * poll observes upgrades committed by other processes. The executor's
+ * connection must therefore be in auto-commit mode, as ending a transaction
+ * on it would commit or discard the caller's work; a connection with
+ * auto-commit disabled is rejected with
+ * {@link TrErrorCode#CONNECTION_IN_TRANSACTION}. The upgrade itself runs in
+ * a transaction owned by the executor, and the connection is returned to
+ * auto-commit mode afterwards.
+ *
+ * @param lock             The lock
+ * @param pollDelayInitial The initial delay between attempts
+ * @param pollDelayMaximum The maximum delay between attempts
+ * @param timeout          The maximum total time spent waiting
+ */
+
+public record TrExecutorLocking(
+  TrExecutorLockType lock,
+  Duration pollDelayInitial,
+  Duration pollDelayMaximum,
+  Duration timeout)
+{
+  /**
+   * The configuration of a cross-process upgrade lock.
+   *
+   * @param lock             The lock
+   * @param pollDelayInitial The initial delay between attempts
+   * @param pollDelayMaximum The maximum delay between attempts
+   * @param timeout          The maximum total time spent waiting
+   */
+
+  public TrExecutorLocking
+  {
+    Objects.requireNonNull(lock, "lock");
+    Objects.requireNonNull(pollDelayInitial, "pollDelayInitial");
+    Objects.requireNonNull(pollDelayMaximum, "pollDelayMaximum");
+    Objects.requireNonNull(timeout, "timeout");
+
+    if (pollDelayInitial.isNegative() || pollDelayInitial.isZero()) {
+      throw new IllegalArgumentException(
+        "Initial delay %s must be positive".formatted(pollDelayInitial)
+      );
+    }
+    if (pollDelayMaximum.compareTo(pollDelayInitial) < 0) {
+      throw new IllegalArgumentException(
+        "Maximum delay %s must be at least the initial delay %s"
+          .formatted(pollDelayMaximum, pollDelayInitial)
+      );
+    }
+    if (timeout.isNegative()) {
+      throw new IllegalArgumentException(
+        "Timeout %s must be non-negative".formatted(timeout)
+      );
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.util.Objects;
+
+/**
+ * The connections used to execute the statements of parallel groups.
+ *
+ * @param connections    A supplier of new database connections
+ * @param maxConnections The maximum number of connections that will be open
+ *                       at any one time
+ *
+ * @see TrStatementParallelGroup
+ */
+
+public record TrExecutorParallelConnections(
+  TrExecutorConnectionSupplierType connections,
+  int maxConnections)
+{
+  /**
+   * The connections used to execute the statements of parallel groups.
+   *
+   * @param connections    A supplier of new database connections
+   * @param maxConnections The maximum number of connections that will be
+   *                       open at any one time
+   */
+
+  public TrExecutorParallelConnections
+  {
+    Objects.requireNonNull(connections, "connections");
+
+    if (maxConnections < 1) {
+      throw new IllegalArgumentException(
+        "Maximum connections %d must be at least 1"
+          .formatted(Integer.valueOf(maxConnections))
+      );
+    }
+  }
+}
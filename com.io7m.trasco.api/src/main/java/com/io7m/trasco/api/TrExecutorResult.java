@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The result of executing an upgrade.
+ *
+ * @param versionStart     The schema version before the upgrade, if any
+ * @param versionEnd       The schema version after the upgrade, if any
+ * @param revisionsApplied The revisions applied, and the time taken to apply
+ *                         each one
+ * @param elapsed          The total time taken
+ */
+
+public record TrExecutorResult(
+  Optional<BigInteger> versionStart,
+  Optional<BigInteger> versionEnd,
+  SortedMap<BigInteger, Duration> revisionsApplied,
+  Duration elapsed)
+{
+  /**
+   * The result of executing an upgrade.
+   *
+   * @param versionStart     The schema version before the upgrade, if any
+   * @param versionEnd       The schema version after the upgrade, if any
+   * @param revisionsApplied The revisions applied, and the time taken to
+   *                         apply each one
+   * @param elapsed          The total time taken
+   */
+
+  public TrExecutorResult
+  {
+    Objects.requireNonNull(versionStart, "versionStart");
+    Objects.requireNonNull(versionEnd, "versionEnd");
+    Objects.requireNonNull(revisionsApplied, "revisionsApplied");
+    Objects.requireNonNull(elapsed, "elapsed");
+
+    revisionsApplied =
+      Collections.unmodifiableSortedMap(new TreeMap<>(revisionsApplied));
+  }
+}
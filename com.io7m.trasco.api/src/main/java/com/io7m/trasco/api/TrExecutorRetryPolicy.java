@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The policy used to retry failed revisions when resuming an execution.
+ *
+ * @param maxAttempts The maximum number of times a revision will be attempted
+ * @param delay       The delay between attempts
+ */
+
+public record TrExecutorRetryPolicy(
+  int maxAttempts,
+  Duration delay)
+{
+  private static final TrExecutorRetryPolicy NO_RETRIES =
+    new TrExecutorRetryPolicy(1, Duration.ZERO);
+
+  /**
+   * The policy used to retry failed revisions when resuming an execution.
+   *
+   * @param maxAttempts The maximum number of times a revision will be
+   *                    attempted
+   * @param delay       The delay between attempts
+   */
+
+  public TrExecutorRetryPolicy
+  {
+    Objects.requireNonNull(delay, "delay");
+
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException(
+        "Maximum attempts %d must be at least 1"
+          .formatted(Integer.valueOf(maxAttempts))
+      );
+    }
+    if (delay.isNegative()) {
+      throw new IllegalArgumentException(
+        "Delay %s must be non-negative".formatted(delay)
+      );
+    }
+  }
+
+  /**
+   * @return A policy that attempts each revision exactly once
+   */
+
+  public static TrExecutorRetryPolicy noRetries()
+  {
+    return NO_RETRIES;
+  }
+}
@@ -17,6 +17,11 @@
 
 package com.io7m.trasco.api;
 
+import java.time.Duration;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
 /**
  * The type of executors.
  */
@@ -31,4 +36,75 @@ public interface TrExecutorType
 
   void execute()
     throws TrException;
+
+  /**
+   * Execute the operation, returning a description of the upgrade. The
+   * default implementation calls {@link #execute()}, and returns a result
+   * that records only the time taken; implementations should override this
+   * method to describe the versions and revisions applied.
+   *
+   * @return The result
+   *
+   * @throws TrException On errors
+   *
+   * @see #execute()
+   */
+
+  default TrExecutorResult executeForResult()
+    throws TrException
+  {
+    final var timeStart = System.nanoTime();
+    this.execute();
+    return new TrExecutorResult(
+      Optional.empty(),
+      Optional.empty(),
+      new TreeMap<>(),
+      Duration.ofNanos(System.nanoTime() - timeStart)
+    );
+  }
+
+  /**
+   * Resume an execution that previously failed. If the executor is configured
+   * to use per-revision savepoints, and a previous call to {@link #execute()}
+   * or {@link #resume()} failed, execution continues in the same transaction
+   * from the last version that was successfully applied, retrying failed
+   * revisions according to the configured retry policy. Otherwise, or if
+   * the executor is configured with an upgrade lock (in which case failed
+   * upgrades are rolled back before the lock is released), this method is
+   * equivalent to {@link #execute()}.
+   *
+   * The default implementation does not support resuming executions, and
+   * always fails with {@link TrErrorCode#OPERATION_UNSUPPORTED}.
+   *
+   * @throws TrException On errors
+   */
+
+  default void resume()
+    throws TrException
+  {
+    throw new TrException(
+      "This executor does not support resuming executions.",
+      TrErrorCode.OPERATION_UNSUPPORTED
+    );
+  }
+
+  /**
+   * Execute the operation asynchronously on the given executor.
+   * Cancelling the returned future cancels it immediately, cancels any JDBC
+   * statement that is currently executing, and causes the operation to stop
+   * at the next statement boundary (or immediately, if the operation is
+   * waiting for an upgrade lock). The operation may therefore still be
+   * using the database connection when the future is cancelled; the
+   * {@link TrExecutorFuture#idle()} stage completes once it has stopped,
+   * and the connection may be used (to roll back, for example) as soon as
+   * that stage is complete. As with a failed call to {@link #execute()}, no
+   * rollback is performed on cancellation.
+   *
+   * @param executor The executor that will run the operation
+   *
+   * @return A future representing the operation in progress
+   */
+
+  TrExecutorFuture executeAsync(
+    Executor executor);
 }
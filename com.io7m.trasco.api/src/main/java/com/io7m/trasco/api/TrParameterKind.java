@@ -33,5 +33,35 @@ public enum TrParameterKind
    * The parameter expects numeric values.
    */
 
-  NUMERIC
+  NUMERIC,
+
+  /**
+   * The parameter expects boolean values.
+   */
+
+  BOOLEAN,
+
+  /**
+   * The parameter expects timestamp values.
+   */
+
+  TIMESTAMP,
+
+  /**
+   * The parameter expects byte array values.
+   */
+
+  BYTES,
+
+  /**
+   * The parameter expects UUID values.
+   */
+
+  UUID,
+
+  /**
+   * The parameter expects 64-bit integer values.
+   */
+
+  BIGINT
 }
@@ -21,7 +21,8 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * A database schema revision.
+ * A database schema revision. Any non-transactional statements must precede
+ * all of the transactional statements in the revision.
  *
  * @param version    The version
  * @param statements The SQL statements used to upgrade the previous version to
@@ -45,6 +46,25 @@ public record TrSchemaRevision(
   {
     Objects.requireNonNull(version, "version");
     Objects.requireNonNull(statements, "statements");
+
+    /*
+     * Non-transactional statements are executed before the revision's
+     * transactional statements, so that an interrupted upgrade never leaves
+     * a revision's transactional work committed without its version number.
+     */
+
+    boolean seenTransactional = false;
+    for (final var statement : statements) {
+      if (statement.transactional()) {
+        seenTransactional = true;
+      } else if (seenTransactional) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Revision %s declares a non-transactional statement after a transactional statement",
+            version
+          ));
+      }
+    }
   }
 
   @Override
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A small summary of a schema revision set, generated ahead of time, that
+ * allows an executor to determine that a database is already up-to-date
+ * without parsing the revision set.
+ *
+ * @param versionHighest The highest version in the revision set
+ * @param hash           The lowercase hexadecimal SHA-256 hash of the
+ *                       revision set document
+ */
+
+public record TrSchemaRevisionManifest(
+  BigInteger versionHighest,
+  String hash)
+{
+  private static final Pattern VALID_HASH =
+    Pattern.compile("[0-9a-f]{64}");
+
+  /**
+   * A small summary of a schema revision set.
+   *
+   * @param versionHighest The highest version in the revision set
+   * @param hash           The lowercase hexadecimal SHA-256 hash of the
+   *                       revision set document
+   */
+
+  public TrSchemaRevisionManifest
+  {
+    Objects.requireNonNull(versionHighest, "versionHighest");
+    Objects.requireNonNull(hash, "hash");
+
+    if (!VALID_HASH.matcher(hash).matches()) {
+      throw new IllegalArgumentException(
+        "Hash '%s' must match %s".formatted(hash, VALID_HASH)
+      );
+    }
+  }
+}
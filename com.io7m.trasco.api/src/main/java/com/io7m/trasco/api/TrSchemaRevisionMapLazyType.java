@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.util.NavigableMap;
+
+/**
+ * A map of schema revisions in which each revision is materialized the
+ * first time that it is accessed. The keys of the map are always available
+ * without materializing any revisions. Implementations are responsible for
+ * checking the parameter references of each revision as it is materialized;
+ * a {@link TrSchemaRevisionSet} constructed with a lazy map only checks the
+ * versions of the revisions.
+ *
+ * Revisions that cannot be materialized cause an
+ * {@link IllegalStateException} to be raised on access.
+ */
+
+public interface TrSchemaRevisionMapLazyType
+  extends NavigableMap<BigInteger, TrSchemaRevision>
+{
+  /**
+   * @param version The revision version
+   *
+   * @return {@code true} if the revision with the given version has been
+   * materialized
+   */
+
+  boolean isMaterialized(BigInteger version);
+}
@@ -22,7 +22,9 @@ import java.util.NavigableMap;
 import java.util.Objects;
 
 /**
- * A set of schema revisions.
+ * A set of schema revisions. If the revisions are provided as a
+ * {@link TrSchemaRevisionMapLazyType}, the parameter references of each
+ * revision are checked as the revision is materialized instead of here.
  *
  * @param parameters The parameters
  * @param revisions  The revisions
@@ -61,23 +63,46 @@ public record TrSchemaRevisionSet(
       }
     }
 
-    for (final var revision : revisions.values()) {
-      for (final var statement : revision.statements()) {
-        if (statement instanceof final TrStatementParameterized parameterized) {
-          final var values =
-            parameterized.references().byName().values();
-          for (final var parameter : values) {
-            if (!parameters.containsKey(parameter.name())) {
-              throw new IllegalArgumentException(
-                String.format(
-                  "Revision %s specifies a reference to a nonexistent parameter %s",
-                  revision.version(),
-                  parameter
-                ));
-            }
-          }
+    if (!(revisions instanceof TrSchemaRevisionMapLazyType)) {
+      for (final var revision : revisions.values()) {
+        for (final var statement : revision.statements()) {
+          checkParameterReferences(parameters, revision, statement);
         }
       }
     }
   }
+
+  private static void checkParameterReferences(
+    final Map<String, TrParameter> parameters,
+    final TrSchemaRevision revision,
+    final TrStatementType statement)
+  {
+    if (statement instanceof final TrStatementParallelGroup group) {
+      for (final var member : group.statements()) {
+        checkParameterReferences(parameters, revision, member);
+      }
+      return;
+    }
+
+    final TrParameterReferences references;
+    if (statement instanceof final TrStatementParameterized parameterized) {
+      references = parameterized.references();
+    } else if (statement instanceof final TrStatementTemplate template) {
+      references = template.references();
+    } else {
+      return;
+    }
+
+    final var values = references.byName().values();
+    for (final var parameter : values) {
+      if (!parameters.containsKey(parameter.name())) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Revision %s specifies a reference to a nonexistent parameter %s",
+            revision.version(),
+            parameter
+          ));
+      }
+    }
+  }
 }
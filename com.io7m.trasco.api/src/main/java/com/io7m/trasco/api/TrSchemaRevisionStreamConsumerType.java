@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * A consumer of revisions that are delivered incrementally as a revision set
+ * document is parsed. Statements are delivered one at a time in document
+ * order, and are not retained by the parser once they have been delivered.
+ *
+ * For each revision, {@link #onRevisionStarted(BigInteger)} is called
+ * first, followed by {@link #onStatement(BigInteger, TrStatementType)} for
+ * each statement in the revision, followed by
+ * {@link #onRevisionFinished(BigInteger)}. Revisions are delivered in
+ * ascending order of version. The document's parameters, if any, are
+ * delivered before the first revision.
+ *
+ * If any method raises an exception, parsing stops and no further methods
+ * are called.
+ */
+
+public interface TrSchemaRevisionStreamConsumerType
+{
+  /**
+   * The document's parameters have been parsed.
+   *
+   * @param parameters The parameters
+   *
+   * @throws TrException On errors
+   */
+
+  default void onParameters(
+    final Map<String, TrParameter> parameters)
+    throws TrException
+  {
+
+  }
+
+  /**
+   * A revision has started.
+   *
+   * @param version The revision version
+   *
+   * @throws TrException On errors
+   */
+
+  void onRevisionStarted(
+    BigInteger version)
+    throws TrException;
+
+  /**
+   * A statement has been parsed.
+   *
+   * @param version   The version of the revision containing the statement
+   * @param statement The statement
+   *
+   * @throws TrException On errors
+   */
+
+  void onStatement(
+    BigInteger version,
+    TrStatementType statement)
+    throws TrException;
+
+  /**
+   * A revision has finished.
+   *
+   * @param version The revision version
+   *
+   * @throws TrException On errors
+   */
+
+  void onRevisionFinished(
+    BigInteger version)
+    throws TrException;
+}
@@ -22,20 +22,38 @@ import java.util.Objects;
 /**
  * A statement with no parameters.
  *
- * @param text The text
+ * @param text          The text
+ * @param transactional {@code true} if the statement executes inside the
+ *                      executor's transaction
  */
 
-public record TrStatement(String text)
+public record TrStatement(
+  String text,
+  boolean transactional)
   implements TrStatementType
 {
   /**
    * A statement with no parameters.
    *
-   * @param text The text
+   * @param text          The text
+   * @param transactional {@code true} if the statement executes inside the
+   *                      executor's transaction
    */
 
   public TrStatement
   {
     Objects.requireNonNull(text, "text");
   }
+
+  /**
+   * A transactional statement with no parameters.
+   *
+   * @param inText The text
+   */
+
+  public TrStatement(
+    final String inText)
+  {
+    this(inText, true);
+  }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.util.Objects;
+
+/**
+ * A statement that creates or drops a named index. Index statements are
+ * executed exactly as plain statements unless the executor is configured to
+ * defer index builds, in which case index creation is moved to the end of
+ * the upgrade.
+ *
+ * @param operation The operation performed on the index
+ * @param index     The name of the index
+ * @param text      The text
+ *
+ * @see TrExecutorConfiguration#deferredIndexes()
+ */
+
+public record TrStatementIndex(
+  TrStatementIndexOperation operation,
+  String index,
+  String text)
+  implements TrStatementType
+{
+  /**
+   * A statement that creates or drops a named index.
+   *
+   * @param operation The operation performed on the index
+   * @param index     The name of the index
+   * @param text      The text
+   */
+
+  public TrStatementIndex
+  {
+    Objects.requireNonNull(operation, "operation");
+    Objects.requireNonNull(index, "index");
+    Objects.requireNonNull(text, "text");
+  }
+
+  @Override
+  public boolean transactional()
+  {
+    return true;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A group of independent statements that may be executed concurrently over
+ * multiple database connections. Because the statements are executed on
+ * connections other than the executor's own connection, groups are never
+ * transactional: Any pending work is committed before the group is executed,
+ * each statement is executed with auto-commit enabled, and all statements
+ * must complete before the revision's version number is recorded. Groups
+ * therefore cannot be used with {@link TrTransactionStrategySingle}.
+ *
+ * @param statements The statements in the group
+ */
+
+public record TrStatementParallelGroup(
+  List<TrStatementType> statements)
+  implements TrStatementType
+{
+  /**
+   * A group of independent statements that may be executed concurrently.
+   *
+   * @param statements The statements in the group
+   */
+
+  public TrStatementParallelGroup
+  {
+    Objects.requireNonNull(statements, "statements");
+    statements = List.copyOf(statements);
+
+    for (final var statement : statements) {
+      if (statement instanceof TrStatementParallelGroup) {
+        throw new IllegalArgumentException(
+          "Parallel groups cannot contain other parallel groups.");
+      }
+    }
+  }
+
+  /**
+   * @return The text of each statement in the group, separated by semicolons
+   */
+
+  @Override
+  public String text()
+  {
+    return this.statements.stream()
+      .map(TrStatementType::text)
+      .collect(Collectors.joining(";\n"));
+  }
+
+  @Override
+  public boolean transactional()
+  {
+    return false;
+  }
+}
@@ -25,12 +25,15 @@ import java.util.Objects;
  * @param text          The text
  * @param references    The references
  * @param interpolation The type of parameter interpolation to use
+ * @param transactional {@code true} if the statement executes inside the
+ *                      executor's transaction
  */
 
 public record TrStatementParameterized(
   TrParameterReferences references,
   String text,
-  TrParameterInterpolation interpolation)
+  TrParameterInterpolation interpolation,
+  boolean transactional)
   implements TrStatementType
 {
   /**
@@ -39,6 +42,8 @@ public record TrStatementParameterized(
    * @param text          The text
    * @param references    The references
    * @param interpolation The type of parameter interpolation to use
+   * @param transactional {@code true} if the statement executes inside the
+   *                      executor's transaction
    */
 
   public TrStatementParameterized
@@ -47,4 +52,20 @@ public record TrStatementParameterized(
     Objects.requireNonNull(text, "text");
     Objects.requireNonNull(interpolation, "interpolation");
   }
+
+  /**
+   * A transactional statement with parameters.
+   *
+   * @param inText          The text
+   * @param inReferences    The references
+   * @param inInterpolation The type of parameter interpolation to use
+   */
+
+  public TrStatementParameterized(
+    final TrParameterReferences inReferences,
+    final String inText,
+    final TrParameterInterpolation inInterpolation)
+  {
+    this(inReferences, inText, inInterpolation, true);
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A set of rows inserted into a single table. The rows are inserted with a
+ * single prepared statement, and are submitted to the database in batches of
+ * at most {@code batchSize} rows. Each value in a row is an argument whose
+ * type matches the type of the corresponding column.
+ *
+ * @param table         The table
+ * @param columns       The columns
+ * @param rows          The rows
+ * @param batchSize     The maximum number of rows submitted in a single batch
+ * @param transactional {@code true} if the statement executes inside the
+ *                      executor's transaction
+ */
+
+public record TrStatementRows(
+  String table,
+  List<TrStatementRowsColumn> columns,
+  List<List<TrArgumentType>> rows,
+  int batchSize,
+  boolean transactional)
+  implements TrStatementType
+{
+  /**
+   * A set of rows inserted into a single table.
+   *
+   * @param table         The table
+   * @param columns       The columns
+   * @param rows          The rows
+   * @param batchSize     The maximum number of rows submitted in a single
+   *                      batch
+   * @param transactional {@code true} if the statement executes inside the
+   *                      executor's transaction
+   */
+
+  public TrStatementRows
+  {
+    Objects.requireNonNull(table, "table");
+    columns = List.copyOf(columns);
+    rows = copyRows(columns, rows);
+    checkColumns(columns, batchSize);
+  }
+
+  private static List<List<TrArgumentType>> copyRows(
+    final List<TrStatementRowsColumn> columns,
+    final List<List<TrArgumentType>> rows)
+  {
+    final var result = new ArrayList<List<TrArgumentType>>(rows.size());
+    for (final var row : rows) {
+      final var copy = List.copyOf(row);
+      if (copy.size() != columns.size()) {
+        throw new IllegalArgumentException(
+          "Row %d has %d values, but %d columns are specified"
+            .formatted(
+              Integer.valueOf(result.size()),
+              Integer.valueOf(copy.size()),
+              Integer.valueOf(columns.size()))
+        );
+      }
+      for (int index = 0; index < copy.size(); ++index) {
+        final var column = columns.get(index);
+        final var value = copy.get(index);
+        if (value.type() != column.kind()) {
+          throw new IllegalArgumentException(
+            "Row %d column %s requires a value of type %s, but received %s"
+              .formatted(
+                Integer.valueOf(result.size()),
+                column.name(),
+                column.kind(),
+                value.type())
+          );
+        }
+      }
+      result.add(copy);
+    }
+    return List.copyOf(result);
+  }
+
+  /**
+   * @return The text of the prepared statement that inserts a single row
+   */
+
+  @Override
+  public String text()
+  {
+    return insertText(this.table, this.columns);
+  }
+
+  static String insertText(
+    final String table,
+    final List<TrStatementRowsColumn> columns)
+  {
+    final var text = new StringBuilder(64 + columns.size() * 16);
+    text.append("insert into ");
+    text.append(table);
+    text.append(" (");
+    for (int index = 0; index < columns.size(); ++index) {
+      if (index > 0) {
+        text.append(", ");
+      }
+      text.append(columns.get(index).name());
+    }
+    text.append(") values (");
+    for (int index = 0; index < columns.size(); ++index) {
+      text.append(index > 0 ? ", ?" : "?");
+    }
+    text.append(')');
+    return text.toString();
+  }
+
+  static void checkColumns(
+    final List<TrStatementRowsColumn> columns,
+    final int batchSize)
+  {
+    if (columns.isEmpty()) {
+      throw new IllegalArgumentException("At least one column is required");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        "Batch size %d must be positive"
+          .formatted(Integer.valueOf(batchSize))
+      );
+    }
+
+    final var names = new HashSet<String>(columns.size());
+    for (final var column : columns) {
+      if (!names.add(column.name())) {
+        throw new IllegalArgumentException(
+          "Column %s is specified more than once".formatted(column.name())
+        );
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.api;
+
+import java.net.URI;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A set of rows inserted into a single table from an external CSV resource.
+ * The resource is not part of the revision set: it is read when the
+ * statement is executed, and its SHA-256 checksum must match the recorded
+ * checksum before any rows are inserted. The rows are inserted with a single
+ * prepared statement, and are submitted to the database in batches of at
+ * most {@code batchSize} rows.
+ *
+ * <p>The resource is recorded exactly as it was written, and is resolved
+ * against the location that the statement was loaded from (see
+ * {@link #location()}) only when the statement is executed, so that a
+ * revision set can be moved together with its resources. The base is not
+ * part of the identity of the statement: Two statements that differ only in
+ * where they were loaded from are equal.</p>
+ *
+ * @param table         The table
+ * @param columns       The columns
+ * @param resource      The CSV resource, as written
+ * @param base          The location that the statement was loaded from, if
+ *                      known
+ * @param sha256        The lowercase hexadecimal SHA-256 checksum of the
+ *                      resource
+ * @param header        {@code true} if the first record of the resource is a
+ *                      header that should be skipped
+ * @param batchSize     The maximum number of rows submitted in a single batch
+ * @param transactional {@code true} if the statement executes inside the
+ *                      executor's transaction
+ */
+
+public record TrStatementRowsCSV(
+  String table,
+  List<TrStatementRowsColumn> columns,
+  URI resource,
+  Optional<URI> base,
+  String sha256,
+  boolean header,
+  int batchSize,
+  boolean transactional)
+  implements TrStatementType
+{
+  /**
+   * A set of rows inserted into a single table from an external CSV
+   * resource.
+   *
+   * @param table         The table
+   * @param columns       The columns
+   * @param resource      The CSV resource, as written
+   * @param base          The location that the statement was loaded from,
+   *                      if known
+   * @param sha256        The hexadecimal SHA-256 checksum of the resource
+   * @param header        {@code true} if the first record of the resource is
+   *                      a header that should be skipped
+   * @param batchSize     The maximum number of rows submitted in a single
+   *                      batch
+   * @param transactional {@code true} if the statement executes inside the
+   *                      executor's transaction
+   */
+
+  public TrStatementRowsCSV
+  {
+    Objects.requireNonNull(table, "table");
+    Objects.requireNonNull(resource, "resource");
+    Objects.requireNonNull(base, "base");
+    Objects.requireNonNull(sha256, "sha256");
+    columns = List.copyOf(columns);
+    TrStatementRows.checkColumns(columns, batchSize);
+
+    sha256 = sha256.toLowerCase(Locale.ROOT);
+    if (sha256.length() != 64 || !isHex(sha256)) {
+      throw new IllegalArgumentException(
+        "SHA-256 checksum '%s' must be 64 hexadecimal digits"
+          .formatted(sha256)
+      );
+    }
+  }
+
+  private static boolean isHex(
+    final String text)
+  {
+    for (int index = 0; index < text.length(); ++index) {
+      if (!HexFormat.isHexDigit(text.charAt(index))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Resolve the resource against the base. Resources inside {@code jar:}
+   * URIs are resolved against the entry path. Resources loaded from a
+   * location that is not hierarchical are left unresolved.
+   *
+   * @return The resolved resource, which is relative if it could not be
+   * resolved
+   */
+
+  public URI location()
+  {
+    if (this.resource.isAbsolute() || this.base.isEmpty()) {
+      return this.resource;
+    }
+
+    final var baseURI = this.base.get();
+    if ("jar".equals(baseURI.getScheme())) {
+      final var text = baseURI.toString();
+      final var split = text.lastIndexOf("!/");
+      if (split >= 0) {
+        final var entry =
+          URI.create(text.substring(split + 1)).resolve(this.resource);
+        return URI.create(text.substring(0, split + 1) + entry.getPath());
+      }
+    }
+
+    if (baseURI.isOpaque()) {
+      return this.resource;
+    }
+    return baseURI.resolve(this.resource);
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof final TrStatementRowsCSV that)) {
+      return false;
+    }
+    return this.header == that.header
+           && this.batchSize == that.batchSize
+           && this.transactional == that.transactional
+           && this.table.equals(that.table)
+           && this.columns.equals(that.columns)
+           && this.resource.equals(that.resource)
+           && this.sha256.equals(that.sha256);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(
+      this.table,
+      this.columns,
+      this.resource,
+      this.sha256,
+      Boolean.valueOf(this.header),
+      Integer.valueOf(this.batchSize),
+      Boolean.valueOf(this.transactional)
+    );
+  }
+
+  /**
+   * @return The text of the prepared statement that inserts a single row
+   */
+
+  @Override
+  public String text()
+  {
+    return TrStatementRows.insertText(this.table, this.columns);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.util.Objects;
+
+/**
+ * A parameterized statement that is expanded once for each of a set of
+ * values. The template value is supplied to the statement alongside the
+ * referenced parameters, at the position given by {@code order}. The
+ * expansions are submitted to the database in batches of at most
+ * {@code batchSize} statements.
+ *
+ * @param references    The references
+ * @param order         The order of the template value relative to the
+ *                      references
+ * @param values        The values over which the template is expanded
+ * @param text          The text
+ * @param interpolation The type of parameter interpolation to use
+ * @param batchSize     The maximum number of expansions submitted in a
+ *                      single batch
+ * @param transactional {@code true} if the statement executes inside the
+ *                      executor's transaction
+ */
+
+public record TrStatementTemplate(
+  TrParameterReferences references,
+  int order,
+  TrStatementTemplateValuesType values,
+  String text,
+  TrParameterInterpolation interpolation,
+  int batchSize,
+  boolean transactional)
+  implements TrStatementType
+{
+  /**
+   * A parameterized statement that is expanded once for each of a set of
+   * values.
+   *
+   * @param references    The references
+   * @param order         The order of the template value relative to the
+   *                      references
+   * @param values        The values over which the template is expanded
+   * @param text          The text
+   * @param interpolation The type of parameter interpolation to use
+   * @param batchSize     The maximum number of expansions submitted in a
+   *                      single batch
+   * @param transactional {@code true} if the statement executes inside the
+   *                      executor's transaction
+   */
+
+  public TrStatementTemplate
+  {
+    Objects.requireNonNull(references, "references");
+    Objects.requireNonNull(values, "values");
+    Objects.requireNonNull(text, "text");
+    Objects.requireNonNull(interpolation, "interpolation");
+
+    if (order < 0) {
+      throw new IllegalArgumentException(
+        "Template value order %d must be non-negative"
+          .formatted(Integer.valueOf(order))
+      );
+    }
+    if (references.inOrder().containsKey(Integer.valueOf(order))) {
+      throw new IllegalArgumentException(
+        "Template value order %d conflicts with a parameter reference"
+          .formatted(Integer.valueOf(order))
+      );
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(
+        "Batch size %d must be positive"
+          .formatted(Integer.valueOf(batchSize))
+      );
+    }
+  }
+}
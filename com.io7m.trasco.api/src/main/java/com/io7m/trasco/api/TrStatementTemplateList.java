@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+import java.util.List;
+
+/**
+ * A list of values over which a statement template is expanded.
+ *
+ * @param values The values
+ */
+
+public record TrStatementTemplateList(
+  List<String> values)
+  implements TrStatementTemplateValuesType
+{
+  /**
+   * A list of values over which a statement template is expanded.
+   *
+   * @param values The values
+   */
+
+  public TrStatementTemplateList
+  {
+    values = List.copyOf(values);
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException(
+        "A template value list must not be empty");
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return this.values.size();
+  }
+
+  @Override
+  public String text(
+    final int index)
+  {
+    return this.values.get(index);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+/**
+ * An inclusive range of integers over which a statement template is
+ * expanded.
+ *
+ * @param from The first value
+ * @param to   The last value
+ */
+
+public record TrStatementTemplateRange(
+  long from,
+  long to)
+  implements TrStatementTemplateValuesType
+{
+  /**
+   * An inclusive range of integers over which a statement template is
+   * expanded.
+   *
+   * @param from The first value
+   * @param to   The last value
+   */
+
+  public TrStatementTemplateRange
+  {
+    if (from > to) {
+      throw new IllegalArgumentException(
+        "Range start %d must not exceed range end %d"
+          .formatted(Long.valueOf(from), Long.valueOf(to))
+      );
+    }
+    final var span = to - from;
+    if (span < 0L || span >= Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        "Range [%d, %d] contains too many values"
+          .formatted(Long.valueOf(from), Long.valueOf(to))
+      );
+    }
+  }
+
+  /**
+   * @param index The index of the value, in {@code [0, size())}
+   *
+   * @return The value at the given index
+   */
+
+  public long value(
+    final int index)
+  {
+    return this.from + index;
+  }
+
+  @Override
+  public int size()
+  {
+    return (int) (this.to - this.from) + 1;
+  }
+
+  @Override
+  public String text(
+    final int index)
+  {
+    return Long.toString(this.value(index));
+  }
+}
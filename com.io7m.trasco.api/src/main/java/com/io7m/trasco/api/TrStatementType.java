@@ -21,11 +21,39 @@ package com.io7m.trasco.api;
  */
 
 public sealed interface TrStatementType
-  permits TrStatement, TrStatementParameterized
+  permits TrStatement,
+  TrStatementIndex,
+  TrStatementParallelGroup,
+  TrStatementParameterized,
+  TrStatementRows,
+  TrStatementRowsCSV,
+  TrStatementTemplate
 {
   /**
    * @return The statement text
    */
 
   String text();
+
+  /**
+   * A statement that is not transactional is executed outside of the
+   * executor's transaction: Any pending work is committed, the statement is
+   * executed with auto-commit enabled, and a new transaction is started
+   * afterwards. This is required for statements such as
+   * {@code CREATE INDEX CONCURRENTLY} on PostgreSQL, or {@code VACUUM}.
+   * Non-transactional statements cannot be used with
+   * {@link TrTransactionStrategySingle}.
+   *
+   * <p>An executor that resumes a failed execution does not execute the
+   * non-transactional statements of the failed revision again if it has
+   * already executed them. This is only remembered by the executor
+   * itself: A new executor executes the statements again, and so they
+   * should be written to tolerate being executed more than once (for
+   * example, with {@code IF NOT EXISTS}).</p>
+   *
+   * @return {@code true} if the statement executes inside the executor's
+   * transaction
+   */
+
+  boolean transactional();
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+/**
+ * The executor commits after each revision and, additionally, at the first
+ * statement boundary after at least {@code statements} statements have been
+ * executed since the last commit. Intermediate commits occur before the
+ * version number of the current revision has been updated, and so an
+ * interrupted execution will re-execute the statements of the revision that
+ * was in progress.
+ *
+ * @param statements The number of statements after which a commit occurs
+ */
+
+public record TrTransactionStrategyEveryNStatements(
+  int statements)
+  implements TrTransactionStrategyType
+{
+  /**
+   * The executor commits after each revision and, additionally, after every
+   * {@code statements} statements.
+   *
+   * @param statements The number of statements after which a commit occurs
+   */
+
+  public TrTransactionStrategyEveryNStatements
+  {
+    if (statements < 1) {
+      throw new IllegalArgumentException(
+        "Statement count %d must be at least 1"
+          .formatted(Integer.valueOf(statements))
+      );
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.api;
+
+/**
+ * All revisions are executed in a single transaction, and the executor never
+ * commits. The caller is responsible for committing the transaction after
+ * execution completes. Executing a statement that is not
+ * {@link TrStatementType#transactional() transactional} would require
+ * committing the transaction, and so executions that encounter such a
+ * statement fail with {@link TrErrorCode#NON_TRANSACTIONAL_DISALLOWED} before
+ * anything is committed.
+ */
+
+public enum TrTransactionStrategySingle
+  implements TrTransactionStrategyType
+{
+  /**
+   * All revisions are executed in a single transaction.
+   */
+
+  SINGLE_TRANSACTION
+}
@@ -0,0 +1,762 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrEventExecutingSQL;
+import com.io7m.trasco.api.TrEventType;
+import com.io7m.trasco.api.TrEventUpgradeLockWaiting;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorLockType;
+import com.io7m.trasco.api.TrExecutorLocking;
+import com.io7m.trasco.api.TrExecutorParallelConnections;
+import com.io7m.trasco.api.TrExecutorType;
+import com.io7m.trasco.api.TrExecutorVersionUpdaterType;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrTransactionStrategyType;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import com.io7m.trasco.vanilla.TrUpgradeLockTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.io7m.trasco.api.TrErrorCode.CONNECTION_IN_TRANSACTION;
+import static com.io7m.trasco.api.TrErrorCode.LOCK_TIMEOUT;
+import static com.io7m.trasco.api.TrErrorCode.SQL_EXCEPTION;
+import static com.io7m.trasco.api.TrErrorCode.UPGRADE_DISALLOWED;
+import static com.io7m.trasco.api.TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING;
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static com.io7m.trasco.api.TrTransactionStrategyPerRevision.COMMIT_PER_REVISION;
+import static com.io7m.trasco.api.TrTransactionStrategySingle.SINGLE_TRANSACTION;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrExecutorLockingTest
+{
+  private Path directory;
+  private SQLiteDataSource dataSource;
+  private TrSchemaRevisionSet revisions;
+  private ConcurrentLinkedQueue<TrEventType> events;
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = TrTestDirectories.createTempDirectory();
+    this.events = new ConcurrentLinkedQueue<>();
+
+    final var file =
+      this.directory.resolve("db").toString();
+
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+
+    this.dataSource = new SQLiteDataSource(config);
+    this.dataSource.setUrl("jdbc:sqlite:" + file);
+    this.dataSource.setDatabaseName(file);
+
+    try (var stream = TrExecutorLockingTest.class.getResourceAsStream(
+      "/com/io7m/trasco/tests/example-12.xml")) {
+      this.revisions =
+        new TrSchemaRevisionSetParsers()
+          .parse(URI.create("urn:stdin"), stream);
+    }
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  private TrUpgradeLockTable lock()
+  {
+    return new TrUpgradeLockTable(
+      this.dataSource::getConnection,
+      Duration.ofMinutes(5L)
+    );
+  }
+
+  private TrExecutorType executor(
+    final Connection connection,
+    final TrExecutorLockType lock,
+    final Duration timeout)
+  {
+    return this.executor(
+      connection,
+      lock,
+      timeout,
+      SINGLE_TRANSACTION,
+      (version, c) -> TrTestVersions.versionSet(version, c)
+    );
+  }
+
+  private TrExecutorType executor(
+    final Connection connection,
+    final TrExecutorLockType lock,
+    final Duration timeout,
+    final TrTransactionStrategyType strategy,
+    final TrExecutorVersionUpdaterType versionSet)
+  {
+    return new TrExecutors().create(new TrExecutorConfiguration(
+      TrTestVersions::versionGet,
+      versionSet,
+      this.events::add,
+      this.revisions,
+      PERFORM_UPGRADES,
+      TrArguments.empty(),
+      connection
+    ).withTransactionStrategy(strategy)
+      .withLocking(new TrExecutorLocking(
+      lock,
+      Duration.ofMillis(10L),
+      Duration.ofMillis(50L),
+      timeout
+    )));
+  }
+
+  private long lockRows()
+    throws SQLException
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.prepareStatement(
+        "select count(*) from trasco_lock")) {
+        try (var rs = st.executeQuery()) {
+          return rs.getLong(1);
+        }
+      }
+    }
+  }
+
+  private long executedStatements()
+  {
+    return this.events.stream()
+      .filter(TrEventExecutingSQL.class::isInstance)
+      .count();
+  }
+
+  /**
+   * The process that acquires the lock upgrades the database, commits, and
+   * releases the lock.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedUpgrade()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(connection, this.lock(), Duration.ofSeconds(10L))
+        .execute();
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(
+        Optional.of(BigInteger.TWO),
+        TrTestVersions.versionGet(connection)
+      );
+    }
+    assertEquals(0L, this.lockRows());
+    assertTrue(this.executedStatements() > 0L);
+  }
+
+  /**
+   * A locked upgrade runs in a transaction owned by the executor, and
+   * returns the connection to auto-commit mode afterwards.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedUpgradeRestoresAutoCommit()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(connection, this.lock(), Duration.ofSeconds(10L))
+        .execute();
+      assertTrue(connection.getAutoCommit());
+
+      this.executor(connection, this.lock(), Duration.ofSeconds(10L))
+        .execute();
+      assertTrue(connection.getAutoCommit());
+    }
+  }
+
+  /**
+   * A connection that is not in auto-commit mode may hold uncommitted work,
+   * and is rejected rather than having that work committed or discarded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedRejectsOpenTransaction()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table caller (x integer)");
+      }
+
+      connection.setAutoCommit(false);
+      try (var st = connection.createStatement()) {
+        st.execute("insert into caller values (23)");
+      }
+
+      final var ex =
+        assertThrows(TrException.class, () -> {
+          this.executor(connection, this.lock(), Duration.ofSeconds(10L))
+            .execute();
+        });
+      assertEquals(CONNECTION_IN_TRANSACTION, ex.errorCode());
+      assertEquals(0L, this.executedStatements());
+
+      connection.commit();
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.prepareStatement(
+        "select count(*) from caller")) {
+        try (var rs = st.executeQuery()) {
+          assertEquals(1L, rs.getLong(1));
+        }
+      }
+      assertEquals(Optional.empty(), TrTestVersions.versionGet(connection));
+    }
+  }
+
+  /**
+   * A locked execution makes the same version checks as an unlocked one: An
+   * unversioned database fails when upgrades are not permitted, even when
+   * there are no revisions, and without acquiring the lock.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedVersionNotKnownNoRevisions()
+    throws Exception
+  {
+    this.revisions = new TrSchemaRevisionSet(Map.of(), new TreeMap<>());
+
+    final var lock = this.acquiring(new AtomicInteger());
+    try (var connection = this.dataSource.getConnection()) {
+      final var ex =
+        assertThrows(TrException.class, () -> {
+          this.executorFailing(connection, lock).execute();
+        });
+      assertEquals(UPGRADE_DISALLOWED, ex.errorCode());
+    }
+    assertEquals(0L, this.executedStatements());
+  }
+
+  /**
+   * A locked execution fails without acquiring the lock when the database
+   * is not at the highest known version and upgrades are not permitted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedVersionNotKnown()
+    throws Exception
+  {
+    final var acquisitions = new AtomicInteger();
+    final var lock = this.acquiring(acquisitions);
+    try (var connection = this.dataSource.getConnection()) {
+      final var ex =
+        assertThrows(TrException.class, () -> {
+          this.executorFailing(connection, lock).execute();
+        });
+      assertEquals(UPGRADE_DISALLOWED, ex.errorCode());
+    }
+    assertEquals(0, acquisitions.get());
+    assertEquals(0L, this.executedStatements());
+  }
+
+  private TrExecutorLockType acquiring(
+    final AtomicInteger acquisitions)
+  {
+    final var lock = this.lock();
+    return new TrExecutorLockType()
+    {
+      @Override
+      public boolean tryAcquire()
+        throws SQLException
+      {
+        acquisitions.incrementAndGet();
+        return lock.tryAcquire();
+      }
+
+      @Override
+      public void release()
+        throws SQLException
+      {
+        lock.release();
+      }
+    };
+  }
+
+  private TrExecutorType executorFailing(
+    final Connection connection,
+    final TrExecutorLockType lock)
+  {
+    return new TrExecutors().create(new TrExecutorConfiguration(
+      TrTestVersions::versionGet,
+      TrTestVersions::versionSet,
+      this.events::add,
+      this.revisions,
+      FAIL_INSTEAD_OF_UPGRADING,
+      TrArguments.empty(),
+      connection
+    ).withLocking(new TrExecutorLocking(
+      lock,
+      Duration.ofMillis(10L),
+      Duration.ofMillis(50L),
+      Duration.ofSeconds(10L)
+    )));
+  }
+
+  /**
+   * A process that finds the database already upgraded returns without
+   * touching the lock.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedUpToDate()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(connection, this.lock(), Duration.ofSeconds(10L))
+        .execute();
+    }
+
+    this.events.clear();
+
+    final var other = this.lock();
+    assertTrue(other.tryAcquire());
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var result =
+        this.executor(connection, this.lock(), Duration.ZERO)
+          .executeForResult();
+
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertTrue(result.revisionsApplied().isEmpty());
+    }
+
+    assertEquals(0L, this.executedStatements());
+    other.release();
+  }
+
+  /**
+   * A process that finds the database at the highest version, but with
+   * deferred index builds still pending, acquires the lock and executes the
+   * builds.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedUpToDatePendingIndexBuilds()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      TrTestIndexBuilds.createTable(connection);
+      try (var st = connection.createStatement()) {
+        st.execute("create table y_f0 (f0 integer)");
+      }
+
+      final var ex =
+        assertThrows(
+          TrException.class,
+          this.executorDeferred(connection)::execute
+        );
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+    }
+
+    assertEquals(0L, this.lockRows());
+
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("drop table y_f0");
+      }
+
+      this.events.clear();
+      final var result =
+        this.executorDeferred(connection).executeForResult();
+
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(List.of(), new TrTestIndexBuilds().pending(connection));
+    }
+
+    assertEquals(1L, this.executedStatements());
+    assertEquals(0L, this.lockRows());
+  }
+
+  private TrExecutorType executorDeferred(
+    final Connection connection)
+  {
+    return new TrExecutors().create(new TrExecutorConfiguration(
+      TrTestVersions::versionGet,
+      TrTestVersions::versionSet,
+      this.events::add,
+      this.revisions,
+      PERFORM_UPGRADES,
+      TrArguments.empty(),
+      connection
+    ).withDeferredIndexes(true)
+      .withIndexBuildStore(new TrTestIndexBuilds())
+      .withParallelConnections(new TrExecutorParallelConnections(
+        this.dataSource::getConnection,
+        2
+      ))
+      .withLocking(new TrExecutorLocking(
+        this.lock(),
+        Duration.ofMillis(10L),
+        Duration.ofMillis(50L),
+        Duration.ofSeconds(10L)
+      )));
+  }
+
+  /**
+   * A process that cannot acquire the lock waits for the process holding
+   * the lock to finish the upgrade, and then returns without executing any
+   * statements.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedWaitsForOtherProcess()
+    throws Exception
+  {
+    final var other = this.lock();
+    assertTrue(other.tryAcquire());
+
+    final var threads = Executors.newSingleThreadExecutor();
+    try (var connection = this.dataSource.getConnection()) {
+      final var waiting =
+        this.executor(connection, this.lock(), Duration.ofSeconds(30L))
+          .executeAsync(threads);
+
+      while (this.events.stream()
+        .noneMatch(TrEventUpgradeLockWaiting.class::isInstance)) {
+        Thread.sleep(10L);
+      }
+
+      /*
+       * Perform the upgrade as the other process, and release the lock.
+       */
+
+      final var otherEvents = new ConcurrentLinkedQueue<TrEventType>();
+      try (var otherConnection = this.dataSource.getConnection()) {
+        new TrExecutors().create(new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          otherEvents::add,
+          this.revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          otherConnection
+        )).execute();
+        otherConnection.commit();
+      }
+      other.release();
+
+      final var result = waiting.get(30L, TimeUnit.SECONDS);
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertTrue(result.revisionsApplied().isEmpty());
+      assertEquals(0L, this.executedStatements());
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  /**
+   * A process that cannot acquire the lock gives up after the timeout.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedTimeout()
+    throws Exception
+  {
+    final var other = this.lock();
+    assertTrue(other.tryAcquire());
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var ex =
+        assertThrows(TrException.class, () -> {
+          this.executor(connection, this.lock(), Duration.ofMillis(100L))
+            .execute();
+        });
+      assertEquals(LOCK_TIMEOUT, ex.errorCode());
+    }
+
+    assertEquals(0L, this.executedStatements());
+    assertEquals(1L, this.lockRows());
+  }
+
+  /**
+   * Cancelling a process that is waiting for the lock stops the wait
+   * immediately, rather than after the current poll delay.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockedWaitCancelled()
+    throws Exception
+  {
+    final var other = this.lock();
+    assertTrue(other.tryAcquire());
+
+    final var threads = Executors.newSingleThreadExecutor();
+    try (var connection = this.dataSource.getConnection()) {
+      final var waiting =
+        new TrExecutors().create(new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this.events::add,
+          this.revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withLocking(new TrExecutorLocking(
+          this.lock(),
+          Duration.ofMinutes(10L),
+          Duration.ofMinutes(10L),
+          Duration.ofMinutes(30L)
+        ))).executeAsync(threads);
+
+      while (this.events.stream()
+        .noneMatch(TrEventUpgradeLockWaiting.class::isInstance)) {
+        Thread.sleep(10L);
+      }
+
+      assertTrue(waiting.cancel(true));
+      assertThrows(CancellationException.class, () -> {
+        waiting.get(10L, TimeUnit.SECONDS);
+      });
+      waiting.idle().toCompletableFuture().get(10L, TimeUnit.SECONDS);
+      assertEquals(0L, this.executedStatements());
+    } finally {
+      threads.shutdown();
+    }
+    other.release();
+  }
+
+  /**
+   * An expired lock is removed and acquired. Expiry is judged by the
+   * database clock.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockExpired()
+    throws Exception
+  {
+    final var abandoned = this.lock();
+    assertTrue(abandoned.tryAcquire());
+    this.ageLock();
+
+    final var lock = this.lock();
+    assertTrue(lock.tryAcquire());
+    assertFalse(abandoned.tryAcquire());
+    assertThrows(SQLException.class, abandoned::renew);
+    lock.release();
+    assertEquals(0L, this.lockRows());
+  }
+
+  /**
+   * A renewed lock does not expire.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockRenewed()
+    throws Exception
+  {
+    final var lock = this.lock();
+    assertTrue(lock.tryAcquire());
+    this.ageLock();
+    lock.renew();
+
+    assertFalse(this.lock().tryAcquire());
+    lock.release();
+    assertEquals(0L, this.lockRows());
+  }
+
+  /**
+   * The executor renews the lock each time that it commits, even though the
+   * lock table is in the (single writer) database being upgraded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockRenewedByExecutor()
+    throws Exception
+  {
+    final var renewals = new AtomicInteger();
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(
+        connection,
+        this.counting(renewals),
+        Duration.ofSeconds(10L),
+        COMMIT_PER_REVISION,
+        (version, c) -> TrTestVersions.versionSet(version, c)
+      ).execute();
+    }
+
+    assertEquals(this.revisions.revisions().size(), renewals.get());
+    assertEquals(0L, this.lockRows());
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(
+        Optional.of(BigInteger.TWO),
+        TrTestVersions.versionGet(connection)
+      );
+    }
+  }
+
+  /**
+   * The executor never renews the lock whilst a transaction is open.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockNotRenewedInTransaction()
+    throws Exception
+  {
+    final var renewals = new AtomicInteger();
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(connection, this.counting(renewals), Duration.ofSeconds(10L))
+        .execute();
+    }
+
+    assertEquals(0, renewals.get());
+    assertEquals(0L, this.lockRows());
+  }
+
+  /**
+   * A process that finds the lock held whilst the upgrade transaction of
+   * the process holding the lock is open does not write to the database,
+   * and so does not block or fail on a single writer database.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLockHeldDuringUpgradeTransaction()
+    throws Exception
+  {
+    final var attempts = new ArrayList<Boolean>();
+    try (var connection = this.dataSource.getConnection()) {
+      this.executor(
+        connection,
+        this.lock(),
+        Duration.ofSeconds(10L),
+        SINGLE_TRANSACTION,
+        (version, c) -> {
+          TrTestVersions.versionSet(version, c);
+          attempts.add(Boolean.valueOf(this.lock().tryAcquire()));
+        }
+      ).execute();
+    }
+
+    assertEquals(List.of(false, false, false), attempts);
+    assertEquals(0L, this.lockRows());
+  }
+
+  private TrExecutorLockType counting(
+    final AtomicInteger renewals)
+  {
+    final var lock = this.lock();
+    return new TrExecutorLockType()
+    {
+      @Override
+      public boolean tryAcquire()
+        throws SQLException
+      {
+        return lock.tryAcquire();
+      }
+
+      @Override
+      public void release()
+        throws SQLException
+      {
+        lock.release();
+      }
+
+      @Override
+      public void renew()
+        throws SQLException
+      {
+        renewals.incrementAndGet();
+        lock.renew();
+      }
+    };
+  }
+
+  private void ageLock()
+    throws SQLException
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.prepareStatement(
+        "update trasco_lock set lock_acquired = '2000-01-01 00:00:00'")) {
+        assertEquals(1, st.executeUpdate());
+      }
+    }
+  }
+}
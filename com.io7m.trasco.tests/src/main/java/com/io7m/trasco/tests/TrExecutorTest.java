@@ -16,42 +16,115 @@
 
 package com.io7m.trasco.tests;
 
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentBytes;
 import com.io7m.trasco.api.TrArgumentNumeric;
 import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentTimestamp;
+import com.io7m.trasco.api.TrArgumentUUID;
 import com.io7m.trasco.api.TrArguments;
 import com.io7m.trasco.api.TrEventExecutingSQL;
+import com.io7m.trasco.api.TrEventRevisionRolledBack;
+import com.io7m.trasco.api.TrEventRowsInserted;
+import com.io7m.trasco.api.TrEventStatementCacheStatistics;
 import com.io7m.trasco.api.TrEventType;
+import com.io7m.trasco.api.TrEventTransactionCommitted;
 import com.io7m.trasco.api.TrEventUpgrading;
 import com.io7m.trasco.api.TrException;
 import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorFuture;
+import com.io7m.trasco.api.TrExecutorParallelConnections;
+import com.io7m.trasco.api.TrExecutorResult;
+import com.io7m.trasco.api.TrExecutorRetryPolicy;
+import com.io7m.trasco.api.TrExecutorType;
+import com.io7m.trasco.api.TrExecutorVersionUpdaterType;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrParameterInterpolation;
+import com.io7m.trasco.api.TrParameterKind;
+import com.io7m.trasco.api.TrParameterReference;
+import com.io7m.trasco.api.TrParameterReferences;
+import com.io7m.trasco.api.TrSchemaRevision;
 import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrTransactionStrategyEveryNStatements;
 import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetBinary;
 import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 import org.sqlite.SQLiteOpenMode;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
+import static com.io7m.trasco.api.TrErrorCode.NON_TRANSACTIONAL_DISALLOWED;
+import static com.io7m.trasco.api.TrErrorCode.OPERATION_UNSUPPORTED;
+import static com.io7m.trasco.api.TrErrorCode.SQL_EXCEPTION;
 import static com.io7m.trasco.api.TrErrorCode.UNRECOGNIZED_SCHEMA_REVISION;
 import static com.io7m.trasco.api.TrErrorCode.UPGRADE_DISALLOWED;
 import static com.io7m.trasco.api.TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING;
 import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static com.io7m.trasco.api.TrStatementIndexOperation.CREATE_INDEX;
+import static com.io7m.trasco.api.TrTransactionStrategyPerRevision.COMMIT_PER_REVISION;
+import static com.io7m.trasco.api.TrTransactionStrategySingle.SINGLE_TRANSACTION;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class TrExecutorTest
 {
@@ -490,6 +563,2493 @@ public final class TrExecutorTest
     assertEquals(0, this.events.size());
   }
 
+  /**
+   * Arguments of every parameter type can be bound to prepared statements
+   * and interpolated into formatted statements.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeParameterKinds()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-13.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var time =
+      Instant.parse("2024-01-02T03:04:05Z");
+    final var uuid =
+      UUID.fromString("a5c3e1e4-8d0e-4b8e-9f43-2d3f4e0c5b6a");
+
+    try (var connection = this.dataSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        new TrArguments(
+          Map.ofEntries(
+            entry("string0", new TrArgumentString("string0", "x")),
+            entry("number0", new TrArgumentNumeric("number0", (short) 23)),
+            entry("boolean0", new TrArgumentBoolean("boolean0", true)),
+            entry("timestamp0", new TrArgumentTimestamp("timestamp0", time)),
+            entry("bytes0", new TrArgumentBytes("bytes0", new byte[]{1, 2, (byte) 0xff})),
+            entry("uuid0", new TrArgumentUUID("uuid0", uuid)),
+            entry("bigint0", new TrArgumentBigInt("bigint0", Long.MAX_VALUE))
+          )
+        ),
+        connection
+      )).execute();
+
+      try (var st = connection.prepareStatement(
+        "select f0, f1, f2, f4, f5, f6 from x order by rowid")) {
+        try (var rs = st.executeQuery()) {
+          for (int row = 0; row < 2; ++row) {
+            assertTrue(rs.next());
+            assertEquals("x", rs.getString(1));
+            assertEquals(23, rs.getInt(2));
+            assertTrue(rs.getBoolean(3));
+            assertArrayEquals(new byte[]{1, 2, (byte) 0xff}, rs.getBytes(4));
+            assertEquals(uuid.toString(), rs.getString(5));
+            assertEquals(Long.MAX_VALUE, rs.getLong(6));
+          }
+          assertFalse(rs.next());
+        }
+      }
+    }
+
+    final var formatted =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventExecutingSQL)
+        .map(e -> ((TrEventExecutingSQL) e).statement())
+        .toList()
+        .get(2);
+
+    assertEquals(
+      "insert into x values ('x', 23, TRUE, '2024-01-02T03:04:05Z', X'0102ff', "
+      + "'a5c3e1e4-8d0e-4b8e-9f43-2d3f4e0c5b6a', 9223372036854775807)",
+      formatted
+    );
+  }
+
+  /**
+   * Timestamp arguments are bound in UTC regardless of the default time
+   * zone, and so prepared statements store the same value as the UTC
+   * literal interpolated into formatted statements. Rather than changing
+   * the default time zone of the JVM, the test checks the calendar that
+   * the driver receives for each timestamp.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeParameterTimestampUTC()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-13.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var dbFile =
+      this.database.resolve("timestamps.db").toString();
+
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    config.setDateClass("TEXT");
+    config.setDateStringFormat("yyyy-MM-dd'T'HH:mm:ssX");
+
+    final var textSource = new SQLiteDataSource(config);
+    textSource.setUrl("jdbc:sqlite:" + dbFile);
+    textSource.setDatabaseName(dbFile);
+
+    final var zones = new ArrayList<ZoneId>();
+    try (var connection = textSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        new TrArguments(
+          Map.ofEntries(
+            entry("string0", new TrArgumentString("string0", "x")),
+            entry("number0", new TrArgumentNumeric("number0", (short) 23)),
+            entry("boolean0", new TrArgumentBoolean("boolean0", true)),
+            entry("timestamp0", new TrArgumentTimestamp(
+              "timestamp0", Instant.parse("2024-01-02T03:04:05Z"))),
+            entry("bytes0", new TrArgumentBytes("bytes0", new byte[]{1})),
+            entry("uuid0", new TrArgumentUUID("uuid0", UUID.randomUUID())),
+            entry("bigint0", new TrArgumentBigInt("bigint0", 1L))
+          )
+        ),
+        timestampRecording(connection, zones)
+      )).execute();
+
+      assertEquals(List.of(ZoneOffset.UTC), zones);
+
+      try (var st = connection.prepareStatement(
+        "select f3 from x order by rowid")) {
+        try (var rs = st.executeQuery()) {
+          for (int row = 0; row < 2; ++row) {
+            assertTrue(rs.next());
+            assertEquals("2024-01-02T03:04:05Z", rs.getString(1));
+          }
+          assertFalse(rs.next());
+        }
+      }
+    }
+  }
+
+  /**
+   * A connection that records the time zone of the calendar passed with
+   * each timestamp bound to the statements that it creates. Timestamps
+   * bound without a calendar are recorded as the default time zone.
+   */
+
+  private static Connection timestampRecording(
+    final Connection connection,
+    final List<ZoneId> zones)
+  {
+    return proxy(Connection.class, connection, (method, args, result) -> {
+      if (result instanceof final Statement statement) {
+        return proxy(method.getReturnType(), statement, (m, a, r) -> {
+          if ("setTimestamp".equals(m.getName())) {
+            if (a.length == 3 && a[2] instanceof final Calendar calendar) {
+              zones.add(calendar.getTimeZone().toZoneId().normalized());
+            } else {
+              zones.add(ZoneId.systemDefault());
+            }
+          }
+          return r;
+        });
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Statement templates are expanded once for each of their values. The
+   * expansions are submitted in batches of the template's batch size,
+   * whatever the configured statement batch size, unless the database
+   * driver does not support batch updates. One event is published for each
+   * expansion, whichever interpolation the template uses.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testUpgradeStatementTemplates()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-14.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    return Stream.of(Boolean.TRUE, Boolean.FALSE)
+      .map(batching -> {
+        return DynamicTest.dynamicTest(
+          "testUpgradeStatementTemplates_" + batching,
+          () -> this.checkStatementTemplates(revisions, batching.booleanValue())
+        );
+      });
+  }
+
+  private void checkStatementTemplates(
+    final TrSchemaRevisionSet revisions,
+    final boolean supportsBatchUpdates)
+    throws Exception
+  {
+    this.events.clear();
+
+    final var batches = new ArrayList<Integer>();
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("drop table if exists x");
+        for (int index = 0; index <= 3; ++index) {
+          st.execute("drop table if exists shard_" + index);
+        }
+      }
+
+      this.executors.create(new TrExecutorConfiguration(
+        c -> {
+          return Optional.empty();
+        },
+        (version, c) -> {
+
+        },
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        new TrArguments(
+          Map.ofEntries(
+            entry("label0", new TrArgumentString("label0", "L"))
+          )
+        ),
+        batchRecording(connection, supportsBatchUpdates, batches)
+      )).execute();
+
+      final var rows = new ArrayList<String>();
+      try (var st = connection.prepareStatement(
+        "select f0, f1 from x order by rowid")) {
+        try (var rs = st.executeQuery()) {
+          while (rs.next()) {
+            rows.add(rs.getString(1) + ":" + rs.getLong(2));
+          }
+        }
+      }
+
+      assertEquals(
+        List.of(
+          "L:1", "L:2", "L:3", "L:4", "L:5",
+          "L:6", "L:7", "L:8", "L:9", "L:10",
+          "aL:0", "bL:0", "cL:0"
+        ),
+        rows
+      );
+
+      for (int index = 0; index <= 3; ++index) {
+        try (var st = connection.prepareStatement(
+          "select count(*) from shard_" + index)) {
+          try (var rs = st.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+          }
+        }
+      }
+    }
+
+    final var executed =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventExecutingSQL)
+        .map(e -> ((TrEventExecutingSQL) e).statement())
+        .toList();
+
+    assertEquals(
+      List.of(
+        "create table x (f0 varchar(100), f1 bigint)",
+        "create table shard_0 (f0 integer)",
+        "create table shard_1 (f0 integer)",
+        "create table shard_2 (f0 integer)",
+        "create table shard_3 (f0 integer)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (?, ?)",
+        "insert into x values (? || ?, 0)",
+        "insert into x values (? || ?, 0)",
+        "insert into x values (? || ?, 0)"
+      ),
+      executed
+    );
+
+    if (supportsBatchUpdates) {
+      assertEquals(List.of(4, 4, 4, 2, 3), batches);
+    } else {
+      assertEquals(List.of(), batches);
+    }
+  }
+
+  /**
+   * Rows are inserted in batches, with one progress event for each batch.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRows()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-15.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        TrArguments.empty(),
+        connection
+      )).execute();
+
+      final var rows = new ArrayList<String>();
+      try (var st = connection.prepareStatement(
+        "select f0, f1, f2, f3, f4 from x order by rowid")) {
+        try (var rs = st.executeQuery()) {
+          while (rs.next()) {
+            rows.add(
+              "%s:%s:%s:%s:%s".formatted(
+                rs.getString(1),
+                rs.getString(2),
+                Boolean.valueOf(rs.getBoolean(3)),
+                Long.valueOf(rs.getLong(4)),
+                HexFormat.of().formatHex(rs.getBytes(5))
+              )
+            );
+          }
+        }
+      }
+
+      assertEquals(
+        List.of(
+          "a:1:true:10:00",
+          "b:2.5:false:20:01",
+          "c:3:true:30:02",
+          "d:4:false:40:03",
+          "e:5:true:50:04",
+          "f:6:false:60:05",
+          "g:7:true:9223372036854775807:ff"
+        ),
+        rows
+      );
+    }
+
+    final var progress =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventExecutingSQL
+                     || e instanceof TrEventRowsInserted)
+        .toList();
+
+    assertEquals(
+      List.of(
+        new TrEventExecutingSQL(
+          "create table x (f0 varchar(100), f1 numeric, f2 boolean, f3 bigint, f4 blob)"),
+        new TrEventExecutingSQL(
+          "insert into x (f0, f1, f2, f3, f4) values (?, ?, ?, ?, ?)"),
+        new TrEventRowsInserted("x", 3, 7),
+        new TrEventRowsInserted("x", 6, 7),
+        new TrEventRowsInserted("x", 7, 7)
+      ),
+      progress
+    );
+  }
+
+  /**
+   * Rows streamed from a CSV resource next to the revision file are inserted
+   * in batches.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRowsCSV()
+    throws Exception
+  {
+    TrTestDirectories.resourceOf(
+      TrExecutorTest.class,
+      this.database,
+      "example-16.csv"
+    );
+    final var file =
+      TrTestDirectories.resourceOf(
+        TrExecutorTest.class,
+        this.database,
+        "example-16.xml"
+      );
+    final var revisions =
+      new TrSchemaRevisionSetParsers().parseFile(file);
+
+    this.checkRowsCSV(revisions);
+
+    final var progress =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventRowsInserted)
+        .toList();
+
+    assertEquals(
+      List.of(
+        new TrEventRowsInserted("x", 3, 7),
+        new TrEventRowsInserted("x", 6, 7),
+        new TrEventRowsInserted("x", 7, 7)
+      ),
+      progress
+    );
+  }
+
+  /**
+   * A compiled revision set refers to its CSV resources as they were
+   * written, and so still works after it has been moved to another
+   * directory together with its resources. A set read from a stream of
+   * unknown location cannot resolve them.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRowsCSVRelocated()
+    throws Exception
+  {
+    final var original =
+      Files.createDirectories(this.database.resolve("original"));
+    final var relocated =
+      Files.createDirectories(this.database.resolve("relocated"));
+
+    final var csv =
+      TrTestDirectories.resourceOf(
+        TrExecutorTest.class,
+        original,
+        "example-16.csv"
+      );
+    final var file =
+      TrTestDirectories.resourceOf(
+        TrExecutorTest.class,
+        original,
+        "example-16.xml"
+      );
+    final var compiled = original.resolve("example-16.trsb");
+    TrSchemaRevisionSetBinary.write(
+      new TrSchemaRevisionSetParsers().parseFile(file),
+      compiled
+    );
+
+    Files.move(compiled, relocated.resolve("example-16.trsb"));
+    Files.move(csv, relocated.resolve("example-16.csv"));
+    Files.delete(file);
+    Files.delete(original);
+
+    try (var stream = Files.newInputStream(relocated.resolve("example-16.trsb"))) {
+      final var revisions = TrSchemaRevisionSetBinary.read(stream);
+      try (var connection = this.dataSource.getConnection()) {
+        final var ex = assertThrows(TrException.class, () -> {
+          this.executors.create(new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            this::onEvent,
+            revisions,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )).execute();
+        });
+        assertEquals(SQL_EXCEPTION, ex.errorCode());
+      }
+    }
+
+    this.checkRowsCSV(
+      TrSchemaRevisionSetBinary.read(relocated.resolve("example-16.trsb"))
+    );
+  }
+
+  private void checkRowsCSV(
+    final TrSchemaRevisionSet revisions)
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        TrArguments.empty(),
+        connection
+      )).execute();
+
+      final var rows = new ArrayList<String>();
+      try (var st = connection.prepareStatement(
+        "select f0, f1, f2, f3, f4 from x order by rowid")) {
+        try (var rs = st.executeQuery()) {
+          while (rs.next()) {
+            rows.add(
+              "%s:%s:%s:%s:%s".formatted(
+                rs.getString(1),
+                rs.getString(2),
+                Boolean.valueOf(rs.getBoolean(3)),
+                Long.valueOf(rs.getLong(4)),
+                HexFormat.of().formatHex(rs.getBytes(5))
+              )
+            );
+          }
+        }
+      }
+
+      assertEquals(
+        List.of(
+          "plain:1:true:10:00",
+          "quoted, with comma:2.5:false:20:01",
+          "say \"hi\":3:true:30:02",
+          "multi\nline:4:false:40:03",
+          "e:5:true:50:04",
+          "f:6:false:60:05",
+          "g:7:true:9223372036854775807:ff"
+        ),
+        rows
+      );
+    }
+  }
+
+  /**
+   * A CSV resource that does not match its recorded checksum is rejected
+   * before any rows are inserted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRowsCSVChecksumMismatch()
+    throws Exception
+  {
+    final var csv =
+      TrTestDirectories.resourceOf(
+        TrExecutorTest.class,
+        this.database,
+        "example-16.csv"
+      );
+
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatement("create table x (f0 varchar(100))"),
+              new TrStatementRowsCSV(
+                "x",
+                List.of(new TrStatementRowsColumn("f0", TrParameterKind.STRING)),
+                csv.toUri(),
+                Optional.empty(),
+                "00".repeat(32),
+                true,
+                500,
+                true
+              )
+            )
+          )
+        ))
+      );
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var ex = assertThrows(TrException.class, () -> {
+        this.executors.create(new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        )).execute();
+      });
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+    }
+
+    assertFalse(
+      this.events.stream().anyMatch(e -> e instanceof TrEventRowsInserted)
+    );
+  }
+
+  /**
+   * The terminator of the final record of a CSV resource is optional, and a
+   * single empty line at the end is ignored: Other empty lines are records
+   * with a single empty field, and carriage returns that do not precede a
+   * line feed are kept.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testUpgradeRowsCSVLines()
+  {
+    return Stream.of(
+        new CSVCase("a\nb", List.of("a", "b")),
+        new CSVCase("a\nb\n", List.of("a", "b")),
+        new CSVCase("a\r\nb\r\n", List.of("a", "b")),
+        new CSVCase("a\n\nb\n", List.of("a", "", "b")),
+        new CSVCase("a\r\n\r\nb", List.of("a", "", "b")),
+        new CSVCase("\n", List.of()),
+        new CSVCase("\n\n", List.of("")),
+        new CSVCase("a\n\n", List.of("a")),
+        new CSVCase("a\r\n\r\n", List.of("a")),
+        new CSVCase("a\n\n\n", List.of("a", "")),
+        new CSVCase("a\n\r", List.of("a", "\r")),
+        new CSVCase("a\rb\n", List.of("a\rb")),
+        new CSVCase("a\r\rb\r\n", List.of("a\r\rb")),
+        new CSVCase("\"a\"\r\n\"b\r\"\r\n", List.of("a", "b\r")))
+      .map(c -> DynamicTest.dynamicTest(
+        "testUpgradeRowsCSVLines_" + HexFormat.of().formatHex(
+          c.text().getBytes(UTF_8)),
+        () -> {
+          try (var connection = this.dataSource.getConnection()) {
+            assertEquals(c.expected(), this.executeCSV(connection, c.text()));
+            connection.rollback();
+          }
+        }
+      ));
+  }
+
+  /**
+   * An empty line in a CSV resource with more than one column is a record
+   * with too few fields, and is rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRowsCSVEmptyLineTooFewFields()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      final var ex = assertThrows(TrException.class, () -> {
+        this.executeCSV(connection, "a,b\n\nc,d\n", "f0", "f1");
+      });
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+      assertTrue(ex.getMessage().contains(":2: Record has 1 fields"));
+    }
+  }
+
+  /**
+   * A CSV resource with more than one column may end with an empty line.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeRowsCSVTrailingEmptyLine()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(
+        List.of("a", "c"),
+        this.executeCSV(connection, "a,b\nc,d\n\n", "f0", "f1")
+      );
+      connection.rollback();
+    }
+  }
+
+  private record CSVCase(
+    String text,
+    List<String> expected)
+  {
+
+  }
+
+  private List<String> executeCSV(
+    final Connection connection,
+    final String text,
+    final String... columns)
+    throws Exception
+  {
+    final var names = columns.length == 0 ? new String[]{"f0"} : columns;
+    final var data = text.getBytes(UTF_8);
+    final var csv = Files.write(this.database.resolve("lines.csv"), data);
+
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatement(
+                "create table x (%s)".formatted(
+                  String.join(", ", names))),
+              new TrStatementRowsCSV(
+                "x",
+                Stream.of(names)
+                  .map(n -> new TrStatementRowsColumn(n, TrParameterKind.STRING))
+                  .toList(),
+                csv.toUri(),
+                Optional.empty(),
+                HexFormat.of().formatHex(
+                  MessageDigest.getInstance("SHA-256").digest(data)),
+                false,
+                500,
+                true
+              )
+            )
+          )
+        ))
+      );
+
+    this.executors.create(new TrExecutorConfiguration(
+      c -> Optional.empty(),
+      (version, c) -> {
+
+      },
+      this::onEvent,
+      revisions,
+      PERFORM_UPGRADES,
+      TrArguments.empty(),
+      connection
+    )).execute();
+
+    final var rows = new ArrayList<String>();
+    try (var st = connection.prepareStatement(
+      "select %s from x order by rowid".formatted(names[0]))) {
+      try (var rs = st.executeQuery()) {
+        while (rs.next()) {
+          rows.add(rs.getString(1));
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Statements that use string formatting produce exactly the text that
+   * {@link String#format(String, Object...)} would produce, both for the
+   * specifiers that are compiled and for those that are not.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testUpgradeParameterizedFormattedPlans()
+  {
+    return Stream.of(
+        "select %s, %s",
+        "select %2$s, %1$s",
+        "select %2$s, %s, %s, %1$s",
+        "select '%%', %s, '100%%'",
+        "select %s, '%n', %s",
+        "select %5s, %s",
+        "select %S, %s",
+        "select 1")
+      .map(text -> DynamicTest.dynamicTest(
+        "testUpgradeParameterizedFormattedPlans_" + text,
+        () -> this.checkFormattedPlan(text)
+      ));
+  }
+
+  private void checkFormattedPlan(
+    final String text)
+    throws Exception
+  {
+    this.events.clear();
+
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.ofEntries(
+          entry("s", new TrParameter("s", TrParameterKind.STRING)),
+          entry("n", new TrParameter("n", TrParameterKind.NUMERIC))
+        ),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatementParameterized(
+                TrParameterReferences.of(
+                  new TrParameterReference(0, "s"),
+                  new TrParameterReference(1, "n")
+                ),
+                text,
+                TrParameterInterpolation.STRING_FORMATTING,
+                true
+              )
+            )
+          )
+        ))
+      );
+
+    try (var connection = this.dataSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        c -> Optional.empty(),
+        (version, c) -> {
+
+        },
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        new TrArguments(
+          Map.ofEntries(
+            entry("s", new TrArgumentString("s", "x")),
+            entry("n", new TrArgumentNumeric("n", 23))
+          )
+        ),
+        connection
+      )).execute();
+    }
+
+    assertEquals(
+      TrEventUpgrading.class,
+      this.events.remove().getClass()
+    );
+
+    final var statement = (TrEventExecutingSQL) this.events.remove();
+    assertEquals(String.format(text, "'x'", "23"), statement.statement());
+  }
+
+  /**
+   * Batching statements executes statements in declaration order, and
+   * publishes an event for each statement.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeBatched()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-7.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          new TrArguments(
+            Map.ofEntries(
+              entry("number0", new TrArgumentNumeric("number0", 2))
+            )
+          ),
+          connection
+        ).withStatementBatchSize(2));
+
+      executor.execute();
+
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("-1"),
+          new BigInteger("0")),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("create table x (f0 integer)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (0)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (1)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (?)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (3)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("0"),
+          new BigInteger("1")),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (4)"),
+        this.events.remove()
+      );
+      assertEquals(0, this.events.size());
+
+      assertEquals(List.of(0, 1, 2, 3, 4), selectX(connection));
+    }
+  }
+
+  /**
+   * Batching submits each batch with a single call to executeBatch, and
+   * flushes pending batches before statements that cannot be batched and at
+   * the end of each revision.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeBatchedExecuteBatchCalls()
+    throws Exception
+  {
+    final var batches = new ArrayList<Integer>();
+    this.executeExample7Batched(true, batches);
+
+    assertEquals(List.of(2, 1, 1, 1), batches);
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (0)",
+        "insert into x values (1)",
+        "insert into x values (?)",
+        "insert into x values (3)",
+        "insert into x values (4)"
+      ),
+      this.executedSQL()
+    );
+  }
+
+  /**
+   * If the database driver does not support batch updates, statements are
+   * executed individually even though batching is configured.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeBatchedUnsupported()
+    throws Exception
+  {
+    final var batches = new ArrayList<Integer>();
+    this.executeExample7Batched(false, batches);
+
+    assertEquals(List.of(), batches);
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (0)",
+        "insert into x values (1)",
+        "insert into x values (?)",
+        "insert into x values (3)",
+        "insert into x values (4)"
+      ),
+      this.executedSQL()
+    );
+  }
+
+  private void executeExample7Batched(
+    final boolean supportsBatchUpdates,
+    final List<Integer> batches)
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-7.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var recording =
+        batchRecording(connection, supportsBatchUpdates, batches);
+
+      this.executors.create(new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        new TrArguments(
+          Map.ofEntries(
+            entry("number0", new TrArgumentNumeric("number0", 2))
+          )
+        ),
+        recording
+      ).withStatementBatchSize(2)).execute();
+
+      assertEquals(List.of(0, 1, 2, 3, 4), selectX(connection));
+    }
+  }
+
+  /**
+   * A connection that records the number of statements submitted by each
+   * call to executeBatch on the statements that it creates, and that
+   * optionally reports that batch updates are not supported.
+   */
+
+  private static Connection batchRecording(
+    final Connection connection,
+    final boolean supportsBatchUpdates,
+    final List<Integer> batches)
+  {
+    return proxy(Connection.class, connection, (method, args, result) -> {
+      if (result instanceof final DatabaseMetaData metaData) {
+        return proxy(DatabaseMetaData.class, metaData, (m, a, r) -> {
+          if ("supportsBatchUpdates".equals(m.getName())) {
+            return Boolean.valueOf(supportsBatchUpdates);
+          }
+          return r;
+        });
+      }
+      if (result instanceof final Statement statement) {
+        final var pending = new AtomicInteger(0);
+        return proxy(method.getReturnType(), statement, (m, a, r) -> {
+          switch (m.getName()) {
+            case "addBatch" -> pending.incrementAndGet();
+            case "clearBatch" -> pending.set(0);
+            case "executeBatch" -> batches.add(pending.getAndSet(0));
+            default -> {
+
+            }
+          }
+          return r;
+        });
+      }
+      return result;
+    });
+  }
+
+  private interface ResultFilterType
+  {
+    Object filter(
+      Method method,
+      Object[] arguments,
+      Object result);
+  }
+
+  private static <T> T proxy(
+    final Class<T> type,
+    final Object delegate,
+    final ResultFilterType filter)
+  {
+    return type.cast(Proxy.newProxyInstance(
+      TrExecutorTest.class.getClassLoader(),
+      new Class<?>[]{type},
+      (proxy, method, args) -> {
+        try {
+          return filter.filter(method, args, method.invoke(delegate, args));
+        } catch (final InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    ));
+  }
+
+  /**
+   * Statements with identical text are served from the statement cache.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeStatementCache()
+    throws Exception
+  {
+    this.executeWithStatementCache(4);
+
+    assertEquals(
+      new TrEventStatementCacheStatistics(4L, 3L),
+      this.events.removeLast()
+    );
+    assertEquals(
+      7L,
+      this.events.stream()
+        .filter(e -> e instanceof TrEventExecutingSQL)
+        .count()
+    );
+  }
+
+  /**
+   * The statement cache is bounded, and evicts the least recently used
+   * statements.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeStatementCacheEviction()
+    throws Exception
+  {
+    this.executeWithStatementCache(1);
+
+    assertEquals(
+      new TrEventStatementCacheStatistics(0L, 7L),
+      this.events.removeLast()
+    );
+  }
+
+  private void executeWithStatementCache(
+    final int size)
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-8.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          new TrArguments(
+            Map.ofEntries(
+              entry("number0", new TrArgumentNumeric("number0", 2))
+            )
+          ),
+          connection
+        ).withStatementCacheSize(size));
+
+      executor.execute();
+
+      try (var st = connection.prepareStatement(
+        "select count(*) from x")) {
+        try (var rs = st.executeQuery()) {
+          rs.next();
+          assertEquals(6, rs.getInt(1));
+        }
+      }
+    }
+  }
+
+  /**
+   * A failed revision is rolled back to its savepoint, and the execution
+   * can be resumed from the last good version in the same transaction.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeSavepointResume()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-9.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var versions = new ArrayList<BigInteger>();
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+            versions.add(version);
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withRevisionSavepoints(true));
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+      assertEquals("1", ex.attributes().get("Last Good Version"));
+      assertEquals("2", ex.attributes().get("Failed Version"));
+      assertEquals(
+        new TrEventRevisionRolledBack(BigInteger.ONE, BigInteger.TWO, 1),
+        this.events.removeLast()
+      );
+      assertEquals(List.of(BigInteger.ZERO, BigInteger.ONE), versions);
+      assertEquals(List.of(1), selectX(connection));
+
+      try (var st = connection.prepareStatement(
+        "create table y (f0 integer)")) {
+        st.execute();
+      }
+
+      this.events.clear();
+      executor.resume();
+
+      assertEquals(
+        new TrEventUpgrading(BigInteger.ONE, BigInteger.TWO),
+        this.events.remove()
+      );
+      assertEquals(
+        List.of(
+          BigInteger.ZERO,
+          BigInteger.ONE,
+          BigInteger.TWO,
+          BigInteger.valueOf(3L)),
+        versions
+      );
+      assertEquals(List.of(1, 2, 3), selectX(connection));
+    }
+  }
+
+  /**
+   * Resuming an execution retries failed revisions according to the retry
+   * policy.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeSavepointResumeRetries()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-9.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var failures = new AtomicInteger(2);
+    try (var connection = this.dataSource.getConnection()) {
+      try (var st = connection.prepareStatement(
+        "create table y (f0 integer)")) {
+        st.execute();
+      }
+
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+            if (version.equals(BigInteger.TWO)
+                && failures.getAndDecrement() > 0) {
+              throw new SQLException("Transient failure.");
+            }
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        )
+          .withRevisionSavepoints(true)
+          .withRetryPolicy(
+            new TrExecutorRetryPolicy(3, Duration.ofMillis(1L))));
+
+      assertThrows(TrException.class, executor::execute);
+      executor.resume();
+
+      assertEquals(
+        2L,
+        this.events.stream()
+          .filter(e -> e instanceof TrEventRevisionRolledBack)
+          .count()
+      );
+      assertEquals(List.of(1, 2, 3), selectX(connection));
+    }
+  }
+
+  /**
+   * Committing per revision commits each revision.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeCommitPerRevision()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-9.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withTransactionStrategy(COMMIT_PER_REVISION));
+
+      assertThrows(TrException.class, executor::execute);
+      connection.rollback();
+    }
+
+    final var commits =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventTransactionCommitted)
+        .map(TrEventTransactionCommitted.class::cast)
+        .toList();
+
+    assertEquals(2, commits.size());
+    assertEquals(BigInteger.ZERO, commits.get(0).revision());
+    assertEquals(1L, commits.get(0).statements());
+    assertEquals(BigInteger.ONE, commits.get(1).revision());
+    assertEquals(1L, commits.get(1).statements());
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(1), selectX(connection));
+    }
+  }
+
+  /**
+   * Committing every N statements commits inside revisions, and at the end
+   * of each revision.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeCommitEveryNStatements()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-7.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          new TrArguments(
+            Map.ofEntries(
+              entry("number0", new TrArgumentNumeric("number0", 2))
+            )
+          ),
+          connection
+        ).withTransactionStrategy(new TrTransactionStrategyEveryNStatements(2)));
+
+      executor.execute();
+    }
+
+    final var commits =
+      this.events.stream()
+        .filter(e -> e instanceof TrEventTransactionCommitted)
+        .map(TrEventTransactionCommitted.class::cast)
+        .map(e -> List.of(e.revision(), BigInteger.valueOf(e.statements())))
+        .toList();
+
+    assertEquals(
+      List.of(
+        List.of(BigInteger.ZERO, BigInteger.TWO),
+        List.of(BigInteger.ZERO, BigInteger.TWO),
+        List.of(BigInteger.ZERO, BigInteger.ONE),
+        List.of(BigInteger.ONE, BigInteger.ONE)
+      ),
+      commits
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(0, 1, 2, 3, 4), selectX(connection));
+    }
+  }
+
+  /**
+   * Per-revision savepoints cannot be combined with commits inside
+   * revisions.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSavepointsCommitEveryNStatementsRejected()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      assertThrows(IllegalArgumentException.class, () -> {
+        new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          new TrSchemaRevisionSet(Map.of(), new TreeMap<>()),
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        )
+          .withRevisionSavepoints(true)
+          .withTransactionStrategy(new TrTransactionStrategyEveryNStatements(2));
+      });
+    }
+  }
+
+  /**
+   * Non-transactional statements are executed outside of the executor's
+   * transaction after committing any pending work.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeNonTransactional()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-10.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withTransactionStrategy(COMMIT_PER_REVISION));
+
+      executor.execute();
+
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("-1"),
+          new BigInteger("0")),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("create table x (f0 integer)"),
+        this.events.remove()
+      );
+
+      final var commit0 =
+        assertInstanceOf(TrEventTransactionCommitted.class, this.events.remove());
+      assertEquals(BigInteger.ZERO, commit0.revision());
+      assertEquals(1L, commit0.statements());
+
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("0"),
+          new BigInteger("1")),
+        this.events.remove()
+      );
+
+      final var commitBefore =
+        assertInstanceOf(TrEventTransactionCommitted.class, this.events.remove());
+      assertEquals(BigInteger.ONE, commitBefore.revision());
+      assertEquals(0L, commitBefore.statements());
+
+      assertEquals(
+        new TrEventExecutingSQL("vacuum"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("insert into x values (1)"),
+        this.events.remove()
+      );
+
+      final var commit1 =
+        assertInstanceOf(TrEventTransactionCommitted.class, this.events.remove());
+      assertEquals(BigInteger.ONE, commit1.revision());
+      assertEquals(1L, commit1.statements());
+
+      assertEquals(0, this.events.size());
+      assertFalse(connection.getAutoCommit());
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+    }
+  }
+
+  /**
+   * Non-transactional statements are rejected when all revisions must be
+   * executed in a single transaction, and nothing is committed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeNonTransactionalSingleTransaction()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-10.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withTransactionStrategy(SINGLE_TRANSACTION));
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(NON_TRANSACTIONAL_DISALLOWED, ex.errorCode());
+      assertEquals("1", ex.attributes().get("Revision"));
+
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("-1"),
+          new BigInteger("0")),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventExecutingSQL("create table x (f0 integer)"),
+        this.events.remove()
+      );
+      assertEquals(
+        new TrEventUpgrading(
+          new BigInteger("0"),
+          new BigInteger("1")),
+        this.events.remove()
+      );
+      assertEquals(0, this.events.size());
+      connection.rollback();
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertThrows(SQLException.class, () -> selectX(connection));
+    }
+  }
+
+  /**
+   * Parallel groups are executed over connections obtained from the
+   * configured supplier, and complete before the revision is recorded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeParallelGroup()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-11.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var versions = new ArrayList<BigInteger>();
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> versions.add(version),
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withTransactionStrategy(COMMIT_PER_REVISION)
+          .withParallelConnections(new TrExecutorParallelConnections(
+            () -> this.dataSource.getConnection(),
+            2
+          )));
+
+      executor.execute();
+      connection.commit();
+    }
+
+    assertEquals(List.of(BigInteger.ZERO, BigInteger.ONE), versions);
+
+    final var executed = new HashSet<TrEventType>(this.events);
+    assertTrue(executed.contains(
+      new TrEventExecutingSQL("create index x_f0 on x (f0)")));
+    assertTrue(executed.contains(
+      new TrEventExecutingSQL("create index y_f0 on y (f0)")));
+    assertEquals(
+      new TrEventExecutingSQL("insert into x values (1)"),
+      this.events.stream()
+        .filter(e -> e instanceof TrEventExecutingSQL)
+        .reduce((x, y) -> y)
+        .orElseThrow()
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  /**
+   * A failing statement in a parallel group fails the upgrade.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeParallelGroupFails()
+    throws Exception
+  {
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatementParallelGroup(List.of(
+                new TrStatement("create table x (f0 integer)"),
+                new TrStatement("create index y_f0 on y (f0)")
+              ))
+            )
+          )
+        ))
+      );
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+            throw new IllegalStateException("Unreachable!");
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withTransactionStrategy(COMMIT_PER_REVISION)
+          .withParallelConnections(new TrExecutorParallelConnections(
+            () -> this.dataSource.getConnection(),
+            2
+          )));
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+    }
+  }
+
+  /**
+   * The parallel groups of an execution share one set of worker threads,
+   * rather than each group creating its own.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeParallelGroupsShareThreads()
+    throws Exception
+  {
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatementParallelGroup(List.of(
+                new TrStatement("create table x (f0 integer)"),
+                new TrStatement("create table y (f0 integer)")
+              ))
+            )
+          ),
+          BigInteger.ONE,
+          new TrSchemaRevision(
+            BigInteger.ONE,
+            List.of(
+              new TrStatementParallelGroup(List.of(
+                new TrStatement("create index x_f0 on x (f0)"),
+                new TrStatement("create index y_f0 on y (f0)")
+              ))
+            )
+          )
+        ))
+      );
+
+    final var threads = ConcurrentHashMap.<String>newKeySet();
+    try (var connection = this.dataSource.getConnection()) {
+      this.executors.create(new TrExecutorConfiguration(
+        c -> {
+          return Optional.empty();
+        },
+        (version, c) -> {
+
+        },
+        this::onEvent,
+        revisions,
+        PERFORM_UPGRADES,
+        TrArguments.empty(),
+        connection
+      ).withTransactionStrategy(COMMIT_PER_REVISION)
+        .withParallelConnections(new TrExecutorParallelConnections(
+          () -> {
+            threads.add(Thread.currentThread().getName());
+            return this.dataSource.getConnection();
+          },
+          2
+        ))).execute();
+      connection.commit();
+    }
+
+    assertTrue(threads.size() <= 2, threads::toString);
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  private void executeExample12(
+    final boolean deferredIndexes,
+    final Optional<TrExecutorParallelConnections> parallelConnections,
+    final boolean indexBuildStore)
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-12.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      var configuration =
+        new TrExecutorConfiguration(
+          c -> {
+            return Optional.empty();
+          },
+          (version, c) -> {
+
+          },
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withDeferredIndexes(deferredIndexes);
+
+      if (parallelConnections.isPresent()) {
+        configuration =
+          configuration.withParallelConnections(parallelConnections.get());
+      }
+      if (indexBuildStore) {
+        TrTestIndexBuilds.createTable(connection);
+        configuration =
+          configuration.withIndexBuildStore(new TrTestIndexBuilds());
+      }
+
+      final var executor = this.executors.create(configuration);
+      executor.execute();
+      connection.commit();
+    }
+  }
+
+  private List<String> executedSQL()
+  {
+    return this.events.stream()
+      .filter(TrEventExecutingSQL.class::isInstance)
+      .map(TrEventExecutingSQL.class::cast)
+      .map(TrEventExecutingSQL::statement)
+      .toList();
+  }
+
+  /**
+   * Index statements are executed in place when index builds are not
+   * deferred.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesNotDeferred()
+    throws Exception
+  {
+    this.executeExample12(false, Optional.empty(), false);
+
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "create index x_f0 on x (f0)",
+        "create index x_tmp on x (f0)",
+        "insert into x values (1)",
+        "drop index x_tmp",
+        "create table y (f0 integer)",
+        "create index y_f0 on y (f0)"
+      ),
+      this.executedSQL()
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  /**
+   * Deferred index builds are executed after the final revision, and
+   * indexes dropped later in the same upgrade are never built.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferred()
+    throws Exception
+  {
+    this.executeExample12(true, Optional.empty(), false);
+
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (1)",
+        "create table y (f0 integer)",
+        "create index x_f0 on x (f0)",
+        "create index y_f0 on y (f0)"
+      ),
+      this.executedSQL()
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  /**
+   * With parallel connections and an index build store, the work of the
+   * revisions and the final version are committed with the builds recorded
+   * in the store, and the deferred index builds are then executed over the
+   * parallel connections.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredParallel()
+    throws Exception
+  {
+    this.executeExample12(
+      true,
+      Optional.of(
+        new TrExecutorParallelConnections(
+          () -> this.dataSource.getConnection(),
+          2
+        )
+      ),
+      true
+    );
+
+    final var executed = this.executedSQL();
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (1)",
+        "create table y (f0 integer)"
+      ),
+      executed.subList(0, 3)
+    );
+    assertEquals(
+      Set.of(
+        "create index x_f0 on x (f0)",
+        "create index y_f0 on y (f0)"
+      ),
+      Set.copyOf(executed.subList(3, executed.size()))
+    );
+    assertEquals(
+      List.of(BigInteger.TWO),
+      this.events.stream()
+        .filter(e -> e instanceof TrEventTransactionCommitted)
+        .map(e -> ((TrEventTransactionCommitted) e).revision())
+        .toList()
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+      assertEquals(List.of(), new TrTestIndexBuilds().pending(connection));
+    }
+  }
+
+  /**
+   * Without an index build store, deferred index builds are executed
+   * sequentially in the executor's transaction even if parallel connections
+   * are available.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredParallelWithoutStore()
+    throws Exception
+  {
+    this.executeExample12(
+      true,
+      Optional.of(
+        new TrExecutorParallelConnections(
+          () -> this.dataSource.getConnection(),
+          2
+        )
+      ),
+      false
+    );
+
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (1)",
+        "create table y (f0 integer)",
+        "create index x_f0 on x (f0)",
+        "create index y_f0 on y (f0)"
+      ),
+      this.executedSQL()
+    );
+    assertEquals(
+      List.of(),
+      this.events.stream()
+        .filter(e -> e instanceof TrEventTransactionCommitted)
+        .toList()
+    );
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  /**
+   * With parallel connections, a failed deferred index build leaves the
+   * revisions and the final version committed, and the build recorded in
+   * the index build store. A new executor (standing in for a restarted
+   * process) executes the builds that have not yet succeeded, without
+   * applying any revisions again.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredParallelFailure()
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-12.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+
+      try (var st = connection.prepareStatement(
+        "create table y_f0 (f0 integer)")) {
+        st.execute();
+      }
+      TrTestIndexBuilds.createTable(connection);
+      connection.commit();
+
+      final var configuration =
+        new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        )
+          .withDeferredIndexes(true)
+          .withIndexBuildStore(new TrTestIndexBuilds())
+          .withParallelConnections(new TrExecutorParallelConnections(
+            () -> this.dataSource.getConnection(),
+            2
+          ));
+
+      final var ex =
+        assertThrows(
+          TrException.class,
+          this.executors.create(configuration)::execute
+        );
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+      assertEquals("2", ex.attributes().get("Version"));
+      assertEquals("1", ex.attributes().get("Pending Index Builds"));
+      assertEquals(Set.of("x_f0"), selectIndexes(connection));
+      assertEquals(
+        Optional.of(BigInteger.TWO),
+        TrTestVersions.versionGet(connection)
+      );
+      assertEquals(
+        List.of("y_f0"),
+        new TrTestIndexBuilds().pending(connection)
+          .stream()
+          .map(TrStatementIndex::index)
+          .toList()
+      );
+
+      try (var st = connection.prepareStatement("drop table y_f0")) {
+        st.execute();
+      }
+      connection.commit();
+
+      this.events.clear();
+      final var result =
+        this.executors.create(configuration).executeForResult();
+      connection.commit();
+
+      assertEquals(List.of("create index y_f0 on y (f0)"), this.executedSQL());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(Map.of(), result.revisionsApplied());
+      assertEquals(List.of(), new TrTestIndexBuilds().pending(connection));
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  /**
+   * Deferred index builds cannot be combined with transaction strategies
+   * that commit before the final revision.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredRequireSingleTransaction()
+    throws Exception
+  {
+    try (var connection = this.dataSource.getConnection()) {
+      final var configuration =
+        new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this::onEvent,
+          new TrSchemaRevisionSet(Map.of(), new TreeMap<>()),
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withDeferredIndexes(true);
+
+      assertThrows(IllegalArgumentException.class, () -> {
+        configuration.withTransactionStrategy(COMMIT_PER_REVISION);
+      });
+      assertThrows(IllegalArgumentException.class, () -> {
+        configuration.withTransactionStrategy(
+          new TrTransactionStrategyEveryNStatements(2));
+      });
+    }
+  }
+
+  /**
+   * Deferred index builds cannot be combined with non-transactional
+   * statements, because those commit the versions of earlier revisions
+   * before the deferred builds are executed. The upgrade is rejected
+   * before anything is executed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredNonTransactionalRejected()
+    throws Exception
+  {
+    final var revisions =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(
+            BigInteger.ZERO,
+            List.of(
+              new TrStatement("create table x (f0 integer)"),
+              new TrStatementIndex(
+                CREATE_INDEX,
+                "x_f0",
+                "create index x_f0 on x (f0)")
+            )
+          ),
+          BigInteger.ONE,
+          new TrSchemaRevision(
+            BigInteger.ONE,
+            List.of(
+              new TrStatement("create table y (f0 integer)", false)
+            )
+          )
+        ))
+      );
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        ).withDeferredIndexes(true));
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(UPGRADE_DISALLOWED, ex.errorCode());
+      assertEquals(List.of(), this.executedSQL());
+    }
+  }
+
+  /**
+   * A failed deferred index build leaves the builds pending, and resuming
+   * the execution executes the builds that have not yet succeeded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredFailureResumed()
+    throws Exception
+  {
+    this.executeIndexesDeferredFailure(false);
+  }
+
+  /**
+   * A failed deferred index build is rolled back to its savepoint, and
+   * resuming the execution executes the builds that have not yet succeeded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeIndexesDeferredFailureResumedSavepoints()
+    throws Exception
+  {
+    this.executeIndexesDeferredFailure(true);
+  }
+
+  private void executeIndexesDeferredFailure(
+    final boolean savepoints)
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-12.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+
+      /*
+       * A table with the same name as an index causes the build of that
+       * index to fail.
+       */
+
+      try (var st = connection.prepareStatement(
+        "create table y_f0 (f0 integer)")) {
+        st.execute();
+      }
+      connection.commit();
+
+      final var executor =
+        this.executors.create(new TrExecutorConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          this::onEvent,
+          revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          connection
+        )
+          .withDeferredIndexes(true)
+          .withRevisionSavepoints(savepoints));
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(SQL_EXCEPTION, ex.errorCode());
+      assertEquals("2", ex.attributes().get("Version"));
+      assertEquals("1", ex.attributes().get("Pending Index Builds"));
+      assertEquals(Set.of("x_f0"), selectIndexes(connection));
+
+      try (var st = connection.prepareStatement("drop table y_f0")) {
+        st.execute();
+      }
+
+      this.events.clear();
+      executor.resume();
+      connection.commit();
+
+      assertEquals(List.of("create index y_f0 on y (f0)"), this.executedSQL());
+      assertEquals(
+        Optional.of(BigInteger.TWO),
+        TrTestVersions.versionGet(connection)
+      );
+      assertEquals(Set.of("x_f0", "y_f0"), selectIndexes(connection));
+    }
+  }
+
+  private TrExecutorType createExample12(
+    final Connection connection,
+    final TrExecutorVersionUpdaterType versionSet)
+    throws Exception
+  {
+    final TrSchemaRevisionSet revisions;
+    try (var stream = this.resourceOf("example-12.xml")) {
+      revisions = this.parsers.parse(URI.create("urn:stdin"), stream);
+    }
+
+    return this.executors.create(new TrExecutorConfiguration(
+      c -> {
+        return Optional.empty();
+      },
+      versionSet,
+      this::onEvent,
+      revisions,
+      PERFORM_UPGRADES,
+      TrArguments.empty(),
+      connection
+    ));
+  }
+
+  /**
+   * Executing asynchronously yields a result describing the upgrade.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeAsync()
+    throws Exception
+  {
+    final var threads = Executors.newSingleThreadExecutor();
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.createExample12(connection, (version, c) -> {
+
+        });
+
+      final var result =
+        executor.executeAsync(threads)
+          .get(10L, TimeUnit.SECONDS);
+
+      assertEquals(Optional.empty(), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(
+        List.of(BigInteger.ZERO, BigInteger.ONE, BigInteger.TWO),
+        List.copyOf(result.revisionsApplied().keySet())
+      );
+      assertFalse(result.elapsed().isNegative());
+      connection.commit();
+    } finally {
+      threads.shutdown();
+    }
+
+    try (var connection = this.dataSource.getConnection()) {
+      assertEquals(List.of(Integer.valueOf(1)), selectX(connection));
+    }
+  }
+
+  /**
+   * Executors that do not implement {@link TrExecutorType#executeForResult()}
+   * inherit a working implementation, and executors that do not implement
+   * {@link TrExecutorType#resume()} report that they cannot resume
+   * executions.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExecutorTypeDefaults()
+    throws Exception
+  {
+    final var calls = new AtomicInteger();
+    final var executor = new TrExecutorType()
+    {
+      @Override
+      public void execute()
+      {
+        calls.incrementAndGet();
+      }
+
+      @Override
+      public TrExecutorFuture executeAsync(
+        final Executor executor)
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    final var result = executor.executeForResult();
+    assertEquals(Optional.empty(), result.versionStart());
+    assertEquals(Optional.empty(), result.versionEnd());
+    assertEquals(Map.of(), result.revisionsApplied());
+    assertEquals(1, calls.get());
+
+    final var ex = assertThrows(TrException.class, executor::resume);
+    assertEquals(OPERATION_UNSUPPORTED, ex.errorCode());
+    assertEquals(1, calls.get());
+  }
+
+  /**
+   * Cancelling an asynchronous execution stops the execution at the next
+   * statement boundary.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeAsyncCancel()
+    throws Exception
+  {
+    final var future =
+      new AtomicReference<CompletableFuture<TrExecutorResult>>();
+    final var tasks =
+      new ArrayList<Runnable>();
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.createExample12(connection, (version, c) -> {
+          if (version.equals(BigInteger.ZERO)) {
+            future.get().cancel(true);
+          }
+        });
+
+      future.set(executor.executeAsync(tasks::add));
+      assertEquals(1, tasks.size());
+      tasks.get(0).run();
+
+      assertTrue(future.get().isCancelled());
+      assertEquals(
+        new TrEventUpgrading(BigInteger.ZERO, BigInteger.ONE),
+        this.events.getLast()
+      );
+      assertFalse(this.executedSQL().contains("insert into x values (1)"));
+      connection.rollback();
+    }
+  }
+
+  /**
+   * Cancelling an asynchronous execution does not affect later executions
+   * with the same executor.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeAfterAsyncCancel()
+    throws Exception
+  {
+    final var future =
+      new AtomicReference<CompletableFuture<TrExecutorResult>>();
+    final var tasks =
+      new ArrayList<Runnable>();
+
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.createExample12(connection, (version, c) -> {
+          if (version.equals(BigInteger.ZERO)) {
+            future.get().cancel(true);
+          }
+        });
+
+      future.set(executor.executeAsync(tasks::add));
+      tasks.get(0).run();
+      assertTrue(future.get().isCancelled());
+      connection.rollback();
+
+      final var result = executor.executeForResult();
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(3, result.revisionsApplied().size());
+      assertTrue(this.executedSQL().contains("insert into x values (1)"));
+      connection.rollback();
+
+      executor.resume();
+      connection.rollback();
+    }
+  }
+
+  /**
+   * A cancelled asynchronous execution is cancelled immediately, and its
+   * idle stage completes only once the execution has stopped using the
+   * connection.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUpgradeAsyncCancelCompletesWhenIdle()
+    throws Exception
+  {
+    final var entered = new CountDownLatch(1);
+    final var proceed = new CountDownLatch(1);
+    final var busy = new AtomicBoolean();
+    final var idleAtCompletion = new AtomicBoolean();
+
+    final var threads = Executors.newSingleThreadExecutor();
+    try (var connection = this.dataSource.getConnection()) {
+      final var executor =
+        this.createExample12(connection, (version, c) -> {
+          busy.set(true);
+          try {
+            entered.countDown();
+            proceed.await();
+          } catch (final InterruptedException e) {
+            throw new SQLException(e);
+          } finally {
+            busy.set(false);
+          }
+        });
+
+      final var future = executor.executeAsync(threads);
+      final var idle = future.idle().toCompletableFuture();
+      idle.whenComplete((r, e) -> idleAtCompletion.set(!busy.get()));
+
+      assertTrue(entered.await(10L, TimeUnit.SECONDS));
+      assertTrue(future.cancel(true));
+      assertTrue(future.isCancelled());
+      assertThrows(CancellationException.class, future::get);
+      assertFalse(idle.isDone());
+
+      proceed.countDown();
+      idle.get(10L, TimeUnit.SECONDS);
+
+      assertTrue(future.isCancelled());
+      assertTrue(idleAtCompletion.get());
+      connection.rollback();
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  private static Set<String> selectIndexes(
+    final Connection connection)
+    throws SQLException
+  {
+    final var names = new HashSet<String>();
+    try (var statement = connection.prepareStatement(
+      "select name from sqlite_master where type = 'index'")) {
+      try (var result = statement.executeQuery()) {
+        while (result.next()) {
+          names.add(result.getString(1));
+        }
+      }
+    }
+    return names;
+  }
+
+  private static List<Integer> selectX(
+    final Connection connection)
+    throws SQLException
+  {
+    final var values = new ArrayList<Integer>();
+    try (var st = connection.prepareStatement(
+      "select f0 from x order by rowid")) {
+      try (var rs = st.executeQuery()) {
+        while (rs.next()) {
+          values.add(Integer.valueOf(rs.getInt(1)));
+        }
+      }
+    }
+    return values;
+  }
+
   private InputStream resourceOf(
     final String name)
     throws IOException
@@ -0,0 +1,407 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.api.TrArgumentNumeric;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrEventStatementCacheStatistics;
+import com.io7m.trasco.api.TrExecutorLocking;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.vanilla.TrFleetConfiguration;
+import com.io7m.trasco.vanilla.TrFleetResult;
+import com.io7m.trasco.vanilla.TrFleetTarget;
+import com.io7m.trasco.vanilla.TrFleetUpgrader;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import com.io7m.trasco.vanilla.TrUpgradeLockTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrFleetUpgraderTest
+{
+  private Path directory;
+  private TrSchemaRevisionSet revisions;
+  private ConcurrentLinkedQueue<String> eventTargets;
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = TrTestDirectories.createTempDirectory();
+    this.eventTargets = new ConcurrentLinkedQueue<>();
+
+    try (var stream = TrFleetUpgraderTest.class.getResourceAsStream(
+      "/com/io7m/trasco/tests/example-12.xml")) {
+      this.revisions =
+        new TrSchemaRevisionSetParsers()
+          .parse(URI.create("urn:stdin"), stream);
+    }
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  private TrFleetTarget target(
+    final String name)
+  {
+    final var file =
+      this.directory.resolve(name).toString();
+
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+    return new TrFleetTarget(name, dataSource::getConnection);
+  }
+
+  private TrFleetUpgrader upgrader()
+    throws Exception
+  {
+    return new TrFleetUpgrader(
+      new TrFleetConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        (target, event) -> this.eventTargets.add(target.name()),
+        this.revisions,
+        PERFORM_UPGRADES,
+        TrArguments.empty(),
+        3
+      )
+    );
+  }
+
+  private List<TrFleetTarget> targets(
+    final int count)
+  {
+    return IntStream.range(0, count)
+      .mapToObj(i -> this.target("db" + i))
+      .toList();
+  }
+
+  private static Map<String, TrFleetResult> byName(
+    final List<TrFleetResult> results)
+  {
+    return results.stream()
+      .collect(Collectors.toMap(r -> r.target().name(), r -> r));
+  }
+
+  /**
+   * Every database in a fleet is upgraded, and upgrading again is a no-op.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgrade()
+    throws Exception
+  {
+    final var targets = this.targets(8);
+    final var upgrader = this.upgrader();
+
+    final var report0 = upgrader.upgrade(targets.stream());
+    assertEquals(8, report0.results().size());
+    assertEquals(List.of(), report0.failed());
+
+    for (final var result : report0.results()) {
+      assertEquals(Optional.empty(), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertFalse(result.elapsed().isNegative());
+    }
+
+    for (final var target : targets) {
+      assertTrue(this.eventTargets.contains(target.name()));
+    }
+
+    final var report1 = upgrader.upgrade(targets.stream());
+    assertEquals(8, report1.succeeded().size());
+    for (final var result : report1.results()) {
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+    }
+  }
+
+  /**
+   * Parameterized statements are bound once and shared between every
+   * database in the fleet.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgradeParameterized()
+    throws Exception
+  {
+    final TrSchemaRevisionSet parameterized;
+    try (var stream = TrFleetUpgraderTest.class.getResourceAsStream(
+      "/com/io7m/trasco/tests/example-5.xml")) {
+      parameterized =
+        new TrSchemaRevisionSetParsers()
+          .parse(URI.create("urn:stdin"), stream);
+    }
+
+    final var upgrader =
+      new TrFleetUpgrader(
+        new TrFleetConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          (target, event) -> this.eventTargets.add(target.name()),
+          parameterized,
+          PERFORM_UPGRADES,
+          new TrArguments(
+            Map.ofEntries(
+              entry("number0", new TrArgumentNumeric("number0", 23)),
+              entry("number1", new TrArgumentNumeric("number1", 24L)),
+              entry("string0", new TrArgumentString("string0", "x")),
+              entry("number2", new TrArgumentNumeric("number2", 25.0)),
+              entry("number3", new TrArgumentNumeric("number3", BigDecimal.ONE))
+            )
+          ),
+          3
+        )
+      );
+
+    final var targets = this.targets(8);
+    final var report = upgrader.upgrade(targets.stream());
+    assertEquals(8, report.succeeded().size());
+
+    for (final var target : targets) {
+      try (var connection = target.connections().openConnection()) {
+        try (var st = connection.prepareStatement(
+          "select f0, f1, f2, f3 from x")) {
+          try (var rs = st.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(23, rs.getInt(1));
+            assertEquals(24L, rs.getLong(2));
+            assertEquals("x", rs.getString(3));
+            assertEquals(25.0, rs.getDouble(4));
+            assertFalse(rs.next());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A failure to upgrade one database does not affect the others.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgradeFailuresIsolated()
+    throws Exception
+  {
+    final var targets = new ArrayList<>(this.targets(4));
+
+    targets.add(new TrFleetTarget("unreachable", () -> {
+      throw new SQLException("Connection refused.");
+    }));
+
+    /*
+     * A database that already contains a conflicting table.
+     */
+
+    final var broken = this.target("broken");
+    try (var connection = broken.connections().openConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table x (f0 integer)");
+      }
+    }
+    targets.add(broken);
+
+    final var report =
+      this.upgrader().upgrade(targets.stream());
+
+    assertEquals(6, report.results().size());
+    assertEquals(4, report.succeeded().size());
+    assertEquals(2, report.failed().size());
+
+    final var results = byName(report.results());
+    final var unreachable = results.get("unreachable");
+    assertTrue(unreachable.error().isPresent());
+    assertEquals(Optional.empty(), unreachable.versionEnd());
+
+    final var brokenResult = results.get("broken");
+    assertTrue(brokenResult.error().isPresent());
+    assertEquals(Optional.empty(), brokenResult.versionStart());
+    assertEquals(Optional.empty(), brokenResult.versionEnd());
+
+    for (int index = 0; index < 4; ++index) {
+      final var result = results.get("db" + index);
+      assertTrue(result.isSuccess());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+    }
+  }
+
+  /**
+   * A connection supplier that fails with an unchecked exception still
+   * yields a failed result for its database.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgradeSupplierThrowsUnchecked()
+    throws Exception
+  {
+    final var targets = new ArrayList<>(this.targets(3));
+
+    targets.add(new TrFleetTarget("misconfigured", () -> {
+      throw new IllegalStateException("No such data source.");
+    }));
+
+    final var report =
+      this.upgrader().upgrade(targets.stream());
+
+    assertEquals(4, report.results().size());
+    assertEquals(3, report.succeeded().size());
+    assertEquals(1, report.failed().size());
+
+    final var misconfigured = byName(report.results()).get("misconfigured");
+    assertFalse(misconfigured.isSuccess());
+    assertTrue(
+      misconfigured.error().orElseThrow() instanceof IllegalStateException);
+    assertEquals(Optional.empty(), misconfigured.versionStart());
+    assertEquals(Optional.empty(), misconfigured.versionEnd());
+  }
+
+  /**
+   * Databases in a fleet can be upgraded under a lock, and a locked
+   * executor that finds a database already up to date leaves nothing for
+   * the upgrader to commit.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgradeLockedUpToDate()
+    throws Exception
+  {
+    final var upgrader =
+      new TrFleetUpgrader(
+        new TrFleetConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          (target, event) -> this.eventTargets.add(target.name()),
+          this.revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          3,
+          (target, configuration) -> {
+            return configuration.withLocking(new TrExecutorLocking(
+              new TrUpgradeLockTable(
+                target.connections(),
+                Duration.ofMinutes(5L)
+              ),
+              Duration.ofMillis(10L),
+              Duration.ofMillis(50L),
+              Duration.ofSeconds(10L)
+            ));
+          }
+        )
+      );
+
+    final var targets = this.targets(4);
+    final var report0 = upgrader.upgrade(targets.stream());
+    assertEquals(List.of(), report0.failed());
+
+    final var report1 = upgrader.upgrade(targets.stream());
+    assertEquals(List.of(), report1.failed());
+    assertEquals(4, report1.succeeded().size());
+    for (final var result : report1.results()) {
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+    }
+  }
+
+  /**
+   * Executor options can be chosen for each database in the fleet.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFleetUpgradeExecutorOptions()
+    throws Exception
+  {
+    final var cached = new ConcurrentLinkedQueue<String>();
+    final var configured = new ConcurrentLinkedQueue<String>();
+
+    final var upgrader =
+      new TrFleetUpgrader(
+        new TrFleetConfiguration(
+          TrTestVersions::versionGet,
+          TrTestVersions::versionSet,
+          (target, event) -> {
+            if (event instanceof TrEventStatementCacheStatistics) {
+              cached.add(target.name());
+            }
+          },
+          this.revisions,
+          PERFORM_UPGRADES,
+          TrArguments.empty(),
+          3,
+          (target, configuration) -> {
+            configured.add(target.name());
+            if (target.name().equals("db0")) {
+              return configuration;
+            }
+            return configuration.withStatementCacheSize(16);
+          }
+        )
+      );
+
+    final var report = upgrader.upgrade(this.targets(4).stream());
+    assertEquals(4, report.succeeded().size());
+
+    assertEquals(4, configured.size());
+    assertEquals(Set.of("db0", "db1", "db2", "db3"), Set.copyOf(configured));
+    assertEquals(Set.of("db1", "db2", "db3"), Set.copyOf(cached));
+  }
+}
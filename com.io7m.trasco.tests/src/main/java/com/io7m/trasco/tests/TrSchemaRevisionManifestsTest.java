@@ -0,0 +1,373 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorResult;
+import com.io7m.trasco.api.TrSchemaRevisionManifest;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionManifestMain;
+import com.io7m.trasco.vanilla.TrSchemaRevisionManifests;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetLoaderType;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.io7m.trasco.api.TrErrorCode.MANIFEST_MISMATCH;
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionManifestsTest
+{
+  private Path directory;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  /**
+   * Manifests record the highest version and the hash of the document, and
+   * survive a round trip through the file format.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManifestRoundTrip()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var output =
+      this.directory.resolve("out.manifest");
+
+    TrSchemaRevisionManifestMain.main(new String[]{
+      input.toString(),
+      output.toString(),
+    });
+
+    final var manifest =
+      TrSchemaRevisionManifests.readManifest(output);
+
+    assertEquals(BigInteger.TWO, manifest.versionHighest());
+    assertEquals(64, manifest.hash().length());
+    assertEquals(TrSchemaRevisionManifests.createManifest(input), manifest);
+    assertTrue(TrSchemaRevisionManifests.isCurrent(manifest, input));
+
+    Files.writeString(input, "\n", APPEND);
+    assertFalse(TrSchemaRevisionManifests.isCurrent(manifest, input));
+  }
+
+  /**
+   * Malformed manifests are rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testManifestMalformed()
+    throws Exception
+  {
+    final var output =
+      this.directory.resolve("out.manifest");
+
+    Files.writeString(output, "version=1\n");
+    assertThrows(IOException.class, () -> {
+      TrSchemaRevisionManifests.readManifest(output);
+    });
+
+    Files.writeString(output, "version=1\nsha256=xyz\n");
+    assertThrows(IOException.class, () -> {
+      TrSchemaRevisionManifests.readManifest(output);
+    });
+  }
+
+  /**
+   * The revision set is only loaded if the database is not up-to-date.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExecuteWithManifest()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var manifest =
+      TrSchemaRevisionManifests.createManifest(input);
+
+    final var dataSource = this.dataSource();
+    final var loads = new AtomicInteger();
+
+    try (var connection = dataSource.getConnection()) {
+      final var result =
+        this.executeWithManifest(manifest, input, loads, connection);
+      connection.commit();
+
+      assertEquals(1, loads.get());
+      assertEquals(Optional.empty(), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(3, result.revisionsApplied().size());
+    }
+
+    try (var connection = dataSource.getConnection()) {
+      final var result =
+        this.executeWithManifest(manifest, input, loads, connection);
+
+      assertEquals(1, loads.get());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertTrue(result.revisionsApplied().isEmpty());
+    }
+  }
+
+  /**
+   * A manifest whose hash does not match the document is rejected before
+   * the revision set is loaded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExecuteWithManifestStaleHash()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var manifest =
+      new TrSchemaRevisionManifest(BigInteger.TWO, "0".repeat(64));
+
+    final var loads = new AtomicInteger();
+    try (var connection = this.dataSource().getConnection()) {
+      final var ex = assertThrows(TrException.class, () -> {
+        this.executeWithManifest(manifest, input, loads, connection);
+      });
+      assertEquals(MANIFEST_MISMATCH, ex.errorCode());
+      assertEquals(0, loads.get());
+      assertEquals(
+        Optional.empty(),
+        TrTestVersions.versionGet(connection)
+      );
+    }
+  }
+
+  /**
+   * A manifest whose hash does not match the document is rejected even if
+   * the database is at the manifest's version.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExecuteWithManifestStaleHashUpToDate()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var manifest =
+      new TrSchemaRevisionManifest(BigInteger.TWO, "0".repeat(64));
+
+    final var loads = new AtomicInteger();
+    try (var connection = this.dataSource().getConnection()) {
+      TrTestVersions.versionSet(BigInteger.TWO, connection);
+
+      final var ex = assertThrows(TrException.class, () -> {
+        this.executeWithManifest(manifest, input, loads, connection);
+      });
+      assertEquals(MANIFEST_MISMATCH, ex.errorCode());
+      assertEquals(0, loads.get());
+    }
+  }
+
+  /**
+   * A manifest whose highest version does not match the revision set is
+   * rejected before any statements are executed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExecuteWithManifestStaleVersion()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var manifest =
+      new TrSchemaRevisionManifest(
+        BigInteger.ONE,
+        TrSchemaRevisionManifests.hashOf(input)
+      );
+
+    final var loads = new AtomicInteger();
+    try (var connection = this.dataSource().getConnection()) {
+      final var ex = assertThrows(TrException.class, () -> {
+        this.executeWithManifest(manifest, input, loads, connection);
+      });
+      assertEquals(MANIFEST_MISMATCH, ex.errorCode());
+      assertEquals(1, loads.get());
+      assertEquals(
+        Optional.empty(),
+        TrTestVersions.versionGet(connection)
+      );
+    }
+  }
+
+  /**
+   * Documents that match their manifests are parsed without validation,
+   * and modified documents are validated.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseTrusted()
+    throws Exception
+  {
+    final var parsers = new TrSchemaRevisionSetParsers();
+
+    final var example =
+      this.resourceOf("example-12.xml");
+    final var exampleManifest =
+      TrSchemaRevisionManifests.createManifest(example);
+
+    assertEquals(
+      parsers.parseFile(example),
+      parsers.parseFileTrusted(example, exampleManifest)
+    );
+
+    /*
+     * The document is well-formed and structurally sound, but contains an
+     * attribute that the schema forbids.
+     */
+
+    final var invalid =
+      this.resourceOf("error-8.xml");
+    final var invalidManifest =
+      new TrSchemaRevisionManifest(
+        BigInteger.ZERO,
+        TrSchemaRevisionManifests.hashOf(invalid)
+      );
+
+    assertThrows(ParsingException.class, () -> {
+      parsers.parseFile(invalid);
+    });
+    assertEquals(
+      1,
+      parsers.parseFileTrusted(invalid, invalidManifest).revisions().size()
+    );
+    assertThrows(ParsingException.class, () -> {
+      parsers.parseFileTrusted(invalid, exampleManifest);
+    });
+  }
+
+  private TrExecutorResult executeWithManifest(
+    final TrSchemaRevisionManifest manifest,
+    final Path input,
+    final AtomicInteger loads,
+    final Connection connection)
+    throws Exception
+  {
+    return new TrExecutors().executeWithManifest(
+      manifest,
+      connection,
+      TrTestVersions::versionGet,
+      new TrSchemaRevisionSetLoaderType()
+      {
+        @Override
+        public TrSchemaRevisionSet load()
+          throws IOException, ParsingException
+        {
+          loads.incrementAndGet();
+          return new TrSchemaRevisionSetParsers().parseFile(input);
+        }
+
+        @Override
+        public String hash()
+          throws IOException
+        {
+          return TrSchemaRevisionManifests.hashOf(input);
+        }
+      },
+      revisions -> new TrExecutorConfiguration(
+        TrTestVersions::versionGet,
+        TrTestVersions::versionSet,
+        event -> {
+
+        },
+        revisions,
+        PERFORM_UPGRADES,
+        TrArguments.empty(),
+        connection
+      )
+    );
+  }
+
+  private SQLiteDataSource dataSource()
+  {
+    final var file =
+      this.directory.resolve("db").toString();
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+    return dataSource;
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionManifestsTest.class,
+      this.directory,
+      name
+    );
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * A benchmark measuring the number of bytes allocated by the parsers for a
+ * large generated seed-data document. Allocation is measured with the
+ * per-thread allocation counters of the JVM, which count the same bytes as
+ * the allocation rate reported by a GC profiler, and so the results do not
+ * depend on when (or whether) garbage collection occurs. The streaming
+ * parser's results exclude the revision set itself, and so show the
+ * overhead of parsing alone.
+ *
+ * If a baseline class path is given, the full parse is also measured with
+ * the parsers loaded from that class path in an isolated class loader, so
+ * that the handlers of an earlier build (such as a released version of
+ * {@code com.io7m.trasco.vanilla} together with its dependencies) can be
+ * compared with the current handlers on the same document in the same JVM.
+ *
+ * <pre>
+ * usage: [megabytes [iterations [baseline-class-path]]]
+ * </pre>
+ */
+
+public final class TrSchemaRevisionSetAllocationBenchmark
+{
+  private static final String PARSERS =
+    "com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers";
+
+  private TrSchemaRevisionSetAllocationBenchmark()
+  {
+
+  }
+
+  /**
+   * The results of a benchmark run.
+   *
+   * @param documentBytes The size of the document
+   * @param statements    The number of statements in the document
+   * @param parse         The mean number of bytes allocated by a full parse
+   * @param streaming     The mean number of bytes allocated by a streaming
+   *                      parse
+   * @param baseline      The mean number of bytes allocated by a full parse
+   *                      with the baseline parsers, if a baseline was given
+   */
+
+  public record Result(
+    long documentBytes,
+    long statements,
+    long parse,
+    long streaming,
+    OptionalLong baseline)
+  {
+
+  }
+
+  /**
+   * Main command-line entry point.
+   *
+   * @param args The arguments
+   *
+   * @throws Exception On error
+   */
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final var megabytes =
+      args.length > 0 ? Long.parseLong(args[0]) : 16L;
+    final var iterations =
+      args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final var baseline =
+      args.length > 2 ? classPath(args[2]) : List.<Path>of();
+
+    final var directory = TrTestDirectories.createTempDirectory();
+    try {
+      final var result =
+        run(directory, megabytes * 1_000_000L, iterations, baseline);
+      final var count = result.statements();
+      System.out.printf(
+        "document  %d bytes, %d statements%n",
+        Long.valueOf(result.documentBytes()),
+        Long.valueOf(count));
+      System.out.printf(
+        "parse     %d bytes allocated (%d per statement)%n",
+        Long.valueOf(result.parse()),
+        Long.valueOf(result.parse() / count));
+      System.out.printf(
+        "streaming %d bytes allocated (%d per statement)%n",
+        Long.valueOf(result.streaming()),
+        Long.valueOf(result.streaming() / count));
+      result.baseline().ifPresent(bytes -> {
+        System.out.printf(
+          "baseline  %d bytes allocated (%d per statement)%n",
+          Long.valueOf(bytes),
+          Long.valueOf(bytes / count));
+      });
+    } finally {
+      TrTestDirectories.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Split a class path string into its entries.
+   *
+   * @param text The class path, with entries separated by the platform's
+   *             path separator
+   *
+   * @return The entries
+   */
+
+  public static List<Path> classPath(
+    final String text)
+  {
+    return Stream.of(text.split(File.pathSeparator))
+      .filter(entry -> !entry.isBlank())
+      .map(Path::of)
+      .toList();
+  }
+
+  /**
+   * Generate a document of the given size and parse it repeatedly, both
+   * fully and streaming. Each variant is run once to warm up, and then
+   * {@code iterations} times to measure.
+   *
+   * @param directory  The directory used to hold the document
+   * @param bytes      The minimum size of the document
+   * @param iterations The number of iterations
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result run(
+    final Path directory,
+    final long bytes,
+    final int iterations)
+    throws Exception
+  {
+    return run(directory, bytes, iterations, List.of());
+  }
+
+  /**
+   * Generate a document of the given size and parse it repeatedly, both
+   * fully and streaming, and also fully with the parsers on the given
+   * baseline class path if it is not empty. Each variant is run once to
+   * warm up, and then {@code iterations} times to measure.
+   *
+   * @param directory  The directory used to hold the document
+   * @param bytes      The minimum size of the document
+   * @param iterations The number of iterations
+   * @param baseline   The class path of the baseline parsers, or an empty
+   *                   list to measure only the current parsers
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result run(
+    final Path directory,
+    final long bytes,
+    final int iterations,
+    final List<Path> baseline)
+    throws Exception
+  {
+    final var file = directory.resolve("seed.xml");
+    final var statements =
+      TrSchemaRevisionSetStreamingBenchmark.generate(file, bytes);
+    final var parsers = new TrSchemaRevisionSetParsers();
+
+    final var parse =
+      allocated(iterations, () -> parsers.parseFile(file));
+
+    final var consumer = new Discard();
+    final var streaming =
+      allocated(iterations, () -> parsers.parseFileStreaming(file, consumer));
+
+    final OptionalLong baselineBytes;
+    if (baseline.isEmpty()) {
+      baselineBytes = OptionalLong.empty();
+    } else {
+      baselineBytes = OptionalLong.of(baseline(file, iterations, baseline));
+    }
+
+    return new Result(
+      Files.size(file),
+      statements,
+      parse,
+      streaming,
+      baselineBytes
+    );
+  }
+
+  private static long baseline(
+    final Path file,
+    final int iterations,
+    final List<Path> classPath)
+    throws Exception
+  {
+    final var urls = new URL[classPath.size()];
+    for (int index = 0; index < urls.length; ++index) {
+      urls[index] = classPath.get(index).toUri().toURL();
+    }
+
+    try (var loader =
+           new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+      final var type = loader.loadClass(PARSERS);
+      final var parsers = type.getConstructor().newInstance();
+      final var parseFile = type.getMethod("parseFile", Path.class);
+
+      return allocated(iterations, () -> {
+        try {
+          parseFile.invoke(parsers, file);
+        } catch (final InvocationTargetException e) {
+          if (e.getCause() instanceof final Exception x) {
+            throw x;
+          }
+          throw e;
+        }
+      });
+    }
+  }
+
+  private interface ActionType
+  {
+    void execute()
+      throws Exception;
+  }
+
+  /**
+   * Run the given action once to warm up, and then {@code iterations} times
+   * on the current thread.
+   *
+   * @return The mean number of bytes allocated by each measured run
+   */
+
+  private static long allocated(
+    final int iterations,
+    final ActionType action)
+    throws Exception
+  {
+    final var threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final var thread = Thread.currentThread().getId();
+
+    action.execute();
+    final var allocatedStart = threads.getThreadAllocatedBytes(thread);
+    for (int index = 0; index < iterations; ++index) {
+      action.execute();
+    }
+    return (threads.getThreadAllocatedBytes(thread) - allocatedStart)
+      / iterations;
+  }
+
+  private static final class Discard
+    implements TrSchemaRevisionStreamConsumerType
+  {
+    Discard()
+    {
+
+    }
+
+    @Override
+    public void onRevisionStarted(
+      final BigInteger version)
+    {
+
+    }
+
+    @Override
+    public void onStatement(
+      final BigInteger version,
+      final TrStatementType statement)
+    {
+
+    }
+
+    @Override
+    public void onRevisionFinished(
+      final BigInteger version)
+    {
+
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetBinary;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A benchmark comparing the time taken to load a revision set from XML
+ * with the time taken to load the same revision set from the binary format.
+ *
+ * <pre>
+ * usage: [revisions [iterations]]
+ * </pre>
+ */
+
+public final class TrSchemaRevisionSetBinaryBenchmark
+{
+  private TrSchemaRevisionSetBinaryBenchmark()
+  {
+
+  }
+
+  /**
+   * The results of a benchmark run.
+   *
+   * @param xmlBytes    The size of the XML document
+   * @param binaryBytes The size of the binary file
+   * @param xml         The mean time taken to load the XML document
+   * @param binary      The mean time taken to load the binary file
+   */
+
+  public record Result(
+    long xmlBytes,
+    long binaryBytes,
+    Duration xml,
+    Duration binary)
+  {
+
+  }
+
+  /**
+   * Main command-line entry point.
+   *
+   * @param args The arguments
+   *
+   * @throws Exception On error
+   */
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final var revisions =
+      args.length > 0 ? Integer.parseInt(args[0]) : 300;
+    final var iterations =
+      args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+    final var directory = TrTestDirectories.createTempDirectory();
+    try {
+      final var result = run(directory, revisions, iterations);
+      System.out.printf(
+        "revisions %d, iterations %d%n",
+        Integer.valueOf(revisions),
+        Integer.valueOf(iterations)
+      );
+      System.out.printf(
+        "xml:    %10d bytes, %s per load%n",
+        Long.valueOf(result.xmlBytes()),
+        result.xml()
+      );
+      System.out.printf(
+        "binary: %10d bytes, %s per load%n",
+        Long.valueOf(result.binaryBytes()),
+        result.binary()
+      );
+    } finally {
+      TrTestDirectories.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Generate a revision set, and measure the time taken to load it. Each
+   * format is loaded {@code iterations} times to warm up, and then
+   * {@code iterations} times to measure.
+   *
+   * @param directory  The directory used to hold the generated files
+   * @param revisions  The number of revisions
+   * @param iterations The number of iterations
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result run(
+    final Path directory,
+    final int revisions,
+    final int iterations)
+    throws Exception
+  {
+    final var xmlFile = directory.resolve("benchmark.xml");
+    final var binaryFile = directory.resolve("benchmark.trsb");
+    generate(xmlFile, revisions);
+    TrSchemaRevisionSetBinary.compile(xmlFile, binaryFile);
+
+    final var parsers = new TrSchemaRevisionSetParsers();
+    final var expected = parsers.parseFile(xmlFile);
+    if (!expected.equals(TrSchemaRevisionSetBinary.read(binaryFile))) {
+      throw new IllegalStateException("Binary revision set does not match.");
+    }
+
+    for (int index = 0; index < iterations; ++index) {
+      parsers.parseFile(xmlFile);
+      TrSchemaRevisionSetBinary.read(binaryFile);
+    }
+
+    var timeStart = System.nanoTime();
+    for (int index = 0; index < iterations; ++index) {
+      parsers.parseFile(xmlFile);
+    }
+    final var xml =
+      Duration.ofNanos((System.nanoTime() - timeStart) / iterations);
+
+    timeStart = System.nanoTime();
+    for (int index = 0; index < iterations; ++index) {
+      TrSchemaRevisionSetBinary.read(binaryFile);
+    }
+    final var binary =
+      Duration.ofNanos((System.nanoTime() - timeStart) / iterations);
+
+    return new Result(
+      Files.size(xmlFile),
+      Files.size(binaryFile),
+      xml,
+      binary
+    );
+  }
+
+  private static void generate(
+    final Path file,
+    final int revisions)
+    throws IOException
+  {
+    try (var writer = Files.newBufferedWriter(file)) {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+      writer.write(
+        "<Schemas xmlns=\"urn:com.io7m.trasco.database.statements:1:0\">\n");
+      writer.write("""
+          <Parameters>
+            <Parameter name="n" type="NUMERIC"/>
+          </Parameters>
+        """);
+
+      for (int index = 0; index < revisions; ++index) {
+        writer.write("""
+            <Schema versionCurrent="%d">
+              <Statement><![CDATA[
+          create table t%d (f0 integer, f1 text, f2 text)
+          ]]></Statement>
+              <CreateIndex index="t%d_f0"><![CDATA[
+          create index t%d_f0 on t%d (f0)
+          ]]></CreateIndex>
+              <StatementParameterized>
+                <ParameterReferences>
+                  <ParameterReference order="0" name="n"/>
+                </ParameterReferences>
+                <Text><![CDATA[
+          insert into t%d (f0) values (?)
+          ]]></Text>
+              </StatementParameterized>
+            </Schema>
+          """.formatted(
+          Integer.valueOf(index),
+          Integer.valueOf(index),
+          Integer.valueOf(index),
+          Integer.valueOf(index),
+          Integer.valueOf(index),
+          Integer.valueOf(index)));
+      }
+      writer.write("</Schemas>\n");
+    }
+  }
+}
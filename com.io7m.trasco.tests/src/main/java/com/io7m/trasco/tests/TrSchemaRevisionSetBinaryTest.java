@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetBinary;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetBinaryMain;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetLazyLoader;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionSetBinaryTest
+{
+  private Path directory;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> testRoundTrips()
+  {
+    return Stream.of(
+      "example-0.xml",
+      "example-1.xml",
+      "example-2.xml",
+      "example-3.xml",
+      "example-4.xml",
+      "example-5.xml",
+      "example-6.xml",
+      "example-7.xml",
+      "example-8.xml",
+      "example-9.xml",
+      "example-10.xml",
+      "example-11.xml",
+      "example-12.xml",
+      "example-13.xml",
+      "example-14.xml",
+      "example-15.xml",
+      "example-16.xml")
+      .map(name -> {
+        return DynamicTest.dynamicTest(
+          "testRoundTrip_" + name,
+          () -> this.testRoundTrip(name));
+      });
+  }
+
+  /**
+   * An example survives a round trip through the binary format.
+   */
+
+  private void testRoundTrip(
+    final String name)
+    throws Exception
+  {
+    final var input =
+      this.resourceOf(name);
+    final var output =
+      this.directory.resolve("out.trsb");
+
+    TrSchemaRevisionSetBinaryMain.main(new String[]{
+      input.toString(),
+      output.toString(),
+    });
+
+    final var expected =
+      new TrSchemaRevisionSetParsers().parseFile(input);
+
+    assertEquals(expected, TrSchemaRevisionSetBinary.read(output));
+    try (var stream = Files.newInputStream(output)) {
+      assertEquals(expected, TrSchemaRevisionSetBinary.read(stream));
+    }
+  }
+
+  /**
+   * Lazily loaded revision sets can be written in binary form.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazySet()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-7.xml");
+    final var output =
+      this.directory.resolve("out.trsb");
+
+    final var lazy = new TrSchemaRevisionSetLazyLoader(input).load();
+    TrSchemaRevisionSetBinary.write(lazy, output);
+
+    assertEquals(
+      new TrSchemaRevisionSetParsers().parseFile(input),
+      TrSchemaRevisionSetBinary.read(output)
+    );
+  }
+
+  /**
+   * Corrupted, truncated, and unrecognized data is rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCorrupted()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-7.xml");
+    final var output =
+      this.directory.resolve("out.trsb");
+
+    TrSchemaRevisionSetBinary.compile(input, output);
+    final var data = Files.readAllBytes(output);
+
+    final var flipped = data.clone();
+    flipped[data.length / 2] ^= 0x20;
+    assertTrue(
+      this.readFails(flipped).getMessage().contains("checksum"));
+
+    final var magic = data.clone();
+    magic[0] = 'X';
+    assertTrue(
+      this.readFails(magic).getMessage().contains("magic"));
+
+    final var version = data.clone();
+    version[7] = 99;
+    assertTrue(
+      this.readFails(version).getMessage().contains("version"));
+
+    this.readFails(Arrays.copyOf(data, data.length - 1));
+    this.readFails(Arrays.copyOf(data, 4));
+  }
+
+  /**
+   * The benchmark produces matching revision sets.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBenchmark()
+    throws Exception
+  {
+    final var result =
+      TrSchemaRevisionSetBinaryBenchmark.run(this.directory, 10, 2);
+
+    assertTrue(result.binaryBytes() < result.xmlBytes());
+  }
+
+  private IOException readFails(
+    final byte[] data)
+  {
+    return assertThrows(IOException.class, () -> {
+      TrSchemaRevisionSetBinary.read(new ByteArrayInputStream(data));
+    });
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetBinaryTest.class,
+      this.directory,
+      name
+    );
+  }
+}
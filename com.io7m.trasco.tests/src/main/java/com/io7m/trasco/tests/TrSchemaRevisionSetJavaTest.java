@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrParameterKind;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetJava;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetJavaMain;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionSetJavaTest
+{
+  private Path directory;
+  private Path sources;
+  private Path classes;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+    this.sources =
+      this.directory.resolve("src");
+    this.classes =
+      this.directory.resolve("classes");
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  /**
+   * The classes generated from every example compile, and construct the
+   * same revision sets as the parser.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExamples()
+    throws Exception
+  {
+    final var expected = new TreeMap<String, TrSchemaRevisionSet>();
+    final var files = new ArrayList<Path>();
+
+    for (int index = 0; index <= 16; ++index) {
+      final var input =
+        this.resourceOf("example-%d.xml".formatted(Integer.valueOf(index)));
+      final var className =
+        "com.example.gen.Example%d".formatted(Integer.valueOf(index));
+
+      TrSchemaRevisionSetJavaMain.main(new String[]{
+        input.toString(),
+        this.sources.toString(),
+        className,
+      });
+
+      files.add(this.sources.resolve(className.replace('.', '/') + ".java"));
+      expected.put(className, new TrSchemaRevisionSetParsers().parseFile(input));
+    }
+
+    try (var loader = this.compile(files)) {
+      for (final var entry : expected.entrySet()) {
+        assertEquals(entry.getValue(), revisionsOf(loader, entry.getKey()));
+      }
+    }
+  }
+
+  /**
+   * Long statements and statements containing characters that must be
+   * escaped survive generation.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAwkwardText()
+    throws Exception
+  {
+    final var text = new StringBuilder();
+    text.append("select '\"\\\\' \r\n\t\u0001 \u00e9 \ud83d\ude00 \u2028;\n");
+    while (text.length() < 100_000) {
+      text.append("-- \ud83d\ude00 padding \"quoted\" \\n\n");
+    }
+
+    final var set =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.valueOf(-1L),
+          new TrSchemaRevision(
+            BigInteger.valueOf(-1L),
+            List.of(new TrStatement(text.toString(), false)))
+        ))
+      );
+
+    final var file = this.sources.resolve("Awkward.java");
+    Files.createDirectories(this.sources);
+    try (var writer = Files.newBufferedWriter(file, UTF_8)) {
+      TrSchemaRevisionSetJava.generate(set, "Awkward", "*/ awkward */", writer);
+    }
+
+    try (var loader = this.compile(List.of(file))) {
+      assertEquals(set, revisionsOf(loader, "Awkward"));
+    }
+  }
+
+  /**
+   * A revision with more rows and statements than fit into a single method
+   * or a single constant pool still compiles.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLargeRevision()
+    throws Exception
+  {
+    final var rows = new ArrayList<List<TrArgumentType>>();
+    for (int index = 0; index < 12_000; ++index) {
+      final var value = index * 7919L + 3_000_000_000L;
+      rows.add(List.of(
+        new TrArgumentString("f0", "name-%d".formatted(Long.valueOf(value))),
+        new TrArgumentBigInt("f1", value),
+        new TrArgumentString("f2", "other-%d".formatted(Long.valueOf(value))),
+        new TrArgumentBigInt("f3", -value),
+        new TrArgumentBoolean("f4", index % 2 == 0)
+      ));
+    }
+
+    final var statements = new ArrayList<TrStatementType>();
+    statements.add(new TrStatementRows(
+      "x",
+      List.of(
+        new TrStatementRowsColumn("f0", TrParameterKind.STRING),
+        new TrStatementRowsColumn("f1", TrParameterKind.BIGINT),
+        new TrStatementRowsColumn("f2", TrParameterKind.STRING),
+        new TrStatementRowsColumn("f3", TrParameterKind.BIGINT),
+        new TrStatementRowsColumn("f4", TrParameterKind.BOOLEAN)
+      ),
+      rows,
+      500,
+      true
+    ));
+    for (int index = 0; index < 2_000; ++index) {
+      statements.add(new TrStatement(
+        "insert into y values (%d)".formatted(Integer.valueOf(index)),
+        true
+      ));
+    }
+
+    final var set =
+      new TrSchemaRevisionSet(
+        Map.of(),
+        new TreeMap<>(Map.of(
+          BigInteger.ZERO,
+          new TrSchemaRevision(BigInteger.ZERO, statements)
+        ))
+      );
+
+    final var file = this.sources.resolve("Large.java");
+    Files.createDirectories(this.sources);
+    try (var writer = Files.newBufferedWriter(file, UTF_8)) {
+      TrSchemaRevisionSetJava.generate(set, "Large", "large", writer);
+    }
+
+    try (var loader = this.compile(List.of(file))) {
+      assertEquals(set, revisionsOf(loader, "Large"));
+    }
+  }
+
+  /**
+   * Invalid input is reported with lexical information, and invalid class
+   * names are rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testErrors()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("error-6.xml");
+
+    final var ex =
+      assertThrows(ParsingException.class, () -> {
+        TrSchemaRevisionSetJavaMain.main(new String[]{
+          input.toString(),
+          this.sources.toString(),
+          "com.example.Error",
+        });
+      });
+    assertTrue(ex.statusValues().get(0).lexical().line() > 0);
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      TrSchemaRevisionSetJava.generate(
+        this.resourceOf("example-0.xml"),
+        this.sources,
+        "com.example.1Bad"
+      );
+    });
+  }
+
+  private static TrSchemaRevisionSet revisionsOf(
+    final ClassLoader loader,
+    final String className)
+    throws Exception
+  {
+    return (TrSchemaRevisionSet) loader.loadClass(className)
+      .getMethod("revisions")
+      .invoke(null);
+  }
+
+  private URLClassLoader compile(
+    final List<Path> files)
+    throws IOException
+  {
+    Files.createDirectories(this.classes);
+
+    final var classPath = new ArrayList<String>();
+    for (final var property : List.of("java.class.path", "jdk.module.path")) {
+      final var value = System.getProperty(property);
+      if (value != null && !value.isEmpty()) {
+        classPath.add(value);
+      }
+    }
+
+    final var arguments = new ArrayList<String>();
+    arguments.add("-classpath");
+    arguments.add(String.join(File.pathSeparator, classPath));
+    arguments.add("-d");
+    arguments.add(this.classes.toString());
+    for (final var file : files) {
+      arguments.add(file.toString());
+    }
+
+    final var compiler = ToolProvider.getSystemJavaCompiler();
+    assertEquals(
+      0,
+      compiler.run(null, null, null, arguments.toArray(new String[0]))
+    );
+
+    return new URLClassLoader(
+      new URL[]{this.classes.toUri().toURL()},
+      TrSchemaRevisionSetJavaTest.class.getClassLoader()
+    );
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetJavaTest.class,
+      this.directory,
+      name
+    );
+  }
+}
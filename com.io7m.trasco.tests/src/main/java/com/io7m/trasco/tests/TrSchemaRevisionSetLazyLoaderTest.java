@@ -0,0 +1,343 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrSchemaRevisionMapLazyType;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetLazyLoader;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static com.io7m.trasco.api.TrErrorCode.REVISIONS_UNAVAILABLE;
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionSetLazyLoaderTest
+{
+  private Path directory;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  /**
+   * Lazily loaded revision sets produce the same revisions as eagerly
+   * loaded sets, and only parse revisions when they are accessed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyMatchesEager()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-7.xml");
+    final var eager =
+      new TrSchemaRevisionSetParsers().parseFile(input);
+    final var lazy =
+      new TrSchemaRevisionSetLazyLoader(input).load();
+
+    final var revisions =
+      assertInstanceOf(TrSchemaRevisionMapLazyType.class, lazy.revisions());
+
+    assertEquals(eager.parameters(), lazy.parameters());
+    assertEquals(eager.revisions().keySet(), revisions.keySet());
+    assertFalse(revisions.isMaterialized(BigInteger.ZERO));
+    assertFalse(revisions.isMaterialized(BigInteger.ONE));
+
+    assertEquals(
+      eager.revisions().get(BigInteger.ONE),
+      revisions.tailMap(BigInteger.ZERO, false).get(BigInteger.ONE)
+    );
+    assertFalse(revisions.isMaterialized(BigInteger.ZERO));
+    assertTrue(revisions.isMaterialized(BigInteger.ONE));
+
+    assertEquals(eager.revisions(), revisions);
+    assertTrue(revisions.isMaterialized(BigInteger.ZERO));
+  }
+
+  /**
+   * An upgrade only parses the revisions newer than the database version.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyUpgrade()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var set =
+      new TrSchemaRevisionSetLazyLoader(input).load();
+    final var revisions =
+      (TrSchemaRevisionMapLazyType) set.revisions();
+
+    final var file =
+      this.directory.resolve("db").toString();
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+
+    try (var connection = dataSource.getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table x (f0 integer)");
+        st.execute("create index x_tmp on x (f0)");
+      }
+      TrTestVersions.versionSet(BigInteger.ZERO, connection);
+
+      final var result =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )
+        ).executeForResult();
+      connection.commit();
+
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(
+        List.of(BigInteger.ONE, BigInteger.TWO),
+        List.copyOf(result.revisionsApplied().keySet())
+      );
+    }
+
+    assertFalse(revisions.isMaterialized(BigInteger.ZERO));
+    assertTrue(revisions.isMaterialized(BigInteger.ONE));
+    assertTrue(revisions.isMaterialized(BigInteger.TWO));
+  }
+
+  /**
+   * Errors in revisions are reported when the revisions are accessed, with
+   * lexical information that refers to the original document.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyMalformedRevision()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("error-7.xml");
+
+    assertThrows(ParsingException.class, () -> {
+      new TrSchemaRevisionSetParsers().parseFile(input);
+    });
+
+    final var revisions =
+      new TrSchemaRevisionSetLazyLoader(input).load().revisions();
+
+    assertEquals(1, revisions.get(BigInteger.ZERO).statements().size());
+
+    final var ex =
+      assertThrows(IllegalStateException.class, () -> {
+        revisions.get(BigInteger.ONE);
+      });
+    final var cause =
+      assertInstanceOf(ParsingException.class, ex.getCause());
+    assertEquals(
+      11,
+      cause.statusValues().get(0).lexical().line()
+    );
+  }
+
+  /**
+   * Errors in revisions that are parsed during an upgrade are reported
+   * as checked exceptions that name the revision and the line of the error.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyMalformedRevisionUpgrade()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("error-7.xml");
+    final var set =
+      new TrSchemaRevisionSetLazyLoader(input).load();
+
+    final var file =
+      this.directory.resolve("db").toString();
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+
+    try (var connection = dataSource.getConnection()) {
+      final var executor =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )
+        );
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(REVISIONS_UNAVAILABLE, ex.errorCode());
+      assertEquals("1", ex.attributes().get("Revision"));
+      assertEquals("11", ex.attributes().get("Line"));
+      assertEquals(input.toUri().toString(), ex.attributes().get("Source"));
+      connection.rollback();
+    }
+  }
+
+
+  /**
+   * Structural errors are reported when the document is loaded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyMalformedStructure()
+    throws Exception
+  {
+    final var input =
+      this.directory.resolve("input.xml");
+
+    Files.writeString(input, """
+      <Schemas xmlns="urn:com.io7m.trasco.database.statements:1:0">
+        <Schema versionCurrent="0"/>
+        <Schema versionCurrent="0"/>
+      </Schemas>
+      """);
+    assertThrows(ParsingException.class, () -> {
+      new TrSchemaRevisionSetLazyLoader(input).load();
+    });
+
+    Files.writeString(input, """
+      <Schemas xmlns="urn:com.io7m.trasco.database.statements:1:0">
+        <Schema versionCurrent="0">
+      """);
+    assertThrows(ParsingException.class, () -> {
+      new TrSchemaRevisionSetLazyLoader(input).load();
+    });
+
+    Files.writeString(input, """
+      <Unknown xmlns="urn:com.io7m.trasco.database.statements:1:0">
+      </Unknown>
+      """);
+    assertThrows(ParsingException.class, () -> {
+      new TrSchemaRevisionSetLazyLoader(input).load();
+    });
+  }
+
+  /**
+   * Revisions are located by byte offset, and so documents with multi-byte
+   * characters (including characters outside the basic multilingual plane),
+   * comments, and CRLF line endings produce the same revisions as eagerly
+   * loaded documents.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testLazyByteOffsets()
+    throws Exception
+  {
+    final var input =
+      this.directory.resolve("input.xml");
+
+    final var text = """
+      <?xml version="1.0" encoding="UTF-8"?>
+      <!-- Caf\u00e9 \u65e5\u672c \ud83d\ude00 -->
+      <Schemas xmlns="urn:com.io7m.trasco.database.statements:1:0">
+        <Schema versionCurrent="0"><Statement><![CDATA[
+      create table caf\u00e9 (f0 text) -- \ud83d\ude00 > <
+      ]]></Statement></Schema><!-- \u65e5\u672c -->
+        <Schema versionCurrent="1"><Statement>select '\u00e9\ud83d\ude00'</Statement></Schema>
+        <Schema versionCurrent="2">
+          <Statement>insert into caf\u00e9 values ('\ud83d\ude00\u65e5')</Statement>
+        </Schema>
+      </Schemas>
+      """;
+
+    for (final var separator : List.of("\n", "\r\n")) {
+      Files.writeString(input, text.replace("\n", separator));
+
+      final var eager =
+        new TrSchemaRevisionSetParsers().parseFile(input);
+      final var lazy =
+        new TrSchemaRevisionSetLazyLoader(input).load();
+
+      assertEquals(eager.revisions(), lazy.revisions());
+    }
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetLazyLoaderTest.class,
+      this.directory,
+      name
+    );
+  }
+}
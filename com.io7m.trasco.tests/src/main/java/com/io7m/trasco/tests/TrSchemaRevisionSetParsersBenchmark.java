@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.jxe.core.JXEHardenedSAXParsers;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A benchmark comparing the per-document cost of parsing with the shared
+ * compiled schema against parsing with a fresh
+ * {@link JXEHardenedSAXParsers} context, which compiles the schema for
+ * every document.
+ *
+ * <pre>
+ * usage: [iterations]
+ * </pre>
+ */
+
+public final class TrSchemaRevisionSetParsersBenchmark
+{
+  private TrSchemaRevisionSetParsersBenchmark()
+  {
+
+  }
+
+  /**
+   * The results of a benchmark run.
+   *
+   * @param uncached The mean time taken to parse a document, compiling the
+   *                 schema each time
+   * @param cached   The mean time taken to parse a document with the shared
+   *                 schema
+   */
+
+  public record Result(
+    Duration uncached,
+    Duration cached)
+  {
+
+  }
+
+  /**
+   * Main command-line entry point.
+   *
+   * @param args The arguments
+   *
+   * @throws Exception On error
+   */
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final var iterations =
+      args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+    final var directory = TrTestDirectories.createTempDirectory();
+    try {
+      final var result = run(directory, iterations);
+      System.out.printf(
+        "iterations %d%n", Integer.valueOf(iterations));
+      System.out.printf(
+        "schema compiled per parse: %s per parse%n", result.uncached());
+      System.out.printf(
+        "schema cached:             %s per parse%n", result.cached());
+    } finally {
+      TrTestDirectories.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Parse a small document repeatedly with and without the schema cache.
+   * Each variant is run {@code iterations} times to warm up, and then
+   * {@code iterations} times to measure.
+   *
+   * @param directory  The directory used to hold the document
+   * @param iterations The number of iterations
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result run(
+    final Path directory,
+    final int iterations)
+    throws Exception
+  {
+    final var file =
+      TrTestDirectories.resourceOf(
+        TrSchemaRevisionSetParsersBenchmark.class,
+        directory,
+        "example-7.xml"
+      );
+
+    final var parsers = new TrSchemaRevisionSetParsers();
+    final var expected = parsers.parseFile(file);
+    if (!expected.equals(parseUncached(parsers, file))) {
+      throw new IllegalStateException("Revision sets do not match.");
+    }
+
+    for (int index = 0; index < iterations; ++index) {
+      parseUncached(parsers, file);
+      parsers.parseFile(file);
+    }
+
+    var timeStart = System.nanoTime();
+    for (int index = 0; index < iterations; ++index) {
+      parseUncached(parsers, file);
+    }
+    final var uncached =
+      Duration.ofNanos((System.nanoTime() - timeStart) / iterations);
+
+    timeStart = System.nanoTime();
+    for (int index = 0; index < iterations; ++index) {
+      parsers.parseFile(file);
+    }
+    final var cached =
+      Duration.ofNanos((System.nanoTime() - timeStart) / iterations);
+
+    return new Result(uncached, cached);
+  }
+
+  private static TrSchemaRevisionSet parseUncached(
+    final TrSchemaRevisionSetParsers parsers,
+    final Path file)
+    throws Exception
+  {
+    try (var stream = Files.newInputStream(file)) {
+      return parsers.createParserWithContext(
+        new JXEHardenedSAXParsers(),
+        file.toUri(),
+        stream,
+        status -> {
+
+        }
+      ).execute();
+    }
+  }
+}
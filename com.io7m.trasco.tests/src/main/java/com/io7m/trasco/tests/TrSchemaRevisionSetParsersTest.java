@@ -18,11 +18,28 @@
 package com.io7m.trasco.tests;
 
 import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentBytes;
+import com.io7m.trasco.api.TrArgumentNumeric;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrParameter;
 import com.io7m.trasco.api.TrParameterReference;
 import com.io7m.trasco.api.TrParameterReferences;
 import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
 import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
 import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import com.io7m.trasco.api.TrStatementType;
 import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,20 +47,42 @@ import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static com.io7m.trasco.api.TrParameterInterpolation.PREPARED_STATEMENT;
 import static com.io7m.trasco.api.TrParameterInterpolation.STRING_FORMATTING;
+import static com.io7m.trasco.api.TrParameterKind.BIGINT;
+import static com.io7m.trasco.api.TrParameterKind.BOOLEAN;
+import static com.io7m.trasco.api.TrParameterKind.BYTES;
+import static com.io7m.trasco.api.TrParameterKind.NUMERIC;
+import static com.io7m.trasco.api.TrParameterKind.STRING;
+import static com.io7m.trasco.api.TrParameterKind.TIMESTAMP;
+import static com.io7m.trasco.api.TrParameterKind.UUID;
+import static com.io7m.trasco.api.TrStatementIndexOperation.CREATE_INDEX;
+import static com.io7m.trasco.api.TrStatementIndexOperation.DROP_INDEX;
+import static java.util.Map.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class TrSchemaRevisionSetParsersTest
 {
@@ -221,6 +260,588 @@ insert into x values (%s, %s, %s, %s, %s)
     }
   }
 
+  @Test
+  public void testExample10()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-10.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      final var rev0 =
+        new TrSchemaRevision(
+          BigInteger.ZERO,
+          List.of(
+            new TrStatement("create table x (f0 integer)", true)
+          )
+        );
+
+      final var rev1 =
+        new TrSchemaRevision(
+          BigInteger.ONE,
+          List.of(
+            new TrStatement("vacuum", false),
+            new TrStatement("insert into x values (1)", true)
+          )
+        );
+
+      final var expected = new TreeMap<>();
+      expected.put(rev0.version(), rev0);
+      expected.put(rev1.version(), rev1);
+
+      assertEquals(expected, set.revisions());
+    }
+  }
+
+  @Test
+  public void testExample11()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-11.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      final var rev0 =
+        new TrSchemaRevision(
+          BigInteger.ZERO,
+          List.of(
+            new TrStatement("create table x (f0 integer)"),
+            new TrStatement("create table y (f0 integer)")
+          )
+        );
+
+      final var rev1 =
+        new TrSchemaRevision(
+          BigInteger.ONE,
+          List.of(
+            new TrStatementParallelGroup(
+              List.of(
+                new TrStatement("create index x_f0 on x (f0)"),
+                new TrStatement("create index y_f0 on y (f0)")
+              )
+            ),
+            new TrStatement("insert into x values (1)")
+          )
+        );
+
+      final var expected = new TreeMap<>();
+      expected.put(rev0.version(), rev0);
+      expected.put(rev1.version(), rev1);
+
+      assertEquals(expected, set.revisions());
+    }
+  }
+
+  @Test
+  public void testExample15()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-15.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      final var rows =
+        (TrStatementRows) set.revisions().get(BigInteger.ZERO)
+          .statements()
+          .get(1);
+
+      assertEquals("x", rows.table());
+      assertEquals(3, rows.batchSize());
+      assertEquals(
+        List.of(
+          new TrStatementRowsColumn("f0", STRING),
+          new TrStatementRowsColumn("f1", NUMERIC),
+          new TrStatementRowsColumn("f2", BOOLEAN),
+          new TrStatementRowsColumn("f3", BIGINT),
+          new TrStatementRowsColumn("f4", BYTES)
+        ),
+        rows.columns()
+      );
+      assertEquals(7, rows.rows().size());
+      assertEquals(
+        List.<TrArgumentType>of(
+          new TrArgumentString("f0", "b"),
+          new TrArgumentNumeric("f1", new BigDecimal("2.5")),
+          new TrArgumentBoolean("f2", false),
+          new TrArgumentBigInt("f3", 20L),
+          new TrArgumentBytes("f4", new byte[]{1})
+        ),
+        rows.rows().get(1)
+      );
+      assertEquals(
+        new TrArgumentNumeric("f1", Long.valueOf(7L)),
+        rows.rows().get(6).get(1)
+      );
+      assertEquals(
+        "insert into x (f0, f1, f2, f3, f4) values (?, ?, ?, ?, ?)",
+        rows.text()
+      );
+    }
+  }
+
+  @Test
+  public void testExample16()
+    throws Exception
+  {
+    final byte[] data;
+    try (var stream = this.resourceOf("example-16.xml")) {
+      data = stream.readAllBytes();
+    }
+
+    final var cases = Map.ofEntries(
+      entry(
+        "urn:stdin",
+        "example-16.csv"),
+      entry(
+        "file:///revisions/example-16.xml",
+        "file:///revisions/example-16.csv"),
+      entry(
+        "jar:file:/lib/x.jar!/com/example/example-16.xml",
+        "jar:file:/lib/x.jar!/com/example/example-16.csv")
+    );
+
+    for (final var testCase : cases.entrySet()) {
+      final var set =
+        this.parsers.parse(
+          URI.create(testCase.getKey()),
+          new ByteArrayInputStream(data)
+        );
+
+      final var rows =
+        (TrStatementRowsCSV) set.revisions().get(BigInteger.ZERO)
+          .statements()
+          .get(1);
+
+      assertEquals(URI.create("example-16.csv"), rows.resource());
+      assertEquals(Optional.of(URI.create(testCase.getKey())), rows.base());
+      assertEquals(URI.create(testCase.getValue()), rows.location());
+      assertEquals("x", rows.table());
+      assertEquals(3, rows.batchSize());
+      assertTrue(rows.header());
+      assertEquals(
+        "6c58883370f19fb47977f940864cfeef2eda33c7dafd83fdaa4107e6d5687bda",
+        rows.sha256()
+      );
+      assertEquals(
+        List.of(
+          new TrStatementRowsColumn("f0", STRING),
+          new TrStatementRowsColumn("f1", NUMERIC),
+          new TrStatementRowsColumn("f2", BOOLEAN),
+          new TrStatementRowsColumn("f3", BIGINT),
+          new TrStatementRowsColumn("f4", BYTES)
+        ),
+        rows.columns()
+      );
+      assertEquals(
+        "insert into x (f0, f1, f2, f3, f4) values (?, ?, ?, ?, ?)",
+        rows.text()
+      );
+    }
+  }
+
+  @Test
+  public void testExample14()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-14.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      final var rev0 =
+        new TrSchemaRevision(
+          BigInteger.ZERO,
+          List.of(
+            new TrStatement("create table x (f0 varchar(100), f1 bigint)"),
+            new TrStatementTemplate(
+              TrParameterReferences.of(),
+              0,
+              new TrStatementTemplateRange(0L, 3L),
+              "create table shard_%s (f0 integer)",
+              STRING_FORMATTING,
+              500,
+              true
+            ),
+            new TrStatementTemplate(
+              TrParameterReferences.of(
+                new TrParameterReference(0, "label0")
+              ),
+              1,
+              new TrStatementTemplateRange(1L, 10L),
+              "insert into x values (?, ?)",
+              PREPARED_STATEMENT,
+              4,
+              true
+            ),
+            new TrStatementTemplate(
+              TrParameterReferences.of(
+                new TrParameterReference(1, "label0")
+              ),
+              0,
+              new TrStatementTemplateList(List.of("a", "b", "c")),
+              "insert into x values (? || ?, 0)",
+              PREPARED_STATEMENT,
+              500,
+              true
+            )
+          )
+        );
+
+      assertEquals(Map.of(rev0.version(), rev0), set.revisions());
+    }
+  }
+
+  @Test
+  public void testExample13()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-13.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      assertEquals(
+        Map.ofEntries(
+          entry("string0", new TrParameter("string0", STRING)),
+          entry("number0", new TrParameter("number0", NUMERIC)),
+          entry("boolean0", new TrParameter("boolean0", BOOLEAN)),
+          entry("timestamp0", new TrParameter("timestamp0", TIMESTAMP)),
+          entry("bytes0", new TrParameter("bytes0", BYTES)),
+          entry("uuid0", new TrParameter("uuid0", UUID)),
+          entry("bigint0", new TrParameter("bigint0", BIGINT))
+        ),
+        set.parameters()
+      );
+    }
+  }
+
+  @Test
+  public void testExample12()
+    throws Exception
+  {
+    try (var stream = this.resourceOf("example-12.xml")) {
+      final var set =
+        this.parsers.parse(URI.create("urn:stdin"), stream);
+
+      final var rev0 =
+        new TrSchemaRevision(
+          BigInteger.ZERO,
+          List.of(
+            new TrStatement("create table x (f0 integer)"),
+            new TrStatementIndex(
+              CREATE_INDEX, "x_f0", "create index x_f0 on x (f0)"),
+            new TrStatementIndex(
+              CREATE_INDEX, "x_tmp", "create index x_tmp on x (f0)")
+          )
+        );
+
+      final var rev1 =
+        new TrSchemaRevision(
+          BigInteger.ONE,
+          List.of(
+            new TrStatement("insert into x values (1)"),
+            new TrStatementIndex(
+              DROP_INDEX, "x_tmp", "drop index x_tmp")
+          )
+        );
+
+      final var rev2 =
+        new TrSchemaRevision(
+          BigInteger.TWO,
+          List.of(
+            new TrStatement("create table y (f0 integer)"),
+            new TrStatementIndex(
+              CREATE_INDEX, "y_f0", "create index y_f0 on y (f0)")
+          )
+        );
+
+      final var expected = new TreeMap<>();
+      expected.put(rev0.version(), rev0);
+      expected.put(rev1.version(), rev1);
+      expected.put(rev2.version(), rev2);
+
+      assertEquals(expected, set.revisions());
+    }
+  }
+
+  /**
+   * Parsers sharing the cached schema can be used concurrently, and produce
+   * the same results as parsers that compile the schema themselves.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSchemaCacheConcurrent()
+    throws Exception
+  {
+    final var expected =
+      TrSchemaRevisionSetParsersBenchmark.run(this.directory, 1);
+    final var file =
+      TrTestDirectories.resourceOf(
+        TrSchemaRevisionSetParsersTest.class,
+        this.directory,
+        "example-11.xml"
+      );
+    final var reference = this.parsers.parseFile(file);
+
+    final var executor = Executors.newFixedThreadPool(8);
+    try {
+      final var futures = new ArrayList<Future<TrSchemaRevisionSet>>();
+      for (int index = 0; index < 64; ++index) {
+        futures.add(executor.submit(() -> this.parsers.parseFile(file)));
+      }
+      for (final var future : futures) {
+        assertEquals(reference, future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(expected.cached().compareTo(Duration.ZERO) > 0);
+  }
+
+  /**
+   * Statement text is normalized once at parse time: stripping the text of
+   * any parsed statement returns the same string.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testStatementTextNormalized()
+  {
+    return Stream.of(
+        "example-1.xml",
+        "example-2.xml",
+        "example-9.xml",
+        "example-10.xml",
+        "example-11.xml",
+        "example-12.xml")
+      .map(name -> DynamicTest.dynamicTest(
+        "testStatementTextNormalized_" + name,
+        () -> {
+          final var revisions =
+            this.parsers.parseFile(this.fileOf(name));
+          for (final var revision : revisions.revisions().values()) {
+            for (final var statement : revision.statements()) {
+              checkNormalized(statement);
+            }
+          }
+        }
+      ));
+  }
+
+  private static void checkNormalized(
+    final TrStatementType statement)
+  {
+    if (statement instanceof final TrStatementParallelGroup group) {
+      group.statements()
+        .forEach(TrSchemaRevisionSetParsersTest::checkNormalized);
+      return;
+    }
+
+    final String text;
+    if (statement instanceof final TrStatement st) {
+      text = st.text();
+    } else if (statement instanceof final TrStatementParameterized st) {
+      text = st.text();
+    } else {
+      text = ((TrStatementIndex) statement).text();
+    }
+
+    assertSame(text, text.strip());
+    assertSame(text, text.trim());
+  }
+
+  /**
+   * The allocation benchmark runs.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllocationBenchmark()
+    throws Exception
+  {
+    final var result =
+      TrSchemaRevisionSetAllocationBenchmark.run(this.directory, 1_000_000L, 1);
+
+    assertTrue(result.documentBytes() >= 1_000_000L);
+    assertTrue(result.statements() > 0L);
+    assertTrue(result.parse() > 0L);
+    assertTrue(result.streaming() > 0L);
+    assertTrue(result.baseline().isEmpty());
+  }
+
+  /**
+   * The allocation benchmark measures parsers loaded from a baseline class
+   * path. The class path of the current build is used as the baseline.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllocationBenchmarkBaseline()
+    throws Exception
+  {
+    final var classPath =
+      TrSchemaRevisionSetAllocationBenchmark.classPath(
+        String.join(
+          File.pathSeparator,
+          System.getProperty("java.class.path", ""),
+          System.getProperty("jdk.module.path", "")
+        )
+      );
+
+    final var result =
+      TrSchemaRevisionSetAllocationBenchmark.run(
+        this.directory, 1_000_000L, 1, classPath);
+
+    assertTrue(result.baseline().isPresent());
+    assertTrue(result.baseline().getAsLong() > 0L);
+  }
+
+  /**
+   * Revision sets split across files are merged into the same revision set
+   * as the unsplit document.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseFilesSplit()
+    throws Exception
+  {
+    final var expected =
+      this.parsers.parseFile(this.fileOf("example-1.xml"));
+    final var split0 =
+      this.fileOf("split-0.xml");
+    final var split1 =
+      this.fileOf("split-1.xml");
+
+    assertEquals(expected, this.parsers.parseFiles(List.of(split0, split1)));
+    assertEquals(expected, this.parsers.parseFiles(List.of(split1, split0)));
+  }
+
+  /**
+   * All the files in a directory are parsed and merged.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseDirectory()
+    throws Exception
+  {
+    final var expected =
+      this.parsers.parseFile(this.fileOf("example-1.xml"));
+
+    final var splits = this.directory.resolve("splits");
+    Files.createDirectories(splits);
+    Files.copy(this.fileOf("split-0.xml"), splits.resolve("split-0.xml"));
+    Files.copy(this.fileOf("split-1.xml"), splits.resolve("split-1.xml"));
+    Files.writeString(splits.resolve("README.txt"), "Not a revision set.");
+
+    assertEquals(expected, this.parsers.parseDirectory(splits));
+  }
+
+  /**
+   * Errors are attributed to the files that contain them.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseFilesErrorAttributed()
+    throws Exception
+  {
+    final var split0 =
+      this.fileOf("split-0.xml");
+    final var error =
+      this.fileOf("error-1.xml");
+
+    final var ex =
+      assertThrows(ParsingException.class, () -> {
+        this.parsers.parseFiles(List.of(split0, error));
+      });
+
+    assertTrue(ex.statusValues().size() > 0);
+    for (final var status : ex.statusValues()) {
+      assertEquals(
+        Optional.of(error.toUri()),
+        status.lexical().file()
+      );
+    }
+  }
+
+  /**
+   * A revision may not be declared in more than one file.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseFilesDuplicateRevision()
+    throws Exception
+  {
+    final var split0 =
+      this.fileOf("split-0.xml");
+    final var copy =
+      this.directory.resolve("split-0-copy.xml");
+    Files.copy(split0, copy);
+
+    final var ex =
+      assertThrows(ParsingException.class, () -> {
+        this.parsers.parseFiles(List.of(split0, copy));
+      });
+
+    assertEquals(2, ex.statusValues().size());
+    for (final var status : ex.statusValues()) {
+      assertEquals(Optional.of(copy.toUri()), status.lexical().file());
+    }
+  }
+
+  /**
+   * The merged revisions must be contiguous.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParseFilesGap()
+    throws Exception
+  {
+    final var split0 =
+      this.fileOf("split-0.xml");
+    final var example =
+      this.directory.resolve("example-3.xml");
+    Files.writeString(
+      example,
+      Files.readString(this.fileOf("split-1.xml"))
+        .replace("versionCurrent=\"3\"", "versionCurrent=\"4\"")
+        .replace("versionCurrent=\"2\"", "versionCurrent=\"3\"")
+    );
+
+    final var ex =
+      assertThrows(ParsingException.class, () -> {
+        this.parsers.parseFiles(List.of(split0, example));
+      });
+
+    final var files =
+      ex.statusValues()
+        .stream()
+        .map(status -> status.lexical().file())
+        .toList();
+
+    assertEquals(
+      List.of(Optional.of(split0.toUri()), Optional.of(example.toUri())),
+      files
+    );
+    for (final var status : ex.statusValues()) {
+      assertTrue(status.message().contains("revision 1 in " + split0.toUri()));
+      assertTrue(status.message().contains("revision 3 in " + example.toUri()));
+    }
+  }
+
   @TestFactory
   public Stream<DynamicTest> testErrors()
   {
@@ -229,7 +850,13 @@ insert into x values (%s, %s, %s, %s, %s)
       "error-1.xml",
       "error-2.xml",
       "error-3.xml",
-      "error-4.xml")
+      "error-4.xml",
+      "error-5.xml",
+      "error-6.xml",
+      "error-7.xml",
+      "error-8.xml",
+      "error-9.xml",
+      "error-10.xml")
       .map(name -> {
         return DynamicTest.dynamicTest(
           "testError_" + name,
@@ -250,6 +877,17 @@ insert into x values (%s, %s, %s, %s, %s)
     }
   }
 
+  private Path fileOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetParsersTest.class,
+      this.directory,
+      name
+    );
+  }
+
   private InputStream resourceOf(
     final String name)
     throws IOException
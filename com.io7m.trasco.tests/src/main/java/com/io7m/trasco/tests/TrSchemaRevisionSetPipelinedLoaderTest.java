@@ -0,0 +1,486 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrEventExecutingSQL;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrSchemaRevisionMapLazyType;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetPipelinedLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.io7m.trasco.api.TrErrorCode.REVISIONS_UNAVAILABLE;
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionSetPipelinedLoaderTest
+{
+  private static final String PIPELINE_THREAD =
+    "com.io7m.trasco.pipeline[";
+
+  private Path directory;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  /**
+   * Pipelined revision sets produce the same revisions, in the same order,
+   * as eagerly loaded sets, and do not retain the revisions that they parse.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testPipelinedMatchesEager()
+  {
+    return Stream.of(
+      "example-1.xml",
+      "example-5.xml",
+      "example-7.xml",
+      "example-11.xml",
+      "example-12.xml")
+      .map(name -> {
+        return DynamicTest.dynamicTest(
+          "testPipelinedMatchesEager_" + name,
+          () -> this.checkMatchesEager(name));
+      });
+  }
+
+  private void checkMatchesEager(
+    final String name)
+    throws Exception
+  {
+    final var input =
+      this.resourceOf(name);
+    final var eager =
+      new TrSchemaRevisionSetParsers().parseFile(input);
+    final var pipelined =
+      new TrSchemaRevisionSetPipelinedLoader(input, 1).load();
+    final var revisions =
+      assertInstanceOf(
+        TrSchemaRevisionMapLazyType.class,
+        pipelined.revisions());
+
+    assertEquals(eager.parameters(), pipelined.parameters());
+    assertEquals(
+      List.copyOf(eager.revisions().entrySet()),
+      List.copyOf(revisions.entrySet())
+    );
+    assertEquals(
+      List.copyOf(eager.revisions().tailMap(BigInteger.ZERO, false).values()),
+      List.copyOf(revisions.tailMap(BigInteger.ZERO, false).values())
+    );
+
+    for (final var version : revisions.keySet()) {
+      assertFalse(revisions.isMaterialized(version));
+    }
+  }
+
+  /**
+   * An upgrade using a pipelined revision set applies the revisions newer
+   * than the database version.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedUpgrade()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var set =
+      new TrSchemaRevisionSetPipelinedLoader(input, 1).load();
+
+    try (var connection = this.dataSource().getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table x (f0 integer)");
+        st.execute("create index x_tmp on x (f0)");
+      }
+      TrTestVersions.versionSet(BigInteger.ZERO, connection);
+
+      final var result =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )
+        ).executeForResult();
+      connection.commit();
+
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(
+        List.of(BigInteger.ONE, BigInteger.TWO),
+        List.copyOf(result.revisionsApplied().keySet())
+      );
+    }
+  }
+
+  /**
+   * An upgrade using a pipelined revision set with deferred index builds
+   * defers the index statements, even though the revisions inspected when
+   * planning the builds are parsed again when they are executed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedUpgradeDeferredIndexes()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-12.xml");
+    final var set =
+      new TrSchemaRevisionSetPipelinedLoader(input, 1).load();
+
+    final var executed = new ArrayList<String>();
+    try (var connection = this.dataSource().getConnection()) {
+      final var result =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+              if (event instanceof final TrEventExecutingSQL e) {
+                executed.add(e.statement());
+              }
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          ).withDeferredIndexes(true)
+        ).executeForResult();
+      connection.commit();
+
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+    }
+
+    assertEquals(
+      List.of(
+        "create table x (f0 integer)",
+        "insert into x values (1)",
+        "create table y (f0 integer)",
+        "create index x_f0 on x (f0)",
+        "create index y_f0 on y (f0)"
+      ),
+      executed
+    );
+  }
+
+  /**
+   * Errors in revisions are reported when the pipeline reaches them, and
+   * the revisions preceding the error are delivered.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedMalformedRevision()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("error-7.xml");
+    final var revisions =
+      new TrSchemaRevisionSetPipelinedLoader(input, 4).load().revisions();
+
+    final var iterator = revisions.entrySet().iterator();
+    assertEquals(BigInteger.ZERO, iterator.next().getKey());
+
+    final var ex =
+      assertThrows(IllegalStateException.class, iterator::next);
+    final var cause =
+      assertInstanceOf(ParsingException.class, ex.getCause().getCause());
+    assertEquals(11, cause.statusValues().get(0).lexical().line());
+    assertFalse(iterator.hasNext());
+  }
+
+  /**
+   * Errors in revisions that are parsed during an upgrade are reported as
+   * checked exceptions that name the revision and the line of the error,
+   * even though the revision was parsed on the pipeline's thread.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedMalformedRevisionUpgrade()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("error-7.xml");
+    final var set =
+      new TrSchemaRevisionSetPipelinedLoader(input, 4).load();
+
+    try (var connection = this.dataSource().getConnection()) {
+      final var executor =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )
+        );
+
+      final var ex =
+        assertThrows(TrException.class, executor::execute);
+      assertEquals(REVISIONS_UNAVAILABLE, ex.errorCode());
+      assertEquals("1", ex.attributes().get("Revision"));
+      assertEquals("11", ex.attributes().get("Line"));
+      assertEquals(input.toUri().toString(), ex.attributes().get("Source"));
+      connection.rollback();
+    }
+  }
+
+  /**
+   * The background thread stops when an iteration is abandoned.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedAbandoned()
+    throws Exception
+  {
+    final var revisions =
+      new TrSchemaRevisionSetPipelinedLoader(this.generate(32), 1)
+        .load()
+        .revisions();
+
+    var iterator = revisions.entrySet().iterator();
+    assertEquals(BigInteger.ZERO, iterator.next().getKey());
+    assertTrue(pipelineThreadCount() > 0);
+    iterator = null;
+
+    for (int attempt = 0; attempt < 100; ++attempt) {
+      if (pipelineThreadCount() == 0) {
+        break;
+      }
+      System.gc();
+      Thread.sleep(100L);
+    }
+    assertEquals(0L, pipelineThreadCount());
+  }
+
+  /**
+   * The background thread stops promptly when an iteration is closed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedClosed()
+    throws Exception
+  {
+    final var revisions =
+      new TrSchemaRevisionSetPipelinedLoader(this.generate(32), 1)
+        .load()
+        .revisions();
+
+    final var iterator = revisions.entrySet().iterator();
+    assertEquals(BigInteger.ZERO, iterator.next().getKey());
+    assertTrue(pipelineThreadCount() > 0);
+
+    assertInstanceOf(AutoCloseable.class, iterator).close();
+    assertFalse(iterator.hasNext());
+    awaitNoPipelineThreads();
+  }
+
+  /**
+   * Operations that visit every revision other than iterating over the
+   * entries of the map do not start pipelines, and neither do iterators
+   * that are never advanced.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedMapOperationsSequential()
+    throws Exception
+  {
+    final var input = this.generate(32);
+    final var revisions =
+      new TrSchemaRevisionSetPipelinedLoader(input, 1).load().revisions();
+    final var eager =
+      new TrSchemaRevisionSetParsers().parseFile(input).revisions();
+
+    assertTrue(revisions.equals(eager));
+    assertFalse(revisions.equals(eager.headMap(BigInteger.TEN)));
+    assertEquals(eager.hashCode(), revisions.hashCode());
+    assertEquals(eager.toString(), revisions.toString());
+    assertEquals(
+      List.copyOf(eager.values()),
+      List.copyOf(revisions.values())
+    );
+    assertTrue(revisions.entrySet().iterator().hasNext());
+    assertEquals(0L, pipelineThreadCount());
+  }
+
+  /**
+   * The executor closes its pipeline when an upgrade fails, rather than
+   * leaving the background thread running until the iterator is collected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPipelinedUpgradeFailureClosed()
+    throws Exception
+  {
+    final var set =
+      new TrSchemaRevisionSetPipelinedLoader(this.generate(32), 1).load();
+
+    try (var connection = this.dataSource().getConnection()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table t1 (x integer)");
+      }
+
+      final var executor =
+        new TrExecutors().create(
+          new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          )
+        );
+
+      assertThrows(TrException.class, executor::execute);
+      connection.rollback();
+      awaitNoPipelineThreads();
+    }
+  }
+
+  private Path generate(
+    final int count)
+    throws IOException
+  {
+    final var input =
+      this.directory.resolve("input.xml");
+
+    final var text = new StringBuilder(1024);
+    text.append(
+      "<Schemas xmlns=\"urn:com.io7m.trasco.database.statements:1:0\">\n");
+    for (int index = 0; index < count; ++index) {
+      text.append("<Schema versionCurrent=\"%d\">".formatted(index));
+      text.append("<Statement>create table t%d (x integer)</Statement>"
+                    .formatted(index));
+      text.append("</Schema>\n");
+    }
+    text.append("</Schemas>\n");
+    Files.writeString(input, text.toString());
+    return input;
+  }
+
+  private static void awaitNoPipelineThreads()
+    throws InterruptedException
+  {
+    for (int attempt = 0; attempt < 20; ++attempt) {
+      if (pipelineThreadCount() == 0) {
+        break;
+      }
+      Thread.sleep(100L);
+    }
+    assertEquals(0L, pipelineThreadCount());
+  }
+
+  private SQLiteDataSource dataSource()
+  {
+    final var file =
+      this.directory.resolve("db").toString();
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+    return dataSource;
+  }
+
+  private static long pipelineThreadCount()
+  {
+    return Thread.getAllStackTraces()
+      .keySet()
+      .stream()
+      .filter(t -> t.getName().startsWith(PIPELINE_THREAD))
+      .count();
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetPipelinedLoaderTest.class,
+      this.directory,
+      name
+    );
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrEventExecutingSQL;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A benchmark that streams a large generated seed-data document through the
+ * streaming parser. Run with a small maximum heap (such as {@code -Xmx32m})
+ * to check that the memory required does not depend on the size of the
+ * document.
+ *
+ * <pre>
+ * usage: megabytes
+ * usage: megabytes file.xml
+ * usage: megabytes file.xml execute
+ * </pre>
+ *
+ * If a file is given and it already exists, it is parsed as-is. In the
+ * {@code execute} mode, the generated document consists of parameterized
+ * statements, and the document is executed against a temporary SQLite
+ * database using a streaming execution.
+ */
+
+public final class TrSchemaRevisionSetStreamingBenchmark
+{
+  private static final int STATEMENTS_PER_REVISION = 10_000;
+
+  private static final String PARAMETERIZED = """
+    <StatementParameterized>
+      <ParameterReferences>
+        <ParameterReference order="0" name="name"/>
+      </ParameterReferences>
+      <Text><![CDATA[insert into seed (id, name) values (%d, ? || '%s')]]></Text>
+    </StatementParameterized>
+    """;
+
+  private TrSchemaRevisionSetStreamingBenchmark()
+  {
+
+  }
+
+  /**
+   * The results of a benchmark run.
+   *
+   * @param revisions  The number of revisions parsed
+   * @param statements The number of statements parsed
+   * @param characters The total number of characters in all statements
+   * @param time       The time taken to parse the document
+   */
+
+  public record Result(
+    long revisions,
+    long statements,
+    long characters,
+    Duration time)
+  {
+
+  }
+
+  /**
+   * Main command-line entry point.
+   *
+   * @param args The arguments
+   *
+   * @throws Exception On error
+   */
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    if (args.length < 1) {
+      System.err.println("usage: megabytes [file.xml]");
+      throw new IllegalArgumentException("Missing arguments.");
+    }
+
+    final var bytes =
+      Long.parseLong(args[0]) * 1_000_000L;
+
+    final var execute =
+      args.length > 2 && "execute".equals(args[2]);
+
+    final var directory = TrTestDirectories.createTempDirectory();
+    try {
+      final Path file;
+      if (args.length > 1) {
+        file = Path.of(args[1]);
+      } else {
+        file = directory.resolve("seed.xml");
+      }
+      if (!Files.exists(file)) {
+        generate(file, bytes, execute);
+      }
+
+      final Result result;
+      if (execute) {
+        result = execute(file, directory.resolve("seed.db"));
+      } else {
+        result = run(file);
+      }
+      System.out.printf(
+        "size       %d bytes%n", Long.valueOf(Files.size(file)));
+      System.out.printf(
+        "max heap   %d bytes%n", Long.valueOf(Runtime.getRuntime().maxMemory()));
+      System.out.printf(
+        "revisions  %d%n", Long.valueOf(result.revisions()));
+      System.out.printf(
+        "statements %d%n", Long.valueOf(result.statements()));
+      System.out.printf(
+        "characters %d%n", Long.valueOf(result.characters()));
+      System.out.printf(
+        "time       %s%n", result.time());
+    } finally {
+      TrTestDirectories.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Generate a seed-data document of at least the given size. The first
+   * revision creates a table, and each subsequent revision inserts rows
+   * into the table.
+   *
+   * @param file  The output file
+   * @param bytes The minimum size of the document
+   *
+   * @return The number of statements in the document
+   *
+   * @throws Exception On errors
+   */
+
+  public static long generate(
+    final Path file,
+    final long bytes)
+    throws Exception
+  {
+    return generate(file, bytes, false);
+  }
+
+  /**
+   * Generate a seed-data document of at least the given size. The first
+   * revision creates a table, and each subsequent revision inserts rows
+   * into the table. If {@code parameterized} is {@code true}, every
+   * insertion is a distinct parameterized statement that refers to the
+   * {@code STRING} parameter {@code name}.
+   *
+   * @param file          The output file
+   * @param bytes         The minimum size of the document
+   * @param parameterized {@code true} if insertions are parameterized
+   *
+   * @return The number of statements in the document
+   *
+   * @throws Exception On errors
+   */
+
+  public static long generate(
+    final Path file,
+    final long bytes,
+    final boolean parameterized)
+    throws Exception
+  {
+    final var padding = "x".repeat(100);
+
+    try (var writer = Files.newBufferedWriter(file, UTF_8)) {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+      writer.write(
+        "<Schemas xmlns=\"urn:com.io7m.trasco.database.statements:1:0\">\n");
+      if (parameterized) {
+        writer.write("<Parameters>\n");
+        writer.write("<Parameter name=\"name\" type=\"STRING\"/>\n");
+        writer.write("</Parameters>\n");
+      }
+      writer.write("<Schema versionCurrent=\"0\">\n");
+      writer.write(
+        "<Statement>create table seed (id integer primary key, name text)</Statement>\n");
+      writer.write("</Schema>\n");
+
+      long written = 0L;
+      long statements = 1L;
+      long version = 1L;
+      while (written < bytes) {
+        writer.write("<Schema versionCurrent=\"%d\">\n".formatted(version));
+        for (int index = 0; index < STATEMENTS_PER_REVISION; ++index) {
+          final String text;
+          if (parameterized) {
+            text = PARAMETERIZED.formatted(statements, padding);
+          } else {
+            text =
+              "<Statement><![CDATA[insert into seed (id, name) values (%d, '%s')]]></Statement>\n"
+                .formatted(statements, padding);
+          }
+          writer.write(text);
+          written += text.length();
+          ++statements;
+        }
+        writer.write("</Schema>\n");
+        ++version;
+      }
+      writer.write("</Schemas>\n");
+      return statements;
+    }
+  }
+
+  /**
+   * Stream the given document through the streaming parser.
+   *
+   * @param file The document
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result run(
+    final Path file)
+    throws Exception
+  {
+    final var counter = new Counter();
+    final var timeStart = System.nanoTime();
+    new TrSchemaRevisionSetParsers().parseFileStreaming(file, counter);
+    return new Result(
+      counter.revisions,
+      counter.statements,
+      counter.characters,
+      Duration.ofNanos(System.nanoTime() - timeStart)
+    );
+  }
+
+  /**
+   * Execute the given document against the given (new) SQLite database
+   * using a streaming execution.
+   *
+   * @param file     The document
+   * @param database The database file
+   *
+   * @return The results
+   *
+   * @throws Exception On errors
+   */
+
+  public static Result execute(
+    final Path file,
+    final Path database)
+    throws Exception
+  {
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + database);
+    dataSource.setDatabaseName(database.toString());
+
+    final var counter = new Counter();
+    final var timeStart = System.nanoTime();
+    try (var connection = dataSource.getConnection();
+         var stream = Files.newInputStream(file)) {
+      final var result =
+        new TrExecutors().executeStreaming(
+          file.toUri(),
+          stream,
+          set -> new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+              if (event instanceof final TrEventExecutingSQL e) {
+                ++counter.statements;
+                counter.characters += e.statement().length();
+              }
+            },
+            set,
+            PERFORM_UPGRADES,
+            new TrArguments(
+              Map.of("name", new TrArgumentString("name", "seed"))
+            ),
+            connection
+          )
+        );
+      connection.commit();
+      counter.revisions = result.revisionsApplied().size();
+    }
+
+    return new Result(
+      counter.revisions,
+      counter.statements,
+      counter.characters,
+      Duration.ofNanos(System.nanoTime() - timeStart)
+    );
+  }
+
+  private static final class Counter
+    implements TrSchemaRevisionStreamConsumerType
+  {
+    private long revisions;
+    private long statements;
+    private long characters;
+
+    Counter()
+    {
+
+    }
+
+    @Override
+    public void onRevisionStarted(
+      final BigInteger version)
+    {
+
+    }
+
+    @Override
+    public void onStatement(
+      final BigInteger version,
+      final TrStatementType statement)
+    {
+      ++this.statements;
+      this.characters += statement.text().length();
+    }
+
+    @Override
+    public void onRevisionFinished(
+      final BigInteger version)
+    {
+      ++this.revisions;
+    }
+  }
+}
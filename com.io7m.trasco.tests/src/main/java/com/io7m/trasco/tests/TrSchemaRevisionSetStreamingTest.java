@@ -0,0 +1,466 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorResult;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.vanilla.TrExecutors;
+import com.io7m.trasco.vanilla.TrSchemaRevisionSetParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteOpenMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static com.io7m.trasco.api.TrErrorCode.SQL_EXCEPTION;
+import static com.io7m.trasco.api.TrErrorCode.UNRECOGNIZED_SCHEMA_REVISION;
+import static com.io7m.trasco.api.TrExecutorUpgrade.PERFORM_UPGRADES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TrSchemaRevisionSetStreamingTest
+{
+  private TrSchemaRevisionSetParsers parsers;
+  private Path directory;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.parsers =
+      new TrSchemaRevisionSetParsers();
+    this.directory =
+      TrTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    TrTestDirectories.deleteDirectory(this.directory);
+  }
+
+  /**
+   * Streaming a document delivers the same parameters and revisions as
+   * parsing it.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testStreamingMatchesEager()
+  {
+    return Stream.of(
+      "example-0.xml",
+      "example-1.xml",
+      "example-5.xml",
+      "example-6.xml",
+      "example-7.xml",
+      "example-10.xml",
+      "example-11.xml",
+      "example-12.xml")
+      .map(name -> {
+        return DynamicTest.dynamicTest(
+          "testStreamingMatchesEager_" + name,
+          () -> this.checkMatchesEager(name));
+      });
+  }
+
+  private void checkMatchesEager(
+    final String name)
+    throws Exception
+  {
+    final var file = this.resourceOf(name);
+    final var eager = this.parsers.parseFile(file);
+    final var recorder = new Recorder();
+    this.parsers.parseFileStreaming(file, recorder);
+
+    assertEquals(eager.parameters(), recorder.parameters);
+    assertEquals(eager.revisions(), recorder.revisions);
+  }
+
+  /**
+   * Invalid documents are rejected.
+   *
+   * @return The tests
+   */
+
+  @TestFactory
+  public Stream<DynamicTest> testStreamingErrors()
+  {
+    return Stream.of(
+      "error-0.xml",
+      "error-1.xml",
+      "error-2.xml",
+      "error-3.xml",
+      "error-4.xml",
+      "error-5.xml",
+      "error-6.xml",
+      "error-7.xml",
+      "error-8.xml")
+      .map(name -> {
+        return DynamicTest.dynamicTest(
+          "testStreamingErrors_" + name,
+          () -> {
+            final var file = this.resourceOf(name);
+            assertThrows(ParsingException.class, () -> {
+              this.parsers.parseFileStreaming(file, new Recorder());
+            });
+          });
+      });
+  }
+
+  /**
+   * Revisions must be declared in ascending order.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingOutOfOrder()
+    throws Exception
+  {
+    final var file = this.directory.resolve("input.xml");
+    Files.writeString(file, """
+      <Schemas xmlns="urn:com.io7m.trasco.database.statements:1:0">
+        <Schema versionCurrent="1">
+          <Statement>create table y (f0 integer)</Statement>
+        </Schema>
+        <Schema versionCurrent="0">
+          <Statement>create table x (f0 integer)</Statement>
+        </Schema>
+      </Schemas>
+      """);
+
+    assertEquals(2, this.parsers.parseFile(file).revisions().size());
+    assertThrows(ParsingException.class, () -> {
+      this.parsers.parseFileStreaming(file, new Recorder());
+    });
+  }
+
+  /**
+   * An exception raised by the consumer stops parsing, and is raised to
+   * the caller.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingConsumerFails()
+    throws Exception
+  {
+    final var file = this.resourceOf("example-1.xml");
+    final var failure = new TrException("Failed!", SQL_EXCEPTION);
+    final var statements = new ArrayList<TrStatementType>();
+
+    final var ex =
+      assertThrows(TrException.class, () -> {
+        this.parsers.parseFileStreaming(file, new Recorder()
+        {
+          @Override
+          public void onStatement(
+            final BigInteger version,
+            final TrStatementType statement)
+            throws TrException
+          {
+            statements.add(statement);
+            if (statements.size() == 2) {
+              throw failure;
+            }
+          }
+        });
+      });
+
+    assertSame(failure, ex);
+    assertEquals(2, statements.size());
+  }
+
+  /**
+   * A streaming upgrade applies the revisions newer than the database
+   * version.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingUpgrade()
+    throws Exception
+  {
+    final var file = this.resourceOf("example-12.xml");
+
+    try (var connection = this.openDatabase()) {
+      try (var st = connection.createStatement()) {
+        st.execute("create table x (f0 integer)");
+        st.execute("create index x_tmp on x (f0)");
+      }
+      TrTestVersions.versionSet(BigInteger.ZERO, connection);
+
+      final TrExecutorConfiguration[] configurations =
+        new TrExecutorConfiguration[1];
+
+      final var result =
+        this.executeStreaming(file, connection, configurations);
+      connection.commit();
+
+      assertEquals(Optional.of(BigInteger.ZERO), result.versionStart());
+      assertEquals(Optional.of(BigInteger.TWO), result.versionEnd());
+      assertEquals(
+        List.of(BigInteger.ONE, BigInteger.TWO),
+        List.copyOf(result.revisionsApplied().keySet())
+      );
+      assertEquals(
+        Optional.of(BigInteger.TWO),
+        TrTestVersions.versionGet(connection)
+      );
+      assertTrue(configurations[0].revisions().revisions().isEmpty());
+    }
+  }
+
+  /**
+   * A streaming upgrade of a database with a version newer than any known
+   * revision fails.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingUpgradeTooHigh()
+    throws Exception
+  {
+    final var file = this.resourceOf("example-12.xml");
+
+    try (var connection = this.openDatabase()) {
+      TrTestVersions.versionSet(BigInteger.TEN, connection);
+
+      final var ex =
+        assertThrows(TrException.class, () -> {
+          this.executeStreaming(
+            file, connection, new TrExecutorConfiguration[1]);
+        });
+      assertEquals(UNRECOGNIZED_SCHEMA_REVISION, ex.errorCode());
+    }
+  }
+
+  /**
+   * Streaming a seed-data document much larger than the maximum heap size
+   * succeeds. The document is streamed in a separate JVM with a small
+   * heap; parsing the same document into a revision set would exhaust the
+   * heap.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingBoundedMemory()
+    throws Exception
+  {
+    final var file = this.directory.resolve("seed.xml");
+    final var statements =
+      TrSchemaRevisionSetStreamingBenchmark.generate(file, 64_000_000L);
+    assertTrue(Files.size(file) > 64_000_000L);
+
+    final var text = this.runWithSmallHeap(file, "parse");
+    assertTrue(
+      text.contains("statements %d".formatted(Long.valueOf(statements))),
+      text
+    );
+  }
+
+  /**
+   * Executing a document of distinct parameterized statements much larger
+   * than the maximum heap size succeeds, because streaming executions do
+   * not retain the plans of the statements that they execute.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingBoundedMemoryParameterized()
+    throws Exception
+  {
+    final var file = this.directory.resolve("seed.xml");
+    final var statements =
+      TrSchemaRevisionSetStreamingBenchmark.generate(file, 48_000_000L, true);
+    assertTrue(Files.size(file) > 48_000_000L);
+
+    final var text = this.runWithSmallHeap(file, "execute");
+    assertTrue(
+      text.contains("statements %d".formatted(Long.valueOf(statements))),
+      text
+    );
+  }
+
+  private String runWithSmallHeap(
+    final Path file,
+    final String mode)
+    throws Exception
+  {
+    final var classPath = new ArrayList<String>();
+    for (final var property : List.of("java.class.path", "jdk.module.path")) {
+      final var value = System.getProperty(property);
+      if (value != null && !value.isEmpty()) {
+        classPath.add(value);
+      }
+    }
+
+    final var output = this.directory.resolve("output.txt");
+    final var process =
+      new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-Xmx32m",
+        "-cp",
+        String.join(File.pathSeparator, classPath),
+        TrSchemaRevisionSetStreamingBenchmark.class.getCanonicalName(),
+        "64",
+        file.toString(),
+        mode
+      ).redirectErrorStream(true)
+        .redirectOutput(output.toFile())
+        .start();
+
+    final var exitCode = process.waitFor();
+    final var text = Files.readString(output, UTF_8);
+    assertEquals(0, exitCode, text);
+    return text;
+  }
+
+  private TrExecutorResult executeStreaming(
+    final Path file,
+    final Connection connection,
+    final TrExecutorConfiguration[] configurations)
+    throws Exception
+  {
+    try (var stream = Files.newInputStream(file)) {
+      return new TrExecutors().executeStreaming(
+        file.toUri(),
+        stream,
+        set -> {
+          configurations[0] = new TrExecutorConfiguration(
+            TrTestVersions::versionGet,
+            TrTestVersions::versionSet,
+            event -> {
+
+            },
+            set,
+            PERFORM_UPGRADES,
+            TrArguments.empty(),
+            connection
+          );
+          return configurations[0];
+        }
+      );
+    }
+  }
+
+  private Connection openDatabase()
+    throws SQLException
+  {
+    final var file =
+      this.directory.resolve("db").toString();
+    final var config = new SQLiteConfig();
+    config.setOpenMode(SQLiteOpenMode.CREATE);
+    final var dataSource = new SQLiteDataSource(config);
+    dataSource.setUrl("jdbc:sqlite:" + file);
+    dataSource.setDatabaseName(file);
+    return dataSource.getConnection();
+  }
+
+  private Path resourceOf(
+    final String name)
+    throws IOException
+  {
+    return TrTestDirectories.resourceOf(
+      TrSchemaRevisionSetStreamingTest.class,
+      this.directory,
+      name
+    );
+  }
+
+  private static class Recorder
+    implements TrSchemaRevisionStreamConsumerType
+  {
+    private final TreeMap<BigInteger, TrSchemaRevision> revisions;
+    private Map<String, TrParameter> parameters;
+    private List<TrStatementType> statements;
+
+    Recorder()
+    {
+      this.revisions = new TreeMap<>();
+      this.parameters = Map.of();
+    }
+
+    @Override
+    public void onParameters(
+      final Map<String, TrParameter> inParameters)
+    {
+      this.parameters = inParameters;
+    }
+
+    @Override
+    public void onRevisionStarted(
+      final BigInteger version)
+    {
+      this.statements = new ArrayList<>();
+    }
+
+    @Override
+    public void onStatement(
+      final BigInteger version,
+      final TrStatementType statement)
+      throws TrException
+    {
+      this.statements.add(statement);
+    }
+
+    @Override
+    public void onRevisionFinished(
+      final BigInteger version)
+    {
+      this.revisions.put(
+        version,
+        new TrSchemaRevision(version, List.copyOf(this.statements))
+      );
+    }
+  }
+}
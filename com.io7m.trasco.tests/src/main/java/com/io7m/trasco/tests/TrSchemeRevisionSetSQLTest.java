@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.EnumSet;
+import java.util.List;
 
 import static com.io7m.trasco.vanilla.TrStatementExclusion.FUNCTIONS;
 import static com.io7m.trasco.vanilla.TrStatementExclusion.GRANTS;
@@ -34,6 +35,7 @@ import static com.io7m.trasco.vanilla.TrStatementExclusion.ROLES;
 import static com.io7m.trasco.vanilla.TrStatementExclusion.TRIGGERS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class TrSchemeRevisionSetSQLTest
 {
@@ -163,6 +165,68 @@ public final class TrSchemeRevisionSetSQLTest
     assertEquals(3, lines.size());
   }
 
+  @Test
+  public void testTemplates()
+    throws Exception
+  {
+    final var input =
+      this.resourceOf("example-14.xml");
+    final var output =
+      this.directory.resolve("out.sql");
+
+    TrSchemaRevisionSetSQL.showSQLStatements(
+      input,
+      output,
+      EnumSet.noneOf(TrStatementExclusion.class)
+    );
+
+    final var lines = Files.lines(output).toList();
+    assertEquals(
+      List.of(
+        "create table x (f0 varchar(100), f1 bigint);",
+        "create table shard_0 (f0 integer);",
+        "create table shard_1 (f0 integer);",
+        "create table shard_2 (f0 integer);",
+        "create table shard_3 (f0 integer);",
+        "-- StatementTemplate: 10 expansions that bind values at execution time are not shown:",
+        "--   insert into x values (?, ?)",
+        "-- StatementTemplate: 3 expansions that bind values at execution time are not shown:",
+        "--   insert into x values (? || ?, 0)"
+      ),
+      lines
+    );
+  }
+
+  @Test
+  public void testRows()
+    throws Exception
+  {
+    final var output =
+      this.directory.resolve("out.sql");
+
+    TrSchemaRevisionSetSQL.showSQLStatements(
+      this.resourceOf("example-15.xml"),
+      output,
+      EnumSet.noneOf(TrStatementExclusion.class)
+    );
+
+    assertTrue(
+      Files.lines(output)
+        .anyMatch(s -> s.equals("-- Rows: 7 rows inserted into x are not shown."))
+    );
+
+    TrSchemaRevisionSetSQL.showSQLStatements(
+      this.resourceOf("example-16.xml"),
+      output,
+      EnumSet.noneOf(TrStatementExclusion.class)
+    );
+
+    assertTrue(
+      Files.lines(output)
+        .anyMatch(s -> s.startsWith("-- RowsCSV: Rows inserted into x from "))
+    );
+  }
+
   private Path resourceOf(
     final String name)
     throws IOException
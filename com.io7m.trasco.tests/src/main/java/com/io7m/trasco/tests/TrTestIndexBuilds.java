@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import com.io7m.trasco.api.TrExecutorIndexBuildStoreType;
+import com.io7m.trasco.api.TrStatementIndex;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.io7m.trasco.api.TrStatementIndexOperation.CREATE_INDEX;
+
+/**
+ * An index build store for SQLite. The table has no primary key so that it
+ * does not add an index of its own.
+ */
+
+public final class TrTestIndexBuilds
+  implements TrExecutorIndexBuildStoreType
+{
+  /**
+   * An index build store for SQLite.
+   */
+
+  public TrTestIndexBuilds()
+  {
+
+  }
+
+  /**
+   * Create the table used by the store.
+   *
+   * @param connection The connection
+   *
+   * @throws SQLException On errors
+   */
+
+  public static void createTable(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.createStatement()) {
+      st.execute("""
+        create table trasco_index_builds (
+          index_name text not null,
+          index_text text not null
+        )
+        """);
+    }
+  }
+
+  @Override
+  public void addPending(
+    final Connection connection,
+    final List<TrStatementIndex> builds)
+    throws SQLException
+  {
+    try (var st = connection.prepareStatement(
+      "insert into trasco_index_builds values (?, ?)")) {
+      for (final var build : builds) {
+        st.setString(1, build.index());
+        st.setString(2, build.text());
+        st.execute();
+      }
+    }
+  }
+
+  @Override
+  public List<TrStatementIndex> pending(
+    final Connection connection)
+    throws SQLException
+  {
+    final var builds = new ArrayList<TrStatementIndex>();
+    try (var st = connection.prepareStatement(
+      "select index_name, index_text from trasco_index_builds order by rowid")) {
+      try (var rs = st.executeQuery()) {
+        while (rs.next()) {
+          builds.add(new TrStatementIndex(
+            CREATE_INDEX,
+            rs.getString(1),
+            rs.getString(2)
+          ));
+        }
+      }
+    }
+    return builds;
+  }
+
+  @Override
+  public void removePending(
+    final Connection connection,
+    final String index)
+    throws SQLException
+  {
+    try (var st = connection.prepareStatement(
+      "delete from trasco_index_builds where index_name = ?")) {
+      st.setString(1, index);
+      st.execute();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.tests;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Schema version functions for SQLite. The schema version is held in the
+ * SQLite user version, offset by one so that zero indicates an empty
+ * database.
+ */
+
+public final class TrTestVersions
+{
+  private TrTestVersions()
+  {
+
+  }
+
+  /**
+   * Retrieve the schema version.
+   *
+   * @param connection The connection
+   *
+   * @return The version, if any
+   *
+   * @throws SQLException On errors
+   */
+
+  public static Optional<BigInteger> versionGet(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.prepareStatement("pragma user_version")) {
+      try (var rs = st.executeQuery()) {
+        final var version = rs.getLong(1);
+        if (version == 0L) {
+          return Optional.empty();
+        }
+        return Optional.of(BigInteger.valueOf(version - 1L));
+      }
+    }
+  }
+
+  /**
+   * Set the schema version.
+   *
+   * @param version    The version
+   * @param connection The connection
+   *
+   * @throws SQLException On errors
+   */
+
+  public static void versionSet(
+    final BigInteger version,
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.createStatement()) {
+      st.execute("pragma user_version = " + version.add(BigInteger.ONE));
+    }
+  }
+}
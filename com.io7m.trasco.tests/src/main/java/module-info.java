@@ -27,10 +27,13 @@ open module com.io7m.trasco.tests
   requires org.junit.platform.launcher;
 
   requires com.io7m.anethum.api;
+  requires com.io7m.jxe.core;
   requires com.io7m.trasco.api;
   requires com.io7m.trasco.vanilla;
   requires org.slf4j;
   requires org.xerial.sqlitejdbc;
+  requires java.compiler;
+  requires jdk.management;
 
   exports com.io7m.trasco.tests;
 }
@@ -17,12 +17,40 @@
 
 package com.io7m.trasco.vanilla;
 
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrException;
 import com.io7m.trasco.api.TrExecutorConfiguration;
 import com.io7m.trasco.api.TrExecutorFactoryType;
+import com.io7m.trasco.api.TrExecutorResult;
 import com.io7m.trasco.api.TrExecutorType;
+import com.io7m.trasco.api.TrExecutorVersionRetrieverType;
+import com.io7m.trasco.api.TrSchemaRevisionManifest;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatementType;
 import com.io7m.trasco.vanilla.internal.TrExecutor;
+import com.io7m.trasco.vanilla.internal.TrExecutorStreaming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static com.io7m.trasco.api.TrErrorCode.MANIFEST_MISMATCH;
+import static com.io7m.trasco.api.TrErrorCode.REVISIONS_UNAVAILABLE;
+import static com.io7m.trasco.api.TrErrorCode.SQL_EXCEPTION;
 
 /**
  * A factory of executors.
@@ -30,6 +58,9 @@ import java.util.Objects;
 
 public final class TrExecutors implements TrExecutorFactoryType
 {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrExecutors.class);
+
   /**
    * A factory of executors.
    */
@@ -46,4 +77,226 @@ public final class TrExecutors implements TrExecutorFactoryType
     Objects.requireNonNull(configuration, "configuration");
     return new TrExecutor(configuration);
   }
+
+  /**
+   * Upgrade a database, consulting a manifest first. The hash of the
+   * revision set document is checked against the manifest, so that a
+   * manifest that does not describe the document is never trusted. The
+   * schema version is then retrieved and compared to the highest version
+   * recorded in the manifest. If the versions are equal, the database is
+   * already up-to-date and this method returns immediately without loading
+   * the revision set. Otherwise, the revision set is loaded, and its highest
+   * version is checked against the manifest. A stale manifest fails with
+   * {@link com.io7m.trasco.api.TrErrorCode#MANIFEST_MISMATCH} before any
+   * statements are executed. An executor is then created with the
+   * configuration produced by the given function, and the executor is
+   * executed.
+   *
+   * @param manifest      The manifest describing the revision set
+   * @param connection    The database connection
+   * @param versionGet    A function that will be executed to retrieve a
+   *                      schema version number
+   * @param revisions     A function that loads the revision set
+   * @param configuration A function that produces an executor configuration
+   *                      for the loaded revision set
+   *
+   * @return The result of the upgrade
+   *
+   * @throws TrException On errors
+   */
+
+  public TrExecutorResult executeWithManifest(
+    final TrSchemaRevisionManifest manifest,
+    final Connection connection,
+    final TrExecutorVersionRetrieverType versionGet,
+    final TrSchemaRevisionSetLoaderType revisions,
+    final Function<TrSchemaRevisionSet, TrExecutorConfiguration> configuration)
+    throws TrException
+  {
+    Objects.requireNonNull(manifest, "manifest");
+    Objects.requireNonNull(connection, "connection");
+    Objects.requireNonNull(versionGet, "versionGet");
+    Objects.requireNonNull(revisions, "revisions");
+    Objects.requireNonNull(configuration, "configuration");
+
+    final var timeStart = System.nanoTime();
+
+    try {
+      final var hash = revisions.hash();
+      if (!hash.equals(manifest.hash())) {
+        throw new TrException(
+          "The revision set hash %s does not match the manifest hash %s."
+            .formatted(hash, manifest.hash()),
+          MANIFEST_MISMATCH
+        );
+      }
+    } catch (final IOException e) {
+      throw new TrException(e.getMessage(), e, REVISIONS_UNAVAILABLE);
+    }
+
+    final Optional<BigInteger> current;
+    try {
+      current = versionGet.determineVersion(connection);
+    } catch (final SQLException e) {
+      throw new TrException(e.getMessage(), e, SQL_EXCEPTION);
+    }
+
+    if (current.equals(Optional.of(manifest.versionHighest()))) {
+      LOG.debug("database schema version {} matches manifest", current.get());
+      return new TrExecutorResult(
+        current,
+        current,
+        Collections.emptySortedMap(),
+        Duration.ofNanos(System.nanoTime() - timeStart)
+      );
+    }
+
+    final TrSchemaRevisionSet set;
+    try {
+      set = revisions.load();
+    } catch (final IOException | ParsingException e) {
+      throw new TrException(e.getMessage(), e, REVISIONS_UNAVAILABLE);
+    }
+
+    final var loaded = set.revisions();
+    if (loaded.isEmpty()
+        || !loaded.lastKey().equals(manifest.versionHighest())) {
+      throw new TrException(
+        "The revision set highest version %s does not match the manifest version %s."
+          .formatted(
+            loaded.isEmpty() ? "(none)" : loaded.lastKey(),
+            manifest.versionHighest()),
+        MANIFEST_MISMATCH
+      );
+    }
+
+    return this.create(configuration.apply(set))
+      .executeForResult();
+  }
+
+  /**
+   * Upgrade a database by executing the statements of a revision set
+   * document as the document is parsed. Each statement is executed as soon
+   * as it has been parsed, and is then discarded, so the memory required
+   * to upgrade a database does not depend on the size of the document.
+   * Once the document's parameters have been parsed, an executor is created
+   * with the configuration produced by the given function. The function
+   * receives a revision set containing only the document's parameters.
+   *
+   * Streaming executions do not support upgrade locks, revision
+   * savepoints, or deferred index builds. Revisions must be declared in
+   * ascending order of version.
+   *
+   * @param source        The source of the document
+   * @param stream        The document
+   * @param configuration A function that produces an executor configuration
+   *
+   * @return The result of the upgrade
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   * @throws TrException      On execution errors
+   *
+   * @see TrSchemaRevisionSetParsers#parseStreaming(URI, InputStream, TrSchemaRevisionStreamConsumerType)
+   */
+
+  public TrExecutorResult executeStreaming(
+    final URI source,
+    final InputStream stream,
+    final Function<TrSchemaRevisionSet, TrExecutorConfiguration> configuration)
+    throws IOException, ParsingException, TrException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+    Objects.requireNonNull(configuration, "configuration");
+
+    final var upgrade = new StreamingUpgrade(configuration);
+    try {
+      new TrSchemaRevisionSetParsers()
+        .parseStreaming(source, stream, upgrade);
+      return upgrade.finish();
+    } finally {
+      upgrade.close();
+    }
+  }
+
+  /**
+   * A consumer that creates an executor once the document's parameters are
+   * known, and then forwards everything to the executor.
+   */
+
+  private static final class StreamingUpgrade
+    implements TrSchemaRevisionStreamConsumerType
+  {
+    private final Function<TrSchemaRevisionSet, TrExecutorConfiguration> configuration;
+    private TrExecutorStreaming streaming;
+
+    StreamingUpgrade(
+      final Function<TrSchemaRevisionSet, TrExecutorConfiguration> inConfiguration)
+    {
+      this.configuration = inConfiguration;
+    }
+
+    private void start(
+      final Map<String, TrParameter> parameters)
+      throws TrException
+    {
+      if (this.streaming == null) {
+        final var set =
+          new TrSchemaRevisionSet(parameters, new TreeMap<>());
+        this.streaming =
+          new TrExecutor(this.configuration.apply(set))
+            .executeStreaming();
+      }
+    }
+
+    @Override
+    public void onParameters(
+      final Map<String, TrParameter> parameters)
+      throws TrException
+    {
+      this.start(parameters);
+    }
+
+    @Override
+    public void onRevisionStarted(
+      final BigInteger version)
+      throws TrException
+    {
+      this.start(Map.of());
+      this.streaming.onRevisionStarted(version);
+    }
+
+    @Override
+    public void onStatement(
+      final BigInteger version,
+      final TrStatementType statement)
+      throws TrException
+    {
+      this.streaming.onStatement(version, statement);
+    }
+
+    @Override
+    public void onRevisionFinished(
+      final BigInteger version)
+      throws TrException
+    {
+      this.streaming.onRevisionFinished(version);
+    }
+
+    TrExecutorResult finish()
+      throws TrException
+    {
+      this.start(Map.of());
+      return this.streaming.finish();
+    }
+
+    void close()
+      throws TrException
+    {
+      if (this.streaming != null) {
+        this.streaming.close();
+      }
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrEventType;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorUpgrade;
+import com.io7m.trasco.api.TrExecutorVersionRetrieverType;
+import com.io7m.trasco.api.TrExecutorVersionUpdaterType;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * The configuration information required for a fleet upgrade.
+ *
+ * @param versionGet     A function that will be executed to retrieve a
+ *                       schema version number
+ * @param versionSet     A function that will be executed to set the schema
+ *                       version number
+ * @param events         A function that will receive progress events for
+ *                       each database (called from multiple threads)
+ * @param revisions      The set of known database schema revisions
+ * @param upgrade        The desired upgrade behaviour
+ * @param arguments      The arguments provided to any required parameters
+ * @param maxParallelism The maximum number of databases that will be
+ *                       upgraded concurrently
+ * @param executors      A function that receives each database and the
+ *                       basic executor configuration for it, and returns
+ *                       the configuration that will be used, typically
+ *                       enabling executor options with the {@code with}
+ *                       methods of {@link TrExecutorConfiguration}. The
+ *                       connection, revisions, and arguments of the basic
+ *                       configuration must be preserved.
+ */
+
+public record TrFleetConfiguration(
+  TrExecutorVersionRetrieverType versionGet,
+  TrExecutorVersionUpdaterType versionSet,
+  BiConsumer<TrFleetTarget, TrEventType> events,
+  TrSchemaRevisionSet revisions,
+  TrExecutorUpgrade upgrade,
+  TrArguments arguments,
+  int maxParallelism,
+  BiFunction<TrFleetTarget, TrExecutorConfiguration, TrExecutorConfiguration> executors)
+{
+  /**
+   * The configuration information required for a fleet upgrade.
+   *
+   * @param versionGet     A function that will be executed to retrieve a
+   *                       schema version number
+   * @param versionSet     A function that will be executed to set the schema
+   *                       version number
+   * @param events         A function that will receive progress events for
+   *                       each database (called from multiple threads)
+   * @param revisions      The set of known database schema revisions
+   * @param upgrade        The desired upgrade behaviour
+   * @param arguments      The arguments provided to any required parameters
+   * @param maxParallelism The maximum number of databases that will be
+   *                       upgraded concurrently
+   * @param executors      A function that returns the executor
+   *                       configuration used for each database
+   */
+
+  public TrFleetConfiguration
+  {
+    Objects.requireNonNull(versionGet, "versionGet");
+    Objects.requireNonNull(versionSet, "versionSet");
+    Objects.requireNonNull(events, "events");
+    Objects.requireNonNull(revisions, "revisions");
+    Objects.requireNonNull(upgrade, "upgrade");
+    Objects.requireNonNull(arguments, "arguments");
+    Objects.requireNonNull(executors, "executors");
+
+    if (maxParallelism < 1) {
+      throw new IllegalArgumentException(
+        "Maximum parallelism must be at least 1 (was %d)"
+          .formatted(Integer.valueOf(maxParallelism))
+      );
+    }
+  }
+
+  /**
+   * The configuration information required for a fleet upgrade, using the
+   * basic executor configuration (with all executor options disabled) for
+   * every database.
+   *
+   * @param inVersionGet      A function that will be executed to retrieve a
+   *                          schema version number
+   * @param inVersionSet      A function that will be executed to set the schema
+   *                          version number
+   * @param inEvents          A function that will receive progress events for
+   *                          each database (called from multiple threads)
+   * @param inRevisions       The set of known database schema revisions
+   * @param inUpgrade         The desired upgrade behaviour
+   * @param inArguments       The arguments provided to any required parameters
+   * @param inMaxParallelism  The maximum number of databases that will be
+   *                          upgraded concurrently
+   */
+
+  public TrFleetConfiguration(
+    final TrExecutorVersionRetrieverType inVersionGet,
+    final TrExecutorVersionUpdaterType inVersionSet,
+    final BiConsumer<TrFleetTarget, TrEventType> inEvents,
+    final TrSchemaRevisionSet inRevisions,
+    final TrExecutorUpgrade inUpgrade,
+    final TrArguments inArguments,
+    final int inMaxParallelism)
+  {
+    this(
+      inVersionGet,
+      inVersionSet,
+      inEvents,
+      inRevisions,
+      inUpgrade,
+      inArguments,
+      inMaxParallelism,
+      (target, configuration) -> configuration
+    );
+  }
+}
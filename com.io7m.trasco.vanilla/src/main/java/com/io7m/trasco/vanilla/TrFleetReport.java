@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The aggregated results of a fleet upgrade.
+ *
+ * @param results The result for each database, in the order in which the
+ *                upgrades completed
+ * @param elapsed The total time taken
+ */
+
+public record TrFleetReport(
+  List<TrFleetResult> results,
+  Duration elapsed)
+{
+  /**
+   * The aggregated results of a fleet upgrade.
+   *
+   * @param results The result for each database, in the order in which the
+   *                upgrades completed
+   * @param elapsed The total time taken
+   */
+
+  public TrFleetReport
+  {
+    Objects.requireNonNull(results, "results");
+    Objects.requireNonNull(elapsed, "elapsed");
+    results = List.copyOf(results);
+  }
+
+  /**
+   * @return The results of the databases that were upgraded successfully
+   */
+
+  public List<TrFleetResult> succeeded()
+  {
+    return this.results.stream()
+      .filter(TrFleetResult::isSuccess)
+      .toList();
+  }
+
+  /**
+   * @return The results of the databases that failed to upgrade
+   */
+
+  public List<TrFleetResult> failed()
+  {
+    return this.results.stream()
+      .filter(r -> !r.isSuccess())
+      .toList();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The result of upgrading a single database in a fleet.
+ *
+ * @param target       The database
+ * @param versionStart The schema version before the upgrade, if known
+ * @param versionEnd   The schema version after the upgrade, if known
+ * @param elapsed      The time taken to upgrade the database
+ * @param error        The error that caused the upgrade to fail, if any
+ */
+
+public record TrFleetResult(
+  TrFleetTarget target,
+  Optional<BigInteger> versionStart,
+  Optional<BigInteger> versionEnd,
+  Duration elapsed,
+  Optional<Exception> error)
+{
+  /**
+   * The result of upgrading a single database in a fleet.
+   *
+   * @param target       The database
+   * @param versionStart The schema version before the upgrade, if known
+   * @param versionEnd   The schema version after the upgrade, if known
+   * @param elapsed      The time taken to upgrade the database
+   * @param error        The error that caused the upgrade to fail, if any
+   */
+
+  public TrFleetResult
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(versionStart, "versionStart");
+    Objects.requireNonNull(versionEnd, "versionEnd");
+    Objects.requireNonNull(elapsed, "elapsed");
+    Objects.requireNonNull(error, "error");
+  }
+
+  /**
+   * @return {@code true} if the database was upgraded successfully
+   */
+
+  public boolean isSuccess()
+  {
+    return this.error.isEmpty();
+  }
+}
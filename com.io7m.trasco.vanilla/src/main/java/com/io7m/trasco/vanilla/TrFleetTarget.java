@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.trasco.api.TrExecutorConnectionSupplierType;
+
+import java.util.Objects;
+
+/**
+ * A database that is part of a fleet.
+ *
+ * @param name        The name of the database, used in reports
+ * @param connections A supplier of connections to the database
+ */
+
+public record TrFleetTarget(
+  String name,
+  TrExecutorConnectionSupplierType connections)
+{
+  /**
+   * A database that is part of a fleet.
+   *
+   * @param name        The name of the database, used in reports
+   * @param connections A supplier of connections to the database
+   */
+
+  public TrFleetTarget
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(connections, "connections");
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorVersionRetrieverType;
+import com.io7m.trasco.vanilla.internal.TrExecutor;
+import com.io7m.trasco.vanilla.internal.TrStatementPlans;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * An upgrader that applies a single revision set to a fleet of databases.
+ * The revision set is parsed once by the caller and shared between all of
+ * the databases. Each database is upgraded on its own connection, in its own
+ * transaction, and a failure to upgrade one database does not affect the
+ * upgrades of any other database. The report always contains exactly one
+ * result for each database, even if connecting to the database fails.
+ */
+
+public final class TrFleetUpgrader
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrFleetUpgrader.class);
+
+  private final TrFleetConfiguration configuration;
+  private final TrStatementPlans plans;
+
+  /**
+   * An upgrader that applies a single revision set to a fleet of databases.
+   *
+   * @param inConfiguration The configuration
+   *
+   * @throws TrException If the configured arguments do not satisfy the
+   *                     parameters of the revision set
+   */
+
+  public TrFleetUpgrader(
+    final TrFleetConfiguration inConfiguration)
+    throws TrException
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+
+    this.configuration.arguments()
+      .checkSatisfies(this.configuration.revisions().parameters());
+
+    /*
+     * Every database is upgraded with the same arguments, so parameterized
+     * statements are compiled and bound once and shared between all the
+     * upgrades.
+     */
+
+    this.plans =
+      new TrStatementPlans(this.configuration.arguments());
+  }
+
+  /**
+   * Upgrade all of the given databases, using a fixed pool of threads sized
+   * to the configured maximum parallelism.
+   *
+   * @param targets The databases
+   *
+   * @return A report of the upgrade of each database
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public TrFleetReport upgrade(
+    final Stream<TrFleetTarget> targets)
+    throws InterruptedException
+  {
+    final var executor =
+      Executors.newFixedThreadPool(this.configuration.maxParallelism());
+
+    try {
+      return this.upgrade(targets, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Upgrade all of the given databases, running each upgrade on the given
+   * executor. At most {@link TrFleetConfiguration#maxParallelism()} upgrades
+   * are submitted to the executor at any one time, and so an unbounded
+   * executor (such as one that starts a new virtual thread for each task) is
+   * appropriate. The targets are consumed lazily.
+   *
+   * @param targets  The databases
+   * @param executor The executor
+   *
+   * @return A report of the upgrade of each database
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public TrFleetReport upgrade(
+    final Stream<TrFleetTarget> targets,
+    final Executor executor)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(targets, "targets");
+    Objects.requireNonNull(executor, "executor");
+
+    final var timeStart =
+      System.nanoTime();
+    final var parallelism =
+      this.configuration.maxParallelism();
+    final var permits =
+      new Semaphore(parallelism);
+    final var results =
+      new ConcurrentLinkedQueue<TrFleetResult>();
+
+    final var iterator = targets.iterator();
+    while (iterator.hasNext()) {
+      final var target = iterator.next();
+      permits.acquire();
+
+      try {
+        executor.execute(() -> {
+          try {
+            results.add(this.upgradeOne(target));
+          } finally {
+            permits.release();
+          }
+        });
+      } catch (final RejectedExecutionException e) {
+        permits.release();
+        results.add(new TrFleetResult(
+          target,
+          Optional.empty(),
+          Optional.empty(),
+          Duration.ZERO,
+          Optional.of(e)
+        ));
+      }
+    }
+
+    /*
+     * Wait for all outstanding upgrades to complete.
+     */
+
+    permits.acquire(parallelism);
+    permits.release(parallelism);
+
+    final var report =
+      new TrFleetReport(
+        List.copyOf(results),
+        Duration.ofNanos(System.nanoTime() - timeStart)
+      );
+
+    LOG.debug(
+      "upgraded {} databases ({} failed) in {}",
+      Integer.valueOf(report.results().size()),
+      Integer.valueOf(report.failed().size()),
+      report.elapsed()
+    );
+    return report;
+  }
+
+  private TrFleetResult upgradeOne(
+    final TrFleetTarget target)
+  {
+    LOG.debug("upgrading {}", target.name());
+
+    final var timeStart = System.nanoTime();
+    try (var connection = target.connections().openConnection()) {
+      return this.upgradeOneWithConnection(target, connection, timeStart);
+    } catch (final SQLException | RuntimeException e) {
+      LOG.debug("connecting to {} failed: ", target.name(), e);
+
+      return new TrFleetResult(
+        target,
+        Optional.empty(),
+        Optional.empty(),
+        Duration.ofNanos(System.nanoTime() - timeStart),
+        Optional.of(e)
+      );
+    }
+  }
+
+  private TrFleetResult upgradeOneWithConnection(
+    final TrFleetTarget target,
+    final Connection connection,
+    final long timeStart)
+  {
+    final var versionGet =
+      this.configuration.versionGet();
+
+    Optional<BigInteger> versionStart = Optional.empty();
+    try {
+      versionStart = versionGet.determineVersion(connection);
+
+      final var basic =
+        new TrExecutorConfiguration(
+          versionGet,
+          this.configuration.versionSet(),
+          event -> this.configuration.events().accept(target, event),
+          this.configuration.revisions(),
+          this.configuration.upgrade(),
+          this.configuration.arguments(),
+          connection
+        );
+
+      final var executor =
+        new TrExecutor(
+          this.configuration.executors().apply(target, basic),
+          this.plans
+        );
+
+      /*
+       * The executor leaves its connection in auto-commit mode if it had
+       * nothing to do (for example, a locked executor that finds the
+       * database up to date), and so there may be nothing to commit.
+       */
+
+      final var result = executor.executeForResult();
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+
+      return new TrFleetResult(
+        target,
+        result.versionStart(),
+        result.versionEnd(),
+        Duration.ofNanos(System.nanoTime() - timeStart),
+        Optional.empty()
+      );
+    } catch (final TrException | SQLException | RuntimeException e) {
+      LOG.debug("upgrading {} failed: ", target.name(), e);
+
+      return new TrFleetResult(
+        target,
+        versionStart,
+        versionAfterFailure(connection, versionGet, e),
+        Duration.ofNanos(System.nanoTime() - timeStart),
+        Optional.of(e)
+      );
+    }
+  }
+
+  /**
+   * Roll back any uncommitted work after a failure, and then determine the
+   * version that the database was left at. Depending on the transaction
+   * strategy, this may be later than the starting version.
+   */
+
+  private static Optional<BigInteger> versionAfterFailure(
+    final Connection connection,
+    final TrExecutorVersionRetrieverType versionGet,
+    final Exception e)
+  {
+    try {
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+      }
+      return versionGet.determineVersion(connection);
+    } catch (final SQLException ex) {
+      e.addSuppressed(ex);
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrSchemaRevisionManifest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Functions to generate, read, and write schema revision manifests.
+ *
+ * A manifest is a small text file containing the highest version and the
+ * hash of a revision set document:
+ *
+ * <pre>
+ * version=80
+ * sha256=5e8...
+ * </pre>
+ */
+
+public final class TrSchemaRevisionManifests
+{
+  private static final String KEY_VERSION = "version";
+  private static final String KEY_HASH = "sha256";
+
+  private TrSchemaRevisionManifests()
+  {
+
+  }
+
+  /**
+   * Parse the given revision set document and produce a manifest.
+   *
+   * @param input The revision set document
+   *
+   * @return A manifest
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   */
+
+  public static TrSchemaRevisionManifest createManifest(
+    final Path input)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(input, "input");
+
+    final var set =
+      new TrSchemaRevisionSetParsers()
+        .parseFile(input);
+
+    final var revisions = set.revisions();
+    if (revisions.isEmpty()) {
+      throw new IllegalArgumentException(
+        "Revision set %s contains no revisions".formatted(input)
+      );
+    }
+
+    return new TrSchemaRevisionManifest(revisions.lastKey(), hashOf(input));
+  }
+
+  /**
+   * Determine the hash of the given revision set document.
+   *
+   * @param input The revision set document
+   *
+   * @return The lowercase hexadecimal SHA-256 hash
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static String hashOf(
+    final Path input)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+
+    try (var stream = Files.newInputStream(input)) {
+      return hashOf(stream);
+    }
+  }
+
+  /**
+   * Determine the hash of the given revision set document.
+   *
+   * @param stream The revision set document
+   *
+   * @return The lowercase hexadecimal SHA-256 hash
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static String hashOf(
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(stream, "stream");
+
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var buffer = new byte[8192];
+    while (true) {
+      final var r = stream.read(buffer);
+      if (r == -1) {
+        break;
+      }
+      digest.update(buffer, 0, r);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Determine whether the given manifest describes the given revision set
+   * document. Hashing a document is considerably cheaper than parsing it.
+   *
+   * @param manifest The manifest
+   * @param input    The revision set document
+   *
+   * @return {@code true} if the document hash matches the manifest
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static boolean isCurrent(
+    final TrSchemaRevisionManifest manifest,
+    final Path input)
+    throws IOException
+  {
+    Objects.requireNonNull(manifest, "manifest");
+    return manifest.hash().equals(hashOf(input));
+  }
+
+  /**
+   * Write a manifest.
+   *
+   * @param manifest The manifest
+   * @param output   The output file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeManifest(
+    final TrSchemaRevisionManifest manifest,
+    final Path output)
+    throws IOException
+  {
+    Objects.requireNonNull(manifest, "manifest");
+    Objects.requireNonNull(output, "output");
+
+    final var outputParent = output.getParent();
+    if (outputParent != null) {
+      Files.createDirectories(outputParent);
+    }
+
+    try (var writer =
+           Files.newBufferedWriter(
+             output,
+             UTF_8,
+             WRITE,
+             TRUNCATE_EXISTING,
+             CREATE)) {
+      writer.append(KEY_VERSION);
+      writer.append('=');
+      writer.append(manifest.versionHighest().toString());
+      writer.newLine();
+      writer.append(KEY_HASH);
+      writer.append('=');
+      writer.append(manifest.hash());
+      writer.newLine();
+    }
+  }
+
+  /**
+   * Read a manifest.
+   *
+   * @param input The input file
+   *
+   * @return The manifest
+   *
+   * @throws IOException On I/O errors, or if the manifest is malformed
+   */
+
+  public static TrSchemaRevisionManifest readManifest(
+    final Path input)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+
+    try (var stream = Files.newInputStream(input)) {
+      return readManifest(stream);
+    }
+  }
+
+  /**
+   * Read a manifest.
+   *
+   * @param stream The input stream
+   *
+   * @return The manifest
+   *
+   * @throws IOException On I/O errors, or if the manifest is malformed
+   */
+
+  public static TrSchemaRevisionManifest readManifest(
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(stream, "stream");
+
+    final var properties = new Properties();
+    properties.load(stream);
+
+    final var version = properties.getProperty(KEY_VERSION);
+    final var hash = properties.getProperty(KEY_HASH);
+    if (version == null || hash == null) {
+      throw new IOException(
+        "Manifest must contain '%s' and '%s' keys"
+          .formatted(KEY_VERSION, KEY_HASH)
+      );
+    }
+
+    try {
+      return new TrSchemaRevisionManifest(
+        new BigInteger(version.trim()),
+        hash.trim()
+      );
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.vanilla.internal.TrBinaryReader;
+import com.io7m.trasco.vanilla.internal.TrBinaryWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Functions to read and write revision sets in a compact binary format.
+ * Revision sets are typically compiled from XML at build time with
+ * {@link TrSchemaRevisionSetBinaryMain}, and then loaded at run time without
+ * any XML parsing or validation.
+ *
+ * All integers are big-endian, and all strings are UTF-8 prefixed with a
+ * 32-bit byte length:
+ *
+ * <pre>
+ * u32 magic ("TRSB")
+ * u32 format version (5)
+ * u32 parameter count, followed by (string name, u8 kind) per parameter
+ * u32 revision count, followed by per revision:
+ *   u32 version length, version bytes (two's complement)
+ *   u32 statement count, followed by the statements
+ * u32 CRC32C of all preceding bytes
+ * </pre>
+ *
+ * Each statement begins with a u8 tag:
+ *
+ * <pre>
+ * 0: u8 transactional, string text
+ * 1: u8 transactional, u8 interpolation,
+ *    u32 reference count, (s32 order, string name) per reference,
+ *    string text
+ * 2: u8 index operation, string index, string text
+ * 3: u32 statement count, followed by the statements (parallel group)
+ * 4: u8 transactional, u8 interpolation, s32 batch size,
+ *    u32 reference count, (s32 order, string name) per reference,
+ *    s32 order, template values, string text (template)
+ * 5: u8 transactional, string table, s32 batch size, columns,
+ *    u32 row count, (string value per column) per row (rows)
+ * 6: u8 transactional, string table, s32 batch size, u8 header,
+ *    string resource (as written), string sha256, columns (CSV rows)
+ * </pre>
+ *
+ * Template values begin with a u8 tag:
+ *
+ * <pre>
+ * 0: s64 from, s64 to (range)
+ * 1: u32 value count, string value per value (list)
+ * </pre>
+ *
+ * Columns are a u32 column count, followed by (string name, u8 kind) per
+ * column. Row values are written in their textual form, as their types are
+ * given by the columns.
+ */
+
+public final class TrSchemaRevisionSetBinary
+{
+  private TrSchemaRevisionSetBinary()
+  {
+
+  }
+
+  /**
+   * Parse the given XML revision set document and write it in binary form.
+   *
+   * @param input  The input file
+   * @param output The output file
+   *
+   * @throws IOException      On errors
+   * @throws ParsingException On errors
+   */
+
+  public static void compile(
+    final Path input,
+    final Path output)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(input, "input");
+    Objects.requireNonNull(output, "output");
+
+    write(new TrSchemaRevisionSetParsers().parseFile(input), output);
+  }
+
+  /**
+   * Write a revision set in binary form.
+   *
+   * @param set    The revision set
+   * @param output The output file
+   *
+   * @throws IOException On errors
+   */
+
+  public static void write(
+    final TrSchemaRevisionSet set,
+    final Path output)
+    throws IOException
+  {
+    Objects.requireNonNull(set, "set");
+    Objects.requireNonNull(output, "output");
+
+    final var outputParent = output.getParent();
+    if (outputParent != null) {
+      Files.createDirectories(outputParent);
+    }
+
+    try (var stream =
+           Files.newOutputStream(output, WRITE, TRUNCATE_EXISTING, CREATE)) {
+      write(set, stream);
+    }
+  }
+
+  /**
+   * Write a revision set in binary form.
+   *
+   * @param set    The revision set
+   * @param stream The output stream
+   *
+   * @throws IOException On errors
+   */
+
+  public static void write(
+    final TrSchemaRevisionSet set,
+    final OutputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(set, "set");
+    Objects.requireNonNull(stream, "stream");
+
+    stream.write(TrBinaryWriter.encode(set));
+    stream.flush();
+  }
+
+  /**
+   * Read a binary revision set from the given file. The file is memory
+   * mapped. Relative CSV resources are resolved against the file.
+   *
+   * @param file The file
+   *
+   * @return The revision set
+   *
+   * @throws IOException If the file cannot be read, or is corrupted
+   */
+
+  public static TrSchemaRevisionSet read(
+    final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+
+    try (var channel = FileChannel.open(file, READ)) {
+      return TrBinaryReader.decode(
+        channel.map(READ_ONLY, 0L, channel.size()),
+        Optional.of(file.toAbsolutePath().toUri())
+      );
+    }
+  }
+
+  /**
+   * Read a binary revision set from the given stream, such as a class path
+   * resource. Relative CSV resources cannot be resolved, because the
+   * location of the stream is unknown.
+   *
+   * @param stream The stream
+   *
+   * @return The revision set
+   *
+   * @throws IOException If the stream cannot be read, or is corrupted
+   *
+   * @see #read(URI, InputStream)
+   */
+
+  public static TrSchemaRevisionSet read(
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(stream, "stream");
+
+    return TrBinaryReader.decode(
+      ByteBuffer.wrap(stream.readAllBytes()),
+      Optional.empty()
+    );
+  }
+
+  /**
+   * Read a binary revision set from the given stream, such as a class path
+   * resource. Relative CSV resources are resolved against {@code source}.
+   *
+   * @param source The location of the stream
+   * @param stream The stream
+   *
+   * @return The revision set
+   *
+   * @throws IOException If the stream cannot be read, or is corrupted
+   */
+
+  public static TrSchemaRevisionSet read(
+    final URI source,
+    final InputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+
+    return TrBinaryReader.decode(
+      ByteBuffer.wrap(stream.readAllBytes()),
+      Optional.of(source)
+    );
+  }
+}
@@ -0,0 +1,747 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentBytes;
+import com.io7m.trasco.api.TrArgumentNumeric;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentTimestamp;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrArgumentUUID;
+import com.io7m.trasco.api.TrParameterReference;
+import com.io7m.trasco.api.TrParameterReferences;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import com.io7m.trasco.api.TrStatementTemplateValuesType;
+import com.io7m.trasco.api.TrStatementType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Functions to generate Java source code that constructs a revision set.
+ * The generated class has no dependencies other than the API module, and
+ * performs no I/O or validation beyond the checks made by the constructors
+ * of the API types.
+ *
+ * The class file format limits the code of each method to 64KiB, and the
+ * constant pool of each class to 65535 entries. The statements of each
+ * revision, the rows of each {@code Rows} statement, and the members of
+ * each parallel group are therefore added to their lists by nested classes
+ * holding a bounded amount of generated source each, and every nested class
+ * is compiled to a separate class file with its own constant pool. Long statements are split into multiple literals,
+ * because a string constant is limited to 65535 bytes. A single statement
+ * or row is never split, and so a single row (or a single statement other
+ * than a long text statement) that is too large to compile on its own
+ * still cannot be compiled.
+ *
+ * Relative CSV resources are resolved against the location of the
+ * generated class file, so the resources are expected to be packaged
+ * alongside the compiled class.
+ */
+
+public final class TrSchemaRevisionSetJava
+{
+  private static final int LITERAL_CHUNK_SIZE = 8192;
+  private static final int PART_SOURCE_SIZE = 32768;
+
+  private TrSchemaRevisionSetJava()
+  {
+
+  }
+
+  /**
+   * Parse the given XML revision set document and generate a Java class
+   * that constructs it. The class is written to the appropriate package
+   * directory within {@code outputDirectory}.
+   *
+   * @param input           The input file
+   * @param outputDirectory The output source directory
+   * @param className       The fully qualified name of the generated class
+   *
+   * @return The generated file
+   *
+   * @throws IOException      On errors
+   * @throws ParsingException On errors
+   */
+
+  public static Path generate(
+    final Path input,
+    final Path outputDirectory,
+    final String className)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(input, "input");
+    Objects.requireNonNull(outputDirectory, "outputDirectory");
+    Objects.requireNonNull(className, "className");
+
+    checkClassName(className);
+
+    final var set =
+      new TrSchemaRevisionSetParsers()
+        .parseFile(input);
+
+    final var output =
+      outputDirectory.resolve(className.replace('.', '/') + ".java");
+    final var outputParent = output.getParent();
+    if (outputParent != null) {
+      Files.createDirectories(outputParent);
+    }
+
+    try (var writer = Files.newBufferedWriter(output, UTF_8)) {
+      generate(set, className, input.getFileName().toString(), writer);
+    }
+    return output;
+  }
+
+  /**
+   * Generate a Java class that constructs the given revision set.
+   *
+   * @param set       The revision set
+   * @param className The fully qualified name of the generated class
+   * @param source    A description of the source of the revision set
+   * @param writer    The output
+   *
+   * @throws IOException On errors
+   */
+
+  public static void generate(
+    final TrSchemaRevisionSet set,
+    final String className,
+    final String source,
+    final Writer writer)
+    throws IOException
+  {
+    Objects.requireNonNull(set, "set");
+    Objects.requireNonNull(className, "className");
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(writer, "writer");
+
+    checkClassName(className);
+
+    final var dot = className.lastIndexOf('.');
+    final var simpleName = className.substring(dot + 1);
+
+    final var out = new StringBuilder(8192);
+    out.append("// Generated by ");
+    out.append(TrSchemaRevisionSetJava.class.getCanonicalName());
+    out.append(" from ");
+    out.append(source.replace('\n', ' ').replace('\r', ' '));
+    out.append(". Do not edit.\n\n");
+
+    if (dot > 0) {
+      out.append("package ");
+      out.append(className, 0, dot);
+      out.append(";\n\n");
+    }
+
+    out.append("""
+      import com.io7m.trasco.api.TrArgumentBigInt;
+      import com.io7m.trasco.api.TrArgumentBoolean;
+      import com.io7m.trasco.api.TrArgumentBytes;
+      import com.io7m.trasco.api.TrArgumentNumeric;
+      import com.io7m.trasco.api.TrArgumentString;
+      import com.io7m.trasco.api.TrArgumentTimestamp;
+      import com.io7m.trasco.api.TrArgumentType;
+      import com.io7m.trasco.api.TrArgumentUUID;
+      import com.io7m.trasco.api.TrParameter;
+      import com.io7m.trasco.api.TrParameterInterpolation;
+      import com.io7m.trasco.api.TrParameterKind;
+      import com.io7m.trasco.api.TrParameterReference;
+      import com.io7m.trasco.api.TrParameterReferences;
+      import com.io7m.trasco.api.TrSchemaRevision;
+      import com.io7m.trasco.api.TrSchemaRevisionSet;
+      import com.io7m.trasco.api.TrStatement;
+      import com.io7m.trasco.api.TrStatementIndex;
+      import com.io7m.trasco.api.TrStatementIndexOperation;
+      import com.io7m.trasco.api.TrStatementParallelGroup;
+      import com.io7m.trasco.api.TrStatementParameterized;
+      import com.io7m.trasco.api.TrStatementRows;
+      import com.io7m.trasco.api.TrStatementRowsCSV;
+      import com.io7m.trasco.api.TrStatementRowsColumn;
+      import com.io7m.trasco.api.TrStatementTemplate;
+      import com.io7m.trasco.api.TrStatementTemplateList;
+      import com.io7m.trasco.api.TrStatementTemplateRange;
+      import com.io7m.trasco.api.TrStatementType;
+
+      import java.math.BigDecimal;
+      import java.math.BigInteger;
+      import java.net.URI;
+      import java.net.URISyntaxException;
+      import java.time.Instant;
+      import java.util.ArrayList;
+      import java.util.HexFormat;
+      import java.util.List;
+      import java.util.Map;
+      import java.util.Optional;
+      import java.util.TreeMap;
+      import java.util.UUID;
+
+      """);
+
+    out.append("/**\n * The revision set compiled from ");
+    out.append(source.replace("*/", "*&#47;").replace('\n', ' '));
+    out.append(".\n */\n\n");
+    out.append("public final class %s\n{\n".formatted(simpleName));
+    out.append("""
+        private static final TrSchemaRevisionSet REVISIONS = create();
+
+        private %s()
+        {
+
+        }
+
+        /**
+         * @return The revision set
+         */
+
+        public static TrSchemaRevisionSet revisions()
+        {
+          return REVISIONS;
+        }
+
+      """.formatted(simpleName));
+
+    generateCreate(out, set);
+
+    final var parts = new Parts();
+    var index = 0;
+    for (final var revision : set.revisions().values()) {
+      generateRevision(out, parts, index, revision);
+      ++index;
+    }
+    out.append(parts.lists);
+    out.append(parts.classes);
+
+    out.append("""
+        private static String text(
+          final String... parts)
+        {
+          return String.join("", parts);
+        }
+
+        private static Optional<URI> base()
+        {
+          final var url = %1$s.class.getResource("%1$s.class");
+          if (url == null) {
+            return Optional.empty();
+          }
+          try {
+            return Optional.of(url.toURI());
+          } catch (final URISyntaxException e) {
+            return Optional.empty();
+          }
+        }
+      }
+      """.formatted(simpleName));
+
+    writer.append(out);
+    writer.flush();
+  }
+
+  private static void generateCreate(
+    final StringBuilder out,
+    final TrSchemaRevisionSet set)
+  {
+    out.append("""
+        private static TrSchemaRevisionSet create()
+        {
+          final var revisions = new TreeMap<BigInteger, TrSchemaRevision>();
+      """);
+
+    var index = 0;
+    for (final var version : set.revisions().keySet()) {
+      out.append("    revisions.put(new BigInteger(\"%s\"), revision%d());\n"
+                   .formatted(version, Integer.valueOf(index)));
+      ++index;
+    }
+
+    out.append("    return new TrSchemaRevisionSet(\n");
+    out.append("      Map.ofEntries(");
+    var first = true;
+    for (final var parameter : set.parameters().values()) {
+      out.append(first ? "\n" : ",\n");
+      first = false;
+      out.append("        Map.entry(");
+      appendLiteral(out, parameter.name());
+      out.append(", new TrParameter(");
+      appendLiteral(out, parameter.name());
+      out.append(", TrParameterKind.");
+      out.append(parameter.kind().name());
+      out.append("))");
+    }
+    out.append("),\n");
+    out.append("      revisions\n");
+    out.append("    );\n");
+    out.append("  }\n\n");
+  }
+
+  private static void generateRevision(
+    final StringBuilder out,
+    final Parts parts,
+    final int index,
+    final TrSchemaRevision revision)
+  {
+    final var statements =
+      generateList(
+        parts,
+        "TrStatementType",
+        revision.statements(),
+        (o, statement) -> appendStatement(o, parts, statement)
+      );
+
+    out.append("  private static TrSchemaRevision revision%d()\n"
+                 .formatted(Integer.valueOf(index)));
+    out.append("  {\n");
+    out.append("    return new TrSchemaRevision(\n");
+    out.append("      new BigInteger(\"%s\"),\n".formatted(revision.version()));
+    out.append("      %s()\n".formatted(statements));
+    out.append("    );\n");
+    out.append("  }\n\n");
+  }
+
+  /**
+   * The nested classes and list methods generated so far.
+   */
+
+  private static final class Parts
+  {
+    private final StringBuilder lists;
+    private final StringBuilder classes;
+    private int listCount;
+    private int classCount;
+
+    Parts()
+    {
+      this.lists =
+        new StringBuilder(8192);
+      this.classes =
+        new StringBuilder(8192);
+    }
+  }
+
+  /**
+   * Generate a method that returns a list of the given items, and the
+   * nested classes that add the items to the list. Items are added to the
+   * current nested class until it would exceed {@link #PART_SOURCE_SIZE}
+   * characters.
+   *
+   * @return The name of the generated method
+   */
+
+  private static <T> String generateList(
+    final Parts parts,
+    final String elementType,
+    final List<T> items,
+    final BiConsumer<StringBuilder, T> appendItem)
+  {
+    final var classNames = new ArrayList<String>();
+    var body = new StringBuilder(PART_SOURCE_SIZE);
+    final var item = new StringBuilder(256);
+
+    for (final var value : items) {
+      item.setLength(0);
+      appendItem.accept(item, value);
+      if (!body.isEmpty() && body.length() + item.length() > PART_SOURCE_SIZE) {
+        classNames.add(generatePart(parts, elementType, body));
+        body = new StringBuilder(PART_SOURCE_SIZE);
+      }
+      body.append("      list.add(");
+      body.append(item);
+      body.append(");\n");
+    }
+    if (!body.isEmpty()) {
+      classNames.add(generatePart(parts, elementType, body));
+    }
+
+    final var name = "list%d".formatted(Integer.valueOf(parts.listCount));
+    ++parts.listCount;
+
+    final var out = parts.lists;
+    out.append("  private static List<%s> %s()\n".formatted(elementType, name));
+    out.append("  {\n");
+    out.append("    final var list = new ArrayList<%s>(%d);\n".formatted(
+      elementType,
+      Integer.valueOf(items.size())
+    ));
+    for (final var className : classNames) {
+      out.append("    %s.add(list);\n".formatted(className));
+    }
+    out.append("    return List.copyOf(list);\n");
+    out.append("  }\n\n");
+    return name;
+  }
+
+  private static String generatePart(
+    final Parts parts,
+    final String elementType,
+    final CharSequence body)
+  {
+    final var name = "Part%d".formatted(Integer.valueOf(parts.classCount));
+    ++parts.classCount;
+
+    parts.classes.append("""
+        private static final class %1$s
+        {
+          private %1$s()
+          {
+
+          }
+
+          static void add(
+            final List<%2$s> list)
+          {
+      """.formatted(name, elementType));
+    parts.classes.append(body);
+    parts.classes.append("""
+          }
+        }
+
+      """);
+    return name;
+  }
+
+  private static void appendStatement(
+    final StringBuilder out,
+    final Parts parts,
+    final TrStatementType statement)
+  {
+    if (statement instanceof final TrStatement s) {
+      out.append("new TrStatement(");
+      appendText(out, s.text());
+      out.append(", %s)".formatted(Boolean.valueOf(s.transactional())));
+    } else if (statement instanceof final TrStatementParameterized s) {
+      out.append("new TrStatementParameterized(");
+      appendReferences(out, s.references());
+      out.append(", ");
+      appendText(out, s.text());
+      out.append(", TrParameterInterpolation.");
+      out.append(s.interpolation().name());
+      out.append(", %s)".formatted(Boolean.valueOf(s.transactional())));
+    } else if (statement instanceof final TrStatementTemplate s) {
+      out.append("new TrStatementTemplate(");
+      appendReferences(out, s.references());
+      out.append(", %d, ".formatted(Integer.valueOf(s.order())));
+      appendTemplateValues(out, s.values());
+      out.append(", ");
+      appendText(out, s.text());
+      out.append(", TrParameterInterpolation.");
+      out.append(s.interpolation().name());
+      out.append(", %d, %s)".formatted(
+        Integer.valueOf(s.batchSize()),
+        Boolean.valueOf(s.transactional())
+      ));
+    } else if (statement instanceof final TrStatementRows s) {
+      appendRows(out, parts, s);
+    } else if (statement instanceof final TrStatementRowsCSV s) {
+      appendRowsCSV(out, s);
+    } else if (statement instanceof final TrStatementIndex s) {
+      out.append("new TrStatementIndex(TrStatementIndexOperation.");
+      out.append(s.operation().name());
+      out.append(", ");
+      appendLiteral(out, s.index());
+      out.append(", ");
+      appendText(out, s.text());
+      out.append(')');
+    } else if (statement instanceof final TrStatementParallelGroup s) {
+      final var members =
+        generateList(
+          parts,
+          "TrStatementType",
+          s.statements(),
+          (o, member) -> appendStatement(o, parts, member)
+        );
+      out.append("new TrStatementParallelGroup(%s())".formatted(members));
+    }
+  }
+
+  private static void appendRows(
+    final StringBuilder out,
+    final Parts parts,
+    final TrStatementRows rows)
+  {
+    final var values =
+      generateList(
+        parts,
+        "List<TrArgumentType>",
+        rows.rows(),
+        TrSchemaRevisionSetJava::appendRow
+      );
+
+    out.append("new TrStatementRows(");
+    appendLiteral(out, rows.table());
+    out.append(", ");
+    appendColumns(out, rows.columns());
+    out.append(", %s(), %d, %s)".formatted(
+      values,
+      Integer.valueOf(rows.batchSize()),
+      Boolean.valueOf(rows.transactional())
+    ));
+  }
+
+  private static void appendRow(
+    final StringBuilder out,
+    final List<TrArgumentType> row)
+  {
+    out.append("List.<TrArgumentType>of(");
+    for (int index = 0; index < row.size(); ++index) {
+      out.append(index == 0 ? "" : ", ");
+      appendArgument(out, row.get(index));
+    }
+    out.append(')');
+  }
+
+  private static void appendRowsCSV(
+    final StringBuilder out,
+    final TrStatementRowsCSV rows)
+  {
+    out.append("new TrStatementRowsCSV(");
+    appendLiteral(out, rows.table());
+    out.append(", ");
+    appendColumns(out, rows.columns());
+    out.append(", URI.create(");
+    appendLiteral(out, rows.resource().toString());
+    out.append("), base(), ");
+    appendLiteral(out, rows.sha256());
+    out.append(", %s, %d, %s)".formatted(
+      Boolean.valueOf(rows.header()),
+      Integer.valueOf(rows.batchSize()),
+      Boolean.valueOf(rows.transactional())
+    ));
+  }
+
+  private static void appendColumns(
+    final StringBuilder out,
+    final List<TrStatementRowsColumn> columns)
+  {
+    out.append("List.of(");
+    var first = true;
+    for (final var column : columns) {
+      out.append(first ? "" : ", ");
+      first = false;
+      out.append("new TrStatementRowsColumn(");
+      appendLiteral(out, column.name());
+      out.append(", TrParameterKind.");
+      out.append(column.kind().name());
+      out.append(')');
+    }
+    out.append(')');
+  }
+
+  private static void appendArgument(
+    final StringBuilder out,
+    final TrArgumentType argument)
+  {
+    out.append("new ");
+    out.append(argument.getClass().getSimpleName());
+    out.append('(');
+    appendLiteral(out, argument.name());
+    out.append(", ");
+
+    if (argument instanceof final TrArgumentString a) {
+      appendText(out, a.value());
+    } else if (argument instanceof final TrArgumentNumeric a) {
+      appendNumber(out, a.value());
+    } else if (argument instanceof final TrArgumentBoolean a) {
+      out.append(a.value());
+    } else if (argument instanceof final TrArgumentTimestamp a) {
+      out.append("Instant.parse(");
+      appendLiteral(out, a.value().toString());
+      out.append(')');
+    } else if (argument instanceof final TrArgumentBytes a) {
+      out.append("HexFormat.of().parseHex(");
+      appendLiteral(out, HexFormat.of().formatHex(a.value()));
+      out.append(')');
+    } else if (argument instanceof final TrArgumentUUID a) {
+      out.append("UUID.fromString(");
+      appendLiteral(out, a.value().toString());
+      out.append(')');
+    } else if (argument instanceof final TrArgumentBigInt a) {
+      out.append(a.value());
+      out.append('L');
+    }
+    out.append(')');
+  }
+
+  private static void appendNumber(
+    final StringBuilder out,
+    final Number value)
+  {
+    if (value instanceof final Long x) {
+      out.append("Long.valueOf(%dL)".formatted(x));
+    } else if (value instanceof final Integer x) {
+      out.append("Integer.valueOf(%d)".formatted(x));
+    } else if (value instanceof final Double x) {
+      out.append("Double.valueOf(");
+      appendLiteral(out, x.toString());
+      out.append(')');
+    } else {
+      out.append("new BigDecimal(");
+      appendLiteral(out, value.toString());
+      out.append(')');
+    }
+  }
+
+  private static void appendReferences(
+    final StringBuilder out,
+    final TrParameterReferences references)
+  {
+    out.append("TrParameterReferences.of(");
+    var first = true;
+    for (final TrParameterReference reference : references.inOrder().values()) {
+      out.append(first ? "" : ", ");
+      first = false;
+      out.append("new TrParameterReference(%d, "
+                   .formatted(Integer.valueOf(reference.order())));
+      appendLiteral(out, reference.name());
+      out.append(')');
+    }
+    out.append(')');
+  }
+
+  private static void appendTemplateValues(
+    final StringBuilder out,
+    final TrStatementTemplateValuesType values)
+  {
+    if (values instanceof final TrStatementTemplateRange r) {
+      out.append("new TrStatementTemplateRange(%dL, %dL)".formatted(
+        Long.valueOf(r.from()),
+        Long.valueOf(r.to())
+      ));
+    } else if (values instanceof final TrStatementTemplateList l) {
+      out.append("new TrStatementTemplateList(List.of(");
+      var first = true;
+      for (final var value : l.values()) {
+        out.append(first ? "" : ", ");
+        first = false;
+        appendText(out, value);
+      }
+      out.append("))");
+    }
+  }
+
+  /**
+   * Append a string expression. Strings longer than a single chunk are
+   * joined at run time, because a compile-time constant is limited to
+   * 65535 bytes in the class file.
+   */
+
+  private static void appendText(
+    final StringBuilder out,
+    final String text)
+  {
+    if (text.length() <= LITERAL_CHUNK_SIZE) {
+      appendLiteral(out, text);
+      return;
+    }
+
+    out.append("text(");
+    var index = 0;
+    while (index < text.length()) {
+      if (index > 0) {
+        out.append(", ");
+      }
+      var end = Math.min(text.length(), index + LITERAL_CHUNK_SIZE);
+      if (end < text.length()
+          && Character.isHighSurrogate(text.charAt(end - 1))) {
+        --end;
+      }
+      appendLiteral(out, text.substring(index, end));
+      index = end;
+    }
+    out.append(')');
+  }
+
+  /**
+   * Append a string literal. Everything outside of printable ASCII is
+   * escaped, so that the generated source does not depend on the encoding
+   * used to compile it. Control characters are written as octal escapes;
+   * unicode escapes for line terminators would be translated before the
+   * literal is lexed.
+   */
+
+  private static void appendLiteral(
+    final StringBuilder out,
+    final String text)
+  {
+    out.append('"');
+    for (int index = 0; index < text.length(); ++index) {
+      final var c = text.charAt(index);
+      switch (c) {
+        case '\\' -> out.append("\\\\");
+        case '"' -> out.append("\\\"");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            out.append("\\%03o".formatted(Integer.valueOf(c)));
+          } else if (c >= 0x7f) {
+            out.append("\\u%04x".formatted(Integer.valueOf(c)));
+          } else {
+            out.append(c);
+          }
+        }
+      }
+    }
+    out.append('"');
+  }
+
+  private static void checkClassName(
+    final String className)
+  {
+    for (final var segment : className.split("\\.", -1)) {
+      if (!isIdentifier(segment)) {
+        throw new IllegalArgumentException(
+          "Not a valid class name: %s".formatted(className)
+        );
+      }
+    }
+  }
+
+  private static boolean isIdentifier(
+    final String segment)
+  {
+    if (segment.isEmpty()
+        || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+      return false;
+    }
+    return segment.chars().allMatch(Character::isJavaIdentifierPart);
+  }
+}
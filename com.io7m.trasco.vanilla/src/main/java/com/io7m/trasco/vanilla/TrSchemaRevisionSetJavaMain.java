@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+
+import java.nio.file.Paths;
+
+import static com.io7m.trasco.vanilla.TrSchemaRevisionSetJava.generate;
+
+/**
+ * Command-line program for compiling sets of revisions to Java source code.
+ * Errors in the input are reported in the conventional
+ * {@code file:line:column: message} form so that build tools can locate
+ * them.
+ */
+
+public final class TrSchemaRevisionSetJavaMain
+{
+  private TrSchemaRevisionSetJavaMain()
+  {
+
+  }
+
+  /**
+   * Main command-line entry point.
+   *
+   * @param args The arguments
+   *
+   * @throws Exception On error
+   */
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    if (args.length != 3) {
+      System.err.println("usage: input.xml output-directory class-name");
+      throw new IllegalArgumentException(
+        "usage: input.xml output-directory class-name");
+    }
+
+    final var input =
+      Paths.get(args[0]);
+    final var output =
+      Paths.get(args[1]);
+
+    try {
+      generate(input, output, args[2]);
+    } catch (final ParsingException e) {
+      for (final var status : e.statusValues()) {
+        final var lexical = status.lexical();
+        System.err.printf(
+          "%s:%d:%d: %s%n",
+          lexical.file().map(Object::toString).orElse(input.toString()),
+          Integer.valueOf(lexical.line()),
+          Integer.valueOf(lexical.column()),
+          status.message()
+        );
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.vanilla.internal.TrLazyRevision;
+import com.io7m.trasco.vanilla.internal.TrLazyRevisionIndex;
+import com.io7m.trasco.vanilla.internal.TrLazyRevisionMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A loader of revision sets that only parses revisions when they are
+ * accessed. Loading a document locates each revision within the document
+ * and parses the document's parameters; the statements of each revision are
+ * parsed and validated the first time that the revision is requested from
+ * the revision set's {@link com.io7m.trasco.api.TrSchemaRevisionMapLazyType}.
+ * An executor upgrading a database that is already at version {@code n}
+ * therefore never parses the revisions up to and including {@code n}.
+ *
+ * Documents must be encoded as UTF-8. Errors in revisions that have not
+ * been parsed are only reported when those revisions are accessed, and are
+ * reported as {@link IllegalStateException}. Revisions that have been
+ * parsed are retained by the revision set, but a document loaded from a
+ * file is not: Only the byte offsets of the revisions within the file are
+ * retained, and the bytes of each revision are read from the file again
+ * when the revision is first requested. The file must therefore not be
+ * modified whilst the revision set is in use.
+ */
+
+public final class TrSchemaRevisionSetLazyLoader
+  implements TrSchemaRevisionSetLoaderType
+{
+  private final Path file;
+
+  /**
+   * A loader of revision sets that only parses revisions when they are
+   * accessed.
+   *
+   * @param inFile The revision set document
+   */
+
+  public TrSchemaRevisionSetLazyLoader(
+    final Path inFile)
+  {
+    this.file = Objects.requireNonNull(inFile, "file");
+  }
+
+  /**
+   * Load a revision set from the given stream. The stream is read
+   * completely, but only the parameters are parsed. The bytes of the
+   * document are retained so that revisions can be parsed later; use
+   * {@link #load()} to load a document from a file without retaining it.
+   *
+   * @param source The source of the document
+   * @param stream The stream
+   *
+   * @return A revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   */
+
+  public static TrSchemaRevisionSet load(
+    final URI source,
+    final InputStream stream)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+
+    return load(
+      TrLazyRevisionIndex.scan(
+        source,
+        TrLazyRevisionIndex.ofBytes(stream.readAllBytes())
+      )
+    );
+  }
+
+  private static TrSchemaRevisionSet load(
+    final TrLazyRevisionIndex index)
+    throws ParsingException
+  {
+    final var revisions = new TreeMap<BigInteger, TrLazyRevision>();
+    for (final var version : index.revisions().keySet()) {
+      revisions.put(version, new TrLazyRevision(index, version, true));
+    }
+
+    return new TrSchemaRevisionSet(
+      index.parseParameters(),
+      new TrLazyRevisionMap(revisions)
+    );
+  }
+
+  @Override
+  public TrSchemaRevisionSet load()
+    throws IOException, ParsingException
+  {
+    return load(
+      TrLazyRevisionIndex.scan(
+        this.file.toUri(),
+        TrLazyRevisionIndex.ofFile(this.file)
+      )
+    );
+  }
+
+  @Override
+  public String hash()
+    throws IOException
+  {
+    return TrSchemaRevisionManifests.hashOf(this.file);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A function that loads a schema revision set on demand.
+ */
+
+public interface TrSchemaRevisionSetLoaderType
+{
+  /**
+   * Load the schema revision set.
+   *
+   * @return The revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   */
+
+  TrSchemaRevisionSet load()
+    throws IOException, ParsingException;
+
+  /**
+   * Determine the hash of the revision set document, without loading the
+   * revision set.
+   *
+   * @return The lowercase hexadecimal SHA-256 hash of the document
+   *
+   * @throws IOException On I/O errors
+   *
+   * @see TrSchemaRevisionManifests#hashOf(Path)
+   */
+
+  String hash()
+    throws IOException;
+
+  /**
+   * A loader that parses the given revision set document.
+   *
+   * @param file The revision set document
+   *
+   * @return A loader
+   */
+
+  static TrSchemaRevisionSetLoaderType ofFile(
+    final Path file)
+  {
+    Objects.requireNonNull(file, "file");
+
+    return new TrSchemaRevisionSetLoaderType()
+    {
+      @Override
+      public TrSchemaRevisionSet load()
+        throws IOException, ParsingException
+      {
+        return new TrSchemaRevisionSetParsers().parseFile(file);
+      }
+
+      @Override
+      public String hash()
+        throws IOException
+      {
+        return TrSchemaRevisionManifests.hashOf(file);
+      }
+    };
+  }
+}
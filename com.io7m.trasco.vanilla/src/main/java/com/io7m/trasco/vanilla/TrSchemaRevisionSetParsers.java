@@ -17,23 +17,53 @@
 package com.io7m.trasco.vanilla;
 
 import com.io7m.anethum.api.ParseStatus;
+import com.io7m.anethum.api.ParseStatusType;
+import com.io7m.anethum.api.ParsingException;
 import com.io7m.jxe.core.JXEHardenedSAXParsers;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrSchemaRevisionManifest;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
 import com.io7m.trasco.api.TrSchemaRevisionSetParserFactoryType;
 import com.io7m.trasco.api.TrSchemaRevisionSetParserType;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.vanilla.internal.TrSchemaRevisionSetMerger;
 import com.io7m.trasco.vanilla.internal.TrSchemaSetRevisionParser;
+import com.io7m.trasco.vanilla.internal.TrSchemaSetRevisionParserValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
+import static com.io7m.trasco.vanilla.internal.TrSchemaSetRevisionParserValidation.TRUSTED;
+import static com.io7m.trasco.vanilla.internal.TrSchemaSetRevisionParserValidation.VALIDATING;
+
 /**
- * A factory of schema revision set parsers.
+ * A factory of schema revision set parsers. Unless a parser context is
+ * explicitly provided, parsers validate documents against schemas that are
+ * compiled once and shared by all parsers in the process.
  */
 
 public final class TrSchemaRevisionSetParsers
   implements TrSchemaRevisionSetParserFactoryType
 {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrSchemaRevisionSetParsers.class);
+
   /**
    * A factory of schema revision set parsers.
    */
@@ -55,10 +85,316 @@ public final class TrSchemaRevisionSetParsers
     Objects.requireNonNull(statusConsumer, "statusConsumer");
 
     return new TrSchemaSetRevisionParser(
-      Objects.requireNonNullElse(context, new JXEHardenedSAXParsers()),
+      Optional.ofNullable(context),
       source,
       stream,
-      statusConsumer
+      statusConsumer,
+      VALIDATING
     );
   }
+
+  /**
+   * Parse a revision set document that was validated when its manifest was
+   * created (see {@link TrSchemaRevisionManifests#createManifest(Path)}).
+   *
+   * @param file     The document
+   * @param manifest The manifest
+   *
+   * @return The revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   *
+   * @see #parseTrusted(URI, InputStream, TrSchemaRevisionManifest)
+   */
+
+  public TrSchemaRevisionSet parseFileTrusted(
+    final Path file,
+    final TrSchemaRevisionManifest manifest)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(manifest, "manifest");
+
+    try (var stream = Files.newInputStream(file)) {
+      return this.parseTrusted(file.toUri(), stream, manifest);
+    }
+  }
+
+  /**
+   * Parse a revision set document that was validated when its manifest was
+   * created. If the SHA-256 hash of the document matches the hash in the
+   * manifest, the document is not validated against the schema, and is
+   * only subject to the structural checks made whilst the revision set is
+   * constructed. If the hashes differ, the document has been modified since
+   * it was validated, and it is validated in full.
+   *
+   * @param source   The source of the document
+   * @param stream   The document
+   * @param manifest The manifest
+   *
+   * @return The revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   */
+
+  public TrSchemaRevisionSet parseTrusted(
+    final URI source,
+    final InputStream stream,
+    final TrSchemaRevisionManifest manifest)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+    Objects.requireNonNull(manifest, "manifest");
+
+    final var data = stream.readAllBytes();
+    final var hash =
+      TrSchemaRevisionManifests.hashOf(new ByteArrayInputStream(data));
+
+    final TrSchemaSetRevisionParserValidation validation;
+    if (hash.equals(manifest.hash())) {
+      validation = TRUSTED;
+    } else {
+      LOG.warn(
+        "revision set {} does not match its manifest; validating",
+        source
+      );
+      validation = VALIDATING;
+    }
+
+    try (var parser = new TrSchemaSetRevisionParser(
+      Optional.empty(),
+      source,
+      new ByteArrayInputStream(data),
+      status -> {
+
+      },
+      validation)) {
+      return parser.execute();
+    }
+  }
+
+  /**
+   * Parse a revision set document, delivering each statement to the given
+   * consumer as soon as it has been parsed.
+   *
+   * @param file     The document
+   * @param consumer The consumer
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   * @throws TrException      If the consumer raises an exception
+   *
+   * @see #parseStreaming(URI, InputStream, TrSchemaRevisionStreamConsumerType)
+   */
+
+  public void parseFileStreaming(
+    final Path file,
+    final TrSchemaRevisionStreamConsumerType consumer)
+    throws IOException, ParsingException, TrException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(consumer, "consumer");
+
+    try (var stream = Files.newInputStream(file)) {
+      this.parseStreaming(file.toUri(), stream, consumer);
+    }
+  }
+
+  /**
+   * Parse a revision set document, delivering each statement to the given
+   * consumer as soon as it has been parsed. Statements are not retained
+   * once they have been delivered, and so the memory required to parse a
+   * document depends on the size of its largest statement rather than the
+   * size of the document. The document is validated as it is parsed, and
+   * so a consumer may receive the statements of earlier revisions before a
+   * parse error is encountered in a later revision.
+   *
+   * Unlike {@link #parse(URI, InputStream)}, revisions must be declared in
+   * ascending order of version.
+   *
+   * @param source   The source of the document
+   * @param stream   The document
+   * @param consumer The consumer
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   * @throws TrException      If the consumer raises an exception
+   */
+
+  public void parseStreaming(
+    final URI source,
+    final InputStream stream,
+    final TrSchemaRevisionStreamConsumerType consumer)
+    throws IOException, ParsingException, TrException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(stream, "stream");
+    Objects.requireNonNull(consumer, "consumer");
+
+    try (var parser = new TrSchemaSetRevisionParser(
+      Optional.empty(),
+      source,
+      stream,
+      status -> {
+
+      },
+      VALIDATING)) {
+      parser.stream(consumer);
+    }
+  }
+
+  /**
+   * Parse every {@code .xml} file in the given directory, in parallel, and
+   * merge the results into a single revision set.
+   *
+   * @param directory The directory
+   *
+   * @return The merged revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   *
+   * @see #parseFiles(List, Executor)
+   */
+
+  public TrSchemaRevisionSet parseDirectory(
+    final Path directory)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    final List<Path> files;
+    try (var entries = Files.list(directory)) {
+      files = entries
+        .filter(p -> p.getFileName().toString().endsWith(".xml"))
+        .filter(Files::isRegularFile)
+        .sorted()
+        .toList();
+    }
+    return this.parseFiles(files);
+  }
+
+  /**
+   * Parse the given files in parallel, using at most one thread per
+   * available processor, and merge the results into a single revision set.
+   *
+   * @param files The files
+   *
+   * @return The merged revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   *
+   * @see #parseFiles(List, Executor)
+   */
+
+  public TrSchemaRevisionSet parseFiles(
+    final List<Path> files)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(files, "files");
+
+    final var threads =
+      Math.max(
+        1,
+        Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+    final var executor =
+      Executors.newFixedThreadPool(threads);
+
+    try {
+      return this.parseFiles(files, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Parse the given files in parallel on the given executor, and merge the
+   * results into a single revision set. Each file is a complete revision
+   * set document that declares the parameters that its own revisions
+   * reference; a parameter may be declared in more than one file, provided
+   * that the declarations are identical. Each revision must be declared in
+   * exactly one file. The merged revisions must be contiguous.
+   *
+   * All files are parsed even if some of them fail, and the errors from
+   * every file are reported together, each attributed to its own file.
+   *
+   * @param files    The files
+   * @param executor The executor used to parse files
+   *
+   * @return The merged revision set
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException On parse errors
+   */
+
+  public TrSchemaRevisionSet parseFiles(
+    final List<Path> files,
+    final Executor executor)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(files, "files");
+    Objects.requireNonNull(executor, "executor");
+
+    final var futures =
+      new ArrayList<CompletableFuture<TrSchemaRevisionSet>>(files.size());
+    for (final var file : files) {
+      futures.add(CompletableFuture.supplyAsync(
+        () -> this.parseFileInTask(file), executor));
+    }
+
+    final var sets = new ArrayList<TrSchemaRevisionSet>(files.size());
+    final var statuses = new ArrayList<ParseStatusType>();
+    IOException ioException = null;
+
+    for (final var future : futures) {
+      try {
+        sets.add(future.join());
+      } catch (final CompletionException e) {
+        final var cause = e.getCause();
+        if (cause instanceof final ParsingException p) {
+          statuses.addAll(p.statusValues());
+        } else if (cause instanceof final UncheckedIOException u) {
+          if (ioException == null) {
+            ioException = u.getCause();
+          }
+        } else {
+          throw e;
+        }
+      }
+    }
+
+    if (ioException != null) {
+      throw ioException;
+    }
+    if (!statuses.isEmpty()) {
+      throw new ParsingException(
+        "%d of %d revision set files could not be parsed."
+          .formatted(
+            Integer.valueOf(files.size() - sets.size()),
+            Integer.valueOf(files.size())),
+        List.copyOf(statuses)
+      );
+    }
+
+    return TrSchemaRevisionSetMerger.merge(
+      files.stream().map(Path::toUri).toList(),
+      sets
+    );
+  }
+
+  private TrSchemaRevisionSet parseFileInTask(
+    final Path file)
+  {
+    try {
+      return this.parseFile(file);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (final ParsingException e) {
+      throw new CompletionException(e);
+    }
+  }
 }
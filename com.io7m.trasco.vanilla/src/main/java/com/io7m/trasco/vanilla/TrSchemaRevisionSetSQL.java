@@ -18,7 +18,15 @@
 package com.io7m.trasco.vanilla;
 
 import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.vanilla.internal.TrStatementPlan;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -26,6 +34,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 
+import static com.io7m.trasco.api.TrParameterInterpolation.STRING_FORMATTING;
 import static com.io7m.trasco.vanilla.TrStatementExclusion.FUNCTIONS;
 import static com.io7m.trasco.vanilla.TrStatementExclusion.GRANTS;
 import static com.io7m.trasco.vanilla.TrStatementExclusion.ROLES;
@@ -38,6 +47,13 @@ import static java.util.Locale.ROOT;
 
 /**
  * Utilities for dumping raw SQL statements from sets of revisions.
+ *
+ * Statement templates that use {@code STRING_FORMATTING} and reference no
+ * parameters are written as one statement per expansion. Other templates
+ * bind values that are only known when the statement is executed, and seed
+ * data ({@code Rows} and {@code RowsCSV}) is data rather than schema, and so
+ * these are written as SQL comments that describe what was left out rather
+ * than as statements that would not do the same thing.
  */
 
 public final class TrSchemaRevisionSetSQL
@@ -88,17 +104,99 @@ public final class TrSchemaRevisionSetSQL
       for (final var entry : set.revisions().entrySet()) {
         final var revision = entry.getValue();
         for (final var statement : revision.statements()) {
-          if (exclude(statement.text().strip().toUpperCase(ROOT), exclusions)) {
+          if (statement instanceof final TrStatementParallelGroup group) {
+            for (final var member : group.statements()) {
+              writeStatement(writer, member, exclusions);
+            }
             continue;
           }
-          writer.append(statement.text());
-          writer.append(';');
-          writer.newLine();
+          writeStatement(writer, statement, exclusions);
         }
       }
     }
   }
 
+  private static void writeStatement(
+    final BufferedWriter writer,
+    final TrStatementType statement,
+    final EnumSet<TrStatementExclusion> exclusions)
+    throws IOException
+  {
+    if (statement instanceof final TrStatementTemplate template) {
+      writeTemplate(writer, template, exclusions);
+      return;
+    }
+    if (statement instanceof final TrStatementRows rows) {
+      writeComment(
+        writer,
+        "Rows: %d rows inserted into %s are not shown."
+          .formatted(Integer.valueOf(rows.rows().size()), rows.table())
+      );
+      return;
+    }
+    if (statement instanceof final TrStatementRowsCSV rows) {
+      writeComment(
+        writer,
+        "RowsCSV: Rows inserted into %s from %s are not shown."
+          .formatted(rows.table(), rows.resource())
+      );
+      return;
+    }
+    writeText(writer, statement.text(), exclusions);
+  }
+
+  private static void writeTemplate(
+    final BufferedWriter writer,
+    final TrStatementTemplate template,
+    final EnumSet<TrStatementExclusion> exclusions)
+    throws IOException
+  {
+    if (template.interpolation() != STRING_FORMATTING
+        || !template.references().inOrder().isEmpty()) {
+      writeComment(
+        writer,
+        "StatementTemplate: %d expansions that bind values at execution time are not shown:"
+          .formatted(Integer.valueOf(template.values().size()))
+      );
+      for (final var line : template.text().strip().split("\\R")) {
+        writeComment(writer, "  " + line);
+      }
+      return;
+    }
+
+    final var plan =
+      TrStatementPlan.compile(template)
+        .bindTemplate(TrArguments.empty(), template.values());
+
+    for (int index = 0; index < plan.size(); ++index) {
+      writeText(writer, plan.format(index), exclusions);
+    }
+  }
+
+  private static void writeText(
+    final BufferedWriter writer,
+    final String text,
+    final EnumSet<TrStatementExclusion> exclusions)
+    throws IOException
+  {
+    if (exclude(text.strip().toUpperCase(ROOT), exclusions)) {
+      return;
+    }
+    writer.append(text);
+    writer.append(';');
+    writer.newLine();
+  }
+
+  private static void writeComment(
+    final BufferedWriter writer,
+    final String text)
+    throws IOException
+  {
+    writer.append("-- ");
+    writer.append(text);
+    writer.newLine();
+  }
+
   private static boolean isCreateRoleExcluded(
     final EnumSet<TrStatementExclusion> exclusions,
     final String statement)
@@ -0,0 +1,301 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla;
+
+import com.io7m.trasco.api.TrExecutorConnectionSupplierType;
+import com.io7m.trasco.api.TrExecutorLockType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * An upgrade lock held as a single row in a database table. The table is
+ * created if it does not already exist, and has the following shape:
+ *
+ * <pre>
+ * create table trasco_lock (
+ *   lock_id       integer      not null primary key,
+ *   lock_owner    varchar(64)  not null,
+ *   lock_acquired timestamp    not null
+ * )
+ * </pre>
+ *
+ * A lock that has not been renewed for longer than the configured expiry
+ * time is assumed to belong to a process that has died, and is removed. The
+ * executor renews the lock each time that it commits a transaction, so the
+ * expiry time must exceed the longest time between commits (with a single
+ * transaction, the time taken by the entire upgrade). All timestamps are
+ * taken from the database's {@code CURRENT_TIMESTAMP}, so the clocks of the
+ * processes competing for the lock do not need to agree.
+ *
+ * The lock uses only portable SQL, and the lock table may be kept in the
+ * database being upgraded, even on databases such as SQLite that allow only
+ * a single writer: The lock is never renewed whilst the upgrade transaction
+ * is open, and a process that finds the lock held returns without writing
+ * anything.
+ */
+
+public final class TrUpgradeLockTable implements TrExecutorLockType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrUpgradeLockTable.class);
+
+  private static final Pattern VALID_TABLE_NAME =
+    Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  private final TrExecutorConnectionSupplierType connections;
+  private final String table;
+  private final Duration expiry;
+  private final String owner;
+  private volatile boolean tableCreated;
+
+  /**
+   * An upgrade lock held as a single row in a database table.
+   *
+   * @param inConnections A supplier of connections used to manipulate the
+   *                      lock
+   * @param inTable       The name of the lock table
+   * @param inExpiry      The time after which a lock that has not been
+   *                      renewed is considered to be abandoned
+   */
+
+  public TrUpgradeLockTable(
+    final TrExecutorConnectionSupplierType inConnections,
+    final String inTable,
+    final Duration inExpiry)
+  {
+    this.connections =
+      Objects.requireNonNull(inConnections, "connections");
+    this.table =
+      Objects.requireNonNull(inTable, "table");
+    this.expiry =
+      Objects.requireNonNull(inExpiry, "expiry");
+    this.owner =
+      UUID.randomUUID().toString();
+
+    if (!VALID_TABLE_NAME.matcher(inTable).matches()) {
+      throw new IllegalArgumentException(
+        "Table name '%s' must match %s".formatted(inTable, VALID_TABLE_NAME)
+      );
+    }
+    if (inExpiry.isNegative() || inExpiry.isZero()) {
+      throw new IllegalArgumentException(
+        "Expiry %s must be positive".formatted(inExpiry)
+      );
+    }
+  }
+
+  /**
+   * An upgrade lock held as a single row in the table {@code trasco_lock},
+   * expiring after the given time.
+   *
+   * @param inConnections A supplier of connections used to manipulate the
+   *                      lock
+   * @param inExpiry      The time after which a lock that has not been
+   *                      renewed is considered to be abandoned
+   */
+
+  public TrUpgradeLockTable(
+    final TrExecutorConnectionSupplierType inConnections,
+    final Duration inExpiry)
+  {
+    this(inConnections, "trasco_lock", inExpiry);
+  }
+
+  /**
+   * @return The unique owner name used by this lock
+   */
+
+  public String owner()
+  {
+    return this.owner;
+  }
+
+  @Override
+  public boolean tryAcquire()
+    throws SQLException
+  {
+    try (var connection = this.connections.openConnection()) {
+      connection.setAutoCommit(true);
+      this.createTable(connection);
+
+      if (this.isHeld(connection)) {
+        return false;
+      }
+
+      try {
+        if (this.insert(connection)) {
+          LOG.debug("acquired lock {} as {}", this.table, this.owner);
+          return true;
+        }
+      } catch (final SQLException e) {
+
+        /*
+         * Another process may have inserted the lock row concurrently, in
+         * which case the insertion fails with a constraint violation on
+         * databases that do not serialize writes.
+         */
+
+        if (this.isHeldByAnother(connection)) {
+          return false;
+        }
+        throw e;
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public void release()
+    throws SQLException
+  {
+    try (var connection = this.connections.openConnection()) {
+      connection.setAutoCommit(true);
+      try (var st = connection.prepareStatement(
+        "delete from %s where lock_id = 1 and lock_owner = ?"
+          .formatted(this.table))) {
+        st.setString(1, this.owner);
+        st.executeUpdate();
+      }
+    }
+  }
+
+  @Override
+  public void renew()
+    throws SQLException
+  {
+    try (var connection = this.connections.openConnection()) {
+      connection.setAutoCommit(true);
+      try (var st = connection.prepareStatement(
+        "update %s set lock_acquired = CURRENT_TIMESTAMP where lock_id = 1 and lock_owner = ?"
+          .formatted(this.table))) {
+        st.setString(1, this.owner);
+        if (st.executeUpdate() != 1) {
+          throw new SQLException(
+            "Lock %s is no longer held by %s.".formatted(this.table, this.owner)
+          );
+        }
+      }
+    }
+  }
+
+  /**
+   * Create the lock table, if this lock has not already done so.
+   */
+
+  private void createTable(
+    final Connection connection)
+    throws SQLException
+  {
+    if (this.tableCreated) {
+      return;
+    }
+
+    try (var st = connection.createStatement()) {
+      st.execute("""
+        create table if not exists %s (
+          lock_id       integer      not null primary key,
+          lock_owner    varchar(64)  not null,
+          lock_acquired timestamp    not null
+        )
+        """.formatted(this.table));
+    }
+    this.tableCreated = true;
+  }
+
+  /**
+   * Determine if the lock is held, removing the lock if it has expired. The
+   * lock row is read before anything is written, so that a process that
+   * finds the lock held never writes: On databases that allow only a single
+   * writer, a write would block for as long as the upgrade transaction of
+   * the process holding the lock is open. The age of the lock is computed
+   * from two timestamps read from the database in a single query, and the
+   * lock is only removed if it has not been renewed since it was read.
+   */
+
+  private boolean isHeld(
+    final Connection connection)
+    throws SQLException
+  {
+    final Object acquired;
+    try (var st = connection.prepareStatement(
+      "select lock_acquired, CURRENT_TIMESTAMP from %s where lock_id = 1"
+        .formatted(this.table))) {
+      try (var rs = st.executeQuery()) {
+        if (!rs.next()) {
+          return false;
+        }
+        final var age =
+          Duration.between(
+            rs.getTimestamp(1).toInstant(),
+            rs.getTimestamp(2).toInstant()
+          );
+        if (age.compareTo(this.expiry) <= 0) {
+          return true;
+        }
+        acquired = rs.getObject(1);
+      }
+    }
+
+    try (var st = connection.prepareStatement(
+      "delete from %s where lock_id = 1 and lock_acquired = ?"
+        .formatted(this.table))) {
+      st.setObject(1, acquired);
+      if (st.executeUpdate() > 0) {
+        LOG.warn("removed expired lock {}", this.table);
+        return false;
+      }
+      return true;
+    } catch (final SQLException e) {
+      LOG.debug("unable to remove expired lock {}: ", this.table, e);
+      return true;
+    }
+  }
+
+  private boolean insert(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.prepareStatement("""
+      insert into %s (lock_id, lock_owner, lock_acquired)
+        select 1, ?, CURRENT_TIMESTAMP where not exists (
+          select 1 from %s where lock_id = 1
+        )
+      """.formatted(this.table, this.table))) {
+      st.setString(1, this.owner);
+      return st.executeUpdate() == 1;
+    }
+  }
+
+  private boolean isHeldByAnother(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.prepareStatement(
+      "select lock_owner from %s where lock_id = 1"
+        .formatted(this.table))) {
+      try (var rs = st.executeQuery()) {
+        return rs.next() && !this.owner.equals(rs.getString(1));
+      }
+    }
+  }
+}
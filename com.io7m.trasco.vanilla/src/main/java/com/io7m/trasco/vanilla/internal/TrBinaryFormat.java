@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrParameterInterpolation;
+import com.io7m.trasco.api.TrParameterKind;
+import com.io7m.trasco.api.TrStatementIndexOperation;
+
+import java.io.IOException;
+
+/**
+ * Constants and enumeration codes for the binary revision set format. The
+ * codes are fixed independently of the declaration order of the enumerated
+ * types, so that reordering a type does not change the format.
+ */
+
+public final class TrBinaryFormat
+{
+  /**
+   * The magic number that begins every file ("TRSB").
+   */
+
+  public static final int MAGIC = 0x54525342;
+
+  /**
+   * The version of the format. Readers accept only this version.
+   *
+   * <ul>
+   *   <li>1: The initial format.</li>
+   *   <li>2: Added template statements (tag 4).</li>
+   *   <li>3: Added rows statements (tag 5).</li>
+   *   <li>4: Added CSV rows statements (tag 6), whose resources are recorded
+   *   as written rather than resolved.</li>
+   *   <li>5: Added the batch size of template statements.</li>
+   * </ul>
+   */
+
+  public static final int VERSION = 5;
+
+  /**
+   * The size of the header (magic number and version).
+   */
+
+  public static final int HEADER_SIZE = 8;
+
+  /**
+   * The size of the trailing checksum.
+   */
+
+  public static final int CHECKSUM_SIZE = 4;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatement}.
+   */
+
+  public static final int TAG_STATEMENT = 0;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementParameterized}.
+   */
+
+  public static final int TAG_STATEMENT_PARAMETERIZED = 1;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementIndex}.
+   */
+
+  public static final int TAG_STATEMENT_INDEX = 2;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementParallelGroup}.
+   */
+
+  public static final int TAG_STATEMENT_PARALLEL_GROUP = 3;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementTemplate}.
+   */
+
+  public static final int TAG_STATEMENT_TEMPLATE = 4;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementRows}.
+   */
+
+  public static final int TAG_STATEMENT_ROWS = 5;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementRowsCSV}.
+   */
+
+  public static final int TAG_STATEMENT_ROWS_CSV = 6;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementTemplateRange}.
+   */
+
+  public static final int TAG_TEMPLATE_RANGE = 0;
+
+  /**
+   * The tag for {@link com.io7m.trasco.api.TrStatementTemplateList}.
+   */
+
+  public static final int TAG_TEMPLATE_LIST = 1;
+
+  private TrBinaryFormat()
+  {
+
+  }
+
+  /**
+   * @param kind The parameter kind
+   *
+   * @return The code for the parameter kind
+   */
+
+  public static int codeOf(
+    final TrParameterKind kind)
+  {
+    return switch (kind) {
+      case STRING -> 0;
+      case NUMERIC -> 1;
+      case BOOLEAN -> 2;
+      case TIMESTAMP -> 3;
+      case BYTES -> 4;
+      case UUID -> 5;
+      case BIGINT -> 6;
+    };
+  }
+
+  /**
+   * @param code The code
+   *
+   * @return The parameter kind for the code
+   *
+   * @throws IOException If the code is not recognized
+   */
+
+  public static TrParameterKind parameterKindOf(
+    final int code)
+    throws IOException
+  {
+    return switch (code) {
+      case 0 -> TrParameterKind.STRING;
+      case 1 -> TrParameterKind.NUMERIC;
+      case 2 -> TrParameterKind.BOOLEAN;
+      case 3 -> TrParameterKind.TIMESTAMP;
+      case 4 -> TrParameterKind.BYTES;
+      case 5 -> TrParameterKind.UUID;
+      case 6 -> TrParameterKind.BIGINT;
+      default -> throw unrecognized("parameter kind", code);
+    };
+  }
+
+  /**
+   * @param interpolation The interpolation mode
+   *
+   * @return The code for the interpolation mode
+   */
+
+  public static int codeOf(
+    final TrParameterInterpolation interpolation)
+  {
+    return switch (interpolation) {
+      case PREPARED_STATEMENT -> 0;
+      case STRING_FORMATTING -> 1;
+    };
+  }
+
+  /**
+   * @param code The code
+   *
+   * @return The interpolation mode for the code
+   *
+   * @throws IOException If the code is not recognized
+   */
+
+  public static TrParameterInterpolation interpolationOf(
+    final int code)
+    throws IOException
+  {
+    return switch (code) {
+      case 0 -> TrParameterInterpolation.PREPARED_STATEMENT;
+      case 1 -> TrParameterInterpolation.STRING_FORMATTING;
+      default -> throw unrecognized("interpolation", code);
+    };
+  }
+
+  /**
+   * @param operation The index operation
+   *
+   * @return The code for the index operation
+   */
+
+  public static int codeOf(
+    final TrStatementIndexOperation operation)
+  {
+    return switch (operation) {
+      case CREATE_INDEX -> 0;
+      case DROP_INDEX -> 1;
+    };
+  }
+
+  /**
+   * @param code The code
+   *
+   * @return The index operation for the code
+   *
+   * @throws IOException If the code is not recognized
+   */
+
+  public static TrStatementIndexOperation indexOperationOf(
+    final int code)
+    throws IOException
+  {
+    return switch (code) {
+      case 0 -> TrStatementIndexOperation.CREATE_INDEX;
+      case 1 -> TrStatementIndexOperation.DROP_INDEX;
+      default -> throw unrecognized("index operation", code);
+    };
+  }
+
+  /**
+   * @param what The kind of value
+   * @param code The unrecognized code
+   *
+   * @return An exception indicating an unrecognized code
+   */
+
+  public static IOException unrecognized(
+    final String what,
+    final int code)
+  {
+    return new IOException(
+      "Unrecognized %s code %d".formatted(what, Integer.valueOf(code))
+    );
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrParameterReference;
+import com.io7m.trasco.api.TrParameterReferences;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import com.io7m.trasco.api.TrStatementTemplateValuesType;
+import com.io7m.trasco.api.TrStatementType;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.CHECKSUM_SIZE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.HEADER_SIZE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.MAGIC;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_INDEX;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_PARALLEL_GROUP;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_PARAMETERIZED;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_ROWS;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_ROWS_CSV;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_TEMPLATE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_TEMPLATE_LIST;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_TEMPLATE_RANGE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.VERSION;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A reader of the binary revision set format.
+ */
+
+public final class TrBinaryReader
+{
+  private final ByteBuffer buffer;
+  private final Optional<URI> source;
+
+  private TrBinaryReader(
+    final ByteBuffer inBuffer,
+    final Optional<URI> inSource)
+  {
+    this.buffer = inBuffer;
+    this.source = inSource;
+  }
+
+  /**
+   * Decode a revision set. The checksum is verified before any other part
+   * of the data is decoded.
+   *
+   * @param data   The encoded revision set
+   * @param source The location of the data, against which any relative
+   *               resources are resolved, if known
+   *
+   * @return The revision set
+   *
+   * @throws IOException If the data is truncated, corrupted, or invalid
+   */
+
+  public static TrSchemaRevisionSet decode(
+    final ByteBuffer data,
+    final Optional<URI> source)
+    throws IOException
+  {
+    final var buffer =
+      data.duplicate().order(ByteOrder.BIG_ENDIAN);
+    final var size = buffer.remaining();
+    if (size < HEADER_SIZE + CHECKSUM_SIZE) {
+      throw new IOException("Revision set data is truncated.");
+    }
+
+    final var start = buffer.position();
+    final var magic = buffer.getInt(start);
+    if (magic != MAGIC) {
+      throw new IOException(
+        "Unrecognized magic number 0x%08x (expected 0x%08x)"
+          .formatted(Integer.valueOf(magic), Integer.valueOf(MAGIC))
+      );
+    }
+
+    final var version = buffer.getInt(start + 4);
+    if (version != VERSION) {
+      throw new IOException(
+        "Unsupported format version %d (expected %d)"
+          .formatted(Integer.valueOf(version), Integer.valueOf(VERSION))
+      );
+    }
+
+    final var checksumOffset = start + size - CHECKSUM_SIZE;
+    final var checksum = new CRC32C();
+    checksum.update(buffer.duplicate().limit(checksumOffset));
+    final var expected = buffer.getInt(checksumOffset);
+    if ((int) checksum.getValue() != expected) {
+      throw new IOException("Revision set checksum does not match.");
+    }
+
+    buffer.position(start + HEADER_SIZE);
+    buffer.limit(checksumOffset);
+
+    try {
+      final var set = new TrBinaryReader(buffer, source).readSet();
+      if (buffer.hasRemaining()) {
+        throw new IOException("Revision set data has trailing bytes.");
+      }
+      return set;
+    } catch (final BufferUnderflowException e) {
+      throw new IOException("Revision set data is truncated.", e);
+    } catch (final IllegalArgumentException | NullPointerException e) {
+      throw new IOException("Revision set data is invalid: " + e.getMessage(), e);
+    }
+  }
+
+  private TrSchemaRevisionSet readSet()
+    throws IOException
+  {
+    final var parameterCount = this.readCount();
+    final var parameters = new HashMap<String, TrParameter>(parameterCount);
+    for (int index = 0; index < parameterCount; ++index) {
+      final var name = this.readString();
+      final var kind =
+        TrBinaryFormat.parameterKindOf(this.buffer.get());
+      parameters.put(name, new TrParameter(name, kind));
+    }
+
+    final var revisionCount = this.readCount();
+    final var revisions = new TreeMap<BigInteger, TrSchemaRevision>();
+    for (int index = 0; index < revisionCount; ++index) {
+      final var version = this.readBigInteger();
+      final var statements = this.readStatements();
+      revisions.put(version, new TrSchemaRevision(version, statements));
+    }
+
+    return new TrSchemaRevisionSet(Map.copyOf(parameters), revisions);
+  }
+
+  private List<TrStatementType> readStatements()
+    throws IOException
+  {
+    final var count = this.readCount();
+    final var statements = new ArrayList<TrStatementType>(count);
+    for (int index = 0; index < count; ++index) {
+      statements.add(this.readStatement());
+    }
+    return statements;
+  }
+
+  private TrStatementType readStatement()
+    throws IOException
+  {
+    final int tag = this.buffer.get();
+    return switch (tag) {
+      case TAG_STATEMENT -> {
+        final var transactional = this.readBoolean();
+        yield new TrStatement(this.readString(), transactional);
+      }
+      case TAG_STATEMENT_PARAMETERIZED -> this.readStatementParameterized();
+      case TAG_STATEMENT_INDEX -> {
+        final var operation =
+          TrBinaryFormat.indexOperationOf(this.buffer.get());
+        final var index = this.readString();
+        yield new TrStatementIndex(operation, index, this.readString());
+      }
+      case TAG_STATEMENT_PARALLEL_GROUP ->
+        new TrStatementParallelGroup(this.readStatements());
+      case TAG_STATEMENT_TEMPLATE -> this.readStatementTemplate();
+      case TAG_STATEMENT_ROWS -> this.readStatementRows();
+      case TAG_STATEMENT_ROWS_CSV -> this.readStatementRowsCSV();
+      default -> throw TrBinaryFormat.unrecognized("statement", tag);
+    };
+  }
+
+  private TrStatementParameterized readStatementParameterized()
+    throws IOException
+  {
+    final var transactional = this.readBoolean();
+    final var interpolation =
+      TrBinaryFormat.interpolationOf(this.buffer.get());
+
+    final var count = this.readCount();
+    final var references = new ArrayList<TrParameterReference>(count);
+    for (int index = 0; index < count; ++index) {
+      final var order = this.buffer.getInt();
+      references.add(new TrParameterReference(order, this.readString()));
+    }
+
+    return new TrStatementParameterized(
+      TrParameterReferences.of(references),
+      this.readString(),
+      interpolation,
+      transactional
+    );
+  }
+
+  private TrStatementTemplate readStatementTemplate()
+    throws IOException
+  {
+    final var transactional = this.readBoolean();
+    final var interpolation =
+      TrBinaryFormat.interpolationOf(this.buffer.get());
+    final var batchSize = this.buffer.getInt();
+
+    final var count = this.readCount();
+    final var references = new ArrayList<TrParameterReference>(count);
+    for (int index = 0; index < count; ++index) {
+      final var order = this.buffer.getInt();
+      references.add(new TrParameterReference(order, this.readString()));
+    }
+
+    final var order = this.buffer.getInt();
+    final var values = this.readTemplateValues();
+    return new TrStatementTemplate(
+      TrParameterReferences.of(references),
+      order,
+      values,
+      this.readString(),
+      interpolation,
+      batchSize,
+      transactional
+    );
+  }
+
+  private TrStatementRows readStatementRows()
+    throws IOException
+  {
+    final var transactional = this.readBoolean();
+    final var table = this.readString();
+    final var batchSize = this.buffer.getInt();
+    final var columns = this.readColumns();
+    final var columnCount = columns.size();
+
+    final var rowCount = this.readCount();
+    final var rows = new ArrayList<List<TrArgumentType>>(rowCount);
+    for (int index = 0; index < rowCount; ++index) {
+      final var row = new ArrayList<TrArgumentType>(columnCount);
+      for (final var column : columns) {
+        row.add(TrRowValues.parse(column, this.readString()));
+      }
+      rows.add(row);
+    }
+
+    return new TrStatementRows(table, columns, rows, batchSize, transactional);
+  }
+
+  private TrStatementRowsCSV readStatementRowsCSV()
+    throws IOException
+  {
+    final var transactional = this.readBoolean();
+    final var table = this.readString();
+    final var batchSize = this.buffer.getInt();
+    final var header = this.readBoolean();
+    final var resource = URI.create(this.readString());
+    final var sha256 = this.readString();
+    return new TrStatementRowsCSV(
+      table,
+      this.readColumns(),
+      resource,
+      this.source,
+      sha256,
+      header,
+      batchSize,
+      transactional
+    );
+  }
+
+  private List<TrStatementRowsColumn> readColumns()
+    throws IOException
+  {
+    final var count = this.readCount();
+    final var columns = new ArrayList<TrStatementRowsColumn>(count);
+    for (int index = 0; index < count; ++index) {
+      final var name = this.readString();
+      columns.add(new TrStatementRowsColumn(
+        name,
+        TrBinaryFormat.parameterKindOf(this.buffer.get())
+      ));
+    }
+    return columns;
+  }
+
+  private TrStatementTemplateValuesType readTemplateValues()
+    throws IOException
+  {
+    final int tag = this.buffer.get();
+    return switch (tag) {
+      case TAG_TEMPLATE_RANGE -> {
+        final var from = this.buffer.getLong();
+        yield new TrStatementTemplateRange(from, this.buffer.getLong());
+      }
+      case TAG_TEMPLATE_LIST -> {
+        final var count = this.readCount();
+        final var values = new ArrayList<String>(count);
+        for (int index = 0; index < count; ++index) {
+          values.add(this.readString());
+        }
+        yield new TrStatementTemplateList(values);
+      }
+      default -> throw TrBinaryFormat.unrecognized("template values", tag);
+    };
+  }
+
+  private boolean readBoolean()
+    throws IOException
+  {
+    final var value = this.buffer.get();
+    return switch (value) {
+      case 0 -> false;
+      case 1 -> true;
+      default -> throw TrBinaryFormat.unrecognized("boolean", value);
+    };
+  }
+
+  /**
+   * Read a count. Every counted element occupies at least one byte, so
+   * counts larger than the remaining data are rejected before anything is
+   * allocated.
+   */
+
+  private int readCount()
+    throws IOException
+  {
+    final var count = this.buffer.getInt();
+    if (count < 0 || count > this.buffer.remaining()) {
+      throw new IOException(
+        "Count %d exceeds the remaining data."
+          .formatted(Integer.valueOf(count))
+      );
+    }
+    return count;
+  }
+
+  private BigInteger readBigInteger()
+    throws IOException
+  {
+    final var length = this.readCount();
+    final var data = new byte[length];
+    this.buffer.get(data);
+    return new BigInteger(data);
+  }
+
+  private String readString()
+    throws IOException
+  {
+    final var length = this.readCount();
+    final var start = this.buffer.position();
+    final var text =
+      UTF_8.decode(this.buffer.slice(start, length)).toString();
+    this.buffer.position(start + length);
+    return text;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrParameterReference;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import com.io7m.trasco.api.TrStatementTemplateValuesType;
+import com.io7m.trasco.api.TrStatementType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.MAGIC;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_INDEX;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_PARALLEL_GROUP;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_PARAMETERIZED;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_ROWS;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_ROWS_CSV;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_STATEMENT_TEMPLATE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_TEMPLATE_LIST;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.TAG_TEMPLATE_RANGE;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.VERSION;
+import static com.io7m.trasco.vanilla.internal.TrBinaryFormat.codeOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A writer of the binary revision set format.
+ */
+
+public final class TrBinaryWriter
+{
+  private final ByteArrayOutputStream bytes;
+  private final DataOutputStream output;
+
+  private TrBinaryWriter()
+  {
+    this.bytes = new ByteArrayOutputStream(8192);
+    this.output = new DataOutputStream(this.bytes);
+  }
+
+  /**
+   * Encode the given revision set.
+   *
+   * @param set The revision set
+   *
+   * @return The encoded revision set
+   */
+
+  public static byte[] encode(
+    final TrSchemaRevisionSet set)
+  {
+    final var writer = new TrBinaryWriter();
+    try {
+      writer.writeSet(set);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var checksum = new CRC32C();
+    final var data = writer.bytes.toByteArray();
+    checksum.update(data);
+
+    return ByteBuffer.allocate(data.length + TrBinaryFormat.CHECKSUM_SIZE)
+      .put(data)
+      .putInt((int) checksum.getValue())
+      .array();
+  }
+
+  private void writeSet(
+    final TrSchemaRevisionSet set)
+    throws IOException
+  {
+    this.output.writeInt(MAGIC);
+    this.output.writeInt(VERSION);
+
+    final var parameters = set.parameters();
+    this.output.writeInt(parameters.size());
+    for (final var parameter : parameters.values()) {
+      this.writeString(parameter.name());
+      this.output.writeByte(codeOf(parameter.kind()));
+    }
+
+    final var revisions = set.revisions();
+    this.output.writeInt(revisions.size());
+    for (final var revision : revisions.values()) {
+      this.writeBigInteger(revision.version());
+      this.output.writeInt(revision.statements().size());
+      for (final var statement : revision.statements()) {
+        this.writeStatement(statement);
+      }
+    }
+    this.output.flush();
+  }
+
+  private void writeStatement(
+    final TrStatementType statement)
+    throws IOException
+  {
+    if (statement instanceof final TrStatement s) {
+      this.output.writeByte(TAG_STATEMENT);
+      this.output.writeBoolean(s.transactional());
+      this.writeString(s.text());
+    } else if (statement instanceof final TrStatementParameterized s) {
+      this.output.writeByte(TAG_STATEMENT_PARAMETERIZED);
+      this.output.writeBoolean(s.transactional());
+      this.output.writeByte(codeOf(s.interpolation()));
+      final var references = s.references().inOrder().values();
+      this.output.writeInt(references.size());
+      for (final TrParameterReference reference : references) {
+        this.output.writeInt(reference.order());
+        this.writeString(reference.name());
+      }
+      this.writeString(s.text());
+    } else if (statement instanceof final TrStatementTemplate s) {
+      this.output.writeByte(TAG_STATEMENT_TEMPLATE);
+      this.output.writeBoolean(s.transactional());
+      this.output.writeByte(codeOf(s.interpolation()));
+      this.output.writeInt(s.batchSize());
+      final var references = s.references().inOrder().values();
+      this.output.writeInt(references.size());
+      for (final TrParameterReference reference : references) {
+        this.output.writeInt(reference.order());
+        this.writeString(reference.name());
+      }
+      this.output.writeInt(s.order());
+      this.writeTemplateValues(s.values());
+      this.writeString(s.text());
+    } else if (statement instanceof final TrStatementRows s) {
+      this.output.writeByte(TAG_STATEMENT_ROWS);
+      this.writeRows(s);
+    } else if (statement instanceof final TrStatementRowsCSV s) {
+      this.output.writeByte(TAG_STATEMENT_ROWS_CSV);
+      this.writeRowsCSV(s);
+    } else if (statement instanceof final TrStatementIndex s) {
+      this.output.writeByte(TAG_STATEMENT_INDEX);
+      this.output.writeByte(codeOf(s.operation()));
+      this.writeString(s.index());
+      this.writeString(s.text());
+    } else if (statement instanceof final TrStatementParallelGroup s) {
+      this.output.writeByte(TAG_STATEMENT_PARALLEL_GROUP);
+      this.output.writeInt(s.statements().size());
+      for (final var member : s.statements()) {
+        this.writeStatement(member);
+      }
+    }
+  }
+
+  /**
+   * Write a set of rows. Values are written in their textual form, as the
+   * types of the values are given by the columns.
+   */
+
+  private void writeRows(
+    final TrStatementRows rows)
+    throws IOException
+  {
+    this.output.writeBoolean(rows.transactional());
+    this.writeString(rows.table());
+    this.output.writeInt(rows.batchSize());
+    this.writeColumns(rows.columns());
+    this.output.writeInt(rows.rows().size());
+    for (final var row : rows.rows()) {
+      for (final var value : row) {
+        this.writeString(TrRowValues.text(value));
+      }
+    }
+  }
+
+  /**
+   * Write a reference to a CSV resource. The resource itself is not written.
+   */
+
+  private void writeRowsCSV(
+    final TrStatementRowsCSV rows)
+    throws IOException
+  {
+    this.output.writeBoolean(rows.transactional());
+    this.writeString(rows.table());
+    this.output.writeInt(rows.batchSize());
+    this.output.writeBoolean(rows.header());
+    this.writeString(rows.resource().toString());
+    this.writeString(rows.sha256());
+    this.writeColumns(rows.columns());
+  }
+
+  private void writeColumns(
+    final List<TrStatementRowsColumn> columns)
+    throws IOException
+  {
+    this.output.writeInt(columns.size());
+    for (final var column : columns) {
+      this.writeString(column.name());
+      this.output.writeByte(codeOf(column.kind()));
+    }
+  }
+
+  private void writeTemplateValues(
+    final TrStatementTemplateValuesType values)
+    throws IOException
+  {
+    if (values instanceof final TrStatementTemplateRange r) {
+      this.output.writeByte(TAG_TEMPLATE_RANGE);
+      this.output.writeLong(r.from());
+      this.output.writeLong(r.to());
+    } else if (values instanceof final TrStatementTemplateList l) {
+      this.output.writeByte(TAG_TEMPLATE_LIST);
+      this.output.writeInt(l.values().size());
+      for (final var value : l.values()) {
+        this.writeString(value);
+      }
+    }
+  }
+
+  private void writeBigInteger(
+    final BigInteger value)
+    throws IOException
+  {
+    final var data = value.toByteArray();
+    this.output.writeInt(data.length);
+    this.output.write(data);
+  }
+
+  private void writeString(
+    final String text)
+    throws IOException
+  {
+    final var data = text.getBytes(UTF_8);
+    this.output.writeInt(data.length);
+    this.output.write(data);
+  }
+}
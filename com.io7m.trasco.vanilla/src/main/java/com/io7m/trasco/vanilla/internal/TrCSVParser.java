@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A parser for UTF-8 CSV data as described by RFC 4180. Fields are
+ * separated by commas, records are terminated by LF or CRLF, and fields may
+ * be quoted with double quotes, with embedded quotes written twice. A
+ * carriage return is only part of a line terminator when it is immediately
+ * followed by LF, and is otherwise part of the field in which it appears.
+ * The terminator of the final record is optional, and a single empty line
+ * at the end of the data is ignored; any other empty line is a record with
+ * a single empty field. Every record must have exactly the expected number
+ * of fields. Bytes are consumed directly from the source buffers, and only
+ * the bytes of the current field are copied. Fields must be valid UTF-8.
+ */
+
+public final class TrCSVParser implements Closeable
+{
+  private final URI resource;
+  private final TrCSVSource source;
+  private final int columns;
+  private final CharsetDecoder decoder;
+  private CharBuffer chars;
+  private ByteBuffer buffer;
+  private byte[] field;
+  private int fieldLength;
+  private long line;
+  private long recordLine;
+  private boolean eof;
+
+  /**
+   * A parser for CSV data.
+   *
+   * @param inResource The resource, used in error messages
+   * @param inSource   The source of bytes
+   * @param inColumns  The expected number of fields in each record
+   */
+
+  public TrCSVParser(
+    final URI inResource,
+    final TrCSVSource inSource,
+    final int inColumns)
+  {
+    this.resource =
+      Objects.requireNonNull(inResource, "resource");
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+    this.columns = inColumns;
+    this.field = new byte[256];
+    this.chars = CharBuffer.allocate(256);
+    this.decoder = UTF_8.newDecoder();
+    this.line = 1L;
+  }
+
+  /**
+   * @return The line on which the most recent record started
+   */
+
+  public long line()
+  {
+    return this.recordLine;
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @param fields The array that will receive the fields of the record, or
+   *               {@code null} if the fields should be checked but not
+   *               decoded
+   *
+   * @return {@code false} if there are no more records
+   *
+   * @throws IOException On errors, or if the data is malformed
+   */
+
+  public boolean next(
+    final String[] fields)
+    throws IOException
+  {
+    int c = this.read();
+    if (c == -1) {
+      return false;
+    }
+
+    /*
+     * An empty line at the very end of the data is a stray trailing line
+     * break rather than a record.
+     */
+
+    if (c == '\r' && this.peek() == '\n') {
+      c = this.read();
+    }
+    if (c == '\n' && this.peek() == -1) {
+      return false;
+    }
+
+    this.record(c, fields);
+    return true;
+  }
+
+  private void record(
+    final int first,
+    final String[] fields)
+    throws IOException
+  {
+    this.recordLine = this.line;
+
+    int count = 0;
+    int c = first;
+    while (true) {
+      this.fieldLength = 0;
+      if (c == '"') {
+        c = this.quoted();
+      } else {
+        c = this.unquoted(c);
+      }
+
+      if (count >= this.columns) {
+        throw this.error(
+          "Record has more than %d fields".formatted(
+            Integer.valueOf(this.columns))
+        );
+      }
+      if (fields != null) {
+        fields[count] = this.decodeField();
+      }
+      ++count;
+
+      if (c == ',') {
+        c = this.read();
+        continue;
+      }
+      if (c == '\n') {
+        ++this.line;
+      }
+      if (count != this.columns) {
+        throw this.error(
+          "Record has %d fields, but %d are required".formatted(
+            Integer.valueOf(count),
+            Integer.valueOf(this.columns))
+        );
+      }
+      return;
+    }
+  }
+
+  private int unquoted(
+    final int first)
+    throws IOException
+  {
+    int c = first;
+    while (c != ',' && c != '\n' && c != -1) {
+      if (c == '\r') {
+        c = this.read();
+        if (c == '\n') {
+          return c;
+        }
+        this.append('\r');
+        continue;
+      }
+      this.append(c);
+      c = this.read();
+    }
+    return c;
+  }
+
+  private int quoted()
+    throws IOException
+  {
+    while (true) {
+      int c = this.read();
+      if (c == -1) {
+        throw this.error("Unterminated quoted field");
+      }
+      if (c == '"') {
+        c = this.read();
+        if (c == '"') {
+          this.append(c);
+          continue;
+        }
+        if (c == '\r') {
+          c = this.read();
+          if (c != '\n') {
+            throw this.error("Unexpected character after quoted field");
+          }
+        }
+        if (c != ',' && c != '\n' && c != -1) {
+          throw this.error("Unexpected character after quoted field");
+        }
+        return c;
+      }
+      if (c == '\n') {
+        ++this.line;
+      }
+      this.append(c);
+    }
+  }
+
+  private String decodeField()
+    throws IOException
+  {
+    if (this.chars.capacity() < this.fieldLength) {
+      this.chars = CharBuffer.allocate(this.field.length);
+    }
+
+    this.chars.clear();
+    this.decoder.reset();
+    final var input = ByteBuffer.wrap(this.field, 0, this.fieldLength);
+    final var result = this.decoder.decode(input, this.chars, true);
+    if (result.isError()) {
+      throw this.error("Field is not valid UTF-8");
+    }
+    this.decoder.flush(this.chars);
+    this.chars.flip();
+    return this.chars.toString();
+  }
+
+  private void append(
+    final int c)
+  {
+    if (this.fieldLength == this.field.length) {
+      this.field = Arrays.copyOf(this.field, this.field.length * 2);
+    }
+    this.field[this.fieldLength] = (byte) c;
+    ++this.fieldLength;
+  }
+
+  private int read()
+    throws IOException
+  {
+    final var c = this.peek();
+    if (c != -1) {
+      this.buffer.position(this.buffer.position() + 1);
+    }
+    return c;
+  }
+
+  private int peek()
+    throws IOException
+  {
+    while (this.buffer == null || !this.buffer.hasRemaining()) {
+      if (this.eof) {
+        return -1;
+      }
+      this.buffer = this.source.next();
+      if (this.buffer == null) {
+        this.eof = true;
+        return -1;
+      }
+    }
+    return this.buffer.get(this.buffer.position()) & 0xff;
+  }
+
+  private IOException error(
+    final String message)
+  {
+    return new IOException(
+      "%s:%d: %s".formatted(
+        this.resource,
+        Long.valueOf(this.recordLine),
+        message)
+    );
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.source.close();
+  }
+}
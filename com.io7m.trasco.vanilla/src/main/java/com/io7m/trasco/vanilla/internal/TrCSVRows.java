@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrStatementRowsCSV;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * The rows of a CSV resource, read one at a time. The resource is read
+ * twice: Once by {@link #verify(TrStatementRowsCSV)} to check the checksum
+ * and the shape of every record before anything is inserted, and once to
+ * bind the rows. The checksum is checked again at the end of the second
+ * pass, so that a resource that changes between the two passes causes the
+ * statement to fail.
+ */
+
+public final class TrCSVRows implements Closeable
+{
+  private final TrStatementRowsCSV statement;
+  private final MessageDigest digest;
+  private final TrCSVParser parser;
+  private final String[] fields;
+  private final Calendar utc;
+
+  private TrCSVRows(
+    final TrStatementRowsCSV inStatement,
+    final MessageDigest inDigest,
+    final TrCSVParser inParser)
+  {
+    this.statement =
+      Objects.requireNonNull(inStatement, "statement");
+    this.digest =
+      Objects.requireNonNull(inDigest, "digest");
+    this.parser =
+      Objects.requireNonNull(inParser, "parser");
+    this.fields =
+      new String[inStatement.columns().size()];
+    this.utc =
+      TrStatementPlan.utc();
+  }
+
+  /**
+   * Open the resource of the given statement, skipping any header.
+   *
+   * @param statement The statement
+   *
+   * @return The rows
+   *
+   * @throws IOException On errors
+   */
+
+  public static TrCSVRows open(
+    final TrStatementRowsCSV statement)
+    throws IOException
+  {
+    final var digest = sha256();
+    final var location = statement.location();
+    final var parser =
+      new TrCSVParser(
+        location,
+        TrCSVSource.open(location, digest),
+        statement.columns().size()
+      );
+
+    final var rows = new TrCSVRows(statement, digest, parser);
+    if (statement.header()) {
+      try {
+        parser.next(null);
+      } catch (final IOException e) {
+        rows.close();
+        throw e;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Check the checksum and the records of the resource of the given
+   * statement, without decoding any fields.
+   *
+   * @param statement The statement
+   *
+   * @return The number of rows in the resource, excluding any header
+   *
+   * @throws IOException On errors
+   */
+
+  public static int verify(
+    final TrStatementRowsCSV statement)
+    throws IOException
+  {
+    try (var rows = open(statement)) {
+      int count = 0;
+      while (rows.parser.next(null)) {
+        if (count == Integer.MAX_VALUE) {
+          throw new IOException(
+            "CSV resource %s contains too many rows."
+              .formatted(statement.location())
+          );
+        }
+        ++count;
+      }
+      rows.checkDigest();
+      return count;
+    }
+  }
+
+  /**
+   * Bind the next row to the given statement.
+   *
+   * @param sql The statement
+   *
+   * @throws SQLException On errors, or if there are no more rows
+   */
+
+  public void bindNext(
+    final PreparedStatement sql)
+    throws SQLException
+  {
+    try {
+      if (!this.parser.next(this.fields)) {
+        throw new IOException(
+          "CSV resource %s ended unexpectedly."
+            .formatted(this.statement.location())
+        );
+      }
+
+      final var columns = this.statement.columns();
+      for (int index = 0; index < this.fields.length; ++index) {
+        final var value =
+          TrRowValues.parse(columns.get(index), this.fields[index]);
+        TrStatementPlan.binderFor(index + 1, value, this.utc).bind(sql);
+      }
+    } catch (final IOException e) {
+      throw new SQLException(e.getMessage(), e);
+    } catch (final IllegalArgumentException e) {
+      throw new SQLException(
+        "%s:%d: %s".formatted(
+          this.statement.location(),
+          Long.valueOf(this.parser.line()),
+          e.getMessage()),
+        e
+      );
+    }
+  }
+
+  /**
+   * Check that all rows have been consumed, and that the checksum of the
+   * resource still matches.
+   *
+   * @throws SQLException If the resource has changed
+   */
+
+  public void finish()
+    throws SQLException
+  {
+    try {
+      if (this.parser.next(null)) {
+        throw new IOException(
+          "CSV resource %s contains more rows than expected."
+            .formatted(this.statement.location())
+        );
+      }
+      this.checkDigest();
+    } catch (final IOException e) {
+      throw new SQLException(e.getMessage(), e);
+    }
+  }
+
+  private void checkDigest()
+    throws IOException
+  {
+    final var received =
+      HexFormat.of().formatHex(this.digest.digest());
+    if (!received.equals(this.statement.sha256())) {
+      throw new IOException(
+        "CSV resource %s has SHA-256 checksum %s, but %s was expected."
+          .formatted(
+            this.statement.location(),
+            received,
+            this.statement.sha256())
+      );
+    }
+  }
+
+  private static MessageDigest sha256()
+  {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.parser.close();
+  }
+}
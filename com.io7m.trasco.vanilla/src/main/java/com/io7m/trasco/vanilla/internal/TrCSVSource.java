@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A source of the bytes of a CSV resource. Resources that are files are
+ * memory-mapped in windows of at most {@link #MAPPED_WINDOW} bytes, and all
+ * other resources are read through a single heap buffer of
+ * {@link #BUFFER_SIZE} bytes. In neither case is the whole resource held on
+ * the heap. Every byte that is returned is also passed to the given digest.
+ */
+
+public final class TrCSVSource implements Closeable
+{
+  /**
+   * The maximum size of a single mapped window.
+   */
+
+  public static final int MAPPED_WINDOW = 64 * 1024 * 1024;
+
+  /**
+   * The size of the buffer used for resources that are not files.
+   */
+
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  private final MessageDigest digest;
+  private final FileChannel file;
+  private final ReadableByteChannel stream;
+  private final ByteBuffer buffer;
+  private final long size;
+  private long position;
+
+  private TrCSVSource(
+    final MessageDigest inDigest,
+    final FileChannel inFile,
+    final ReadableByteChannel inStream)
+    throws IOException
+  {
+    this.digest =
+      Objects.requireNonNull(inDigest, "digest");
+    this.file = inFile;
+    this.stream = inStream;
+
+    if (this.file != null) {
+      this.size = this.file.size();
+      this.buffer = null;
+    } else {
+      this.size = -1L;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+  }
+
+  /**
+   * Open the given resource.
+   *
+   * @param resource The resource
+   * @param digest   The digest that will receive every byte read
+   *
+   * @return A source
+   *
+   * @throws IOException On errors
+   */
+
+  public static TrCSVSource open(
+    final URI resource,
+    final MessageDigest digest)
+    throws IOException
+  {
+    if (!resource.isAbsolute()) {
+      throw new IOException(
+        "CSV resource %s cannot be resolved to an absolute URI."
+          .formatted(resource)
+      );
+    }
+
+    if ("file".equals(resource.getScheme())) {
+      return new TrCSVSource(
+        digest,
+        FileChannel.open(Path.of(resource), READ),
+        null
+      );
+    }
+
+    return new TrCSVSource(
+      digest,
+      null,
+      Channels.newChannel(resource.toURL().openStream())
+    );
+  }
+
+  /**
+   * @return The next buffer of bytes, or {@code null} at the end of the
+   * resource
+   *
+   * @throws IOException On errors
+   */
+
+  public ByteBuffer next()
+    throws IOException
+  {
+    final ByteBuffer result;
+    if (this.file != null) {
+      if (this.position >= this.size) {
+        return null;
+      }
+      final var length = Math.min(MAPPED_WINDOW, this.size - this.position);
+      result = this.file.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+      this.position += length;
+    } else {
+      this.buffer.clear();
+      int read;
+      do {
+        read = this.stream.read(this.buffer);
+      } while (read == 0);
+      if (read < 0) {
+        return null;
+      }
+      this.buffer.flip();
+      result = this.buffer;
+    }
+
+    this.digest.update(result.duplicate());
+    return result;
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.file != null) {
+      this.file.close();
+    } else {
+      this.stream.close();
+    }
+  }
+}
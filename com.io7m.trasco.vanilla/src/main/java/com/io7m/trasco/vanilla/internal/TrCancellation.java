@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cancellation state of a single run of an executor. Threads waiting
+ * within a run (for an upgrade lock, or before retrying a revision) are
+ * woken as soon as the run is cancelled.
+ */
+
+public final class TrCancellation
+{
+  private final CountDownLatch cancelled;
+
+  /**
+   * The cancellation state of a single run of an executor.
+   */
+
+  public TrCancellation()
+  {
+    this.cancelled = new CountDownLatch(1);
+  }
+
+  /**
+   * Cancel the run.
+   */
+
+  void cancel()
+  {
+    this.cancelled.countDown();
+  }
+
+  /**
+   * @return {@code true} if the run has been cancelled
+   */
+
+  boolean isCancelled()
+  {
+    return this.cancelled.getCount() == 0L;
+  }
+
+  /**
+   * Wait for the given duration, returning early if the run is cancelled.
+   *
+   * @param duration The duration
+   *
+   * @return {@code true} if the run has been cancelled
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  boolean await(
+    final Duration duration)
+    throws InterruptedException
+  {
+    return this.cancelled.await(duration.toNanos(), TimeUnit.NANOSECONDS);
+  }
+}
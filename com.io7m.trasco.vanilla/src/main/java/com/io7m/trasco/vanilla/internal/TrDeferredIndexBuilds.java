@@ -0,0 +1,384 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorIndexBuildStoreType;
+import com.io7m.trasco.api.TrExecutorParallelConnections;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrStatementIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of the deferred index builds of an executor.
+ *
+ * Without parallel connections (or without an index build store), the
+ * builds are executed sequentially in the executor's transaction, and the
+ * final version is recorded in the same transaction. The plan is retained
+ * when an execution is resumed, because the revisions that are left to
+ * apply no longer include the index builds that were deferred from the
+ * revisions already applied. For the same reason, the plan is retained
+ * until all of its builds have succeeded: If a build fails, resuming the
+ * execution (or executing again on a connection that still observes the
+ * same version) executes only the builds that have not yet succeeded.
+ *
+ * With parallel connections and an index build store, the builds cannot
+ * observe the executor's uncommitted work, and so the work of every
+ * revision and the final version are committed together with the builds
+ * recorded as pending in the store. The builds are then executed over the
+ * parallel connections, each in a transaction that also removes the build
+ * from the store. Nothing is retained in memory: Any executor that later
+ * observes pending builds in the store executes them before applying any
+ * further revisions.
+ */
+
+public final class TrDeferredIndexBuilds
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrDeferredIndexBuilds.class);
+
+  private final Set<String> built;
+  private Optional<TrDeferredIndexPlan> plan;
+  private Optional<Pending> pending;
+
+  /**
+   * The state of the deferred index builds of an executor.
+   */
+
+  public TrDeferredIndexBuilds()
+  {
+    this.built = ConcurrentHashMap.newKeySet();
+    this.plan = Optional.empty();
+    this.pending = Optional.empty();
+  }
+
+  /**
+   * Calculate the deferred index plan for the given revisions, or return
+   * the retained plan.
+   *
+   * @param upgrades The revisions that will be applied, in order
+   *
+   * @return The plan
+   *
+   * @throws TrException On errors
+   */
+
+  TrDeferredIndexPlan plan(
+    final SortedMap<BigInteger, TrSchemaRevision> upgrades)
+    throws TrException
+  {
+    if (this.plan.isEmpty()) {
+      final var newPlan = TrDeferredIndexPlan.plan(upgrades);
+      LOG.debug(
+        "deferring {} index builds, discarding {} index statements",
+        Integer.valueOf(newPlan.builds().size()),
+        Integer.valueOf(newPlan.skipped().size() - newPlan.builds().size())
+      );
+      this.plan = Optional.of(newPlan);
+    }
+    return this.plan.get();
+  }
+
+  /**
+   * @return The version of the final revision, if its builds are pending
+   */
+
+  Optional<BigInteger> pending()
+  {
+    return this.pending.map(Pending::version);
+  }
+
+  /**
+   * @return The number of builds that have not yet succeeded
+   */
+
+  int remaining()
+  {
+    return this.pending.map(p -> p.builds() - this.built.size()).orElse(0);
+  }
+
+  /**
+   * Discard the plan, unless its builds are pending in the executor's
+   * transaction and the database is still at the version that they were
+   * pending at. This is the case if a build failed and the transaction was
+   * neither rolled back nor committed; the revisions that declared the
+   * builds will not be applied again, and so the builds must be executed
+   * from the retained plan.
+   *
+   * @param version The current database version
+   */
+
+  void discardStale(
+    final Optional<BigInteger> version)
+  {
+    if (this.pending.isPresent()
+        && !this.pending.get().stored()
+        && this.pending.get().observed().equals(version)) {
+      LOG.debug("deferred index builds are pending at version {}", version);
+      return;
+    }
+    this.discard();
+  }
+
+  /**
+   * Discard the plan.
+   */
+
+  void discard()
+  {
+    this.plan = Optional.empty();
+    this.pending = Optional.empty();
+    this.built.clear();
+  }
+
+  /**
+   * Execute the builds of the given plan that have not yet succeeded,
+   * sequentially, in the executor's transaction. When savepoints are
+   * enabled, each build is executed within its own savepoint so that a
+   * failed build does not invalidate the transaction.
+   *
+   * @param executor   The executor
+   * @param connection The executor's connection
+   * @param cache      The executor's statement cache
+   * @param indexes    The plan
+   * @param version    The version of the final revision
+   *
+   * @throws SQLException On errors
+   */
+
+  void execute(
+    final TrExecutor executor,
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrDeferredIndexPlan indexes,
+    final BigInteger version)
+    throws SQLException
+  {
+    final var builds = indexes.builds();
+    this.pending = Optional.of(
+      new Pending(Optional.of(version), version, builds.size(), false)
+    );
+
+    LOG.debug(
+      "executing {} of {} deferred index builds",
+      Integer.valueOf(builds.size() - this.built.size()),
+      Integer.valueOf(builds.size())
+    );
+
+    final var savepoints =
+      executor.configuration().revisionSavepoints();
+
+    for (final var build : builds) {
+      if (this.built.contains(build.index())) {
+        continue;
+      }
+      if (savepoints) {
+        executeInSavepoint(executor, connection, cache, build);
+      } else {
+        executor.executeStatementSingle(connection, cache, build);
+      }
+      this.built.add(build.index());
+    }
+  }
+
+  /**
+   * Record the builds of the given plan as pending in the given store, and
+   * commit the executor's transaction, which must already have recorded the
+   * given version. The builds are then executed over the given parallel
+   * connections.
+   *
+   * @param executor     The executor
+   * @param connection   The executor's connection
+   * @param parallel     The parallel connections
+   * @param store        The index build store
+   * @param transactions The executor's transaction controller
+   * @param indexes      The plan
+   * @param version      The version of the final revision
+   *
+   * @throws SQLException On errors
+   */
+
+  void executeParallel(
+    final TrExecutor executor,
+    final Connection connection,
+    final TrExecutorParallelConnections parallel,
+    final TrExecutorIndexBuildStoreType store,
+    final TrTransactionController transactions,
+    final TrDeferredIndexPlan indexes,
+    final BigInteger version)
+    throws SQLException
+  {
+    store.addPending(connection, indexes.builds());
+    transactions.commit(version);
+
+    this.discard();
+    this.executeStoredBuilds(
+      executor,
+      parallel,
+      store,
+      indexes.builds(),
+      version
+    );
+  }
+
+  /**
+   * Execute the builds that a previous execution recorded as pending in the
+   * given store. The executor's transaction is committed before the builds
+   * are executed, so that it cannot block the builds on databases that lock
+   * tables against writers whilst they are being read. Without parallel
+   * connections, the builds are executed sequentially on the executor's
+   * connection, each in its own transaction.
+   *
+   * @param executor     The executor
+   * @param connection   The executor's connection
+   * @param parallel     The parallel connections, if any
+   * @param store        The index build store
+   * @param transactions The executor's transaction controller
+   * @param version      The current database version
+   *
+   * @throws SQLException On errors
+   */
+
+  void executeStored(
+    final TrExecutor executor,
+    final Connection connection,
+    final Optional<TrExecutorParallelConnections> parallel,
+    final TrExecutorIndexBuildStoreType store,
+    final TrTransactionController transactions,
+    final BigInteger version)
+    throws SQLException
+  {
+    final var builds = store.pending(connection);
+    if (builds.isEmpty()) {
+      return;
+    }
+
+    LOG.debug(
+      "{} deferred index builds are pending at version {}",
+      Integer.valueOf(builds.size()),
+      version
+    );
+
+    transactions.commit(version);
+
+    this.discard();
+    if (parallel.isPresent()) {
+      this.executeStoredBuilds(executor, parallel.get(), store, builds, version);
+      return;
+    }
+
+    this.pending = Optional.of(
+      new Pending(Optional.of(version), version, builds.size(), true)
+    );
+
+    try (var cache = new TrStatementCache(0)) {
+      for (final var build : builds) {
+        executor.executeStatementSingle(connection, cache, build);
+        store.removePending(connection, build.index());
+        transactions.commit(version);
+        this.built.add(build.index());
+      }
+    }
+    this.discard();
+  }
+
+  private void executeStoredBuilds(
+    final TrExecutor executor,
+    final TrExecutorParallelConnections parallel,
+    final TrExecutorIndexBuildStoreType store,
+    final List<TrStatementIndex> builds,
+    final BigInteger version)
+    throws SQLException
+  {
+    this.pending = Optional.of(
+      new Pending(Optional.of(version), version, builds.size(), true)
+    );
+
+    LOG.debug(
+      "executing {} deferred index builds in parallel",
+      Integer.valueOf(builds.size())
+    );
+
+    TrParallelGroups.executeAll(
+      executor,
+      parallel,
+      builds,
+      true,
+      (c, build) -> {
+        store.removePending(c, build.index());
+        this.built.add(build.index());
+      }
+    );
+    this.discard();
+  }
+
+  private static void executeInSavepoint(
+    final TrExecutor executor,
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementIndex build)
+    throws SQLException
+  {
+    final var savepoint = connection.setSavepoint();
+    try {
+      executor.executeStatementSingle(connection, cache, build);
+      connection.releaseSavepoint(savepoint);
+    } catch (final SQLException e) {
+      try {
+        connection.rollback(savepoint);
+      } catch (final SQLException ex) {
+        e.addSuppressed(ex);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Builds that are pending.
+   *
+   * @param observed The database version that identifies the builds as
+   *                 pending
+   * @param version  The version of the final revision
+   * @param builds   The number of builds
+   * @param stored   {@code true} if the builds are recorded in an index
+   *                 build store, rather than in the executor's transaction
+   */
+
+  private record Pending(
+    Optional<BigInteger> observed,
+    BigInteger version,
+    int builds,
+    boolean stored)
+  {
+    private Pending
+    {
+      Objects.requireNonNull(observed, "observed");
+      Objects.requireNonNull(version, "version");
+    }
+  }
+}
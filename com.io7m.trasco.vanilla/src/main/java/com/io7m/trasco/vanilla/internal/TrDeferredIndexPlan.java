@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrStatementIndex;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+import static com.io7m.trasco.api.TrErrorCode.UPGRADE_DISALLOWED;
+
+/**
+ * A plan for deferring index builds to the end of an upgrade. The plan is
+ * calculated once from the complete set of revisions that an upgrade will
+ * apply, so that retrying or resuming individual revisions does not change
+ * which statements are deferred.
+ *
+ * Statements are identified by the version of their declaring revision and
+ * their position within it, rather than by the statement objects themselves:
+ * A revision set that does not retain its revisions produces new statement
+ * objects each time that a revision is requested, and so the statements
+ * inspected when calculating the plan are not the statements that are
+ * later executed.
+ *
+ * @param skipped The positions of the index statements that must not be
+ *                executed in their declaring revisions
+ * @param builds  The index builds that must be executed after the final
+ *                revision, in declaration order
+ */
+
+public record TrDeferredIndexPlan(
+  Set<Position> skipped,
+  List<TrStatementIndex> builds)
+{
+  /**
+   * A plan for deferring index builds to the end of an upgrade.
+   *
+   * @param skipped The positions of the index statements that must not be
+   *                executed in their declaring revisions
+   * @param builds  The index builds that must be executed after the final
+   *                revision, in declaration order
+   */
+
+  public TrDeferredIndexPlan
+  {
+    skipped = Set.copyOf(skipped);
+    builds = List.copyOf(builds);
+  }
+
+  /**
+   * The position of a statement.
+   *
+   * @param version The version of the declaring revision
+   * @param index   The index of the statement within the revision
+   */
+
+  public record Position(
+    BigInteger version,
+    int index)
+  {
+    /**
+     * The position of a statement.
+     *
+     * @param version The version of the declaring revision
+     * @param index   The index of the statement within the revision
+     */
+
+    public Position
+    {
+      Objects.requireNonNull(version, "version");
+    }
+  }
+
+  /**
+   * @return A plan that defers nothing
+   */
+
+  public static TrDeferredIndexPlan empty()
+  {
+    return new TrDeferredIndexPlan(Set.of(), List.of());
+  }
+
+  /**
+   * Calculate a plan for the given revisions. Every index build is removed
+   * from its declaring revision. If a later revision drops the same index,
+   * then both the build and the drop are discarded; otherwise, the build is
+   * executed after the final revision.
+   *
+   * @param upgrades The revisions that will be applied, in order
+   *
+   * @return A plan
+   *
+   * @throws TrException If any revision contains non-transactional
+   *                     statements, which would commit versions before
+   *                     their deferred index builds are executed
+   */
+
+  public static TrDeferredIndexPlan plan(
+    final SortedMap<BigInteger, TrSchemaRevision> upgrades)
+    throws TrException
+  {
+    Objects.requireNonNull(upgrades, "upgrades");
+
+    final var skipped =
+      new HashSet<Position>();
+    final var builds =
+      new LinkedHashMap<String, TrStatementIndex>();
+
+    for (final var revision : upgrades.values()) {
+      final var version = revision.version();
+      final var statements = revision.statements();
+      for (int index = 0; index < statements.size(); ++index) {
+        final var statement = statements.get(index);
+        if (!statement.transactional()) {
+          throw errorNonTransactional(revision);
+        }
+        if (statement instanceof final TrStatementIndex st) {
+          final var position = new Position(version, index);
+          switch (st.operation()) {
+            case CREATE_INDEX -> {
+              builds.remove(st.index());
+              builds.put(st.index(), st);
+              skipped.add(position);
+            }
+            case DROP_INDEX -> {
+              if (builds.remove(st.index()) != null) {
+                skipped.add(position);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    return new TrDeferredIndexPlan(skipped, List.copyOf(builds.values()));
+  }
+
+  private static TrException errorNonTransactional(
+    final TrSchemaRevision revision)
+  {
+    return new TrException(
+      "Deferred index builds cannot be combined with non-transactional statements.",
+      Map.ofEntries(
+        Map.entry("Revision", revision.version().toString())
+      ),
+      UPGRADE_DISALLOWED
+    );
+  }
+
+  /**
+   * @param version The version of the declaring revision
+   * @param index   The index of the statement within the revision
+   *
+   * @return {@code true} if the statement at the given position must not be
+   * executed in its declaring revision
+   */
+
+  public boolean isSkipped(
+    final BigInteger version,
+    final int index)
+  {
+    return !this.skipped.isEmpty()
+           && this.skipped.contains(new Position(version, index));
+  }
+}
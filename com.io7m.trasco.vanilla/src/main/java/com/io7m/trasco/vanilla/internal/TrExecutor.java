@@ -16,32 +16,60 @@
 
 package com.io7m.trasco.vanilla.internal;
 
-import com.io7m.junreachable.UnimplementedCodeException;
 import com.io7m.junreachable.UnreachableCodeException;
-import com.io7m.trasco.api.TrArgumentNumeric;
-import com.io7m.trasco.api.TrArgumentString;
 import com.io7m.trasco.api.TrEventExecutingSQL;
+import com.io7m.trasco.api.TrEventRevisionRolledBack;
+import com.io7m.trasco.api.TrEventRowsInserted;
+import com.io7m.trasco.api.TrEventStatementCacheStatistics;
+import com.io7m.trasco.api.TrEventUpgradeLockWaiting;
 import com.io7m.trasco.api.TrEventUpgrading;
+import com.io7m.trasco.api.TrEventType;
 import com.io7m.trasco.api.TrException;
 import com.io7m.trasco.api.TrExecutorConfiguration;
+import com.io7m.trasco.api.TrExecutorFuture;
+import com.io7m.trasco.api.TrExecutorLockType;
+import com.io7m.trasco.api.TrExecutorLocking;
+import com.io7m.trasco.api.TrExecutorResult;
 import com.io7m.trasco.api.TrExecutorType;
 import com.io7m.trasco.api.TrExecutorUpgrade;
 import com.io7m.trasco.api.TrSchemaRevision;
 import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementParallelGroup;
 import com.io7m.trasco.api.TrStatementParameterized;
-import org.apache.commons.text.StringEscapeUtils;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementType;
+import com.io7m.trasco.api.TrTransactionStrategySingle;
+import com.io7m.trasco.vanilla.internal.TrStatementPlanBound.BinderType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+import static com.io7m.trasco.api.TrErrorCode.CANCELLED;
+import static com.io7m.trasco.api.TrErrorCode.CONNECTION_IN_TRANSACTION;
+import static com.io7m.trasco.api.TrErrorCode.LOCK_TIMEOUT;
+import static com.io7m.trasco.api.TrErrorCode.NON_TRANSACTIONAL_DISALLOWED;
+import static com.io7m.trasco.api.TrErrorCode.REVISIONS_UNAVAILABLE;
 import static com.io7m.trasco.api.TrErrorCode.SQL_EXCEPTION;
 import static com.io7m.trasco.api.TrErrorCode.UNRECOGNIZED_SCHEMA_REVISION;
 import static com.io7m.trasco.api.TrErrorCode.UPGRADE_DISALLOWED;
@@ -56,7 +84,24 @@ public final class TrExecutor implements TrExecutorType
   private static final Logger LOG =
     LoggerFactory.getLogger(TrExecutor.class);
 
+  /**
+   * The SQLSTATE used for cancelled executions ("query canceled").
+   */
+
+  private static final String SQL_STATE_CANCELLED = "57014";
+
   private final TrExecutorConfiguration configuration;
+  private final TrStatementPlans plans;
+  private final Object eventLock;
+  private Optional<BigInteger> resumeVersion;
+  private Optional<BigInteger> failedVersion;
+  private Optional<BigInteger> nonTransactionalCompleted;
+  private final TrDeferredIndexBuilds deferredIndexes;
+  private final TreeMap<BigInteger, Duration> revisionsApplied;
+  private final Set<Statement> running;
+  private volatile TrCancellation cancellation;
+  private TrStatementPlans runPlans;
+  private TrParallelWorkers runWorkers;
 
   /**
    * An executor.
@@ -66,265 +111,1541 @@ public final class TrExecutor implements TrExecutorType
 
   public TrExecutor(
     final TrExecutorConfiguration inConfiguration)
+  {
+    this(
+      inConfiguration,
+      new TrStatementPlans(
+        Objects.requireNonNull(inConfiguration, "configuration").arguments())
+    );
+  }
+
+  /**
+   * An executor that uses the given (possibly shared) statement plans.
+   *
+   * @param inConfiguration The configuration
+   * @param inPlans         The statement plans, which must be bound to the
+   *                        arguments in the configuration
+   */
+
+  public TrExecutor(
+    final TrExecutorConfiguration inConfiguration,
+    final TrStatementPlans inPlans)
   {
     this.configuration =
       Objects.requireNonNull(inConfiguration, "configuration");
+    this.plans =
+      Objects.requireNonNull(inPlans, "plans");
+
+    if (!Objects.equals(inPlans.arguments(), inConfiguration.arguments())) {
+      throw new IllegalArgumentException(
+        "Statement plans must be bound to the configured arguments.");
+    }
+    this.eventLock =
+      new Object();
+    this.resumeVersion =
+      Optional.empty();
+    this.failedVersion =
+      Optional.empty();
+    this.nonTransactionalCompleted =
+      Optional.empty();
+    this.deferredIndexes =
+      new TrDeferredIndexBuilds();
+    this.revisionsApplied =
+      new TreeMap<>();
+    this.running =
+      ConcurrentHashMap.newKeySet();
+    this.cancellation =
+      new TrCancellation();
+    this.runPlans =
+      inPlans;
+    this.runWorkers =
+      new TrParallelWorkers(inConfiguration.parallelConnections());
+  }
+
+  TrExecutorConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  TreeMap<BigInteger, Duration> revisionsApplied()
+  {
+    return this.revisionsApplied;
+  }
+
+  TrParallelWorkers parallelWorkers()
+  {
+    return this.runWorkers;
   }
 
   @Override
   public void execute()
     throws TrException
   {
+    this.executeForResult();
+  }
+
+  /**
+   * Begin a new run. Cancellation is scoped to a single run, so that
+   * cancelling one run does not affect any later run of this executor.
+   * Streaming runs do not retain statement plans, because the number of
+   * distinct statements in a stream is unbounded. The threads used for
+   * parallel groups are also scoped to a run, and are released when the
+   * run ends.
+   */
+
+  private void beginRun(
+    final TrCancellation inCancellation,
+    final TrStatementPlans inPlans)
+  {
+    this.cancellation = inCancellation;
+    this.runPlans = inPlans;
+    this.runWorkers.close();
+    this.runWorkers =
+      new TrParallelWorkers(this.configuration.parallelConnections());
+  }
+
+  private boolean isCancelled()
+  {
+    return this.cancellation.isCancelled();
+  }
+
+  @Override
+  public TrExecutorFuture executeAsync(
+    final Executor executor)
+  {
+    Objects.requireNonNull(executor, "executor");
+
+    final var runCancellation = new TrCancellation();
+    final var future =
+      new TrExecutorAsyncFuture(() -> this.cancel(runCancellation));
+
+    try {
+      executor.execute(() -> {
+        if (future.isDone()) {
+          future.finish(null, null);
+          return;
+        }
+        try {
+          future.finish(this.executeRun(runCancellation), null);
+        } catch (final TrException | RuntimeException e) {
+          future.finish(null, e);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      future.finish(null, e);
+    }
+    return future;
+  }
+
+  @Override
+  public TrExecutorResult executeForResult()
+    throws TrException
+  {
+    return this.executeRun(new TrCancellation());
+  }
+
+  private TrExecutorResult executeRun(
+    final TrCancellation runCancellation)
+    throws TrException
+  {
+    this.beginRun(runCancellation, this.plans);
+
+    final var timeStart = System.nanoTime();
+
     this.configuration.arguments()
       .checkSatisfies(this.configuration.revisions().parameters());
 
+    this.revisionsApplied.clear();
+
+    final var locking = this.configuration.locking();
     final Optional<BigInteger> existing;
+    if (locking.isPresent()) {
+      existing = this.executeLocked(locking.get());
+    } else {
+      try {
+        existing = this.configuration.versionGet()
+          .determineVersion(this.configuration.connection());
+      } catch (final SQLException e) {
+        throw new TrException(e.getMessage(), e, SQL_EXCEPTION);
+      }
+      this.deferredIndexes.discardStale(existing);
+      this.executeWithCache(existing, 1);
+    }
+
+    final Optional<BigInteger> versionEnd;
+    if (this.revisionsApplied.isEmpty()) {
+      versionEnd = existing;
+    } else {
+      versionEnd = Optional.of(this.revisionsApplied.lastKey());
+    }
+
+    return new TrExecutorResult(
+      existing,
+      versionEnd,
+      this.revisionsApplied,
+      Duration.ofNanos(System.nanoTime() - timeStart)
+    );
+  }
+
+  /**
+   * Begin a streaming execution. The returned consumer executes each
+   * statement that it receives as soon as it receives it, and retains
+   * nothing once the statement has been executed. Revisions at or below
+   * the database's current version are skipped. The revisions in the
+   * executor's configuration are only consulted for their parameters.
+   *
+   * Because a streaming execution never holds a complete revision, it
+   * cannot retry revisions, defer index builds, or wait for an upgrade
+   * lock, and configurations that request any of these are rejected.
+   *
+   * @return A consumer of revisions
+   *
+   * @throws TrException On errors
+   */
+
+  public TrExecutorStreaming executeStreaming()
+    throws TrException
+  {
+    final var timeStart = System.nanoTime();
+
+    if (this.configuration.locking().isPresent()
+        || this.configuration.revisionSavepoints()
+        || this.configuration.deferredIndexes()) {
+      throw new IllegalArgumentException(
+        "Streaming executions do not support locking, revision savepoints, or deferred indexes.");
+    }
+
+    this.beginRun(new TrCancellation(), this.plans.nonRetaining());
+
+    this.configuration.arguments()
+      .checkSatisfies(this.configuration.revisions().parameters());
+
+    this.revisionsApplied.clear();
+
+    final var connection = this.configuration.connection();
     try {
-      existing = this.configuration.versionGet()
-        .determineVersion(this.configuration.connection());
+      final var existing =
+        this.configuration.versionGet().determineVersion(connection);
+
+      if (existing.isEmpty()
+          && this.configuration.upgrade() == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
+        throw new TrException(
+          "Incompatible database schema, and upgrades are not permitted by the configuration.",
+          Map.ofEntries(
+            entry("Configuration", this.configuration.upgrade().toString())
+          ),
+          UPGRADE_DISALLOWED
+        );
+      }
+
+      connection.setAutoCommit(false);
+      return new TrExecutorStreaming(
+        this,
+        timeStart,
+        existing,
+        this.isBatchingEnabled(connection)
+      );
+    } catch (final SQLException e) {
+      throw this.errorSQL(e);
+    }
+  }
+
+  /**
+   * Execute the upgrade whilst holding the upgrade lock. Processes that
+   * cannot acquire the lock only ever read the schema version, and return
+   * as soon as the schema version is the highest known version and no
+   * deferred index builds are pending.
+   *
+   * The version must be read outside of any transaction, so that each poll
+   * observes changes committed by other processes. Ending a transaction on
+   * the caller's connection would commit or discard work that the executor
+   * does not own, and so the connection must be in auto-commit mode, and is
+   * rejected otherwise. The upgrade itself runs in a transaction owned by
+   * the executor, and the connection is returned to auto-commit mode once
+   * the upgrade has been committed or rolled back.
+   */
+
+  private Optional<BigInteger> executeLocked(
+    final TrExecutorLocking locking)
+    throws TrException
+  {
+    final var connection =
+      this.configuration.connection();
+
+    try {
+      if (!connection.getAutoCommit()) {
+        throw new TrException(
+          "Upgrades that use an upgrade lock require a connection in auto-commit mode.",
+          Map.ofEntries(
+            entry("Auto Commit", "false")
+          ),
+          CONNECTION_IN_TRANSACTION
+        );
+      }
+    } catch (final SQLException e) {
+      throw this.errorSQL(e);
+    }
+
+    final var revisionsMap =
+      this.configuration.revisions().revisions();
+    final Optional<BigInteger> highest =
+      revisionsMap.isEmpty()
+        ? Optional.empty()
+        : Optional.of(revisionsMap.lastKey());
+
+    final var timeStart = System.nanoTime();
+    var delay = locking.pollDelayInitial();
+
+    while (true) {
+      final var current = this.pollVersion(connection);
+      this.checkStartVersion(current, revisionsMap);
+      if (highest.isEmpty()
+          || current.equals(highest) && !this.pollIndexBuilds(connection)) {
+        LOG.debug("database schema version {} is up to date", current);
+        return current;
+      }
+
+      if (this.tryAcquire(locking.lock())) {
+        return this.executeHoldingLock(connection, locking.lock());
+      }
+
+      final var waited = Duration.ofNanos(System.nanoTime() - timeStart);
+      if (waited.compareTo(locking.timeout()) >= 0) {
+        throw new TrException(
+          "Timed out waiting for the upgrade lock.",
+          Map.ofEntries(
+            entry(
+              "Current Version",
+              current.map(BigInteger::toString).orElse("None")
+            ),
+            entry("Timeout", locking.timeout().toString())
+          ),
+          LOCK_TIMEOUT
+        );
+      }
+
+      LOG.debug("upgrade lock is held elsewhere, waiting {}", delay);
+      this.publish(new TrEventUpgradeLockWaiting(current, delay));
+      this.pauseForLock(delay);
+
+      final var doubled = delay.multipliedBy(2L);
+      if (doubled.compareTo(locking.pollDelayMaximum()) > 0) {
+        delay = locking.pollDelayMaximum();
+      } else {
+        delay = doubled;
+      }
+    }
+  }
+
+  /**
+   * Read the schema version. The connection is in auto-commit mode, and so
+   * no transaction is held open afterwards.
+   */
+
+  private Optional<BigInteger> pollVersion(
+    final Connection connection)
+    throws TrException
+  {
+    try {
+      return this.configuration.versionGet().determineVersion(connection);
+    } catch (final SQLException e) {
+      throw this.errorSQL(e);
+    }
+  }
+
+  /**
+   * Determine whether an index build store records pending builds. A
+   * database at the highest known version with pending builds still
+   * requires the lock.
+   */
+
+  private boolean pollIndexBuilds(
+    final Connection connection)
+    throws TrException
+  {
+    final var store = this.configuration.indexBuildStore();
+    if (store.isEmpty()) {
+      return false;
+    }
+
+    try {
+      return !store.get().pending(connection).isEmpty();
+    } catch (final SQLException e) {
+      throw this.errorSQL(e);
+    }
+  }
+
+  private boolean tryAcquire(
+    final TrExecutorLockType lock)
+    throws TrException
+  {
+    try {
+      return lock.tryAcquire();
+    } catch (final SQLException e) {
+      throw this.errorSQL(e);
+    }
+  }
+
+  /**
+   * Execute the upgrade and commit it before releasing the lock; releasing
+   * the lock before the upgrade is committed would allow another process to
+   * acquire the lock and observe the old schema version. For the same
+   * reason, a failed upgrade is rolled back before the lock is released.
+   */
+
+  private Optional<BigInteger> executeHoldingLock(
+    final Connection connection,
+    final TrExecutorLockType lock)
+    throws TrException
+  {
+    LOG.debug("acquired upgrade lock");
+
+    Optional<BigInteger> existing = Optional.empty();
+    TrException failure = null;
+    try {
+      existing = this.pollVersion(connection);
+      this.deferredIndexes.discardStale(existing);
+      this.executeWithCache(existing, 1);
+      connection.commit();
+    } catch (final TrException e) {
+      failure = e;
+    } catch (final SQLException e) {
+      failure = this.errorSQL(e);
+    }
+
+    if (failure != null) {
+      this.resumeVersion = Optional.empty();
+      this.failedVersion = Optional.empty();
+      this.nonTransactionalCompleted = Optional.empty();
+      this.deferredIndexes.discard();
+      try {
+        connection.rollback();
+      } catch (final SQLException e) {
+        failure.addSuppressed(e);
+      }
+    }
+
+    try {
+      connection.setAutoCommit(true);
+    } catch (final SQLException e) {
+      if (failure == null) {
+        failure = this.errorSQL(e);
+      } else {
+        failure.addSuppressed(e);
+      }
+    }
+
+    try {
+      lock.release();
+      LOG.debug("released upgrade lock");
+    } catch (final SQLException e) {
+      if (failure == null) {
+        failure = this.errorSQL(e);
+      } else {
+        failure.addSuppressed(e);
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+    return existing;
+  }
+
+  private void pauseForLock(
+    final Duration delay)
+    throws TrException
+  {
+    try {
+      if (this.cancellation.await(delay)) {
+        throw new TrException("Execution was cancelled.", CANCELLED);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TrException(
+        "Interrupted while waiting for the upgrade lock.",
+        e,
+        CANCELLED
+      );
+    }
+  }
+
+  /**
+   * Cancel the run with the given cancellation flag. If the run is still
+   * the current run, any statements that are currently executing are
+   * cancelled, and no further statements will be started.
+   */
+
+  private void cancel(
+    final TrCancellation runCancellation)
+  {
+    LOG.debug("cancelling execution");
+    runCancellation.cancel();
+    if (this.cancellation != runCancellation) {
+      return;
+    }
+
+    for (final var statement : this.running) {
+      try {
+        statement.cancel();
+      } catch (final SQLException e) {
+        LOG.debug("unable to cancel statement: ", e);
+      }
+    }
+  }
+
+  private void checkCancelled()
+    throws SQLException
+  {
+    if (this.isCancelled()) {
+      throw new SQLException("Execution was cancelled.", SQL_STATE_CANCELLED);
+    }
+  }
+
+  /**
+   * Register a statement that is about to be executed, so that it can be
+   * cancelled. Execution of the statement must be followed by a call to
+   * {@link #statementFinished(Statement)}.
+   */
+
+  private void statementStarting(
+    final Statement statement)
+    throws SQLException
+  {
+    this.checkCancelled();
+    this.running.add(statement);
+
+    /*
+     * The execution may have been cancelled after the check above, but
+     * before the statement was registered.
+     */
+
+    if (this.isCancelled()) {
+      this.running.remove(statement);
+      this.checkCancelled();
+    }
+  }
+
+  private void statementFinished(
+    final Statement statement)
+  {
+    this.running.remove(statement);
+  }
+
+  @Override
+  public void resume()
+    throws TrException
+  {
+    final var resumeFrom = this.resumeVersion;
+    if (resumeFrom.isEmpty() || this.configuration.locking().isPresent()) {
+      this.execute();
+      return;
+    }
+
+    this.beginRun(new TrCancellation(), this.plans);
+
+    LOG.debug("resuming from version {}", resumeFrom.get());
+    this.executeWithCache(
+      resumeFrom,
+      this.configuration.retryPolicy().maxAttempts()
+    );
+  }
+
+  private void executeWithCache(
+    final Optional<BigInteger> startVersion,
+    final int attempts)
+    throws TrException
+  {
+    try (var cache =
+           new TrStatementCache(this.configuration.statementCacheSize())) {
+      try {
+        this.executeUpgrades(startVersion, cache, attempts);
+      } finally {
+        this.publishCacheStatistics(cache);
+        this.runWorkers.close();
+      }
     } catch (final SQLException e) {
-      throw new TrException(e.getMessage(), e, SQL_EXCEPTION);
+      throw this.errorSQL(e);
+    } catch (final IllegalStateException e) {
+      throw errorRevisionUnavailable(e);
+    }
+  }
+
+  /**
+   * Revisions that are loaded lazily are parsed as they are requested, and
+   * report parse errors as unchecked exceptions (possibly wrapped by the
+   * thread that parsed them). Convert these into checked exceptions that
+   * name the revision and the position of the error.
+   */
+
+  private static TrException errorRevisionUnavailable(
+    final IllegalStateException e)
+  {
+    Throwable cause = e;
+    while (cause != null) {
+      if (cause instanceof final TrRevisionUnavailableException u) {
+        return new TrException(
+          u.getMessage(),
+          e,
+          Map.ofEntries(
+            entry("Revision", u.version().toString()),
+            entry("Source", u.source().toString()),
+            entry("Line", Integer.toString(u.line()))
+          ),
+          REVISIONS_UNAVAILABLE
+        );
+      }
+      cause = cause.getCause();
+    }
+    throw e;
+  }
+
+  TrException errorSQL(
+    final SQLException e)
+  {
+    if (this.isCancelled()) {
+      return new TrException(e.getMessage(), e, CANCELLED);
+    }
+    final var pending = this.deferredIndexes.pending();
+    if (pending.isPresent()) {
+      return new TrException(
+        e.getMessage(),
+        e,
+        Map.ofEntries(
+          entry("Version", pending.get().toString()),
+          entry(
+            "Pending Index Builds",
+            Integer.toString(this.deferredIndexes.remaining())
+          )
+        ),
+        SQL_EXCEPTION
+      );
+    }
+    if (this.resumeVersion.isPresent() && this.failedVersion.isPresent()) {
+      return new TrException(
+        e.getMessage(),
+        e,
+        Map.ofEntries(
+          entry("Last Good Version", this.resumeVersion.get().toString()),
+          entry("Failed Version", this.failedVersion.get().toString())
+        ),
+        SQL_EXCEPTION
+      );
+    }
+    return new TrException(e.getMessage(), e, SQL_EXCEPTION);
+  }
+
+  /**
+   * Publish an event. Events may be published from the threads that execute
+   * parallel groups, so publication is serialized.
+   */
+
+  void publish(
+    final TrEventType event)
+  {
+    synchronized (this.eventLock) {
+      this.configuration.events().accept(event);
+    }
+  }
+
+  void publishCacheStatistics(
+    final TrStatementCache cache)
+  {
+    if (cache.isEnabled()) {
+      this.publish(new TrEventStatementCacheStatistics(
+        cache.hits(),
+        cache.misses()
+      ));
+    }
+  }
+
+  /**
+   * Check that the database at the given version can be brought up to date
+   * by the configuration. These checks are made both before any upgrade is
+   * attempted, and by processes that wait for an upgrade lock, so that a
+   * database that could never be upgraded fails in the same way on both
+   * paths.
+   */
+
+  private void checkStartVersion(
+    final Optional<BigInteger> startVersion,
+    final SortedMap<BigInteger, TrSchemaRevision> revisionsMap)
+    throws TrException
+  {
+    final var upgrade = this.configuration.upgrade();
+    if (startVersion.isEmpty()) {
+      if (upgrade == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
+        throw new TrException(
+          "Incompatible database schema, and upgrades are not permitted by the configuration.",
+          Map.ofEntries(
+            entry("Configuration", upgrade.toString())
+          ),
+          UPGRADE_DISALLOWED
+        );
+      }
+    }
+
+    if (revisionsMap.isEmpty()) {
+      return;
+    }
+
+    final var highestKnown = revisionsMap.lastKey();
+    if (startVersion.isPresent()
+        && startVersion.get().compareTo(highestKnown) > 0) {
+      throw new TrException(
+        "Database schema version is too high!",
+        Map.ofEntries(
+          entry("Current Version", startVersion.get().toString()),
+          entry("Highest Known Version", highestKnown.toString())
+        ),
+        UNRECOGNIZED_SCHEMA_REVISION
+      );
+    }
+
+    if (!startVersion.equals(Optional.of(highestKnown))) {
+      if (upgrade == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
+        throw new TrException(
+          "Incompatible database schema, and upgrades are not permitted by the configuration.",
+          Map.ofEntries(
+            entry("Schema Version", startVersion.get().toString()),
+            entry("Highest Known Version", highestKnown.toString()),
+            entry("Configuration", upgrade.toString())
+          ),
+          UPGRADE_DISALLOWED
+        );
+      }
+    }
+  }
+
+  private void executeUpgrades(
+    final Optional<BigInteger> startVersion,
+    final TrStatementCache cache,
+    final int attempts)
+    throws TrException, SQLException
+  {
+    final var revisionsMap =
+      this.configuration.revisions()
+        .revisions();
+
+    this.checkStartVersion(startVersion, revisionsMap);
+
+    final var connection = this.configuration.connection();
+    connection.setAutoCommit(false);
+
+    LOG.debug(
+      "{} schema revisions available",
+      Integer.valueOf(revisionsMap.size())
+    );
+
+    if (revisionsMap.isEmpty()) {
+      return;
+    }
+
+    final BigInteger versionHaveNow;
+    if (startVersion.isEmpty()) {
+      versionHaveNow = revisionsMap.firstKey().subtract(BigInteger.ONE);
+    } else {
+      versionHaveNow = startVersion.get();
+    }
+
+    LOG.debug("database schema version is {}", versionHaveNow);
+
+    final var upgrades =
+      revisionsMap.tailMap(versionHaveNow, false);
+    final var indexes =
+      this.deferredIndexPlan(upgrades);
+
+    this.executeRevisions(
+      connection,
+      versionHaveNow,
+      upgrades,
+      new Execution(
+        this.isBatchingEnabled(connection),
+        cache,
+        new TrTransactionController(
+          connection,
+          this.configuration.transactionStrategy(),
+          this::publish,
+          this::renewLock
+        ),
+        indexes
+      ),
+      attempts
+    );
+  }
+
+  private TrDeferredIndexPlan deferredIndexPlan(
+    final SortedMap<BigInteger, TrSchemaRevision> upgrades)
+    throws TrException
+  {
+    if (!this.configuration.deferredIndexes()) {
+      return TrDeferredIndexPlan.empty();
+    }
+    return this.deferredIndexes.plan(upgrades);
+  }
+
+  private void executeRevisions(
+    final Connection connection,
+    final BigInteger startVersion,
+    final SortedMap<BigInteger, TrSchemaRevision> upgrades,
+    final Execution execution,
+    final int attempts)
+    throws TrException, SQLException
+  {
+    final var store = this.configuration.indexBuildStore();
+    if (store.isPresent()) {
+      this.deferredIndexes.executeStored(
+        this,
+        connection,
+        this.configuration.parallelConnections(),
+        store.get(),
+        execution.transactions,
+        startVersion
+      );
+    }
+
+    var versionHaveNow = startVersion;
+    final var iterator = upgrades.entrySet().iterator();
+    try {
+      while (iterator.hasNext()) {
+        final var revision = iterator.next().getValue();
+        final var timeStart = System.nanoTime();
+
+        LOG.debug(
+          "upgrading revision {} to revision {}",
+          versionHaveNow,
+          revision.version()
+        );
+
+        this.publish(new TrEventUpgrading(versionHaveNow, revision.version()));
+
+        this.executeNonTransactional(connection, revision, execution);
+
+        if (this.configuration.revisionSavepoints()) {
+          this.resumeVersion = Optional.of(versionHaveNow);
+          this.failedVersion = Optional.of(revision.version());
+          this.executeRevisionInSavepoint(
+            connection,
+            versionHaveNow,
+            revision,
+            execution,
+            attempts
+          );
+        } else {
+          this.executeRevision(revision, execution);
+          this.configuration.versionSet()
+            .updateVersion(revision.version(), connection);
+        }
+
+        execution.transactions.onRevisionCompleted(revision.version());
+        versionHaveNow = revision.version();
+        this.revisionsApplied.put(
+          versionHaveNow,
+          Duration.ofNanos(System.nanoTime() - timeStart)
+        );
+      }
+    } finally {
+      TrRevisionPipeline.closeIfPipeline(iterator);
+    }
+
+    this.nonTransactionalCompleted = Optional.empty();
+    this.executeDeferredIndexes(connection, versionHaveNow, execution);
+
+    this.resumeVersion = Optional.empty();
+    this.failedVersion = Optional.empty();
+    this.deferredIndexes.discard();
+  }
+
+  /**
+   * Execute the deferred index builds. If a build fails, the builds remain
+   * pending. Without parallel connections or an index build store, the
+   * builds are executed in the executor's transaction, and resuming the
+   * execution resumes from the final version. Otherwise, the work of the
+   * revisions and the final version are committed with the builds recorded
+   * in the store before the builds are executed, and any later execution
+   * executes the remaining builds.
+   */
+
+  private void executeDeferredIndexes(
+    final Connection connection,
+    final BigInteger version,
+    final Execution execution)
+    throws SQLException
+  {
+    if (execution.indexes.builds().isEmpty()) {
+      return;
     }
 
-    try {
-      this.executeUpgrades(existing);
-    } catch (final SQLException e) {
-      throw new TrException(e.getMessage(), e, SQL_EXCEPTION);
+    final var parallel = this.configuration.parallelConnections();
+    final var store = this.configuration.indexBuildStore();
+    if (parallel.isEmpty() || store.isEmpty()) {
+      if (this.configuration.revisionSavepoints()) {
+        this.resumeVersion = Optional.of(version);
+        this.failedVersion = Optional.empty();
+      }
+
+      this.deferredIndexes.execute(
+        this,
+        connection,
+        execution.cache,
+        execution.indexes,
+        version
+      );
+      execution.transactions.onRevisionCompleted(version);
+      return;
     }
+
+    /*
+     * Once the revisions are committed, there is no transaction left to
+     * resume, and so resuming is equivalent to executing again.
+     */
+
+    this.resumeVersion = Optional.empty();
+    this.failedVersion = Optional.empty();
+
+    this.deferredIndexes.executeParallel(
+      this,
+      connection,
+      parallel.get(),
+      store.get(),
+      execution.transactions,
+      execution.indexes,
+      version
+    );
   }
 
-  private void executeUpgrades(
-    final Optional<BigInteger> startVersion)
+  private void executeNonTransactional(
+    final Connection connection,
+    final TrSchemaRevision revision,
+    final Execution execution)
     throws TrException, SQLException
   {
-    if (startVersion.isEmpty()) {
-      if (this.configuration.upgrade() == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
-        throw new TrException(
-          "Incompatible database schema, and upgrades are not permitted by the configuration.",
-          Map.ofEntries(
-            entry("Configuration", this.configuration.upgrade().toString())
-          ),
-          UPGRADE_DISALLOWED
-        );
-      }
-    }
+    final var version = revision.version();
+    final var statements =
+      revision.statements()
+        .stream()
+        .filter(s -> !s.transactional())
+        .toList();
 
-    final var connection = this.configuration.connection();
-    connection.setAutoCommit(false);
+    if (statements.isEmpty()) {
+      return;
+    }
 
-    final var revisionsMap =
-      this.configuration.revisions()
-        .revisions();
+    this.checkNonTransactionalPermitted(version);
 
-    LOG.debug(
-      "{} schema revisions available",
-      Integer.valueOf(revisionsMap.size())
-    );
+    /*
+     * If a previous execution already executed the non-transactional
+     * statements of this revision before failing, don't execute them again
+     * when resuming.
+     */
 
-    if (revisionsMap.isEmpty()) {
+    if (this.nonTransactionalCompleted.equals(Optional.of(version))) {
+      LOG.debug(
+        "non-transactional statements of revision {} already executed",
+        version
+      );
       return;
     }
 
-    BigInteger versionHaveNow;
-    if (startVersion.isEmpty()) {
-      versionHaveNow = revisionsMap.firstKey().subtract(BigInteger.ONE);
-    } else {
-      versionHaveNow = startVersion.get();
+    execution.transactions.commit(version);
+    connection.setAutoCommit(true);
+    try {
+      for (final var statement : statements) {
+        if (statement instanceof final TrStatementParallelGroup group) {
+          this.executeParallelGroup(connection, execution.cache, group);
+          continue;
+        }
+        this.executeStatementSingle(connection, execution.cache, statement);
+      }
+      this.nonTransactionalCompleted = Optional.of(version);
+    } finally {
+      connection.setAutoCommit(false);
+      execution.transactions.begin();
     }
+  }
 
-    LOG.debug("database schema version is {}", versionHaveNow);
+  /**
+   * Check that the transaction strategy permits committing in order to
+   * execute a non-transactional statement.
+   *
+   * @param version The revision containing the statement
+   *
+   * @throws TrException If the strategy requires a single transaction
+   */
 
-    final var highestKnown = revisionsMap.lastKey();
-    if (versionHaveNow.compareTo(highestKnown) > 0) {
+  void checkNonTransactionalPermitted(
+    final BigInteger version)
+    throws TrException
+  {
+    final var strategy = this.configuration.transactionStrategy();
+    if (strategy instanceof TrTransactionStrategySingle) {
       throw new TrException(
-        "Database schema version is too high!",
+        "Non-transactional statements cannot be executed in a single transaction.",
         Map.ofEntries(
-          entry("Current Version", versionHaveNow.toString()),
-          entry("Highest Known Version", highestKnown.toString())
+          entry("Revision", version.toString()),
+          entry("Transaction Strategy", strategy.toString())
         ),
-        UNRECOGNIZED_SCHEMA_REVISION
+        NON_TRANSACTIONAL_DISALLOWED
       );
     }
+  }
 
-    if (!startVersion.equals(Optional.of(highestKnown))) {
-      if (this.configuration.upgrade() == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
-        throw new TrException(
-          "Incompatible database schema, and upgrades are not permitted by the configuration.",
-          Map.ofEntries(
-            entry("Schema Version", startVersion.get().toString()),
-            entry("Highest Known Version", highestKnown.toString()),
-            entry("Configuration", this.configuration.upgrade().toString())
-          ),
-          UPGRADE_DISALLOWED
+  /**
+   * Renew the upgrade lock, if any. The lock is only renewed between
+   * transactions: Databases that allow only a single writer could not
+   * otherwise keep the lock table in the database being upgraded.
+   */
+
+  private void renewLock()
+    throws SQLException
+  {
+    final var locking = this.configuration.locking();
+    if (locking.isPresent()) {
+      locking.get().lock().renew();
+    }
+  }
+
+  private void executeRevisionInSavepoint(
+    final Connection connection,
+    final BigInteger versionHaveNow,
+    final TrSchemaRevision revision,
+    final Execution execution,
+    final int attempts)
+    throws SQLException
+  {
+    int attempt = 1;
+    while (true) {
+      final var savepoint = connection.setSavepoint();
+      try {
+        this.executeRevision(revision, execution);
+        this.configuration.versionSet()
+          .updateVersion(revision.version(), connection);
+        connection.releaseSavepoint(savepoint);
+        return;
+      } catch (final SQLException e) {
+        try {
+          connection.rollback(savepoint);
+        } catch (final SQLException ex) {
+          e.addSuppressed(ex);
+          throw e;
+        }
+
+        LOG.debug(
+          "revision {} failed (attempt {} of {}), rolled back to version {}",
+          revision.version(),
+          Integer.valueOf(attempt),
+          Integer.valueOf(attempts),
+          versionHaveNow
         );
+
+        this.publish(new TrEventRevisionRolledBack(
+          versionHaveNow,
+          revision.version(),
+          attempt
+        ));
+
+        if (attempt >= attempts || this.isCancelled()) {
+          throw e;
+        }
+
+        ++attempt;
+        this.pauseBeforeRetry(this.configuration.retryPolicy().delay(), e);
       }
     }
+  }
 
-    final var upgrades =
-      revisionsMap.tailMap(versionHaveNow, false);
+  private void pauseBeforeRetry(
+    final Duration delay,
+    final SQLException e)
+    throws SQLException
+  {
+    if (delay.isZero()) {
+      return;
+    }
 
-    for (final var entry : upgrades.entrySet()) {
-      final var revision = entry.getValue();
+    try {
+      if (this.cancellation.await(delay)) {
+        throw e;
+      }
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      e.addSuppressed(ex);
+      throw e;
+    }
+  }
 
-      LOG.debug(
-        "upgrading revision {} to revision {}",
-        versionHaveNow,
-        revision.version()
-      );
+  void executeStatementSingle(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementType statement)
+    throws SQLException
+  {
+    if (statement instanceof final TrStatement st) {
+      this.executeStatement(connection, cache, st.text());
+      return;
+    }
+    if (statement instanceof final TrStatementParameterized st) {
+      this.executeStatementParameterized(connection, cache, st);
+      return;
+    }
+    if (statement instanceof final TrStatementTemplate st) {
+      this.executeStatementTemplate(connection, cache, st);
+      return;
+    }
+    if (statement instanceof final TrStatementRows st) {
+      this.executeStatementRows(connection, cache, st);
+      return;
+    }
+    if (statement instanceof final TrStatementRowsCSV st) {
+      this.executeStatementRowsCSV(connection, cache, st);
+      return;
+    }
+    if (statement instanceof final TrStatementIndex st) {
+      this.executeStatement(connection, cache, st.text());
+      return;
+    }
+    throw new UnreachableCodeException();
+  }
 
-      this.configuration.events()
-        .accept(new TrEventUpgrading(versionHaveNow, revision.version()));
+  void executeParallelGroup(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementParallelGroup group)
+    throws SQLException
+  {
+    TrParallelGroups.execute(this, connection, cache, group);
+  }
+
+  boolean isBatchingEnabled(
+    final Connection connection)
+    throws SQLException
+  {
+    if (this.configuration.statementBatchSize() < 2) {
+      return false;
+    }
 
-      this.executeRevision(revision);
-      this.configuration.versionSet()
-        .updateVersion(revision.version(), connection);
-      versionHaveNow = revision.version();
+    if (!connection.getMetaData().supportsBatchUpdates()) {
+      LOG.debug("database driver does not support batch updates");
+      return false;
     }
+    return true;
   }
 
   private void executeRevision(
-    final TrSchemaRevision revision)
+    final TrSchemaRevision revision,
+    final Execution execution)
     throws SQLException
   {
+    final var cache = execution.cache;
+    final var transactions = execution.transactions;
     final var connection = this.configuration.connection();
+    final var batch = new ArrayList<TrStatement>();
+    final var version = revision.version();
 
-    for (final var statement : revision.statements()) {
-      if (statement instanceof final TrStatement st) {
-        this.executeStatement(connection, st);
+    final var statements = revision.statements();
+    for (int index = 0; index < statements.size(); ++index) {
+      final var statement = statements.get(index);
+      if (!statement.transactional()) {
+        continue;
+      }
+      if (execution.indexes.isSkipped(version, index)) {
         continue;
       }
-      if (statement instanceof final TrStatementParameterized st) {
-        this.executeStatementParameterized(connection, st);
+
+      if (statement instanceof final TrStatement st) {
+        if (execution.batching) {
+          batch.add(st);
+          if (batch.size() >= this.configuration.statementBatchSize()) {
+            transactions.onStatementsExecuted(
+              version,
+              this.executeStatementBatch(connection, batch)
+            );
+          }
+        } else {
+          this.executeStatement(connection, cache, st.text());
+          transactions.onStatementsExecuted(version, 1);
+        }
         continue;
       }
+
+      /*
+       * Any pending batch must be flushed before executing a statement
+       * that cannot be batched, in order to preserve declaration order.
+       */
+
+      transactions.onStatementsExecuted(
+        version,
+        this.executeStatementBatch(connection, batch)
+      );
+
+      this.executeStatementSingle(connection, cache, statement);
+      transactions.onStatementsExecuted(version, 1);
+    }
+
+    transactions.onStatementsExecuted(
+      version,
+      this.executeStatementBatch(connection, batch)
+    );
+  }
+
+  int executeStatementBatch(
+    final Connection connection,
+    final List<TrStatement> batch)
+    throws SQLException
+  {
+    final var size = batch.size();
+    if (size == 0) {
+      return 0;
+    }
+
+    this.checkCancelled();
+
+    LOG.trace("execute batch: {} statements", Integer.valueOf(size));
+
+    try (var sql = connection.createStatement()) {
+      for (final var st : batch) {
+        final var stripped = st.text().strip();
+        LOG.trace("execute: {}", stripped);
+
+        this.publish(new TrEventExecutingSQL(stripped));
+
+        sql.addBatch(stripped);
+      }
+
+      this.executeBatch(sql);
+    } finally {
+      batch.clear();
     }
+    return size;
   }
 
   private void executeStatementParameterized(
     final Connection connection,
+    final TrStatementCache cache,
     final TrStatementParameterized st)
     throws SQLException
   {
+    this.checkCancelled();
+
+    final var plan = this.runPlans.plan(st);
     switch (st.interpolation()) {
       case PREPARED_STATEMENT ->
-        this.executeStatementParameterizedPrepared(connection, st);
+        this.executeStatementParameterizedPrepared(connection, cache, plan);
       case STRING_FORMATTING ->
-        this.executeStatementParameterizedManual(connection, st);
+        this.executeStatementParameterizedManual(connection, plan);
     }
   }
 
   private void executeStatementParameterizedManual(
     final Connection connection,
-    final TrStatementParameterized st)
+    final TrStatementPlanBound plan)
     throws SQLException
   {
-    final var arguments =
-      this.configuration.arguments().arguments();
-    final var referencesInOrder =
-      st.references().inOrder();
-
-    final var formatArguments =
-      new Object[referencesInOrder.size()];
-
-    int index = 0;
-    for (final var order : referencesInOrder.keySet()) {
-      final var parameterRef =
-        referencesInOrder.get(order);
-      final var argument =
-        arguments.get(parameterRef.name());
-
-      if (argument instanceof final TrArgumentString s) {
-        formatArguments[index] =
-          "\'" + StringEscapeUtils.escapeJava(s.value()) + "\'";
-        ++index;
-        continue;
-      }
+    final var formatted = plan.text();
+    LOG.trace("execute: {}", formatted);
 
-      if (argument instanceof final TrArgumentNumeric n) {
-        formatArguments[index] = n.value().toString();
-        ++index;
-        continue;
-      }
+    this.publish(new TrEventExecutingSQL(formatted));
 
-      throw new UnreachableCodeException();
+    try (Statement sql = connection.createStatement()) {
+      this.statementStarting(sql);
+      try {
+        sql.execute(formatted);
+      } finally {
+        this.statementFinished(sql);
+      }
     }
+  }
 
-    final var formatted = String.format(st.text().strip(), formatArguments);
-    LOG.trace("execute: {}", formatted);
+  private void executeStatementParameterizedPrepared(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementPlanBound plan)
+    throws SQLException
+  {
+    final var text = plan.text();
+    LOG.trace("execute: {}", text);
 
-    this.configuration.events()
-      .accept(new TrEventExecutingSQL(formatted));
+    this.publish(new TrEventExecutingSQL(text));
 
-    try (Statement sql = connection.createStatement()) {
-      sql.execute(formatted);
+    cache.withStatement(connection, text, sql -> {
+      plan.bind(sql);
+
+      this.statementStarting(sql);
+      try {
+        sql.execute();
+      } finally {
+        this.statementFinished(sql);
+      }
+    });
+  }
+
+  private void executeStatementTemplate(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementTemplate st)
+    throws SQLException
+  {
+    this.checkCancelled();
+
+    final var plan = this.runPlans.plan(st);
+    final var batching =
+      connection.getMetaData().supportsBatchUpdates();
+    final var batchSize = st.batchSize();
+    switch (st.interpolation()) {
+      case PREPARED_STATEMENT -> this.executeStatementTemplatePrepared(
+        connection, cache, plan, batching, batchSize);
+      case STRING_FORMATTING -> this.executeStatementTemplateManual(
+        connection, plan, batching, batchSize);
     }
   }
 
-  private void executeStatementParameterizedPrepared(
+  private void executeStatementTemplateManual(
     final Connection connection,
-    final TrStatementParameterized st)
+    final TrStatementTemplatePlanBound plan,
+    final boolean batching,
+    final int batchSize)
     throws SQLException
   {
-    final var stripped = st.text().strip();
-    LOG.trace("execute: {}", stripped);
+    final var size = plan.size();
 
-    this.configuration.events()
-      .accept(new TrEventExecutingSQL(stripped));
+    try (Statement sql = connection.createStatement()) {
+      int pending = 0;
+      for (int index = 0; index < size; ++index) {
+        this.checkCancelled();
 
-    final var arguments =
-      this.configuration.arguments().arguments();
-    final var referencesInOrder =
-      st.references().inOrder();
+        final var formatted = plan.format(index);
+        LOG.trace("execute: {}", formatted);
+        this.publish(new TrEventExecutingSQL(formatted));
 
-    try (var sql = connection.prepareStatement(stripped)) {
+        if (!batching) {
+          this.executeSingle(sql, formatted);
+          continue;
+        }
 
-      /*
-       * Set all of the required arguments.
-       */
+        sql.addBatch(formatted);
+        ++pending;
+        if (pending >= batchSize) {
+          this.executeBatch(sql);
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        this.executeBatch(sql);
+      }
+    }
+  }
+
+  private void executeStatementTemplatePrepared(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementTemplatePlanBound plan,
+    final boolean batching,
+    final int batchSize)
+    throws SQLException
+  {
+    final var text = plan.text();
+    LOG.trace("execute: {} ({} expansions)", text, Integer.valueOf(plan.size()));
+
+    final var size = plan.size();
 
-      for (final var order : referencesInOrder.keySet()) {
-        final var parameterRef =
-          referencesInOrder.get(order);
-        final var argument =
-          arguments.get(parameterRef.name());
+    cache.withStatement(connection, text, sql -> {
+      if (batching) {
+        sql.clearBatch();
+      }
+
+      int pending = 0;
+      for (int index = 0; index < size; ++index) {
+        this.checkCancelled();
+        this.publish(new TrEventExecutingSQL(text));
+        plan.bind(sql, index);
 
-        final int paramIndex = order.intValue() + 1;
-        if (argument instanceof final TrArgumentString s) {
-          sql.setString(paramIndex, s.value());
+        if (!batching) {
+          this.executePrepared(sql);
           continue;
         }
-        if (argument instanceof final TrArgumentNumeric n) {
-          if (n.value() instanceof final Integer x) {
-            sql.setInt(paramIndex, x.intValue());
-          } else if (n.value() instanceof final Long x) {
-            sql.setLong(paramIndex, x.longValue());
-          } else if (n.value() instanceof final Double x) {
-            sql.setDouble(paramIndex, x.doubleValue());
-          } else if (n.value() instanceof final BigDecimal x) {
-            sql.setBigDecimal(paramIndex, x);
+
+        sql.addBatch();
+        ++pending;
+        if (pending >= batchSize) {
+          this.executeBatch(sql);
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        this.executeBatch(sql);
+      }
+    });
+  }
+
+  private void executeStatementRows(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementRows st)
+    throws SQLException
+  {
+    this.checkCancelled();
+
+    final var text = st.text();
+    this.publish(new TrEventExecutingSQL(text));
+
+    final var rows = st.rows().iterator();
+    final var utc = TrStatementPlan.utc();
+    this.executeRowBatches(
+      connection,
+      cache,
+      st.table(),
+      text,
+      st.batchSize(),
+      st.rows().size(),
+      sql -> TrStatementPlan.bindAll(sql, rows.next(), utc)
+    );
+  }
+
+  private void executeStatementRowsCSV(
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementRowsCSV st)
+    throws SQLException
+  {
+    this.checkCancelled();
+
+    final var text = st.text();
+    this.publish(new TrEventExecutingSQL(text));
+
+    try {
+      final var total = TrCSVRows.verify(st);
+      try (var rows = TrCSVRows.open(st)) {
+        this.executeRowBatches(
+          connection,
+          cache,
+          st.table(),
+          text,
+          st.batchSize(),
+          total,
+          rows::bindNext
+        );
+        rows.finish();
+      }
+    } catch (final IOException e) {
+      throw new SQLException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Insert {@code total} rows with a single prepared statement, in batches
+   * of at most {@code batchSize} rows, publishing a progress event after
+   * each batch. The given binder binds the next row each time it is called.
+   */
+
+  private void executeRowBatches(
+    final Connection connection,
+    final TrStatementCache cache,
+    final String table,
+    final String text,
+    final int batchSize,
+    final int total,
+    final BinderType rows)
+    throws SQLException
+  {
+    LOG.trace("execute: {} ({} rows)", text, Integer.valueOf(total));
+
+    final var batching =
+      connection.getMetaData().supportsBatchUpdates();
+
+    cache.withStatement(connection, text, sql -> {
+      if (batching) {
+        sql.clearBatch();
+      }
+
+      int start = 0;
+      while (start < total) {
+        this.checkCancelled();
+
+        final var end = Math.min(total, start + batchSize);
+        for (int index = start; index < end; ++index) {
+          rows.bind(sql);
+          if (batching) {
+            sql.addBatch();
           } else {
-            throw new UnimplementedCodeException();
+            this.executePrepared(sql);
           }
         }
+        if (batching) {
+          this.executeBatch(sql);
+        }
+
+        this.publish(new TrEventRowsInserted(table, end, total));
+        start = end;
       }
+    });
+  }
 
+  private void executePrepared(
+    final PreparedStatement sql)
+    throws SQLException
+  {
+    this.statementStarting(sql);
+    try {
       sql.execute();
+    } finally {
+      this.statementFinished(sql);
+    }
+  }
+
+  private void executeSingle(
+    final Statement sql,
+    final String text)
+    throws SQLException
+  {
+    this.statementStarting(sql);
+    try {
+      sql.execute(text);
+    } finally {
+      this.statementFinished(sql);
+    }
+  }
+
+  private void executeBatch(
+    final Statement sql)
+    throws SQLException
+  {
+    this.statementStarting(sql);
+    try {
+      sql.executeBatch();
+    } finally {
+      this.statementFinished(sql);
     }
   }
 
   private void executeStatement(
     final Connection connection,
-    final TrStatement st)
+    final TrStatementCache cache,
+    final String text)
     throws SQLException
   {
-    final var stripped = st.text().strip();
+    this.checkCancelled();
+
+    final var stripped = text.strip();
     LOG.trace("execute: {}", stripped);
 
-    this.configuration.events()
-      .accept(new TrEventExecutingSQL(stripped));
+    this.publish(new TrEventExecutingSQL(stripped));
+
+    cache.withStatement(connection, stripped, sql -> {
+      this.statementStarting(sql);
+      try {
+        sql.execute();
+      } finally {
+        this.statementFinished(sql);
+      }
+    });
+  }
+
+  private record Execution(
+    boolean batching,
+    TrStatementCache cache,
+    TrTransactionController transactions,
+    TrDeferredIndexPlan indexes)
+  {
 
-    try (var sql = connection.prepareStatement(stripped)) {
-      sql.execute();
-    }
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrExecutorFuture;
+import com.io7m.trasco.api.TrExecutorResult;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The future returned by {@link TrExecutor#executeAsync}. Only the executor
+ * can complete the future and its idle stage.
+ */
+
+final class TrExecutorAsyncFuture
+  extends TrExecutorFuture
+{
+  private final Runnable onCancel;
+  private final CompletableFuture<Void> idle;
+
+  TrExecutorAsyncFuture(
+    final Runnable inOnCancel)
+  {
+    this.onCancel =
+      Objects.requireNonNull(inOnCancel, "onCancel");
+    this.idle =
+      new CompletableFuture<>();
+  }
+
+  /**
+   * Cancel the future, and request that the execution stop.
+   *
+   * @param mayInterruptIfRunning Ignored; executing statements are always
+   *                              cancelled
+   *
+   * @return {@code true} if the future was cancelled by this call
+   */
+
+  @Override
+  public boolean cancel(
+    final boolean mayInterruptIfRunning)
+  {
+    final var cancelled = super.cancel(mayInterruptIfRunning);
+    if (cancelled) {
+      this.onCancel.run();
+    }
+    return cancelled;
+  }
+
+  @Override
+  public CompletionStage<Void> idle()
+  {
+    return this.idle.minimalCompletionStage();
+  }
+
+  /**
+   * Complete the future when the execution has stopped using the database
+   * connection. If the future has already been cancelled, only the idle
+   * stage is completed.
+   *
+   * @param result  The result, if the execution succeeded
+   * @param failure The failure, if the execution failed
+   */
+
+  void finish(
+    final TrExecutorResult result,
+    final Throwable failure)
+  {
+    if (failure != null) {
+      this.completeExceptionally(failure);
+    } else {
+      this.complete(result);
+    }
+    this.idle.complete(null);
+  }
+}
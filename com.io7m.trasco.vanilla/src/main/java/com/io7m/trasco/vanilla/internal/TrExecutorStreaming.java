@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrEventUpgrading;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrExecutorResult;
+import com.io7m.trasco.api.TrExecutorUpgrade;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.io7m.trasco.api.TrErrorCode.UNRECOGNIZED_SCHEMA_REVISION;
+import static com.io7m.trasco.api.TrErrorCode.UPGRADE_DISALLOWED;
+import static java.util.Map.entry;
+
+/**
+ * A streaming execution. Statements are executed as they are delivered, and
+ * nothing is retained once a statement has been executed.
+ *
+ * @see TrExecutor#executeStreaming()
+ */
+
+public final class TrExecutorStreaming
+  implements TrSchemaRevisionStreamConsumerType, AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrExecutorStreaming.class);
+
+  private final TrExecutor executor;
+  private final long timeStart;
+  private final Optional<BigInteger> versionStart;
+  private final Connection connection;
+  private final TrStatementCache cache;
+  private final TrTransactionController transactions;
+  private final boolean batching;
+  private final ArrayList<TrStatement> batch;
+  private BigInteger versionHaveNow;
+  private BigInteger versionHighest;
+  private boolean applying;
+  private boolean autoCommit;
+  private long revisionTimeStart;
+
+  TrExecutorStreaming(
+    final TrExecutor inExecutor,
+    final long inTimeStart,
+    final Optional<BigInteger> inVersionStart,
+    final boolean inBatching)
+  {
+    final var config = inExecutor.configuration();
+
+    this.executor =
+      inExecutor;
+    this.timeStart =
+      inTimeStart;
+    this.versionStart =
+      inVersionStart;
+    this.versionHaveNow =
+      inVersionStart.orElse(null);
+    this.batching =
+      inBatching;
+    this.connection =
+      config.connection();
+    this.cache =
+      new TrStatementCache(config.statementCacheSize());
+    this.transactions =
+      new TrTransactionController(
+        this.connection,
+        config.transactionStrategy(),
+        inExecutor::publish
+      );
+    this.batch =
+      new ArrayList<>();
+  }
+
+  @Override
+  public void onRevisionStarted(
+    final BigInteger version)
+    throws TrException
+  {
+    this.versionHighest = version;
+
+    if (this.versionStart.isPresent()
+        && version.compareTo(this.versionStart.get()) <= 0) {
+      this.applying = false;
+      return;
+    }
+
+    final var config = this.executor.configuration();
+    if (config.upgrade() == TrExecutorUpgrade.FAIL_INSTEAD_OF_UPGRADING) {
+      throw new TrException(
+        "Incompatible database schema, and upgrades are not permitted by the configuration.",
+        Map.ofEntries(
+          entry("Schema Version", String.valueOf(this.versionHaveNow)),
+          entry("Configuration", config.upgrade().toString())
+        ),
+        UPGRADE_DISALLOWED
+      );
+    }
+
+    if (this.versionHaveNow == null) {
+      this.versionHaveNow = version.subtract(BigInteger.ONE);
+    }
+
+    LOG.debug(
+      "upgrading revision {} to revision {}",
+      this.versionHaveNow,
+      version
+    );
+
+    this.executor.publish(
+      new TrEventUpgrading(this.versionHaveNow, version));
+    this.applying = true;
+    this.revisionTimeStart = System.nanoTime();
+  }
+
+  @Override
+  public void onStatement(
+    final BigInteger version,
+    final TrStatementType statement)
+    throws TrException
+  {
+    if (!this.applying) {
+      return;
+    }
+
+    try {
+      if (!statement.transactional()) {
+        this.executeNonTransactional(version, statement);
+        return;
+      }
+
+      this.leaveAutoCommit();
+      if (this.batching && statement instanceof final TrStatement st) {
+        this.batch.add(st);
+        final var batchSize =
+          this.executor.configuration().statementBatchSize();
+        if (this.batch.size() >= batchSize) {
+          this.flush(version);
+        }
+        return;
+      }
+
+      this.flush(version);
+      this.executor.executeStatementSingle(
+        this.connection, this.cache, statement);
+      this.transactions.onStatementsExecuted(version, 1);
+    } catch (final SQLException e) {
+      throw this.executor.errorSQL(e);
+    }
+  }
+
+  private void executeNonTransactional(
+    final BigInteger version,
+    final TrStatementType statement)
+    throws TrException, SQLException
+  {
+    this.executor.checkNonTransactionalPermitted(version);
+
+    if (!this.autoCommit) {
+      this.flush(version);
+      this.transactions.commit(version);
+      this.connection.setAutoCommit(true);
+      this.autoCommit = true;
+    }
+
+    if (statement instanceof final TrStatementParallelGroup group) {
+      this.executor.executeParallelGroup(
+        this.connection, this.cache, group);
+    } else {
+      this.executor.executeStatementSingle(
+        this.connection, this.cache, statement);
+    }
+  }
+
+  private void leaveAutoCommit()
+    throws SQLException
+  {
+    if (this.autoCommit) {
+      this.autoCommit = false;
+      this.connection.setAutoCommit(false);
+      this.transactions.begin();
+    }
+  }
+
+  private void flush(
+    final BigInteger version)
+    throws SQLException
+  {
+    this.transactions.onStatementsExecuted(
+      version,
+      this.executor.executeStatementBatch(this.connection, this.batch)
+    );
+  }
+
+  @Override
+  public void onRevisionFinished(
+    final BigInteger version)
+    throws TrException
+  {
+    if (!this.applying) {
+      return;
+    }
+
+    try {
+      this.leaveAutoCommit();
+      this.flush(version);
+      this.executor.configuration().versionSet()
+        .updateVersion(version, this.connection);
+      this.transactions.onRevisionCompleted(version);
+    } catch (final SQLException e) {
+      throw this.executor.errorSQL(e);
+    }
+
+    this.applying = false;
+    this.versionHaveNow = version;
+    this.executor.revisionsApplied().put(
+      version,
+      Duration.ofNanos(System.nanoTime() - this.revisionTimeStart)
+    );
+  }
+
+  /**
+   * Finish the execution. This must be called once all revisions have
+   * been delivered.
+   *
+   * @return The result of the execution
+   *
+   * @throws TrException On errors
+   */
+
+  public TrExecutorResult finish()
+    throws TrException
+  {
+    if (this.versionStart.isPresent()
+        && this.versionHighest != null
+        && this.versionStart.get().compareTo(this.versionHighest) > 0) {
+      throw new TrException(
+        "Database schema version is too high!",
+        Map.ofEntries(
+          entry("Current Version", this.versionStart.get().toString()),
+          entry("Highest Known Version", this.versionHighest.toString())
+        ),
+        UNRECOGNIZED_SCHEMA_REVISION
+      );
+    }
+
+    final var applied = this.executor.revisionsApplied();
+    final Optional<BigInteger> versionEnd;
+    if (applied.isEmpty()) {
+      versionEnd = this.versionStart;
+    } else {
+      versionEnd = Optional.of(applied.lastKey());
+    }
+
+    return new TrExecutorResult(
+      this.versionStart,
+      versionEnd,
+      applied,
+      Duration.ofNanos(System.nanoTime() - this.timeStart)
+    );
+  }
+
+  @Override
+  public void close()
+    throws TrException
+  {
+    this.executor.publishCacheStatistics(this.cache);
+    try {
+      this.leaveAutoCommit();
+      this.cache.close();
+    } catch (final SQLException e) {
+      throw this.executor.errorSQL(e);
+    } finally {
+      this.executor.parallelWorkers().close();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.trasco.api.TrSchemaRevision;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * A revision that is parsed the first time that it is requested. A revision
+ * that is not retained is parsed every time that it is requested, and is
+ * never held in memory by this object.
+ */
+
+public final class TrLazyRevision
+{
+  private final TrLazyRevisionIndex index;
+  private final BigInteger version;
+  private final boolean retain;
+  private volatile TrSchemaRevision revision;
+
+  /**
+   * A revision that is parsed the first time that it is requested.
+   *
+   * @param inIndex   The document index
+   * @param inVersion The revision version
+   * @param inRetain  Whether the revision is retained once parsed
+   */
+
+  public TrLazyRevision(
+    final TrLazyRevisionIndex inIndex,
+    final BigInteger inVersion,
+    final boolean inRetain)
+  {
+    this.index =
+      Objects.requireNonNull(inIndex, "index");
+    this.version =
+      Objects.requireNonNull(inVersion, "version");
+    this.retain =
+      inRetain;
+  }
+
+  /**
+   * @return {@code true} if the revision has been parsed
+   */
+
+  public boolean isMaterialized()
+  {
+    return this.revision != null;
+  }
+
+  /**
+   * @return The revision, parsing it if necessary
+   *
+   * @throws TrRevisionUnavailableException If the revision cannot be parsed
+   */
+
+  public TrSchemaRevision get()
+  {
+    if (!this.retain) {
+      return this.parse();
+    }
+
+    final var existing = this.revision;
+    if (existing != null) {
+      return existing;
+    }
+
+    synchronized (this) {
+      if (this.revision == null) {
+        this.revision = this.parse();
+      }
+      return this.revision;
+    }
+  }
+
+  private TrSchemaRevision parse()
+  {
+    try {
+      return this.index.parseRevision(this.version);
+    } catch (final ParsingException e) {
+      final var line =
+        e.statusValues()
+          .stream()
+          .findFirst()
+          .map(status -> Integer.valueOf(status.lexical().line()))
+          .orElseGet(() -> {
+            return Integer.valueOf(
+              this.index.revisions().get(this.version).line());
+          });
+
+      throw new TrRevisionUnavailableException(
+        "Revision %s could not be parsed: %s"
+          .formatted(this.version, e.getMessage()),
+        e,
+        this.version,
+        this.index.source(),
+        line.intValue()
+      );
+    }
+  }
+}
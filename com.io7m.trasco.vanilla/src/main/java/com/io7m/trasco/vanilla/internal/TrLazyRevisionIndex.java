@@ -0,0 +1,689 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.anethum.api.ParseSeverity;
+import com.io7m.anethum.api.ParseStatus;
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * An index of the locations of the revisions within a revision set document.
+ * The index is produced by a non-validating SAX parse of the document that
+ * only records where the root element and its immediate children end, and
+ * then by a second pass over the bytes of the document that converts those
+ * locations into byte offsets. Neither pass retains the document. The
+ * content of each revision is read from the document again, parsed, and
+ * validated when the revision is first requested, by parsing a document
+ * that contains only the root element, the parameters, and the requested
+ * revision.
+ */
+
+public final class TrLazyRevisionIndex
+{
+  private final URI source;
+  private final SourceType data;
+  private final Segment root;
+  private final String rootName;
+  private final Optional<Segment> parameters;
+  private final NavigableMap<BigInteger, Segment> revisions;
+
+  private TrLazyRevisionIndex(
+    final URI inSource,
+    final SourceType inData,
+    final Segment inRoot,
+    final String inRootName,
+    final Optional<Segment> inParameters,
+    final NavigableMap<BigInteger, Segment> inRevisions)
+  {
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+    this.data =
+      Objects.requireNonNull(inData, "data");
+    this.root =
+      Objects.requireNonNull(inRoot, "root");
+    this.rootName =
+      Objects.requireNonNull(inRootName, "rootName");
+    this.parameters =
+      Objects.requireNonNull(inParameters, "parameters");
+    this.revisions =
+      Collections.unmodifiableNavigableMap(
+        Objects.requireNonNull(inRevisions, "revisions"));
+  }
+
+  /**
+   * The bytes of a document, which may be read any number of times.
+   */
+
+  public interface SourceType
+  {
+    /**
+     * @return A stream of the entire document
+     *
+     * @throws IOException On I/O errors
+     */
+
+    InputStream open()
+      throws IOException;
+
+    /**
+     * Read a range of the document. This method may be called concurrently
+     * from multiple threads.
+     *
+     * @param offset The offset of the first byte
+     * @param length The number of bytes
+     *
+     * @return The bytes
+     *
+     * @throws IOException On I/O errors
+     */
+
+    byte[] read(
+      long offset,
+      int length)
+      throws IOException;
+  }
+
+  /**
+   * A document held in a file. The file is opened again for each read, and
+   * must not be modified whilst the index is in use.
+   *
+   * @param file The file
+   *
+   * @return A document source
+   */
+
+  public static SourceType ofFile(
+    final Path file)
+  {
+    Objects.requireNonNull(file, "file");
+
+    return new SourceType()
+    {
+      @Override
+      public InputStream open()
+        throws IOException
+      {
+        return Files.newInputStream(file);
+      }
+
+      @Override
+      public byte[] read(
+        final long offset,
+        final int length)
+        throws IOException
+      {
+        final var buffer = ByteBuffer.allocate(length);
+        try (var channel = FileChannel.open(file, READ)) {
+          while (buffer.hasRemaining()) {
+            final var position = offset + buffer.position();
+            if (channel.read(buffer, position) == -1) {
+              throw new EOFException(
+                "%s: Unexpected end of file at offset %d"
+                  .formatted(file, Long.valueOf(position))
+              );
+            }
+          }
+        }
+        return buffer.array();
+      }
+    };
+  }
+
+  /**
+   * A document held in memory.
+   *
+   * @param bytes The document
+   *
+   * @return A document source
+   */
+
+  public static SourceType ofBytes(
+    final byte[] bytes)
+  {
+    Objects.requireNonNull(bytes, "bytes");
+
+    return new SourceType()
+    {
+      @Override
+      public InputStream open()
+      {
+        return new ByteArrayInputStream(bytes);
+      }
+
+      @Override
+      public byte[] read(
+        final long offset,
+        final int length)
+      {
+        final var start = Math.toIntExact(offset);
+        return Arrays.copyOfRange(bytes, start, start + length);
+      }
+    };
+  }
+
+  /**
+   * Scan the given revision set document.
+   *
+   * @param source The source of the document
+   * @param data   The document, encoded as UTF-8
+   *
+   * @return An index of the document
+   *
+   * @throws IOException      On I/O errors
+   * @throws ParsingException If the structure of the document is malformed
+   */
+
+  public static TrLazyRevisionIndex scan(
+    final URI source,
+    final SourceType data)
+    throws IOException, ParsingException
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(data, "data");
+
+    final var scanner = new Scanner(source);
+    try (var stream = data.open()) {
+      final var input = new InputSource(stream);
+      input.setSystemId(source.toString());
+      final var reader = TrSchemaCache.createXMLReaderNonValidating();
+      reader.setContentHandler(scanner);
+      reader.setErrorHandler(scanner);
+      reader.parse(input);
+    } catch (final SAXParseException e) {
+      throw error(source, e.getLineNumber(), e.getMessage());
+    } catch (final SAXException | ParserConfigurationException e) {
+      throw error(source, 0, e.getMessage());
+    }
+
+    if (scanner.rootName == null) {
+      throw error(source, 0, "The document does not contain a root element.");
+    }
+
+    final long[] offsets;
+    try (var stream = data.open()) {
+      offsets = offsetsOf(stream, scanner.marks);
+    }
+
+    final var root =
+      new Segment(0L, offsets[0], 1);
+
+    Segment parameters = null;
+    final var revisions = new TreeMap<BigInteger, Segment>();
+    for (final var child : scanner.children) {
+      final var segment =
+        new Segment(
+          offsets[child.mark()],
+          offsets[child.mark() + 1],
+          scanner.marks.get(child.mark()).line()
+        );
+
+      if (child.version() != null) {
+        if (revisions.put(child.version(), segment) != null) {
+          throw error(
+            source,
+            child.line(),
+            "The document contains multiple revisions with version %s."
+              .formatted(child.version())
+          );
+        }
+      } else if (child.parameters()) {
+        if (parameters != null) {
+          throw error(
+            source,
+            child.line(),
+            "The document contains multiple parameter lists."
+          );
+        }
+        parameters = segment;
+      }
+    }
+
+    return new TrLazyRevisionIndex(
+      source,
+      data,
+      root,
+      scanner.rootName,
+      Optional.ofNullable(parameters),
+      revisions
+    );
+  }
+
+  /**
+   * Convert the given locations (as reported by the SAX parser, in which
+   * lines begin at column 1 and columns count UTF-16 code units) into byte
+   * offsets, in a single pass over the document. The locations must be in
+   * document order.
+   */
+
+  private static long[] offsetsOf(
+    final InputStream stream,
+    final List<Mark> marks)
+    throws IOException
+  {
+    final var offsets = new long[marks.size()];
+    final var buffer = new byte[65536];
+
+    long offset = 0L;
+    int line = 1;
+    long column = 1L;
+    int index = 0;
+    boolean carriageReturn = false;
+
+    while (index < marks.size()) {
+      final var count = stream.read(buffer);
+      if (count == -1) {
+        final var mark = marks.get(index);
+        throw new EOFException(
+          "Location %d:%d is beyond the end of the document."
+            .formatted(
+              Integer.valueOf(mark.line()),
+              Long.valueOf(mark.column()))
+        );
+      }
+
+      for (int position = 0; position < count; ++position) {
+        final var b = buffer[position];
+
+        /*
+         * The parser treats CR LF as a single line terminator, and so a
+         * location that follows CR LF refers to the byte after the LF.
+         */
+
+        if (carriageReturn) {
+          carriageReturn = false;
+          if (b == '\n') {
+            ++offset;
+            continue;
+          }
+        }
+
+        while (index < marks.size()) {
+          final var mark = marks.get(index);
+          if (mark.line() != line || mark.column() != column) {
+            break;
+          }
+          offsets[index] = offset;
+          ++index;
+        }
+
+        ++offset;
+        if (b == '\r') {
+          carriageReturn = true;
+          ++line;
+          column = 1L;
+        } else if (b == '\n') {
+          ++line;
+          column = 1L;
+        } else if ((b & 0xc0) != 0x80) {
+          column += (b & 0xf8) == 0xf0 ? 2L : 1L;
+        }
+      }
+    }
+    return offsets;
+  }
+
+  private static ParsingException error(
+    final URI source,
+    final int line,
+    final String message)
+  {
+    final var status =
+      ParseStatus.builder("parse-error", message)
+        .withSeverity(ParseSeverity.PARSE_ERROR)
+        .withLexical(LexicalPosition.of(line, 0, Optional.of(source)))
+        .build();
+    return new ParsingException(message, List.of(status));
+  }
+
+  /**
+   * @return The versions of the revisions in the document
+   */
+
+  public NavigableMap<BigInteger, Segment> revisions()
+  {
+    return this.revisions;
+  }
+
+  /**
+   * @return The source of the document
+   */
+
+  public URI source()
+  {
+    return this.source;
+  }
+
+  /**
+   * Parse and validate the parameters of the document.
+   *
+   * @return The parameters
+   *
+   * @throws ParsingException On parse errors
+   */
+
+  public Map<String, TrParameter> parseParameters()
+    throws ParsingException
+  {
+    return this.parseFragment(Optional.empty()).parameters();
+  }
+
+  /**
+   * Parse and validate the revision with the given version.
+   *
+   * @param version The version
+   *
+   * @return The revision
+   *
+   * @throws ParsingException On parse errors
+   */
+
+  public TrSchemaRevision parseRevision(
+    final BigInteger version)
+    throws ParsingException
+  {
+    final var segment = this.revisions.get(version);
+    if (segment == null) {
+      throw new IllegalArgumentException(
+        "No revision with version %s".formatted(version)
+      );
+    }
+
+    final var parsed = this.parseFragment(Optional.of(segment)).revisions();
+    final var revision = parsed.get(version);
+    if (revision == null || parsed.size() != 1) {
+      throw new TrRevisionUnavailableException(
+        "Revision at line %d did not produce revision %s (produced %s)"
+          .formatted(
+            Integer.valueOf(segment.line()),
+            version,
+            parsed.keySet()),
+        null,
+        version,
+        this.source,
+        segment.line()
+      );
+    }
+    return revision;
+  }
+
+  /**
+   * Parse a document that contains the root element, the parameters, and
+   * (optionally) a single revision. The bytes of each segment are read from
+   * the document, and placed on the same line as they appear in the
+   * original document, so that the lexical information in any parse errors
+   * refers to the original document.
+   */
+
+  private TrSchemaRevisionSet parseFragment(
+    final Optional<Segment> revision)
+    throws ParsingException
+  {
+    final var fragment = new ByteArrayOutputStream(128);
+    try {
+      var line = this.appendSegment(fragment, 1, this.root);
+      if (this.parameters.isPresent()) {
+        line = this.appendSegment(fragment, line, this.parameters.get());
+      }
+      if (revision.isPresent()) {
+        this.appendSegment(fragment, line, revision.get());
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    fragment.writeBytes("</%s>".formatted(this.rootName).getBytes(UTF_8));
+
+    try (var parser = new TrSchemaSetRevisionParser(
+      Optional.empty(),
+      this.source,
+      new ByteArrayInputStream(fragment.toByteArray()),
+      status -> {
+      },
+      TrSchemaSetRevisionParserValidation.VALIDATING)) {
+      return parser.execute();
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private int appendSegment(
+    final ByteArrayOutputStream fragment,
+    final int lineNow,
+    final Segment segment)
+    throws IOException
+  {
+    var line = lineNow;
+    while (line < segment.line()) {
+      fragment.write('\n');
+      ++line;
+    }
+
+    final var bytes =
+      this.data.read(
+        segment.start(),
+        Math.toIntExact(segment.end() - segment.start())
+      );
+    for (final var b : bytes) {
+      if (b == '\n') {
+        ++line;
+      }
+    }
+    fragment.writeBytes(bytes);
+    return line;
+  }
+
+  /**
+   * The location of an element within a document.
+   *
+   * @param start The offset of the first byte of the element
+   * @param end   The offset of the byte following the element
+   * @param line  The line number of the first byte of the element
+   */
+
+  public record Segment(
+    long start,
+    long end,
+    int line)
+  {
+
+  }
+
+  /**
+   * A location reported by the SAX parser.
+   *
+   * @param line   The line number
+   * @param column The column number
+   */
+
+  private record Mark(
+    int line,
+    long column)
+  {
+
+  }
+
+  /**
+   * An immediate child of the root element. The child occupies the bytes
+   * between the given mark and the next mark.
+   *
+   * @param mark       The index of the mark that precedes the child
+   * @param line       The line on which the child's start tag ends
+   * @param version    The version, if the child is a revision
+   * @param parameters {@code true} if the child is a parameter list
+   */
+
+  private record Child(
+    int mark,
+    int line,
+    BigInteger version,
+    boolean parameters)
+  {
+
+  }
+
+  /**
+   * A content handler that records the locations at which the start tag of
+   * the root element and each of the root element's children end. Each
+   * child (together with any whitespace and comments that precede it)
+   * occupies the bytes between two consecutive locations.
+   */
+
+  private static final class Scanner extends DefaultHandler
+  {
+    private final URI source;
+    private final ArrayList<Mark> marks;
+    private final ArrayList<Child> children;
+    private Locator locator;
+    private int depth;
+    private String rootName;
+
+    Scanner(
+      final URI inSource)
+    {
+      this.source = inSource;
+      this.marks = new ArrayList<>();
+      this.children = new ArrayList<>();
+      this.depth = 0;
+    }
+
+    @Override
+    public void setDocumentLocator(
+      final Locator inLocator)
+    {
+      this.locator = inLocator;
+    }
+
+    @Override
+    public void startElement(
+      final String uri,
+      final String localName,
+      final String qName,
+      final Attributes attributes)
+      throws SAXException
+    {
+      if (this.depth == 0) {
+        this.rootName = qName;
+        this.mark();
+      } else if (this.depth == 1) {
+        this.onChildStarted(localName, attributes);
+      }
+      ++this.depth;
+    }
+
+    private void onChildStarted(
+      final String localName,
+      final Attributes attributes)
+      throws SAXParseException
+    {
+      BigInteger version = null;
+      if ("Schema".equals(localName)) {
+        final var text = attributes.getValue("versionCurrent");
+        if (text == null) {
+          throw this.error("Schema element has no versionCurrent attribute.");
+        }
+        try {
+          version = new BigInteger(text.strip());
+        } catch (final NumberFormatException e) {
+          throw this.error(
+            "Schema element has an unparseable versionCurrent attribute.");
+        }
+      }
+
+      this.children.add(new Child(
+        this.marks.size() - 1,
+        this.locator.getLineNumber(),
+        version,
+        "Parameters".equals(localName)
+      ));
+    }
+
+    @Override
+    public void endElement(
+      final String uri,
+      final String localName,
+      final String qName)
+    {
+      --this.depth;
+      if (this.depth == 1) {
+        this.mark();
+      }
+    }
+
+    private void mark()
+    {
+      this.marks.add(new Mark(
+        this.locator.getLineNumber(),
+        this.locator.getColumnNumber()
+      ));
+    }
+
+    @Override
+    public void fatalError(
+      final SAXParseException e)
+      throws SAXException
+    {
+      throw e;
+    }
+
+    private SAXParseException error(
+      final String message)
+    {
+      return new SAXParseException(
+        message,
+        this.source.toString(),
+        this.source.toString(),
+        this.locator.getLineNumber(),
+        this.locator.getColumnNumber()
+      );
+    }
+  }
+}
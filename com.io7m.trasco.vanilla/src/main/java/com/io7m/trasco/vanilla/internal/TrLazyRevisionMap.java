@@ -0,0 +1,488 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionMapLazyType;
+
+import java.math.BigInteger;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+
+/**
+ * An immutable map of revisions in which each revision is parsed the first
+ * time that it is accessed. Views of the map (such as those returned by
+ * {@link #tailMap(Object, boolean)}) are also lazy, and share revisions with
+ * the map from which they were produced.
+ *
+ * If the map has a nonzero read-ahead, iterating over the entries of the
+ * map (or any of its views) with {@code entrySet().iterator()} parses
+ * upcoming revisions on a background thread whilst the caller is working on
+ * the current revision. The iterator returned is a
+ * {@link TrRevisionPipeline}, and callers that may abandon the iteration
+ * should close it. All other operations that visit every revision (such
+ * as {@link #values()}, {@link #equals(Object)}, {@link #hashCode()}, and
+ * {@link #toString()}) parse the revisions on the calling thread, and so
+ * never start a pipeline.
+ */
+
+public final class TrLazyRevisionMap
+  extends AbstractMap<BigInteger, TrSchemaRevision>
+  implements TrSchemaRevisionMapLazyType
+{
+  private final NavigableMap<BigInteger, TrLazyRevision> revisions;
+  private final int readAhead;
+
+  /**
+   * An immutable map of revisions in which each revision is parsed the first
+   * time that it is accessed.
+   *
+   * @param inRevisions The underlying revisions
+   */
+
+  public TrLazyRevisionMap(
+    final NavigableMap<BigInteger, TrLazyRevision> inRevisions)
+  {
+    this(inRevisions, 0);
+  }
+
+  /**
+   * An immutable map of revisions in which each revision is parsed the first
+   * time that it is accessed.
+   *
+   * @param inRevisions The underlying revisions
+   * @param inReadAhead The maximum number of revisions parsed ahead of the
+   *                    current revision during iteration, or {@code 0} to
+   *                    parse revisions on the calling thread
+   */
+
+  public TrLazyRevisionMap(
+    final NavigableMap<BigInteger, TrLazyRevision> inRevisions,
+    final int inReadAhead)
+  {
+    if (inReadAhead < 0) {
+      throw new IllegalArgumentException(
+        "Read-ahead %d must be non-negative.".formatted(
+          Integer.valueOf(inReadAhead)));
+    }
+
+    this.revisions =
+      Collections.unmodifiableNavigableMap(
+        Objects.requireNonNull(inRevisions, "revisions"));
+    this.readAhead =
+      inReadAhead;
+  }
+
+  private TrLazyRevisionMap view(
+    final NavigableMap<BigInteger, TrLazyRevision> inRevisions)
+  {
+    return new TrLazyRevisionMap(inRevisions, this.readAhead);
+  }
+
+  private static Entry<BigInteger, TrSchemaRevision> entry(
+    final Entry<BigInteger, TrLazyRevision> entry)
+  {
+    if (entry == null) {
+      return null;
+    }
+    return new LazyEntry(entry.getKey(), entry.getValue());
+  }
+
+  @Override
+  public boolean isMaterialized(
+    final BigInteger version)
+  {
+    final var revision = this.revisions.get(version);
+    return revision != null && revision.isMaterialized();
+  }
+
+  @Override
+  public int size()
+  {
+    return this.revisions.size();
+  }
+
+  @Override
+  public boolean containsKey(
+    final Object key)
+  {
+    return this.revisions.containsKey(key);
+  }
+
+  @Override
+  public TrSchemaRevision get(
+    final Object key)
+  {
+    final var revision = this.revisions.get(key);
+    if (revision == null) {
+      return null;
+    }
+    return revision.get();
+  }
+
+  @Override
+  public Set<Entry<BigInteger, TrSchemaRevision>> entrySet()
+  {
+    return new AbstractSet<>()
+    {
+      @Override
+      public Iterator<Entry<BigInteger, TrSchemaRevision>> iterator()
+      {
+        return TrLazyRevisionMap.this.entryIterator();
+      }
+
+      @Override
+      public int size()
+      {
+        return TrLazyRevisionMap.this.revisions.size();
+      }
+    };
+  }
+
+  private Iterator<Entry<BigInteger, TrSchemaRevision>> entryIterator()
+  {
+    if (this.readAhead > 0) {
+      return new TrRevisionPipeline(this.revisions.entrySet(), this.readAhead);
+    }
+    return this.sequentialIterator();
+  }
+
+  private Iterator<Entry<BigInteger, TrSchemaRevision>> sequentialIterator()
+  {
+    return this.revisions.entrySet()
+      .stream()
+      .map(TrLazyRevisionMap::entry)
+      .iterator();
+  }
+
+  @Override
+  public Collection<TrSchemaRevision> values()
+  {
+    return new AbstractCollection<>()
+    {
+      @Override
+      public Iterator<TrSchemaRevision> iterator()
+      {
+        return TrLazyRevisionMap.this.revisions.values()
+          .stream()
+          .map(TrLazyRevision::get)
+          .iterator();
+      }
+
+      @Override
+      public int size()
+      {
+        return TrLazyRevisionMap.this.revisions.size();
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(
+    final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof final Map<?, ?> other) || other.size() != this.size()) {
+      return false;
+    }
+
+    try {
+      final var iterator = this.sequentialIterator();
+      while (iterator.hasNext()) {
+        final var entry = iterator.next();
+        if (!entry.getValue().equals(other.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    } catch (final ClassCastException | NullPointerException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public int hashCode()
+  {
+    int hash = 0;
+    final var iterator = this.sequentialIterator();
+    while (iterator.hasNext()) {
+      hash += iterator.next().hashCode();
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString()
+  {
+    final var text = new StringJoiner(", ", "{", "}");
+    final var iterator = this.sequentialIterator();
+    while (iterator.hasNext()) {
+      text.add(iterator.next().toString());
+    }
+    return text.toString();
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> lowerEntry(
+    final BigInteger key)
+  {
+    return entry(this.revisions.lowerEntry(key));
+  }
+
+  @Override
+  public BigInteger lowerKey(
+    final BigInteger key)
+  {
+    return this.revisions.lowerKey(key);
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> floorEntry(
+    final BigInteger key)
+  {
+    return entry(this.revisions.floorEntry(key));
+  }
+
+  @Override
+  public BigInteger floorKey(
+    final BigInteger key)
+  {
+    return this.revisions.floorKey(key);
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> ceilingEntry(
+    final BigInteger key)
+  {
+    return entry(this.revisions.ceilingEntry(key));
+  }
+
+  @Override
+  public BigInteger ceilingKey(
+    final BigInteger key)
+  {
+    return this.revisions.ceilingKey(key);
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> higherEntry(
+    final BigInteger key)
+  {
+    return entry(this.revisions.higherEntry(key));
+  }
+
+  @Override
+  public BigInteger higherKey(
+    final BigInteger key)
+  {
+    return this.revisions.higherKey(key);
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> firstEntry()
+  {
+    return entry(this.revisions.firstEntry());
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> lastEntry()
+  {
+    return entry(this.revisions.lastEntry());
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> pollFirstEntry()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Entry<BigInteger, TrSchemaRevision> pollLastEntry()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public NavigableMap<BigInteger, TrSchemaRevision> descendingMap()
+  {
+    return this.view(this.revisions.descendingMap());
+  }
+
+  @Override
+  public NavigableSet<BigInteger> navigableKeySet()
+  {
+    return this.revisions.navigableKeySet();
+  }
+
+  @Override
+  public Set<BigInteger> keySet()
+  {
+    return this.revisions.navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<BigInteger> descendingKeySet()
+  {
+    return this.revisions.descendingKeySet();
+  }
+
+  @Override
+  public NavigableMap<BigInteger, TrSchemaRevision> subMap(
+    final BigInteger fromKey,
+    final boolean fromInclusive,
+    final BigInteger toKey,
+    final boolean toInclusive)
+  {
+    return this.view(
+      this.revisions.subMap(fromKey, fromInclusive, toKey, toInclusive)
+    );
+  }
+
+  @Override
+  public NavigableMap<BigInteger, TrSchemaRevision> headMap(
+    final BigInteger toKey,
+    final boolean inclusive)
+  {
+    return this.view(this.revisions.headMap(toKey, inclusive));
+  }
+
+  @Override
+  public NavigableMap<BigInteger, TrSchemaRevision> tailMap(
+    final BigInteger fromKey,
+    final boolean inclusive)
+  {
+    return this.view(this.revisions.tailMap(fromKey, inclusive));
+  }
+
+  @Override
+  public Comparator<? super BigInteger> comparator()
+  {
+    return this.revisions.comparator();
+  }
+
+  @Override
+  public SortedMap<BigInteger, TrSchemaRevision> subMap(
+    final BigInteger fromKey,
+    final BigInteger toKey)
+  {
+    return this.subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public SortedMap<BigInteger, TrSchemaRevision> headMap(
+    final BigInteger toKey)
+  {
+    return this.headMap(toKey, false);
+  }
+
+  @Override
+  public SortedMap<BigInteger, TrSchemaRevision> tailMap(
+    final BigInteger fromKey)
+  {
+    return this.tailMap(fromKey, true);
+  }
+
+  @Override
+  public BigInteger firstKey()
+  {
+    return this.revisions.firstKey();
+  }
+
+  @Override
+  public BigInteger lastKey()
+  {
+    return this.revisions.lastKey();
+  }
+
+  /**
+   * A map entry that parses its revision when the value is requested.
+   */
+
+  private static final class LazyEntry
+    implements Entry<BigInteger, TrSchemaRevision>
+  {
+    private final BigInteger key;
+    private final TrLazyRevision revision;
+
+    LazyEntry(
+      final BigInteger inKey,
+      final TrLazyRevision inRevision)
+    {
+      this.key = inKey;
+      this.revision = inRevision;
+    }
+
+    @Override
+    public BigInteger getKey()
+    {
+      return this.key;
+    }
+
+    @Override
+    public TrSchemaRevision getValue()
+    {
+      return this.revision.get();
+    }
+
+    @Override
+    public TrSchemaRevision setValue(
+      final TrSchemaRevision value)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(
+      final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof final Map.Entry<?, ?> other)) {
+        return false;
+      }
+      return Objects.equals(this.key, other.getKey())
+             && Objects.equals(this.getValue(), other.getValue());
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.key.hashCode() ^ this.getValue().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "%s=%s".formatted(this.key, this.getValue());
+    }
+  }
+}
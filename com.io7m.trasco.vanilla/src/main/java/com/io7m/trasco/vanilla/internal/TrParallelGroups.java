@@ -0,0 +1,274 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrExecutorParallelConnections;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The execution of parallel groups. The statements of a group are taken
+ * from a shared queue by a fixed number of workers, each of which executes
+ * statements on its own auto-commit connection. The workers run on the
+ * threads of the executor's current run, and are also used to execute
+ * deferred index builds, each in a transaction of its own.
+ */
+
+public final class TrParallelGroups
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrParallelGroups.class);
+
+  private TrParallelGroups()
+  {
+
+  }
+
+  /**
+   * Execute the given parallel group.
+   *
+   * @param executor   The executor
+   * @param connection The executor's connection
+   * @param cache      The executor's statement cache
+   * @param group      The group
+   *
+   * @throws SQLException On errors
+   */
+
+  static void execute(
+    final TrExecutor executor,
+    final Connection connection,
+    final TrStatementCache cache,
+    final TrStatementParallelGroup group)
+    throws SQLException
+  {
+    if (group.statements().isEmpty()) {
+      return;
+    }
+
+    final var parallelOpt = executor.configuration().parallelConnections();
+    if (parallelOpt.isEmpty()) {
+      LOG.debug("no parallel connections configured; executing sequentially");
+      for (final var statement : group.statements()) {
+        executor.executeStatementSingle(connection, cache, statement);
+      }
+      return;
+    }
+
+    executeAll(
+      executor,
+      parallelOpt.get(),
+      group.statements(),
+      false,
+      (c, s) -> {
+
+      }
+    );
+  }
+
+  /**
+   * A function called each time that a statement has executed successfully.
+   *
+   * @param <T> The type of statements
+   */
+
+  interface ExecutedType<T extends TrStatementType>
+  {
+    /**
+     * A statement executed successfully.
+     *
+     * @param connection The connection that executed the statement
+     * @param statement  The statement
+     *
+     * @throws SQLException On errors
+     */
+
+    void onExecuted(
+      Connection connection,
+      T statement)
+      throws SQLException;
+  }
+
+  /**
+   * Execute the given statements over the given parallel connections. The
+   * given function is called (on the thread and connection that executed
+   * the statement) each time that a statement has executed successfully.
+   * If the statements are transactional, each statement is executed in its
+   * own transaction, and the transaction is committed only after the given
+   * function has returned.
+   *
+   * @param executor      The executor
+   * @param parallel      The parallel connections
+   * @param statements    The statements
+   * @param transactional {@code true} if each statement is executed in its
+   *                      own transaction
+   * @param onExecuted    A function called for each statement that succeeds
+   * @param <T>           The type of statements
+   *
+   * @throws SQLException On errors
+   */
+
+  static <T extends TrStatementType> void executeAll(
+    final TrExecutor executor,
+    final TrExecutorParallelConnections parallel,
+    final List<T> statements,
+    final boolean transactional,
+    final ExecutedType<? super T> onExecuted)
+    throws SQLException
+  {
+    if (statements.isEmpty()) {
+      return;
+    }
+
+    final var queue =
+      new ConcurrentLinkedQueue<>(statements);
+    final var workers =
+      Math.min(parallel.maxConnections(), statements.size());
+
+    LOG.debug(
+      "executing {} statements over {} connections",
+      Integer.valueOf(statements.size()),
+      Integer.valueOf(workers)
+    );
+
+    final var threads = executor.parallelWorkers().threads();
+    final var futures = new ArrayList<Future<Void>>(workers);
+    for (int index = 0; index < workers; ++index) {
+      futures.add(threads.submit(() -> {
+        executeParallelWorker(
+          executor,
+          parallel,
+          queue,
+          transactional,
+          onExecuted
+        );
+        return null;
+      }));
+    }
+
+    awaitParallelWorkers(futures, queue);
+  }
+
+  private static void awaitParallelWorkers(
+    final List<Future<Void>> futures,
+    final Queue<?> queue)
+    throws SQLException
+  {
+    SQLException failure = null;
+    for (final var future : futures) {
+      try {
+        future.get();
+      } catch (final ExecutionException e) {
+        final var cause = e.getCause();
+        final var ex = cause instanceof final SQLException es
+          ? es
+          : new SQLException(cause.getMessage(), cause);
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        queue.clear();
+        futures.forEach(f -> f.cancel(true));
+        throw new SQLException(
+          "Interrupted while executing a parallel group.", e);
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static <T extends TrStatementType> void executeParallelWorker(
+    final TrExecutor executor,
+    final TrExecutorParallelConnections parallel,
+    final Queue<T> queue,
+    final boolean transactional,
+    final ExecutedType<? super T> onExecuted)
+    throws SQLException
+  {
+    try (var connection = parallel.connections().openConnection()) {
+      connection.setAutoCommit(!transactional);
+
+      try (var cache = new TrStatementCache(0)) {
+        while (true) {
+          final var statement = queue.poll();
+          if (statement == null) {
+            return;
+          }
+          executeInWorker(
+            executor,
+            connection,
+            cache,
+            statement,
+            transactional,
+            onExecuted
+          );
+        }
+      }
+    } catch (final SQLException e) {
+
+      /*
+       * Prevent the other workers from starting any further statements.
+       */
+
+      queue.clear();
+      throw e;
+    }
+  }
+
+  private static <T extends TrStatementType> void executeInWorker(
+    final TrExecutor executor,
+    final Connection connection,
+    final TrStatementCache cache,
+    final T statement,
+    final boolean transactional,
+    final ExecutedType<? super T> onExecuted)
+    throws SQLException
+  {
+    try {
+      executor.executeStatementSingle(connection, cache, statement);
+      onExecuted.onExecuted(connection, statement);
+      if (transactional) {
+        connection.commit();
+      }
+    } catch (final SQLException e) {
+      if (transactional) {
+        try {
+          connection.rollback();
+        } catch (final SQLException ex) {
+          e.addSuppressed(ex);
+        }
+      }
+      throw e;
+    }
+  }
+}
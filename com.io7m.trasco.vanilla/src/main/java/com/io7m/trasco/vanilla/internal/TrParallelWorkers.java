@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrExecutorParallelConnections;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads that execute the statements of parallel groups and parallel
+ * index builds. A single pool is created, on first use, for each run of an
+ * executor, and is shared by every parallel group in the run, rather than
+ * a new pool being created for each group. The pool has one thread for
+ * each parallel connection.
+ */
+
+final class TrParallelWorkers implements AutoCloseable
+{
+  private static final AtomicInteger THREAD_IDS =
+    new AtomicInteger(0);
+
+  private final Optional<TrExecutorParallelConnections> parallel;
+  private Optional<ExecutorService> threads;
+
+  /**
+   * The threads that execute the statements of parallel groups.
+   *
+   * @param inParallel The parallel connections, if any
+   */
+
+  TrParallelWorkers(
+    final Optional<TrExecutorParallelConnections> inParallel)
+  {
+    this.parallel =
+      Objects.requireNonNull(inParallel, "parallel");
+    this.threads =
+      Optional.empty();
+  }
+
+  private static Thread newThread(
+    final Runnable runnable)
+  {
+    final var thread = new Thread(
+      runnable,
+      "com.io7m.trasco.parallel-%d".formatted(
+        Integer.valueOf(THREAD_IDS.incrementAndGet()))
+    );
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * @return The pool of threads, creating it if necessary
+   *
+   * @throws IllegalStateException If no parallel connections are configured
+   */
+
+  synchronized ExecutorService threads()
+  {
+    if (this.threads.isEmpty()) {
+      final var connections =
+        this.parallel.orElseThrow(() -> {
+          return new IllegalStateException(
+            "No parallel connections are configured.");
+        });
+
+      this.threads = Optional.of(
+        Executors.newFixedThreadPool(
+          connections.maxConnections(),
+          TrParallelWorkers::newThread
+        )
+      );
+    }
+    return this.threads.get();
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    this.threads.ifPresent(ExecutorService::shutdownNow);
+    this.threads = Optional.empty();
+  }
+}
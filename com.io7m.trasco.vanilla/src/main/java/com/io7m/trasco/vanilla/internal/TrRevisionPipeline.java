@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrSchemaRevision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * An iterator over revisions in which the revisions are parsed, in order, on
+ * a background thread. The background thread parses at most {@code capacity}
+ * revisions ahead of the consumer, and so the consumer can begin working on
+ * the first revision as soon as it has been parsed, and at most
+ * {@code capacity + 1} parsed revisions are held in memory at any one time.
+ *
+ * The background thread is taken from a shared, bounded pool when the first
+ * revision is requested. If no thread is available, the revisions are
+ * parsed on the consumer's thread instead.
+ *
+ * The background thread stops after the first revision that cannot be
+ * parsed; the consumer receives the failure as an
+ * {@link IllegalStateException} in place of the revision. Consumers that
+ * stop before the iterator is exhausted must {@link #close()} the iterator
+ * to stop the background thread. As a last resort, the background thread
+ * also stops if the iterator becomes unreachable.
+ */
+
+public final class TrRevisionPipeline
+  implements Iterator<Map.Entry<BigInteger, TrSchemaRevision>>, AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrRevisionPipeline.class);
+
+  private static final long OFFER_TIMEOUT_MS = 100L;
+
+  /*
+   * A thread that has delivered its final revision may not yet have
+   * returned to the pool when the consumer starts another pipeline, so the
+   * pool must not be as small as a single thread even on a single processor.
+   */
+
+  private static final int THREADS_MAX =
+    Math.max(4, Runtime.getRuntime().availableProcessors());
+
+  private static final AtomicInteger THREAD_IDS =
+    new AtomicInteger(0);
+
+  private static final ThreadPoolExecutor PRODUCERS =
+    new ThreadPoolExecutor(
+      0,
+      THREADS_MAX,
+      10L,
+      SECONDS,
+      new SynchronousQueue<>(),
+      TrRevisionPipeline::newThread
+    );
+
+  private final List<Map.Entry<BigInteger, TrLazyRevision>> entries;
+  private final BlockingQueue<Item> queue;
+  private final AtomicBoolean closed;
+  private int remaining;
+  private boolean started;
+  private boolean synchronous;
+
+  /**
+   * An iterator over revisions in which the revisions are parsed on a
+   * background thread.
+   *
+   * @param revisions The revisions, in order
+   * @param capacity  The maximum number of revisions parsed ahead of the
+   *                  consumer
+   */
+
+  public TrRevisionPipeline(
+    final Collection<Map.Entry<BigInteger, TrLazyRevision>> revisions,
+    final int capacity)
+  {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+        "Capacity %d must be positive.".formatted(
+          Integer.valueOf(capacity)));
+    }
+
+    this.entries = List.copyOf(revisions);
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.closed = new AtomicBoolean(false);
+    this.remaining = this.entries.size();
+  }
+
+  private static Thread newThread(
+    final Runnable runnable)
+  {
+    final var thread = new Thread(
+      runnable,
+      "com.io7m.trasco.pipeline-idle-%d".formatted(
+        Integer.valueOf(THREAD_IDS.incrementAndGet()))
+    );
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Close the iterator if it is a pipeline.
+   *
+   * @param iterator The iterator
+   */
+
+  static void closeIfPipeline(
+    final Iterator<?> iterator)
+  {
+    if (iterator instanceof final TrRevisionPipeline pipeline) {
+      pipeline.close();
+    }
+  }
+
+  private void start()
+  {
+    if (this.started) {
+      return;
+    }
+    this.started = true;
+
+    final var owner = new WeakReference<>(this);
+    final var producerQueue = this.queue;
+    final var producerClosed = this.closed;
+    final var producerEntries = this.entries;
+    try {
+      PRODUCERS.execute(
+        () -> produce(owner, producerClosed, producerQueue, producerEntries)
+      );
+    } catch (final RejectedExecutionException e) {
+      LOG.debug("no pipeline thread available, parsing on calling thread");
+      this.synchronous = true;
+    }
+  }
+
+  private static void produce(
+    final WeakReference<TrRevisionPipeline> owner,
+    final AtomicBoolean closed,
+    final BlockingQueue<Item> queue,
+    final List<Map.Entry<BigInteger, TrLazyRevision>> entries)
+  {
+    final var thread = Thread.currentThread();
+    final var threadName = thread.getName();
+    thread.setName(
+      "com.io7m.trasco.pipeline[%s]".formatted(entries.get(0).getKey()));
+
+    try {
+      for (final var entry : entries) {
+        if (closed.get()) {
+          return;
+        }
+
+        final var item = parse(entry);
+        if (!offer(owner, closed, queue, item) || item.failure() != null) {
+          return;
+        }
+      }
+    } finally {
+      thread.setName(threadName);
+    }
+  }
+
+  private static Item parse(
+    final Map.Entry<BigInteger, TrLazyRevision> entry)
+  {
+    final var version = entry.getKey();
+    try {
+      return new Item(version, entry.getValue().get(), null);
+    } catch (final RuntimeException e) {
+      return new Item(version, null, e);
+    }
+  }
+
+  private static boolean offer(
+    final WeakReference<TrRevisionPipeline> owner,
+    final AtomicBoolean closed,
+    final BlockingQueue<Item> queue,
+    final Item item)
+  {
+    try {
+      while (!queue.offer(item, OFFER_TIMEOUT_MS, MILLISECONDS)) {
+        if (closed.get() || owner.get() == null) {
+          LOG.debug("pipeline abandoned at revision {}", item.version());
+          return false;
+        }
+      }
+      return !closed.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public boolean hasNext()
+  {
+    return this.remaining > 0;
+  }
+
+  @Override
+  public Map.Entry<BigInteger, TrSchemaRevision> next()
+  {
+    if (this.remaining == 0) {
+      throw new NoSuchElementException();
+    }
+
+    this.start();
+
+    final Item item;
+    if (this.synchronous) {
+      item = parse(this.entries.get(this.entries.size() - this.remaining));
+    } else {
+      item = this.take();
+    }
+
+    final var failure = item.failure();
+    if (failure != null) {
+      this.close();
+      throw new IllegalStateException(failure.getMessage(), failure);
+    }
+
+    --this.remaining;
+    return Map.entry(item.version(), item.revision());
+  }
+
+  private Item take()
+  {
+    try {
+      return this.queue.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+        "Interrupted whilst waiting for a revision.", e);
+    }
+  }
+
+  /**
+   * Stop the background thread and discard any revisions that have been
+   * parsed ahead of the consumer. The iterator has no further elements.
+   */
+
+  @Override
+  public void close()
+  {
+    this.remaining = 0;
+    this.closed.set(true);
+    this.queue.clear();
+  }
+
+  private record Item(
+    BigInteger version,
+    TrSchemaRevision revision,
+    RuntimeException failure)
+  {
+
+  }
+}
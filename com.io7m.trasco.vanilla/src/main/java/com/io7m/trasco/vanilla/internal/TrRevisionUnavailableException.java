@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * A revision that could not be materialized from its document. Lazily
+ * loaded revisions are parsed when they are first requested, at which point
+ * a parse error can only be raised as an unchecked exception. The executor
+ * converts this exception into a checked exception that names the revision
+ * and the position of the error in the document.
+ */
+
+public final class TrRevisionUnavailableException
+  extends IllegalStateException
+{
+  private final BigInteger version;
+  private final URI source;
+  private final int line;
+
+  /**
+   * A revision that could not be materialized.
+   *
+   * @param message   The message
+   * @param cause     The cause
+   * @param inVersion The revision version
+   * @param inSource  The source of the document
+   * @param inLine    The line of the document at which the error occurred
+   */
+
+  public TrRevisionUnavailableException(
+    final String message,
+    final Throwable cause,
+    final BigInteger inVersion,
+    final URI inSource,
+    final int inLine)
+  {
+    super(Objects.requireNonNull(message, "message"), cause);
+
+    this.version =
+      Objects.requireNonNull(inVersion, "version");
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+    this.line =
+      inLine;
+  }
+
+  /**
+   * @return The revision version
+   */
+
+  public BigInteger version()
+  {
+    return this.version;
+  }
+
+  /**
+   * @return The source of the document
+   */
+
+  public URI source()
+  {
+    return this.source;
+  }
+
+  /**
+   * @return The line of the document at which the error occurred
+   */
+
+  public int line()
+  {
+    return this.line;
+  }
+}
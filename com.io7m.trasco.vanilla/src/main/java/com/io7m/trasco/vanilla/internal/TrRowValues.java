@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentBytes;
+import com.io7m.trasco.api.TrArgumentNumeric;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentTimestamp;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrArgumentUUID;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Functions to convert the values of rows to and from their textual forms.
+ * The textual form of a value is the form in which it is written in a
+ * revision set, and converting a value to text and back yields an equal
+ * value.
+ */
+
+public final class TrRowValues
+{
+  private TrRowValues()
+  {
+
+  }
+
+  /**
+   * Parse a value for the given column.
+   *
+   * @param column The column
+   * @param text   The text
+   *
+   * @return The value
+   *
+   * @throws IllegalArgumentException If the text is not a valid value
+   */
+
+  public static TrArgumentType parse(
+    final TrStatementRowsColumn column,
+    final String text)
+    throws IllegalArgumentException
+  {
+    final var name = column.name();
+    return switch (column.kind()) {
+      case STRING -> new TrArgumentString(name, text);
+      case NUMERIC -> new TrArgumentNumeric(name, parseNumeric(text));
+      case BOOLEAN -> new TrArgumentBoolean(name, parseBoolean(text));
+      case TIMESTAMP -> new TrArgumentTimestamp(name, parseTimestamp(text));
+      case BYTES -> new TrArgumentBytes(name, HexFormat.of().parseHex(text));
+      case UUID -> new TrArgumentUUID(name, UUID.fromString(text));
+      case BIGINT -> new TrArgumentBigInt(name, Long.parseLong(text));
+    };
+  }
+
+  /**
+   * Parse a numeric value. Integral values that fit into a {@code long} are
+   * returned as {@link Long} values, and all other values are returned as
+   * {@link BigDecimal} values.
+   *
+   * @param text The text
+   *
+   * @return The value
+   *
+   * @throws NumberFormatException If the text is not a valid number
+   */
+
+  public static Number parseNumeric(
+    final String text)
+    throws NumberFormatException
+  {
+    final var decimal = new BigDecimal(text);
+    if (decimal.scale() <= 0 && decimal.precision() - decimal.scale() < 19) {
+      return Long.valueOf(decimal.longValueExact());
+    }
+    return decimal;
+  }
+
+  private static boolean parseBoolean(
+    final String text)
+  {
+    return switch (text) {
+      case "true" -> true;
+      case "false" -> false;
+      default -> throw new IllegalArgumentException(
+        "Boolean value must be 'true' or 'false' (received '%s')"
+          .formatted(text)
+      );
+    };
+  }
+
+  private static Instant parseTimestamp(
+    final String text)
+  {
+    try {
+      return Instant.parse(text);
+    } catch (final DateTimeParseException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Format a value as text.
+   *
+   * @param value The value
+   *
+   * @return The textual form of the value
+   */
+
+  public static String text(
+    final TrArgumentType value)
+  {
+    if (value instanceof final TrArgumentString s) {
+      return s.value();
+    }
+    if (value instanceof final TrArgumentNumeric n) {
+      return n.value().toString();
+    }
+    if (value instanceof final TrArgumentBoolean b) {
+      return Boolean.toString(b.value());
+    }
+    if (value instanceof final TrArgumentTimestamp t) {
+      return t.value().toString();
+    }
+    if (value instanceof final TrArgumentBytes b) {
+      return HexFormat.of().formatHex(b.value());
+    }
+    if (value instanceof final TrArgumentUUID u) {
+      return u.value().toString();
+    }
+    if (value instanceof final TrArgumentBigInt b) {
+      return Long.toString(b.value());
+    }
+    throw new UnreachableCodeException();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.xml.schemas.TrSchemas;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.util.Optional;
+
+/**
+ * A process-wide cache of the compiled revision set schemas. Creating XML
+ * readers through {@link com.io7m.jxe.core.JXEHardenedSAXParsers} compiles
+ * the schemas again for every document; readers created here validate
+ * against a {@link Schema} that is compiled once, on first use, and shared
+ * between all threads. The readers are hardened in the same manner as
+ * those produced by {@link com.io7m.jxe.core.JXEHardenedSAXParsers}.
+ */
+
+public final class TrSchemaCache
+{
+  private TrSchemaCache()
+  {
+
+  }
+
+  /**
+   * @return The compiled schemas
+   */
+
+  public static Schema schema()
+  {
+    return Holder.SCHEMA;
+  }
+
+  /**
+   * Create a new validating XML reader. Readers are not thread-safe, and
+   * a new reader must be created for each document.
+   *
+   * @return A new XML reader
+   *
+   * @throws ParserConfigurationException On errors
+   * @throws SAXException                 On errors
+   */
+
+  public static XMLReader createXMLReader()
+    throws ParserConfigurationException, SAXException
+  {
+    /*
+     * SAXParserFactory instances are not guaranteed to be thread-safe, so
+     * parser creation is serialized. The parsers themselves are
+     * independent.
+     */
+
+    final XMLReader reader;
+    synchronized (Holder.PARSERS) {
+      reader = Holder.PARSERS.newSAXParser().getXMLReader();
+    }
+    return harden(reader);
+  }
+
+  /**
+   * Create a new non-validating XML reader. Creating a non-validating
+   * reader does not compile the schemas.
+   *
+   * @return A new XML reader
+   *
+   * @throws ParserConfigurationException On errors
+   * @throws SAXException                 On errors
+   */
+
+  public static XMLReader createXMLReaderNonValidating()
+    throws ParserConfigurationException, SAXException
+  {
+    final XMLReader reader;
+    synchronized (NonValidatingHolder.PARSERS) {
+      reader = NonValidatingHolder.PARSERS.newSAXParser().getXMLReader();
+    }
+    return harden(reader);
+  }
+
+  private static XMLReader harden(
+    final XMLReader reader)
+    throws SAXException
+  {
+    reader.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    reader.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+    reader.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    reader.setFeature(
+      "http://apache.org/xml/features/nonvalidating/load-external-dtd",
+      false);
+    return reader;
+  }
+
+  private static final class NonValidatingHolder
+  {
+    private static final SAXParserFactory PARSERS =
+      createParsers(Optional.empty());
+
+    private NonValidatingHolder()
+    {
+
+    }
+  }
+
+  private static SAXParserFactory createParsers(
+    final Optional<Schema> schema)
+  {
+    try {
+      final var factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setXIncludeAware(false);
+      factory.setValidating(false);
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      schema.ifPresent(factory::setSchema);
+      return factory;
+    } catch (final ParserConfigurationException | SAXException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Holder
+  {
+    private static final Schema SCHEMA = compileSchema();
+    private static final SAXParserFactory PARSERS =
+      createParsers(Optional.of(SCHEMA));
+
+    private Holder()
+    {
+
+    }
+
+    private static Schema compileSchema()
+    {
+      final var definitions =
+        TrSchemas.schemas().mappings().values();
+      final var sources =
+        definitions.stream()
+          .map(d -> new StreamSource(d.location().toExternalForm()))
+          .toArray(Source[]::new);
+
+      try {
+        final var factory =
+          SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        return factory.newSchema(sources);
+      } catch (final SAXException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.anethum.api.ParseSeverity;
+import com.io7m.anethum.api.ParseStatus;
+import com.io7m.anethum.api.ParseStatusType;
+import com.io7m.anethum.api.ParsingException;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrSchemaRevision;
+import com.io7m.trasco.api.TrSchemaRevisionSet;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Functions to merge revision sets parsed from separate documents into a
+ * single revision set.
+ */
+
+public final class TrSchemaRevisionSetMerger
+{
+  private TrSchemaRevisionSetMerger()
+  {
+
+  }
+
+  /**
+   * Merge the given revision sets. Parameters may be declared in more than
+   * one document, but all declarations of a parameter must be identical.
+   * Each revision must be declared in exactly one document. The merged
+   * revisions are subject to the usual checks made by the
+   * {@link TrSchemaRevisionSet} constructor, and failures are reported
+   * against the documents that declared the offending revisions.
+   *
+   * @param sources The source of each revision set
+   * @param sets    The revision sets
+   *
+   * @return The merged revision set
+   *
+   * @throws ParsingException If the revision sets conflict
+   */
+
+  public static TrSchemaRevisionSet merge(
+    final List<URI> sources,
+    final List<TrSchemaRevisionSet> sets)
+    throws ParsingException
+  {
+    Objects.requireNonNull(sources, "sources");
+    Objects.requireNonNull(sets, "sets");
+
+    if (sources.size() != sets.size()) {
+      throw new IllegalArgumentException(
+        "Sources and revision sets must have the same size.");
+    }
+
+    final var statuses = new ArrayList<ParseStatusType>();
+    final var parameters = new HashMap<String, TrParameter>();
+    final var parameterSources = new HashMap<String, URI>();
+    final var revisions = new TreeMap<BigInteger, TrSchemaRevision>();
+    final var revisionSources = new HashMap<BigInteger, URI>();
+
+    for (int index = 0; index < sets.size(); ++index) {
+      final var source = sources.get(index);
+      final var set = sets.get(index);
+
+      for (final var parameter : set.parameters().values()) {
+        final var name = parameter.name();
+        final var existing = parameters.putIfAbsent(name, parameter);
+        if (existing == null) {
+          parameterSources.put(name, source);
+        } else if (!existing.equals(parameter)) {
+          statuses.add(error(
+            source,
+            "Parameter %s is declared differently in %s"
+              .formatted(name, parameterSources.get(name))
+          ));
+        }
+      }
+
+      for (final var revision : set.revisions().values()) {
+        final var version = revision.version();
+        if (revisions.putIfAbsent(version, revision) == null) {
+          revisionSources.put(version, source);
+        } else {
+          statuses.add(error(
+            source,
+            "Revision %s is also declared in %s"
+              .formatted(version, revisionSources.get(version))
+          ));
+        }
+      }
+    }
+
+    if (statuses.isEmpty()) {
+      checkContiguous(revisions, revisionSources, statuses);
+      checkParameterReferences(parameters, revisions, revisionSources, statuses);
+    }
+
+    if (!statuses.isEmpty()) {
+      throw new ParsingException(
+        "Revision set documents conflict.", List.copyOf(statuses));
+    }
+
+    return new TrSchemaRevisionSet(Map.copyOf(parameters), revisions);
+  }
+
+  /**
+   * Check that the merged revisions are contiguous. Each document has
+   * already been checked individually, so a gap can only appear between
+   * two documents; both of them are reported.
+   */
+
+  private static void checkContiguous(
+    final TreeMap<BigInteger, TrSchemaRevision> revisions,
+    final Map<BigInteger, URI> revisionSources,
+    final List<ParseStatusType> statuses)
+  {
+    BigInteger previous = null;
+    for (final var current : revisions.keySet()) {
+      if (previous != null
+          && !current.subtract(previous).equals(BigInteger.ONE)) {
+        final var previousSource = revisionSources.get(previous);
+        final var currentSource = revisionSources.get(current);
+        final var message =
+          "Revision versions must always increment by 1 (revision %s in %s is followed by revision %s in %s)"
+            .formatted(previous, previousSource, current, currentSource);
+
+        statuses.add(error(previousSource, message));
+        if (!currentSource.equals(previousSource)) {
+          statuses.add(error(currentSource, message));
+        }
+      }
+      previous = current;
+    }
+  }
+
+  /**
+   * Check the parameter references of each revision against the merged
+   * parameters, reporting failures against the document that declared the
+   * revision. Each revision is checked with the {@link TrSchemaRevisionSet}
+   * constructor so that the rules are not duplicated here.
+   */
+
+  private static void checkParameterReferences(
+    final Map<String, TrParameter> parameters,
+    final TreeMap<BigInteger, TrSchemaRevision> revisions,
+    final Map<BigInteger, URI> revisionSources,
+    final List<ParseStatusType> statuses)
+  {
+    for (final var entry : revisions.entrySet()) {
+      final var version = entry.getKey();
+      try {
+        new TrSchemaRevisionSet(
+          parameters,
+          new TreeMap<>(Map.of(version, entry.getValue()))
+        );
+      } catch (final IllegalArgumentException e) {
+        statuses.add(error(revisionSources.get(version), e.getMessage()));
+      }
+    }
+  }
+
+  private static ParseStatus error(
+    final URI source,
+    final String message)
+  {
+    return ParseStatus.builder("parse-error", message)
+      .withSeverity(ParseSeverity.PARSE_ERROR)
+      .withLexical(LexicalPosition.of(0, 0, Optional.of(source)))
+      .build();
+  }
+}
@@ -20,15 +20,21 @@ package com.io7m.trasco.vanilla.internal;
 import com.io7m.anethum.api.ParseSeverity;
 import com.io7m.anethum.api.ParseStatus;
 import com.io7m.anethum.api.ParsingException;
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
 import com.io7m.blackthorne.core.BTException;
 import com.io7m.blackthorne.core.BTParseError;
 import com.io7m.blackthorne.core.BTPreserveLexical;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.blackthorne.core.Blackthorne;
 import com.io7m.blackthorne.jxe.BlackthorneJXE;
 import com.io7m.jxe.core.JXEHardenedSAXParsers;
 import com.io7m.jxe.core.JXEXInclude;
+import com.io7m.trasco.api.TrException;
 import com.io7m.trasco.api.TrSchemaRevisionSet;
 import com.io7m.trasco.api.TrSchemaRevisionSetParserType;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
 import com.io7m.trasco.vanilla.internal.v1.TrV1SchemaDeclSetParser;
+import com.io7m.trasco.vanilla.internal.v1.TrV1SchemaDeclSetStreamParser;
 import com.io7m.trasco.xml.schemas.TrSchemas;
 
 import java.io.IOException;
@@ -41,6 +47,7 @@ import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.io7m.trasco.vanilla.internal.TrSchemaSetRevisionParserValidation.TRUSTED;
 import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 
 /**
@@ -53,22 +60,28 @@ public final class TrSchemaSetRevisionParser
   private final URI source;
   private final InputStream stream;
   private final Consumer<ParseStatus> statusConsumer;
-  private final JXEHardenedSAXParsers parsers;
+  private final Optional<JXEHardenedSAXParsers> parsers;
+  private final TrSchemaSetRevisionParserValidation validation;
 
   /**
    * A parser of revision sets.
    *
-   * @param inParsers        The SAX parser provider
+   * @param inParsers        The SAX parser provider; if no provider is
+   *                         specified, the shared {@link TrSchemaCache} is
+   *                         used
    * @param inSource         The source
    * @param inStream         The stream
    * @param inStatusConsumer A status consumer
+   * @param inValidation     Whether documents are validated against the
+   *                         schema
    */
 
   public TrSchemaSetRevisionParser(
-    final JXEHardenedSAXParsers inParsers,
+    final Optional<JXEHardenedSAXParsers> inParsers,
     final URI inSource,
     final InputStream inStream,
-    final Consumer<ParseStatus> inStatusConsumer)
+    final Consumer<ParseStatus> inStatusConsumer,
+    final TrSchemaSetRevisionParserValidation inValidation)
   {
     this.parsers =
       Objects.requireNonNull(inParsers, "inParsers");
@@ -78,6 +91,8 @@ public final class TrSchemaSetRevisionParser
       Objects.requireNonNull(inStream, "stream");
     this.statusConsumer =
       Objects.requireNonNull(inStatusConsumer, "statusConsumer");
+    this.validation =
+      Objects.requireNonNull(inValidation, "validation");
   }
 
   private static ParseStatus mapParseError(
@@ -103,37 +118,121 @@ public final class TrSchemaSetRevisionParser
     throws ParsingException
   {
     try {
-      final TrSchemaRevisionSet schemas =
-        BlackthorneJXE.parseAll(
-          this.source,
-          this.stream,
-          Map.ofEntries(
-            Map.entry(
-              element("Schemas"),
-              TrV1SchemaDeclSetParser::new
-            )
-          ),
-          this.parsers,
-          Optional.empty(),
-          JXEXInclude.XINCLUDE_DISABLED,
-          BTPreserveLexical.PRESERVE_LEXICAL_INFORMATION,
-          TrSchemas.schemas()
-        );
-
-      return schemas;
+      return this.parse(
+        Map.ofEntries(
+          Map.entry(
+            element("Schemas"),
+            TrV1SchemaDeclSetParser::new
+          )
+        )
+      );
     } catch (final BTException e) {
-      final var statuses =
-        e.errors()
-          .stream()
-          .map(TrSchemaSetRevisionParser::mapParseError)
-          .collect(Collectors.toList());
-
-      for (final var status : statuses) {
-        this.statusConsumer.accept(status);
+      throw this.parsingException(e);
+    }
+  }
+
+  /**
+   * Parse the document, delivering each revision to the given consumer as
+   * it is parsed. The revisions are not accumulated, and so the memory
+   * required to parse a document is bounded by the size of the largest
+   * statement in the document rather than the size of the document.
+   *
+   * @param consumer The consumer
+   *
+   * @throws ParsingException On parse errors
+   * @throws TrException      If the consumer raises an exception
+   */
+
+  public void stream(
+    final TrSchemaRevisionStreamConsumerType consumer)
+    throws ParsingException, TrException
+  {
+    Objects.requireNonNull(consumer, "consumer");
+
+    try {
+      this.parse(
+        Map.ofEntries(
+          Map.entry(
+            element("Schemas"),
+            c -> new TrV1SchemaDeclSetStreamParser(c, consumer)
+          )
+        )
+      );
+    } catch (final BTException e) {
+      final var consumerException = findConsumerException(e);
+      if (consumerException.isPresent()) {
+        throw consumerException.get();
+      }
+      throw this.parsingException(e);
+    }
+  }
+
+  private static Optional<TrException> findConsumerException(
+    final BTException e)
+  {
+    for (final var error : e.errors()) {
+      var cause = error.exception().orElse(null);
+      while (cause != null) {
+        if (cause instanceof final TrException x) {
+          return Optional.of(x);
+        }
+        cause = cause.getCause();
       }
+    }
+    return Optional.empty();
+  }
 
-      throw new ParsingException(e.getMessage(), List.copyOf(statuses));
+  private <T> T parse(
+    final Map<BTQualifiedName, BTElementHandlerConstructorType<?, T>> handlers)
+    throws BTException
+  {
+    final T schemas;
+    if (this.validation == TRUSTED) {
+      schemas = Blackthorne.parse(
+        this.source,
+        this.stream,
+        BTPreserveLexical.PRESERVE_LEXICAL_INFORMATION,
+        TrSchemaCache::createXMLReaderNonValidating,
+        handlers
+      );
+    } else if (this.parsers.isPresent()) {
+      schemas = BlackthorneJXE.parseAll(
+        this.source,
+        this.stream,
+        handlers,
+        this.parsers.get(),
+        Optional.empty(),
+        JXEXInclude.XINCLUDE_DISABLED,
+        BTPreserveLexical.PRESERVE_LEXICAL_INFORMATION,
+        TrSchemas.schemas()
+      );
+    } else {
+      schemas = Blackthorne.parse(
+        this.source,
+        this.stream,
+        BTPreserveLexical.PRESERVE_LEXICAL_INFORMATION,
+        TrSchemaCache::createXMLReader,
+        handlers
+      );
     }
+
+    return schemas;
+  }
+
+  private ParsingException parsingException(
+    final BTException e)
+  {
+    final var statuses =
+      e.errors()
+        .stream()
+        .map(TrSchemaSetRevisionParser::mapParseError)
+        .collect(Collectors.toList());
+
+    for (final var status : statuses) {
+      this.statusConsumer.accept(status);
+    }
+
+    return new ParsingException(e.getMessage(), List.copyOf(statuses));
   }
 
   @Override
@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of prepared statements keyed by
+ * statement text. A cache is scoped to a single execution, and closing the
+ * cache closes every statement held within it.
+ */
+
+public final class TrStatementCache implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrStatementCache.class);
+
+  private final int capacity;
+  private final LinkedHashMap<String, PreparedStatement> statements;
+  private final ArrayList<PreparedStatement> evicted;
+  private long hits;
+  private long misses;
+
+  /**
+   * A bounded, least-recently-used cache of prepared statements.
+   *
+   * @param inCapacity The maximum number of statements held (a value of
+   *                   {@code 0} disables caching)
+   */
+
+  public TrStatementCache(
+    final int inCapacity)
+  {
+    if (inCapacity < 0) {
+      throw new IllegalArgumentException(
+        "Cache capacity %d must be non-negative"
+          .formatted(Integer.valueOf(inCapacity))
+      );
+    }
+
+    this.capacity = inCapacity;
+    this.evicted = new ArrayList<>();
+    this.statements = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(
+        final Map.Entry<String, PreparedStatement> eldest)
+      {
+        if (this.size() > TrStatementCache.this.capacity) {
+          TrStatementCache.this.evicted.add(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * A function that uses a prepared statement.
+   */
+
+  public interface StatementUserType
+  {
+    /**
+     * Use the given statement.
+     *
+     * @param statement The statement
+     *
+     * @throws SQLException On errors
+     */
+
+    void use(PreparedStatement statement)
+      throws SQLException;
+  }
+
+  /**
+   * @return {@code true} if caching is enabled
+   */
+
+  public boolean isEnabled()
+  {
+    return this.capacity > 0;
+  }
+
+  /**
+   * @return The number of times a statement was served from the cache
+   */
+
+  public long hits()
+  {
+    return this.hits;
+  }
+
+  /**
+   * @return The number of times a statement had to be prepared
+   */
+
+  public long misses()
+  {
+    return this.misses;
+  }
+
+  /**
+   * Prepare (or retrieve from the cache) a statement with the given text,
+   * and pass it to the given function. If caching is disabled, the statement
+   * is closed immediately after use.
+   *
+   * @param connection The connection
+   * @param text       The statement text
+   * @param user       The function that will use the statement
+   *
+   * @throws SQLException On errors
+   */
+
+  public void withStatement(
+    final Connection connection,
+    final String text,
+    final StatementUserType user)
+    throws SQLException
+  {
+    if (!this.isEnabled()) {
+      try (var statement = connection.prepareStatement(text)) {
+        user.use(statement);
+      }
+      return;
+    }
+
+    var statement = this.statements.get(text);
+    if (statement == null) {
+      ++this.misses;
+      statement = connection.prepareStatement(text);
+      this.statements.put(text, statement);
+      this.closeEvicted();
+    } else {
+      ++this.hits;
+      statement.clearParameters();
+    }
+
+    user.use(statement);
+  }
+
+  private void closeEvicted()
+    throws SQLException
+  {
+    try {
+      for (final var statement : this.evicted) {
+        statement.close();
+      }
+    } finally {
+      this.evicted.clear();
+    }
+  }
+
+  @Override
+  public void close()
+    throws SQLException
+  {
+    LOG.debug(
+      "statement cache: {} hits, {} misses",
+      Long.valueOf(this.hits),
+      Long.valueOf(this.misses)
+    );
+
+    SQLException exception = null;
+    for (final var statement : this.statements.values()) {
+      try {
+        statement.close();
+      } catch (final SQLException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    this.statements.clear();
+
+    if (exception != null) {
+      throw exception;
+    }
+  }
+}
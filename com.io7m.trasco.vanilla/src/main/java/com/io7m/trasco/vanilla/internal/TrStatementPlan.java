@@ -0,0 +1,596 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.junreachable.UnimplementedCodeException;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.trasco.api.TrArgumentBigInt;
+import com.io7m.trasco.api.TrArgumentBoolean;
+import com.io7m.trasco.api.TrArgumentBytes;
+import com.io7m.trasco.api.TrArgumentNumeric;
+import com.io7m.trasco.api.TrArgumentString;
+import com.io7m.trasco.api.TrArgumentTimestamp;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrArgumentUUID;
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrParameterInterpolation;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import com.io7m.trasco.api.TrStatementTemplateValuesType;
+import com.io7m.trasco.vanilla.internal.TrStatementPlanBound.BinderType;
+import com.io7m.trasco.vanilla.internal.TrStatementTemplatePlanBound.ValueBinderType;
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.function.IntFunction;
+
+/**
+ * A compiled parameterized statement. Compilation resolves the parameter
+ * references of the statement into arrays in statement order and, for
+ * statements that use string formatting, splits the statement text into the
+ * literal segments between the format specifiers. A plan does not depend on
+ * any arguments, and must be bound to a set of arguments before it can be
+ * executed. The plan of a statement template additionally reserves one slot
+ * for the template value, which is filled separately for each expansion.
+ */
+
+public final class TrStatementPlan
+{
+  private static final BinderType[] NO_BINDERS =
+    new BinderType[0];
+
+  private final TrParameterInterpolation interpolation;
+  private final String text;
+  private final String[] names;
+  private final int[] indices;
+  private final Optional<Format> format;
+  private final int template;
+  private final Calendar utc;
+
+  private TrStatementPlan(
+    final TrParameterInterpolation inInterpolation,
+    final String inText,
+    final String[] inNames,
+    final int[] inIndices,
+    final Optional<Format> inFormat,
+    final int inTemplate)
+  {
+    this.interpolation =
+      Objects.requireNonNull(inInterpolation, "interpolation");
+    this.text =
+      Objects.requireNonNull(inText, "text");
+    this.names =
+      Objects.requireNonNull(inNames, "names");
+    this.indices =
+      Objects.requireNonNull(inIndices, "indices");
+    this.format =
+      Objects.requireNonNull(inFormat, "format");
+    this.template = inTemplate;
+    this.utc = utc();
+  }
+
+  /**
+   * Compile the given statement.
+   *
+   * @param statement The statement
+   *
+   * @return The compiled plan
+   */
+
+  public static TrStatementPlan compile(
+    final TrStatementParameterized statement)
+  {
+    final var text =
+      statement.text().strip();
+    final var inOrder =
+      statement.references().inOrder();
+    final var names =
+      new String[inOrder.size()];
+    final var indices =
+      new int[inOrder.size()];
+
+    int index = 0;
+    for (final var entry : inOrder.entrySet()) {
+      names[index] = entry.getValue().name();
+      indices[index] = entry.getKey().intValue() + 1;
+      ++index;
+    }
+
+    return new TrStatementPlan(
+      statement.interpolation(),
+      text,
+      names,
+      indices,
+      switch (statement.interpolation()) {
+        case PREPARED_STATEMENT -> Optional.empty();
+        case STRING_FORMATTING -> Format.compile(text, names.length);
+      },
+      -1
+    );
+  }
+
+  /**
+   * Compile the given statement template.
+   *
+   * @param statement The statement template
+   *
+   * @return The compiled plan
+   */
+
+  public static TrStatementPlan compile(
+    final TrStatementTemplate statement)
+  {
+    final var text =
+      statement.text().strip();
+    final var inOrder =
+      statement.references().inOrder();
+    final var names =
+      new String[inOrder.size() + 1];
+    final var indices =
+      new int[inOrder.size() + 1];
+
+    int template = -1;
+    int index = 0;
+    for (final var entry : inOrder.entrySet()) {
+      final var order = entry.getKey().intValue();
+      if (template == -1 && statement.order() < order) {
+        template = index;
+        indices[index] = statement.order() + 1;
+        ++index;
+      }
+      names[index] = entry.getValue().name();
+      indices[index] = order + 1;
+      ++index;
+    }
+    if (template == -1) {
+      template = index;
+      indices[index] = statement.order() + 1;
+    }
+
+    return new TrStatementPlan(
+      statement.interpolation(),
+      text,
+      names,
+      indices,
+      switch (statement.interpolation()) {
+        case PREPARED_STATEMENT -> Optional.empty();
+        case STRING_FORMATTING -> Format.compile(text, names.length);
+      },
+      template
+    );
+  }
+
+  /**
+   * Bind this plan to the given arguments.
+   *
+   * @param arguments The arguments
+   *
+   * @return The bound plan
+   */
+
+  public TrStatementPlanBound bind(
+    final TrArguments arguments)
+  {
+    final var values = arguments.arguments();
+    return switch (this.interpolation) {
+      case PREPARED_STATEMENT -> this.bindPrepared(values);
+      case STRING_FORMATTING -> this.bindFormatted(values);
+    };
+  }
+
+  /**
+   * Bind this template plan to the given arguments and template values.
+   *
+   * @param arguments The arguments
+   * @param values    The template values
+   *
+   * @return The bound plan
+   */
+
+  public TrStatementTemplatePlanBound bindTemplate(
+    final TrArguments arguments,
+    final TrStatementTemplateValuesType values)
+  {
+    if (this.template == -1) {
+      throw new IllegalStateException("Plan is not a template plan");
+    }
+
+    final var argumentValues = arguments.arguments();
+    return switch (this.interpolation) {
+      case PREPARED_STATEMENT -> new TrStatementTemplatePlanBound(
+        this.interpolation,
+        this.text,
+        this.binders(argumentValues),
+        valueBinderFor(this.indices[this.template], values),
+        index -> this.text,
+        values.size()
+      );
+      case STRING_FORMATTING -> new TrStatementTemplatePlanBound(
+        this.interpolation,
+        this.text,
+        NO_BINDERS,
+        (statement, index) -> {
+          throw new UnreachableCodeException();
+        },
+        this.formatterFor(this.rendered(argumentValues), values),
+        values.size()
+      );
+    };
+  }
+
+  private static ValueBinderType valueBinderFor(
+    final int parameter,
+    final TrStatementTemplateValuesType values)
+  {
+    if (values instanceof final TrStatementTemplateRange r) {
+      return (sql, index) -> sql.setLong(parameter, r.value(index));
+    }
+    if (values instanceof final TrStatementTemplateList l) {
+      final var list = l.values();
+      return (sql, index) -> sql.setString(parameter, list.get(index));
+    }
+    throw new UnreachableCodeException();
+  }
+
+  private IntFunction<String> formatterFor(
+    final String[] rendered,
+    final TrStatementTemplateValuesType values)
+  {
+    return index -> {
+      final var arguments = rendered.clone();
+      arguments[this.template] = values.text(index);
+      return this.apply(arguments);
+    };
+  }
+
+  private BinderType[] binders(
+    final Map<String, TrArgumentType> values)
+  {
+    final var binders = new ArrayList<BinderType>(this.names.length);
+    for (int index = 0; index < this.names.length; ++index) {
+      if (index == this.template) {
+        continue;
+      }
+      final var argument = values.get(this.names[index]);
+      if (argument != null) {
+        binders.add(binderFor(this.indices[index], argument, this.utc));
+      }
+    }
+    return binders.toArray(NO_BINDERS);
+  }
+
+  /**
+   * Timestamps are bound in UTC so that the stored value does not depend on
+   * the default time zone of the JVM, and so that it agrees with the UTC
+   * literal rendered for statements that use string formatting. A calendar
+   * is created once for each plan (or each set of rows) rather than for
+   * each binding. Calendars are not thread-safe and drivers may modify
+   * them, and bound plans may be shared between threads, so each binding
+   * holds the calendar's lock while the driver uses it.
+   *
+   * @return A new UTC calendar
+   */
+
+  static Calendar utc()
+  {
+    return Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
+  }
+
+  private TrStatementPlanBound bindPrepared(
+    final Map<String, TrArgumentType> values)
+  {
+    return new TrStatementPlanBound(this.text, this.binders(values));
+  }
+
+  static void bindAll(
+    final PreparedStatement statement,
+    final List<TrArgumentType> values,
+    final Calendar utc)
+    throws SQLException
+  {
+    for (int index = 0; index < values.size(); ++index) {
+      binderFor(index + 1, values.get(index), utc).bind(statement);
+    }
+  }
+
+  static BinderType binderFor(
+    final int index,
+    final TrArgumentType argument,
+    final Calendar utc)
+  {
+    if (argument instanceof final TrArgumentString s) {
+      final var value = s.value();
+      return sql -> sql.setString(index, value);
+    }
+    if (argument instanceof final TrArgumentNumeric n) {
+      return binderForNumber(index, n.value());
+    }
+    if (argument instanceof final TrArgumentBoolean b) {
+      final var value = b.value();
+      return sql -> sql.setBoolean(index, value);
+    }
+    if (argument instanceof final TrArgumentTimestamp t) {
+      final var value = Timestamp.from(t.value());
+      return sql -> {
+        synchronized (utc) {
+          sql.setTimestamp(index, value, utc);
+        }
+      };
+    }
+    if (argument instanceof final TrArgumentBytes b) {
+      final var value = b.value();
+      return sql -> sql.setBytes(index, value);
+    }
+    if (argument instanceof final TrArgumentUUID u) {
+      final var value = u.value();
+      return sql -> sql.setObject(index, value);
+    }
+    if (argument instanceof final TrArgumentBigInt b) {
+      final var value = b.value();
+      return sql -> sql.setLong(index, value);
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static BinderType binderForNumber(
+    final int index,
+    final Number number)
+  {
+    if (number instanceof final Integer x) {
+      final var value = x.intValue();
+      return sql -> sql.setInt(index, value);
+    }
+    if (number instanceof final Long x) {
+      final var value = x.longValue();
+      return sql -> sql.setLong(index, value);
+    }
+    if (number instanceof final Short x) {
+      final var value = x.shortValue();
+      return sql -> sql.setShort(index, value);
+    }
+    if (number instanceof final Byte x) {
+      final var value = x.byteValue();
+      return sql -> sql.setByte(index, value);
+    }
+    return binderForNonIntegral(index, number);
+  }
+
+  private static BinderType binderForNonIntegral(
+    final int index,
+    final Number number)
+  {
+    if (number instanceof final Double x) {
+      final var value = x.doubleValue();
+      return sql -> sql.setDouble(index, value);
+    }
+    if (number instanceof final Float x) {
+      final var value = x.floatValue();
+      return sql -> sql.setFloat(index, value);
+    }
+    if (number instanceof final BigDecimal x) {
+      return sql -> sql.setBigDecimal(index, x);
+    }
+    if (number instanceof final BigInteger x) {
+      final var value = new BigDecimal(x);
+      return sql -> sql.setBigDecimal(index, value);
+    }
+    throw new UnimplementedCodeException();
+  }
+
+  private TrStatementPlanBound bindFormatted(
+    final Map<String, TrArgumentType> values)
+  {
+    return new TrStatementPlanBound(
+      this.apply(this.rendered(values)),
+      NO_BINDERS
+    );
+  }
+
+  private String[] rendered(
+    final Map<String, TrArgumentType> values)
+  {
+    final var rendered = new String[this.names.length];
+    for (int index = 0; index < this.names.length; ++index) {
+      if (index != this.template) {
+        rendered[index] = render(values.get(this.names[index]));
+      }
+    }
+    return rendered;
+  }
+
+  private String apply(
+    final String[] rendered)
+  {
+    if (this.format.isPresent()) {
+      return this.format.get().apply(rendered);
+    }
+    return String.format(this.text, (Object[]) rendered);
+  }
+
+  private static String render(
+    final TrArgumentType argument)
+  {
+    if (argument instanceof final TrArgumentString s) {
+      return "\'" + StringEscapeUtils.escapeJava(s.value()) + "\'";
+    }
+    if (argument instanceof final TrArgumentNumeric n) {
+      return n.value().toString();
+    }
+    if (argument instanceof final TrArgumentBoolean b) {
+      return b.value() ? "TRUE" : "FALSE";
+    }
+    if (argument instanceof final TrArgumentTimestamp t) {
+      return "\'" + t.value() + "\'";
+    }
+    if (argument instanceof final TrArgumentBytes b) {
+      return "X\'" + HexFormat.of().formatHex(b.value()) + "\'";
+    }
+    if (argument instanceof final TrArgumentUUID u) {
+      return "\'" + u.value() + "\'";
+    }
+    if (argument instanceof final TrArgumentBigInt b) {
+      return Long.toString(b.value());
+    }
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * A format string split into literal segments. Segment {@code i} is
+   * followed by the argument at {@code arguments[i]}, and the final segment
+   * is followed by nothing. Only the {@code %s}, {@code %n$s}, {@code %%},
+   * and {@code %n} specifiers are supported; anything else is left to
+   * {@link String#format(String, Object...)}, as is any specifier that
+   * refers to a missing argument.
+   */
+
+  private record Format(
+    String[] segments,
+    int[] arguments)
+  {
+    static Optional<Format> compile(
+      final String text,
+      final int argumentCount)
+    {
+      final var segments = new ArrayList<String>();
+      final var arguments = new ArrayList<Integer>();
+      final var segment = new StringBuilder(text.length());
+      final var length = text.length();
+
+      int ordinary = 0;
+      int index = 0;
+      while (index < length) {
+        final var c = text.charAt(index);
+        if (c != '%') {
+          segment.append(c);
+          ++index;
+          continue;
+        }
+        if (index + 1 >= length) {
+          return Optional.empty();
+        }
+
+        final var next = text.charAt(index + 1);
+        if (next == '%') {
+          segment.append('%');
+          index += 2;
+          continue;
+        }
+        if (next == 'n') {
+          segment.append(System.lineSeparator());
+          index += 2;
+          continue;
+        }
+
+        final int argument;
+        if (next == 's') {
+          argument = ordinary;
+          ++ordinary;
+          index += 2;
+        } else {
+          final var end = explicitEnd(text, index + 1);
+          if (end == -1) {
+            return Optional.empty();
+          }
+          argument = Integer.parseInt(text, index + 1, end, 10) - 1;
+          index = end + 2;
+        }
+
+        if (argument < 0 || argument >= argumentCount) {
+          return Optional.empty();
+        }
+        segments.add(segment.toString());
+        segment.setLength(0);
+        arguments.add(Integer.valueOf(argument));
+      }
+
+      segments.add(segment.toString());
+      return Optional.of(new Format(
+        segments.toArray(new String[0]),
+        arguments.stream().mapToInt(Integer::intValue).toArray()
+      ));
+    }
+
+    /**
+     * @return The index of the {@code $} in an {@code n$s} specifier starting
+     * at {@code start}, or {@code -1} if there is no such specifier
+     */
+
+    private static int explicitEnd(
+      final String text,
+      final int start)
+    {
+      int end = start;
+      while (end < text.length() && isDigit(text.charAt(end))) {
+        ++end;
+      }
+
+      final var digits = end - start;
+      if (digits == 0 || digits > 9) {
+        return -1;
+      }
+      if (end + 1 >= text.length()) {
+        return -1;
+      }
+      if (text.charAt(end) != '$' || text.charAt(end + 1) != 's') {
+        return -1;
+      }
+      return end;
+    }
+
+    private static boolean isDigit(
+      final char c)
+    {
+      return c >= '0' && c <= '9';
+    }
+
+    String apply(
+      final String[] values)
+    {
+      var size = 0;
+      for (final var s : this.segments) {
+        size += s.length();
+      }
+      for (final var a : this.arguments) {
+        size += values[a].length();
+      }
+
+      final var text = new StringBuilder(size);
+      text.append(this.segments[0]);
+      for (int index = 0; index < this.arguments.length; ++index) {
+        text.append(values[this.arguments[index]]);
+        text.append(this.segments[index + 1]);
+      }
+      return text.toString();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * A statement plan bound to a set of arguments. For statements that use
+ * string formatting, the text is the complete statement with all arguments
+ * interpolated. For prepared statements, the text is the statement itself,
+ * and the binders set each of the statement's parameters.
+ */
+
+public final class TrStatementPlanBound
+{
+  private final String text;
+  private final BinderType[] binders;
+
+  TrStatementPlanBound(
+    final String inText,
+    final BinderType[] inBinders)
+  {
+    this.text =
+      Objects.requireNonNull(inText, "text");
+    this.binders =
+      Objects.requireNonNull(inBinders, "binders");
+  }
+
+  /**
+   * @return The statement text
+   */
+
+  public String text()
+  {
+    return this.text;
+  }
+
+  /**
+   * Set all the parameters of the given prepared statement.
+   *
+   * @param statement The statement
+   *
+   * @throws SQLException On errors
+   */
+
+  public void bind(
+    final PreparedStatement statement)
+    throws SQLException
+  {
+    for (final var binder : this.binders) {
+      binder.bind(statement);
+    }
+  }
+
+  /**
+   * A function that sets a single parameter of a prepared statement.
+   */
+
+  @FunctionalInterface
+  interface BinderType
+  {
+    /**
+     * Set the parameter.
+     *
+     * @param statement The statement
+     *
+     * @throws SQLException On errors
+     */
+
+    void bind(PreparedStatement statement)
+      throws SQLException;
+  }
+}
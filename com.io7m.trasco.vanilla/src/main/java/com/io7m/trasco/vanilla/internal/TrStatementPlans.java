@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrArguments;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementTemplate;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The plans of parameterized statements and statement templates, bound to a single set of
+ * arguments. Each statement is compiled and bound at most once, however
+ * many times it is executed, and so a single instance may be shared between
+ * the executors that apply a revision set to many databases with the same
+ * arguments. Instances are safe to use from multiple threads.
+ *
+ * Plans are retained for the lifetime of the instance, so the memory used
+ * grows with the number of distinct statements executed. Streaming
+ * executions, whose memory use must not depend on the size of the revision
+ * set, use a {@link #nonRetaining()} view instead.
+ */
+
+public final class TrStatementPlans
+{
+  private final TrArguments arguments;
+  private final ConcurrentHashMap<TrStatementParameterized, TrStatementPlanBound> plans;
+  private final ConcurrentHashMap<TrStatementTemplate, TrStatementTemplatePlanBound> templates;
+  private final boolean retaining;
+
+  /**
+   * The plans of parameterized statements.
+   *
+   * @param inArguments The arguments
+   */
+
+  public TrStatementPlans(
+    final TrArguments inArguments)
+  {
+    this(
+      Objects.requireNonNull(inArguments, "arguments"),
+      new ConcurrentHashMap<>(),
+      new ConcurrentHashMap<>(),
+      true
+    );
+  }
+
+  private TrStatementPlans(
+    final TrArguments inArguments,
+    final ConcurrentHashMap<TrStatementParameterized, TrStatementPlanBound> inPlans,
+    final ConcurrentHashMap<TrStatementTemplate, TrStatementTemplatePlanBound> inTemplates,
+    final boolean inRetaining)
+  {
+    this.arguments = inArguments;
+    this.plans = inPlans;
+    this.templates = inTemplates;
+    this.retaining = inRetaining;
+  }
+
+  /**
+   * @return A view of these plans that uses any plans already retained, but
+   * compiles and binds any other statement each time it is seen without
+   * retaining the result
+   */
+
+  public TrStatementPlans nonRetaining()
+  {
+    return new TrStatementPlans(
+      this.arguments,
+      this.plans,
+      this.templates,
+      false
+    );
+  }
+
+  /**
+   * @return The arguments to which plans are bound
+   */
+
+  public TrArguments arguments()
+  {
+    return this.arguments;
+  }
+
+  /**
+   * Retrieve the bound plan for the given statement, compiling and binding
+   * it if this is the first time the statement has been seen.
+   *
+   * @param statement The statement
+   *
+   * @return The bound plan
+   */
+
+  public TrStatementPlanBound plan(
+    final TrStatementParameterized statement)
+  {
+    final var existing = this.plans.get(statement);
+    if (existing != null) {
+      return existing;
+    }
+    if (!this.retaining) {
+      return TrStatementPlan.compile(statement).bind(this.arguments);
+    }
+
+    return this.plans.computeIfAbsent(
+      statement,
+      s -> TrStatementPlan.compile(s).bind(this.arguments)
+    );
+  }
+
+  /**
+   * Retrieve the bound plan for the given statement template, compiling and
+   * binding it if this is the first time the template has been seen.
+   *
+   * @param statement The statement template
+   *
+   * @return The bound plan
+   */
+
+  public TrStatementTemplatePlanBound plan(
+    final TrStatementTemplate statement)
+  {
+    final var existing = this.templates.get(statement);
+    if (existing != null) {
+      return existing;
+    }
+    if (!this.retaining) {
+      return TrStatementPlan.compile(statement)
+        .bindTemplate(this.arguments, statement.values());
+    }
+
+    return this.templates.computeIfAbsent(
+      statement,
+      s -> TrStatementPlan.compile(s).bindTemplate(this.arguments, s.values())
+    );
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrParameterInterpolation;
+import com.io7m.trasco.vanilla.internal.TrStatementPlanBound.BinderType;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * A statement template plan bound to a set of arguments. For templates that
+ * are executed as prepared statements, the text is the statement itself,
+ * and each expansion binds the referenced parameters along with one template
+ * value. For templates that use string formatting, each expansion is a
+ * complete statement with the template value interpolated.
+ */
+
+public final class TrStatementTemplatePlanBound
+{
+  private final TrParameterInterpolation interpolation;
+  private final String text;
+  private final BinderType[] binders;
+  private final ValueBinderType valueBinder;
+  private final IntFunction<String> formatter;
+  private final int size;
+
+  TrStatementTemplatePlanBound(
+    final TrParameterInterpolation inInterpolation,
+    final String inText,
+    final BinderType[] inBinders,
+    final ValueBinderType inValueBinder,
+    final IntFunction<String> inFormatter,
+    final int inSize)
+  {
+    this.interpolation =
+      Objects.requireNonNull(inInterpolation, "interpolation");
+    this.text =
+      Objects.requireNonNull(inText, "text");
+    this.binders =
+      Objects.requireNonNull(inBinders, "binders");
+    this.valueBinder =
+      Objects.requireNonNull(inValueBinder, "valueBinder");
+    this.formatter =
+      Objects.requireNonNull(inFormatter, "formatter");
+    this.size = inSize;
+  }
+
+  /**
+   * @return The type of parameter interpolation
+   */
+
+  public TrParameterInterpolation interpolation()
+  {
+    return this.interpolation;
+  }
+
+  /**
+   * @return The statement text used for prepared statements
+   */
+
+  public String text()
+  {
+    return this.text;
+  }
+
+  /**
+   * @return The number of expansions of the template
+   */
+
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * Set all the parameters of the given prepared statement for the
+   * expansion at the given index.
+   *
+   * @param statement The statement
+   * @param index     The expansion index
+   *
+   * @throws SQLException On errors
+   */
+
+  public void bind(
+    final PreparedStatement statement,
+    final int index)
+    throws SQLException
+  {
+    for (final var binder : this.binders) {
+      binder.bind(statement);
+    }
+    this.valueBinder.bind(statement, index);
+  }
+
+  /**
+   * Format the expansion at the given index.
+   *
+   * @param index The expansion index
+   *
+   * @return The complete statement text
+   */
+
+  public String format(
+    final int index)
+  {
+    return this.formatter.apply(index);
+  }
+
+  /**
+   * A function that sets the template value parameter of a prepared
+   * statement.
+   */
+
+  @FunctionalInterface
+  interface ValueBinderType
+  {
+    /**
+     * Set the parameter.
+     *
+     * @param statement The statement
+     * @param index     The expansion index
+     *
+     * @throws SQLException On errors
+     */
+
+    void bind(
+      PreparedStatement statement,
+      int index)
+      throws SQLException;
+  }
+}
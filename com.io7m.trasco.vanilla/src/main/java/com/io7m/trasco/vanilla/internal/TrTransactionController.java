@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.trasco.vanilla.internal;
+
+import com.io7m.trasco.api.TrEventTransactionCommitted;
+import com.io7m.trasco.api.TrEventType;
+import com.io7m.trasco.api.TrTransactionStrategyEveryNStatements;
+import com.io7m.trasco.api.TrTransactionStrategySingle;
+import com.io7m.trasco.api.TrTransactionStrategyType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A controller that commits transactions according to a transaction
+ * strategy.
+ */
+
+public final class TrTransactionController
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(TrTransactionController.class);
+
+  private final Connection connection;
+  private final TrTransactionStrategyType strategy;
+  private final Consumer<TrEventType> events;
+  private final CommitListenerType onCommit;
+  private long timeStarted;
+  private long statements;
+
+  /**
+   * A controller that commits transactions according to a transaction
+   * strategy.
+   *
+   * @param inConnection The database connection
+   * @param inStrategy   The transaction strategy
+   * @param inEvents     The event receiver
+   */
+
+  public TrTransactionController(
+    final Connection inConnection,
+    final TrTransactionStrategyType inStrategy,
+    final Consumer<TrEventType> inEvents)
+  {
+    this(inConnection, inStrategy, inEvents, () -> {
+
+    });
+  }
+
+  /**
+   * A controller that commits transactions according to a transaction
+   * strategy.
+   *
+   * @param inConnection The database connection
+   * @param inStrategy   The transaction strategy
+   * @param inEvents     The event receiver
+   * @param inOnCommit   A function called after each commit, before the
+   *                     next transaction performs any work
+   */
+
+  public TrTransactionController(
+    final Connection inConnection,
+    final TrTransactionStrategyType inStrategy,
+    final Consumer<TrEventType> inEvents,
+    final CommitListenerType inOnCommit)
+  {
+    this.connection =
+      Objects.requireNonNull(inConnection, "connection");
+    this.strategy =
+      Objects.requireNonNull(inStrategy, "strategy");
+    this.events =
+      Objects.requireNonNull(inEvents, "events");
+    this.onCommit =
+      Objects.requireNonNull(inOnCommit, "onCommit");
+    this.begin();
+  }
+
+  /**
+   * A function called after each commit.
+   */
+
+  public interface CommitListenerType
+  {
+    /**
+     * A transaction has been committed.
+     *
+     * @throws SQLException On errors
+     */
+
+    void onCommitted()
+      throws SQLException;
+  }
+
+  /**
+   * Indicate that a new transaction has begun.
+   */
+
+  public void begin()
+  {
+    this.timeStarted = System.nanoTime();
+    this.statements = 0L;
+  }
+
+  /**
+   * Indicate that the given number of statements have been executed. This
+   * must only be called at statement boundaries.
+   *
+   * @param revision The revision being applied
+   * @param count    The number of statements
+   *
+   * @throws SQLException On errors
+   */
+
+  public void onStatementsExecuted(
+    final BigInteger revision,
+    final int count)
+    throws SQLException
+  {
+    this.statements += count;
+
+    if (this.strategy instanceof final TrTransactionStrategyEveryNStatements n) {
+      if (this.statements >= n.statements()) {
+        this.commit(revision);
+      }
+    }
+  }
+
+  /**
+   * Indicate that the given revision has been applied, and its version
+   * number has been recorded.
+   *
+   * @param revision The revision
+   *
+   * @throws SQLException On errors
+   */
+
+  public void onRevisionCompleted(
+    final BigInteger revision)
+    throws SQLException
+  {
+    if (this.strategy instanceof TrTransactionStrategySingle) {
+      return;
+    }
+    this.commit(revision);
+  }
+
+  /**
+   * Commit the current transaction.
+   *
+   * @param revision The revision being applied
+   *
+   * @throws SQLException On errors
+   */
+
+  public void commit(
+    final BigInteger revision)
+    throws SQLException
+  {
+    this.connection.commit();
+
+    final var elapsed =
+      Duration.ofNanos(System.nanoTime() - this.timeStarted);
+
+    LOG.debug(
+      "committed {} statements during revision {} ({})",
+      Long.valueOf(this.statements),
+      revision,
+      elapsed
+    );
+
+    this.events.accept(
+      new TrEventTransactionCommitted(revision, this.statements, elapsed)
+    );
+    this.begin();
+    this.onCommit.onCommitted();
+  }
+}
@@ -18,6 +18,7 @@ package com.io7m.trasco.vanilla.internal.v1;
 
 import com.io7m.blackthorne.core.BTQualifiedName;
 import com.io7m.trasco.xml.schemas.TrSchemas;
+import org.xml.sax.Attributes;
 
 /**
  * V1 convenience functions.
@@ -25,6 +26,20 @@ import com.io7m.trasco.xml.schemas.TrSchemas;
 
 public final class TrV1
 {
+  /*
+   * Statement text is accumulated in a buffer that is reused for every
+   * statement parsed on a given thread. Statements cannot be nested, and
+   * so at most one statement is accumulating text on a thread at any given
+   * time. A buffer that has grown to hold an unusually large statement is
+   * discarded rather than being retained for the life of the thread.
+   */
+
+  private static final int TEXT_BUFFER_INITIAL = 256;
+  private static final int TEXT_BUFFER_RETAINED_MAXIMUM = 65536;
+
+  private static final ThreadLocal<StringBuilder> TEXT_BUFFER =
+    ThreadLocal.withInitial(() -> new StringBuilder(TEXT_BUFFER_INITIAL));
+
   private TrV1()
   {
 
@@ -46,4 +61,86 @@ public final class TrV1
       localName
     );
   }
+
+  /**
+   * Retrieve the value of an optional {@code xsd:boolean} attribute.
+   *
+   * @param attributes   The attributes
+   * @param name         The attribute name
+   * @param defaultValue The value used if the attribute is not present
+   *
+   * @return The attribute value
+   */
+
+  public static boolean booleanAttribute(
+    final Attributes attributes,
+    final String name,
+    final boolean defaultValue)
+  {
+    final var value = attributes.getValue(name);
+    if (value == null) {
+      return defaultValue;
+    }
+
+    return switch (value.strip()) {
+      case "true", "1" -> true;
+      case "false", "0" -> false;
+      default -> throw new IllegalArgumentException(
+        "Unparseable boolean value for attribute %s: %s"
+          .formatted(name, value)
+      );
+    };
+  }
+
+  /**
+   * Retrieve the (empty) text buffer for the current thread.
+   *
+   * @return The text buffer
+   */
+
+  public static StringBuilder textBuffer()
+  {
+    final var buffer = TEXT_BUFFER.get();
+    buffer.setLength(0);
+    return buffer;
+  }
+
+  /**
+   * Take the normalized text from the given buffer. The text has leading
+   * and trailing whitespace removed, where whitespace is anything removed by
+   * either {@link String#trim()} or {@link String#strip()}. The returned
+   * string is therefore unchanged by either method, and so no further copies
+   * are made when the statement text is stripped at execution time. The
+   * text is copied out of the buffer exactly once.
+   *
+   * @param buffer The buffer returned by {@link #textBuffer()}
+   *
+   * @return The normalized text
+   */
+
+  public static String textTake(
+    final StringBuilder buffer)
+  {
+    int start = 0;
+    int end = buffer.length();
+    while (start < end && isSpace(buffer.charAt(start))) {
+      ++start;
+    }
+    while (end > start && isSpace(buffer.charAt(end - 1))) {
+      --end;
+    }
+
+    final var text = buffer.substring(start, end);
+    buffer.setLength(0);
+    if (buffer.capacity() > TEXT_BUFFER_RETAINED_MAXIMUM) {
+      TEXT_BUFFER.set(new StringBuilder(TEXT_BUFFER_INITIAL));
+    }
+    return text;
+  }
+
+  private static boolean isSpace(
+    final char c)
+  {
+    return c <= ' ' || Character.isWhitespace(c);
+  }
 }
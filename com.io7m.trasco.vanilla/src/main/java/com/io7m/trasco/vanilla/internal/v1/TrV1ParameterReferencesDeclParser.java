@@ -38,6 +38,16 @@ import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 public final class TrV1ParameterReferencesDeclParser
   implements BTElementHandlerType<TrParameterReference, TrParameterReferences>
 {
+  private static final
+    Map<BTQualifiedName, BTElementHandlerConstructorType<?, ? extends TrParameterReference>>
+    HANDLERS =
+      Map.ofEntries(
+        Map.entry(
+          element("ParameterReference"),
+          TrV1ParameterReferenceDeclParser::new
+        )
+      );
+
   private final SortedMap<Integer, TrParameterReference> inOrder;
   private final Map<String, TrParameterReference> byName;
 
@@ -59,12 +69,7 @@ public final class TrV1ParameterReferencesDeclParser
   onChildHandlersRequested(
     final BTElementParsingContextType context)
   {
-    return Map.ofEntries(
-      Map.entry(
-        element("ParameterReference"),
-        TrV1ParameterReferenceDeclParser::new
-      )
-    );
+    return HANDLERS;
   }
 
   @Override
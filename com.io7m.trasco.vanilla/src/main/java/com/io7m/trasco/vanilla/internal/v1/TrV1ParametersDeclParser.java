@@ -35,6 +35,16 @@ import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 public final class TrV1ParametersDeclParser
   implements BTElementHandlerType<TrParameter, Map<String, TrParameter>>
 {
+  private static final
+    Map<BTQualifiedName, BTElementHandlerConstructorType<?, ? extends TrParameter>>
+    HANDLERS =
+      Map.ofEntries(
+        Map.entry(
+          element("Parameter"),
+          TrV1ParameterDeclParser::new
+        )
+      );
+
   private final HashMap<String, TrParameter> parameters;
 
   /**
@@ -54,12 +64,7 @@ public final class TrV1ParametersDeclParser
   onChildHandlersRequested(
     final BTElementParsingContextType context)
   {
-    return Map.ofEntries(
-      Map.entry(
-        element("Parameter"),
-        TrV1ParameterDeclParser::new
-      )
-    );
+    return HANDLERS;
   }
 
   @Override
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrStatementRowsCSV;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import org.xml.sax.Attributes;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.booleanAttribute;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
+
+/**
+ * A CSV row set parser. Only the reference to the resource is parsed here;
+ * the resource itself is read when the statement is executed.
+ */
+
+public final class TrV1RowsCSVParser
+  implements BTElementHandlerType<Object, TrStatementRowsCSV>
+{
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("Columns"),
+        TrV1RowsColumnsParser::new
+      )
+    );
+
+  private List<TrStatementRowsColumn> columns;
+  private String table;
+  private URI resource;
+  private Optional<URI> base;
+  private String sha256;
+  private boolean header;
+  private int batchSize;
+  private boolean transactional;
+
+  /**
+   * A CSV row set parser.
+   *
+   * @param context A context
+   */
+
+  public TrV1RowsCSVParser(
+    final BTElementParsingContextType context)
+  {
+    this.columns = List.of();
+    this.base = Optional.empty();
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return HANDLERS;
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.table =
+      attributes.getValue("table");
+    final var locator = context.documentLocator();
+    this.resource =
+      URI.create(attributes.getValue("resource"));
+    this.base =
+      Optional.ofNullable(
+        Objects.requireNonNullElse(
+          locator.getPublicId(),
+          locator.getSystemId()
+        )
+      ).map(URI::create);
+    this.sha256 =
+      attributes.getValue("sha256");
+    this.header =
+      booleanAttribute(attributes, "header", false);
+    this.batchSize =
+      Integer.parseInt(
+        Objects.requireNonNullElse(attributes.getValue("batchSize"), "500")
+      );
+    this.transactional =
+      booleanAttribute(attributes, "transactional", true);
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final Object result)
+  {
+    if (result instanceof final TrV1RowsColumns c) {
+      this.columns = c.columns();
+      return;
+    }
+
+    throw new IllegalArgumentException("Unexpected: %s".formatted(result));
+  }
+
+  @Override
+  public TrStatementRowsCSV onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrStatementRowsCSV(
+      this.table,
+      this.columns,
+      this.resource,
+      this.base,
+      this.sha256,
+      this.header,
+      this.batchSize,
+      this.transactional
+    );
+  }
+}
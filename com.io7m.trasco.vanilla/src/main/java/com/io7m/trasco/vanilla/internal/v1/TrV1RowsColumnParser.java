@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.trasco.api.TrParameterKind;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import org.xml.sax.Attributes;
+
+/**
+ * A column parser.
+ */
+
+public final class TrV1RowsColumnParser
+  implements BTElementHandlerType<Object, TrStatementRowsColumn>
+{
+  private String name;
+  private TrParameterKind type;
+
+  /**
+   * A column parser.
+   *
+   * @param context A context
+   */
+
+  public TrV1RowsColumnParser(
+    final BTElementParsingContextType context)
+  {
+
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.name =
+      attributes.getValue("name");
+    this.type =
+      TrParameterKind.valueOf(attributes.getValue("type"));
+  }
+
+  @Override
+  public TrStatementRowsColumn onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrStatementRowsColumn(this.name, this.type);
+  }
+}
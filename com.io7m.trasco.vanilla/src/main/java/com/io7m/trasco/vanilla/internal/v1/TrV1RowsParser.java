@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrArgumentType;
+import com.io7m.trasco.api.TrStatementRows;
+import com.io7m.trasco.api.TrStatementRowsColumn;
+import com.io7m.trasco.vanilla.internal.TrRowValues;
+import org.xml.sax.Attributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.booleanAttribute;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
+
+/**
+ * A row set parser. Row values are converted to typed values as each row is
+ * parsed, so that the text of the rows is not retained.
+ */
+
+public final class TrV1RowsParser
+  implements BTElementHandlerType<Object, TrStatementRows>
+{
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("Columns"),
+        TrV1RowsColumnsParser::new
+      ),
+      Map.entry(
+        element("Row"),
+        TrV1RowParser::new
+      )
+    );
+
+  private final ArrayList<List<TrArgumentType>> rows;
+  private List<TrStatementRowsColumn> columns;
+  private String table;
+  private int batchSize;
+  private boolean transactional;
+
+  /**
+   * A row set parser.
+   *
+   * @param context A context
+   */
+
+  public TrV1RowsParser(
+    final BTElementParsingContextType context)
+  {
+    this.rows = new ArrayList<>();
+    this.columns = List.of();
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return HANDLERS;
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.table =
+      attributes.getValue("table");
+    this.batchSize =
+      Integer.parseInt(
+        Objects.requireNonNullElse(attributes.getValue("batchSize"), "500")
+      );
+    this.transactional =
+      booleanAttribute(attributes, "transactional", true);
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final Object result)
+  {
+    if (result instanceof final TrV1RowsColumns c) {
+      this.columns = c.columns();
+      return;
+    }
+    if (result instanceof final TrV1Row row) {
+      this.rows.add(this.parseRow(row));
+      return;
+    }
+
+    throw new IllegalArgumentException("Unexpected: %s".formatted(result));
+  }
+
+  private List<TrArgumentType> parseRow(
+    final TrV1Row row)
+  {
+    final var values = row.values();
+    if (values.size() != this.columns.size()) {
+      throw new IllegalArgumentException(
+        "Row %d has %d values, but %d columns are specified"
+          .formatted(
+            Integer.valueOf(this.rows.size()),
+            Integer.valueOf(values.size()),
+            Integer.valueOf(this.columns.size()))
+      );
+    }
+
+    final var result = new ArrayList<TrArgumentType>(values.size());
+    for (int index = 0; index < values.size(); ++index) {
+      result.add(TrRowValues.parse(this.columns.get(index), values.get(index)));
+    }
+    return result;
+  }
+
+  @Override
+  public TrStatementRows onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrStatementRows(
+      this.table,
+      this.columns,
+      this.rows,
+      this.batchSize,
+      this.transactional
+    );
+  }
+}
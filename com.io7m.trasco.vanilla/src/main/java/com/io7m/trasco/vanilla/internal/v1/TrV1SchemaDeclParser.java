@@ -21,8 +21,6 @@ import com.io7m.blackthorne.core.BTElementHandlerType;
 import com.io7m.blackthorne.core.BTElementParsingContextType;
 import com.io7m.blackthorne.core.BTQualifiedName;
 import com.io7m.trasco.api.TrSchemaRevision;
-import com.io7m.trasco.api.TrStatement;
-import com.io7m.trasco.api.TrStatementParameterized;
 import com.io7m.trasco.api.TrStatementType;
 import org.xml.sax.Attributes;
 
@@ -31,6 +29,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static com.io7m.trasco.api.TrStatementIndexOperation.CREATE_INDEX;
+import static com.io7m.trasco.api.TrStatementIndexOperation.DROP_INDEX;
 import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 
 /**
@@ -40,6 +40,46 @@ import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 public final class TrV1SchemaDeclParser
   implements BTElementHandlerType<Object, TrSchemaRevision>
 {
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("StatementParameterized"),
+        TrV1StatementParameterizedParser::new
+      ),
+      Map.entry(
+        element("StatementTemplate"),
+        TrV1StatementTemplateParser::new
+      ),
+      Map.entry(
+        element("Rows"),
+        TrV1RowsParser::new
+      ),
+      Map.entry(
+        element("RowsCSV"),
+        TrV1RowsCSVParser::new
+      ),
+      Map.entry(
+        element("Statement"),
+        TrV1StatementParser::new
+      ),
+      Map.entry(
+        element("ParallelGroup"),
+        TrV1ParallelGroupParser::new
+      ),
+      Map.entry(
+        element("CreateIndex"),
+        c -> new TrV1StatementIndexParser(c, CREATE_INDEX)
+      ),
+      Map.entry(
+        element("DropIndex"),
+        c -> new TrV1StatementIndexParser(c, DROP_INDEX)
+      ),
+      Map.entry(
+        element("Comment"),
+        TrV1CommentParser::new
+      )
+    );
+
   private final ArrayList<TrStatementType> statements;
   private BigInteger versionCurrent;
 
@@ -55,25 +95,22 @@ public final class TrV1SchemaDeclParser
     this.statements = new ArrayList<>();
   }
 
+  /**
+   * @return The handlers for the elements that may appear within a schema
+   */
+
+  static Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  statementHandlers()
+  {
+    return HANDLERS;
+  }
+
   @Override
   public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
   onChildHandlersRequested(
     final BTElementParsingContextType context)
   {
-    return Map.ofEntries(
-      Map.entry(
-        element("StatementParameterized"),
-        TrV1StatementParameterizedParser::new
-      ),
-      Map.entry(
-        element("Statement"),
-        TrV1StatementParser::new
-      ),
-      Map.entry(
-        element("Comment"),
-        TrV1CommentParser::new
-      )
-    );
+    return statementHandlers();
   }
 
   @Override
@@ -90,12 +127,7 @@ public final class TrV1SchemaDeclParser
     final BTElementParsingContextType context,
     final Object result)
   {
-    if (result instanceof final TrStatement st) {
-      this.statements.add(st);
-      return;
-    }
-
-    if (result instanceof final TrStatementParameterized st) {
+    if (result instanceof final TrStatementType st) {
       this.statements.add(st);
       return;
     }
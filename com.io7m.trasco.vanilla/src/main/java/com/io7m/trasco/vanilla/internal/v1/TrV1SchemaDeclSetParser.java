@@ -41,6 +41,18 @@ import static java.util.function.Function.identity;
 public final class TrV1SchemaDeclSetParser
   implements BTElementHandlerType<Object, TrSchemaRevisionSet>
 {
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("Parameters"),
+        TrV1ParametersDeclParser::new
+      ),
+      Map.entry(
+        element("Schema"),
+        TrV1SchemaDeclParser::new
+      )
+    );
+
   private final List<TrSchemaRevision> revisions;
   private final HashMap<String, TrParameter> parameters;
 
@@ -62,16 +74,7 @@ public final class TrV1SchemaDeclSetParser
   onChildHandlersRequested(
     final BTElementParsingContextType context)
   {
-    return Map.ofEntries(
-      Map.entry(
-        element("Parameters"),
-        TrV1ParametersDeclParser::new
-      ),
-      Map.entry(
-        element("Schema"),
-        TrV1SchemaDeclParser::new
-      )
-    );
+    return HANDLERS;
   }
 
   @Override
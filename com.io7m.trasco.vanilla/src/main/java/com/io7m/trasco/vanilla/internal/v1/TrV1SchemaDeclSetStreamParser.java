@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrParameter;
+import com.io7m.trasco.api.TrParameterReferences;
+import com.io7m.trasco.api.TrSchemaRevisionStreamConsumerType;
+import com.io7m.trasco.api.TrStatementParallelGroup;
+import com.io7m.trasco.api.TrStatementParameterized;
+import com.io7m.trasco.api.TrStatementTemplate;
+import com.io7m.trasco.api.TrStatementType;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
+
+/**
+ * A parser for database schemas that delivers revisions to a consumer as
+ * they are parsed, rather than accumulating a revision set. The checks that
+ * a revision set makes of its revisions are made incrementally: Revisions
+ * must be declared in ascending order with versions that increment by 1,
+ * non-transactional statements must precede transactional statements, and
+ * parameter references must refer to declared parameters.
+ *
+ * Once the consumer has raised an exception, nothing further is delivered
+ * to it.
+ */
+
+public final class TrV1SchemaDeclSetStreamParser
+  implements BTElementHandlerType<Object, Map<String, TrParameter>>
+{
+  private final TrSchemaRevisionStreamConsumerType consumer;
+  private final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> handlers;
+  private Map<String, TrParameter> parameters;
+  private boolean parametersDelivered;
+  private BigInteger previous;
+  private boolean seenTransactional;
+
+  /*
+   * Set whilst the consumer is being called, and left set if the consumer
+   * raises an exception.
+   */
+
+  private boolean failed;
+
+  /**
+   * A parser for database schemas that delivers revisions to a consumer.
+   *
+   * @param context    The context
+   * @param inConsumer The consumer
+   */
+
+  public TrV1SchemaDeclSetStreamParser(
+    final BTElementParsingContextType context,
+    final TrSchemaRevisionStreamConsumerType inConsumer)
+  {
+    this.consumer =
+      Objects.requireNonNull(inConsumer, "consumer");
+    this.parameters =
+      Map.of();
+    this.handlers =
+      Map.ofEntries(
+        Map.entry(
+          element("Parameters"),
+          TrV1ParametersDeclParser::new
+        ),
+        Map.entry(
+          element("Schema"),
+          c -> new TrV1SchemaDeclStreamParser(c, this)
+        )
+      );
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return this.handlers;
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final Object result)
+    throws TrException
+  {
+    if (result instanceof BigInteger) {
+      return;
+    }
+
+    if (result instanceof final Map<?, ?> map) {
+      this.parameters =
+        Map.copyOf((Map<? extends String, ? extends TrParameter>) map);
+      this.deliverParameters();
+      return;
+    }
+
+    throw new IllegalArgumentException("Unexpected: %s".formatted(result));
+  }
+
+  @Override
+  public Map<String, TrParameter> onElementFinished(
+    final BTElementParsingContextType context)
+    throws TrException
+  {
+    this.deliverParameters();
+    return this.parameters;
+  }
+
+  private void deliverParameters()
+    throws TrException
+  {
+    if (this.failed || this.parametersDelivered) {
+      return;
+    }
+
+    this.parametersDelivered = true;
+    this.failed = true;
+    this.consumer.onParameters(this.parameters);
+    this.failed = false;
+  }
+
+  void revisionStarted(
+    final BigInteger version)
+    throws TrException
+  {
+    this.deliverParameters();
+
+    if (this.previous != null
+        && !version.subtract(this.previous).equals(BigInteger.ONE)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Revision versions must always increment by 1 (received %s followed by %s)",
+          this.previous,
+          version
+        ));
+    }
+
+    this.seenTransactional = false;
+    if (this.failed) {
+      return;
+    }
+
+    this.failed = true;
+    this.consumer.onRevisionStarted(version);
+    this.failed = false;
+  }
+
+  void statement(
+    final BigInteger version,
+    final TrStatementType statement)
+    throws TrException
+  {
+    if (statement.transactional()) {
+      this.seenTransactional = true;
+    } else if (this.seenTransactional) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Revision %s declares a non-transactional statement after a transactional statement",
+          version
+        ));
+    }
+
+    this.checkParameterReferences(version, statement);
+    if (this.failed) {
+      return;
+    }
+
+    this.failed = true;
+    this.consumer.onStatement(version, statement);
+    this.failed = false;
+  }
+
+  void revisionFinished(
+    final BigInteger version)
+    throws TrException
+  {
+    this.previous = version;
+    if (this.failed) {
+      return;
+    }
+
+    this.failed = true;
+    this.consumer.onRevisionFinished(version);
+    this.failed = false;
+  }
+
+  private void checkParameterReferences(
+    final BigInteger version,
+    final TrStatementType statement)
+  {
+    if (statement instanceof final TrStatementParallelGroup group) {
+      for (final var member : group.statements()) {
+        this.checkParameterReferences(version, member);
+      }
+      return;
+    }
+
+    final TrParameterReferences references;
+    if (statement instanceof final TrStatementParameterized parameterized) {
+      references = parameterized.references();
+    } else if (statement instanceof final TrStatementTemplate template) {
+      references = template.references();
+    } else {
+      return;
+    }
+
+    final var values = references.byName().values();
+    for (final var parameter : values) {
+      if (!this.parameters.containsKey(parameter.name())) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Revision %s specifies a reference to a nonexistent parameter %s",
+            version,
+            parameter
+          ));
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2026 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrException;
+import com.io7m.trasco.api.TrStatementType;
+import org.xml.sax.Attributes;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * A V1 schema parser that delivers each statement to the enclosing
+ * {@link TrV1SchemaDeclSetStreamParser} as soon as it has been parsed,
+ * rather than accumulating the statements of the schema.
+ */
+
+public final class TrV1SchemaDeclStreamParser
+  implements BTElementHandlerType<Object, BigInteger>
+{
+  private final TrV1SchemaDeclSetStreamParser set;
+  private BigInteger versionCurrent;
+
+  /**
+   * A V1 schema parser that delivers statements as they are parsed.
+   *
+   * @param context A context
+   * @param inSet   The enclosing schema set parser
+   */
+
+  public TrV1SchemaDeclStreamParser(
+    final BTElementParsingContextType context,
+    final TrV1SchemaDeclSetStreamParser inSet)
+  {
+    this.set = inSet;
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return TrV1SchemaDeclParser.statementHandlers();
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+    throws TrException
+  {
+    this.versionCurrent =
+      new BigInteger(attributes.getValue("versionCurrent"));
+    this.set.revisionStarted(this.versionCurrent);
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final Object result)
+    throws TrException
+  {
+    if (result instanceof final TrStatementType st) {
+      this.set.statement(this.versionCurrent, st);
+      return;
+    }
+
+    if (result instanceof TrV1Comment) {
+      return;
+    }
+
+    throw new IllegalArgumentException("Unexpected: %s".formatted(result));
+  }
+
+  @Override
+  public BigInteger onElementFinished(
+    final BTElementParsingContextType context)
+    throws TrException
+  {
+    this.set.revisionFinished(this.versionCurrent);
+    return this.versionCurrent;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.trasco.api.TrStatementIndex;
+import com.io7m.trasco.api.TrStatementIndexOperation;
+import org.xml.sax.Attributes;
+
+import java.util.Objects;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.textBuffer;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.textTake;
+
+/**
+ * An index statement parser.
+ */
+
+public final class TrV1StatementIndexParser
+  implements BTElementHandlerType<Object, TrStatementIndex>
+{
+  private final TrStatementIndexOperation operation;
+  private final StringBuilder text;
+  private String index;
+
+  /**
+   * An index statement parser.
+   *
+   * @param context     The context
+   * @param inOperation The index operation
+   */
+
+  public TrV1StatementIndexParser(
+    final BTElementParsingContextType context,
+    final TrStatementIndexOperation inOperation)
+  {
+    this.operation =
+      Objects.requireNonNull(inOperation, "operation");
+    this.text =
+      textBuffer();
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.index = attributes.getValue("index");
+  }
+
+  @Override
+  public void onCharacters(
+    final BTElementParsingContextType context,
+    final char[] data,
+    final int offset,
+    final int length)
+  {
+    this.text.append(data, offset, length);
+  }
+
+  @Override
+  public TrStatementIndex onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrStatementIndex(
+      this.operation,
+      this.index,
+      textTake(this.text)
+    );
+  }
+}
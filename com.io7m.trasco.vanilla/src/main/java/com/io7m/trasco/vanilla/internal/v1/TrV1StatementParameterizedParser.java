@@ -29,6 +29,7 @@ import org.xml.sax.Attributes;
 import java.util.Map;
 import java.util.Objects;
 
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.booleanAttribute;
 import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 
 /**
@@ -38,9 +39,22 @@ import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
 public final class TrV1StatementParameterizedParser
   implements BTElementHandlerType<Object, TrStatementParameterized>
 {
-  private final StringBuilder text;
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("ParameterReferences"),
+        TrV1ParameterReferencesDeclParser::new
+      ),
+      Map.entry(
+        element("Text"),
+        TrV1StatementParser::new
+      )
+    );
+
+  private String text;
   private TrParameterReferences parameters;
   private TrParameterInterpolation interpolation;
+  private boolean transactional;
 
   /**
    * A statement parser.
@@ -52,7 +66,7 @@ public final class TrV1StatementParameterizedParser
     final BTElementParsingContextType context)
   {
     this.parameters = TrParameterReferences.of();
-    this.text = new StringBuilder(128);
+    this.text = "";
   }
 
   @Override
@@ -60,16 +74,7 @@ public final class TrV1StatementParameterizedParser
   onChildHandlersRequested(
     final BTElementParsingContextType context)
   {
-    return Map.ofEntries(
-      Map.entry(
-        element("ParameterReferences"),
-        TrV1ParameterReferencesDeclParser::new
-      ),
-      Map.entry(
-        element("Text"),
-        TrV1StatementParser::new
-      )
-    );
+    return HANDLERS;
   }
 
   @Override
@@ -84,6 +89,8 @@ public final class TrV1StatementParameterizedParser
           TrParameterInterpolation.PREPARED_STATEMENT.name()
         )
       );
+    this.transactional =
+      booleanAttribute(attributes, "transactional", true);
   }
 
   @Override
@@ -92,7 +99,7 @@ public final class TrV1StatementParameterizedParser
     final Object result)
   {
     if (result instanceof final TrStatement st) {
-      this.text.append(st.text());
+      this.text = this.text.isEmpty() ? st.text() : this.text + st.text();
       return;
     }
     if (result instanceof final TrParameterReferences refs) {
@@ -109,8 +116,9 @@ public final class TrV1StatementParameterizedParser
   {
     return new TrStatementParameterized(
       this.parameters,
-      this.text.toString().trim(),
-      this.interpolation
+      this.text.strip(),
+      this.interpolation,
+      this.transactional
     );
   }
 }
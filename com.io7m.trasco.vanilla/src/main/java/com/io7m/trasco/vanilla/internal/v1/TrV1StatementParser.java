@@ -19,6 +19,11 @@ package com.io7m.trasco.vanilla.internal.v1;
 import com.io7m.blackthorne.core.BTElementHandlerType;
 import com.io7m.blackthorne.core.BTElementParsingContextType;
 import com.io7m.trasco.api.TrStatement;
+import org.xml.sax.Attributes;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.booleanAttribute;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.textBuffer;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.textTake;
 
 /**
  * A statement parser.
@@ -28,6 +33,7 @@ public final class TrV1StatementParser
   implements BTElementHandlerType<Object, TrStatement>
 {
   private final StringBuilder text;
+  private boolean transactional;
 
   /**
    * A statement parser.
@@ -38,7 +44,17 @@ public final class TrV1StatementParser
   public TrV1StatementParser(
     final BTElementParsingContextType context)
   {
-    this.text = new StringBuilder(128);
+    this.text = textBuffer();
+    this.transactional = true;
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.transactional =
+      booleanAttribute(attributes, "transactional", true);
   }
 
   @Override
@@ -55,6 +71,6 @@ public final class TrV1StatementParser
   public TrStatement onElementFinished(
     final BTElementParsingContextType context)
   {
-    return new TrStatement(this.text.toString().trim());
+    return new TrStatement(textTake(this.text), this.transactional);
   }
 }
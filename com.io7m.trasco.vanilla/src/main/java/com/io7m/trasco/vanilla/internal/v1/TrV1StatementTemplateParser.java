@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrParameterInterpolation;
+import com.io7m.trasco.api.TrParameterReferences;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementTemplate;
+import org.xml.sax.Attributes;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.booleanAttribute;
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
+
+/**
+ * A statement template parser.
+ */
+
+public final class TrV1StatementTemplateParser
+  implements BTElementHandlerType<Object, TrStatementTemplate>
+{
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("ParameterReferences"),
+        TrV1ParameterReferencesDeclParser::new
+      ),
+      Map.entry(
+        element("Range"),
+        TrV1TemplateRangeParser::new
+      ),
+      Map.entry(
+        element("Values"),
+        TrV1TemplateValuesParser::new
+      ),
+      Map.entry(
+        element("Text"),
+        TrV1StatementParser::new
+      )
+    );
+
+  private TrParameterReferences parameters;
+  private TrV1TemplateValues values;
+  private String text;
+  private TrParameterInterpolation interpolation;
+  private int batchSize;
+  private boolean transactional;
+
+  /**
+   * A statement template parser.
+   *
+   * @param context The context
+   */
+
+  public TrV1StatementTemplateParser(
+    final BTElementParsingContextType context)
+  {
+    this.parameters = TrParameterReferences.of();
+    this.text = "";
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ?>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return HANDLERS;
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.interpolation =
+      TrParameterInterpolation.valueOf(
+        Objects.requireNonNullElse(
+          attributes.getValue("parameterInterpolation"),
+          TrParameterInterpolation.PREPARED_STATEMENT.name()
+        )
+      );
+    this.batchSize =
+      Integer.parseInt(
+        Objects.requireNonNullElse(attributes.getValue("batchSize"), "500")
+      );
+    this.transactional =
+      booleanAttribute(attributes, "transactional", true);
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final Object result)
+  {
+    if (result instanceof final TrStatement st) {
+      this.text = st.text();
+      return;
+    }
+    if (result instanceof final TrParameterReferences refs) {
+      this.parameters = refs;
+      return;
+    }
+    if (result instanceof final TrV1TemplateValues v) {
+      this.values = v;
+      return;
+    }
+
+    throw new IllegalArgumentException("Unexpected: %s".formatted(result));
+  }
+
+  @Override
+  public TrStatementTemplate onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrStatementTemplate(
+      this.parameters,
+      this.values.order(),
+      this.values.values(),
+      this.text,
+      this.interpolation,
+      this.batchSize,
+      this.transactional
+    );
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.trasco.api.TrStatementTemplateRange;
+import org.xml.sax.Attributes;
+
+/**
+ * A template range parser.
+ */
+
+public final class TrV1TemplateRangeParser
+  implements BTElementHandlerType<Object, TrV1TemplateValues>
+{
+  private int order;
+  private long from;
+  private long to;
+
+  /**
+   * A template range parser.
+   *
+   * @param context The context
+   */
+
+  public TrV1TemplateRangeParser(
+    final BTElementParsingContextType context)
+  {
+
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.order =
+      Integer.parseUnsignedInt(attributes.getValue("order"));
+    this.from =
+      Long.parseLong(attributes.getValue("from"));
+    this.to =
+      Long.parseLong(attributes.getValue("to"));
+  }
+
+  @Override
+  public TrV1TemplateValues onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrV1TemplateValues(
+      this.order,
+      new TrStatementTemplateRange(this.from, this.to)
+    );
+  }
+}
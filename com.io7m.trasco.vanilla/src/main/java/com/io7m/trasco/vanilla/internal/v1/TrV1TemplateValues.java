@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.trasco.api.TrStatementTemplateValuesType;
+
+import java.util.Objects;
+
+/**
+ * The values of a statement template, along with the order in which the
+ * template value is supplied to the statement.
+ *
+ * @param order  The order
+ * @param values The values
+ */
+
+public record TrV1TemplateValues(
+  int order,
+  TrStatementTemplateValuesType values)
+{
+  /**
+   * The values of a statement template.
+   *
+   * @param order  The order
+   * @param values The values
+   */
+
+  public TrV1TemplateValues
+  {
+    Objects.requireNonNull(values, "values");
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2021 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.trasco.vanilla.internal.v1;
+
+import com.io7m.blackthorne.core.BTElementHandlerConstructorType;
+import com.io7m.blackthorne.core.BTElementHandlerType;
+import com.io7m.blackthorne.core.BTElementParsingContextType;
+import com.io7m.blackthorne.core.BTQualifiedName;
+import com.io7m.trasco.api.TrStatement;
+import com.io7m.trasco.api.TrStatementTemplateList;
+import org.xml.sax.Attributes;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static com.io7m.trasco.vanilla.internal.v1.TrV1.element;
+
+/**
+ * A template value list parser.
+ */
+
+public final class TrV1TemplateValuesParser
+  implements BTElementHandlerType<TrStatement, TrV1TemplateValues>
+{
+  private static final Map<BTQualifiedName, BTElementHandlerConstructorType<?, ? extends TrStatement>> HANDLERS =
+    Map.ofEntries(
+      Map.entry(
+        element("Value"),
+        TrV1StatementParser::new
+      )
+    );
+
+  private final ArrayList<String> values;
+  private int order;
+
+  /**
+   * A template value list parser.
+   *
+   * @param context The context
+   */
+
+  public TrV1TemplateValuesParser(
+    final BTElementParsingContextType context)
+  {
+    this.values = new ArrayList<>();
+  }
+
+  @Override
+  public Map<BTQualifiedName, BTElementHandlerConstructorType<?, ? extends TrStatement>>
+  onChildHandlersRequested(
+    final BTElementParsingContextType context)
+  {
+    return HANDLERS;
+  }
+
+  @Override
+  public void onElementStart(
+    final BTElementParsingContextType context,
+    final Attributes attributes)
+  {
+    this.order =
+      Integer.parseUnsignedInt(attributes.getValue("order"));
+  }
+
+  @Override
+  public void onChildValueProduced(
+    final BTElementParsingContextType context,
+    final TrStatement result)
+  {
+    this.values.add(result.text());
+  }
+
+  @Override
+  public TrV1TemplateValues onElementFinished(
+    final BTElementParsingContextType context)
+  {
+    return new TrV1TemplateValues(
+      this.order,
+      new TrStatementTemplateList(this.values)
+    );
+  }
+}
@@ -32,6 +32,7 @@ module com.io7m.trasco.vanilla
   requires com.io7m.junreachable.core;
   requires com.io7m.jxe.core;
   requires java.sql;
+  requires java.xml;
   requires org.apache.commons.text;
   requires org.slf4j;
 